@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.Constants;
+import nxt.NxtException;
+import nxt.account.PaymentAttachment;
+import nxt.account.PaymentFxtAttachment;
+import nxt.crypto.Crypto;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signed blocks and transactions used as benchmark input.
+ *
+ * The data is built without a database, so it is valid as far as parsing,
+ * serialization and signature checks are concerned, but it cannot be pushed.
+ */
+public final class BenchmarkData {
+
+    public static final String SECRET_PHRASE = "benchmark secret phrase";
+
+    public static final byte[] PUBLIC_KEY = Crypto.getPublicKey(SECRET_PHRASE);
+
+    private static final int TIMESTAMP = 1000;
+
+    public static FxtTransactionImpl newFxtTransaction(long recipientId) {
+        try {
+            return (FxtTransactionImpl)FxtChain.FXT.newTransactionBuilder(PUBLIC_KEY, Constants.ONE_FXT, Constants.ONE_FXT,
+                    (short)1440, PaymentFxtAttachment.INSTANCE)
+                    .recipientId(recipientId)
+                    .timestamp(TIMESTAMP)
+                    .ecBlockHeight(1)
+                    .ecBlockId(1L)
+                    .build(SECRET_PHRASE);
+        } catch (NxtException.NotValidException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    public static ChildTransactionImpl newChildTransaction(long recipientId) {
+        try {
+            return (ChildTransactionImpl)ChildChain.IGNIS.newTransactionBuilder(PUBLIC_KEY, ChildChain.IGNIS.ONE_COIN,
+                    ChildChain.IGNIS.ONE_COIN, (short)1440, PaymentAttachment.INSTANCE)
+                    .recipientId(recipientId)
+                    .timestamp(TIMESTAMP)
+                    .ecBlockHeight(1)
+                    .ecBlockId(1L)
+                    .build(SECRET_PHRASE);
+        } catch (NxtException.NotValidException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    public static List<FxtTransactionImpl> newFxtTransactions(int count) {
+        List<FxtTransactionImpl> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(newFxtTransaction(i + 1));
+        }
+        return transactions;
+    }
+
+    public static List<ChildTransactionImpl> newChildTransactions(int count) {
+        List<ChildTransactionImpl> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(newChildTransaction(i + 1));
+        }
+        return transactions;
+    }
+
+    public static BlockImpl newBlock(List<FxtTransactionImpl> transactions) {
+        MessageDigest digest = Crypto.sha256();
+        long totalFeeFQT = 0;
+        for (FxtTransactionImpl transaction : transactions) {
+            digest.update(transaction.bytes());
+            totalFeeFQT += transaction.getFee();
+        }
+        byte[] payloadHash = digest.digest();
+        byte[] generationSignature = digest.digest(PUBLIC_KEY);
+        return new BlockImpl(3, TIMESTAMP + 60, 1L, totalFeeFQT, payloadHash, PUBLIC_KEY, generationSignature,
+                new byte[32], transactions, SECRET_PHRASE);
+    }
+
+    private BenchmarkData() {} // never
+
+}
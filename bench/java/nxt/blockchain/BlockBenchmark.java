@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.NxtException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Block parsing and serialization
+ */
+@State(Scope.Benchmark)
+public class BlockBenchmark {
+
+    @Param({"0", "10", "100"})
+    private int transactionCount;
+
+    private List<FxtTransactionImpl> transactions;
+    private byte[] blockBytes;
+
+    @Setup
+    public void setup() {
+        transactions = BenchmarkData.newFxtTransactions(transactionCount);
+        blockBytes = BenchmarkData.newBlock(transactions).bytes();
+    }
+
+    @Benchmark
+    public BlockImpl parseBlock() throws NxtException.NotValidException {
+        return BlockImpl.parseBlock(blockBytes, transactions);
+    }
+
+    @Benchmark
+    public byte[] parseBlockAndBytes() throws NxtException.NotValidException {
+        return BlockImpl.parseBlock(blockBytes, transactions).bytes();
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.NxtException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Transaction parsing and serialization
+ */
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    @Param({"FXT", "CHILD"})
+    private String chain;
+
+    private TransactionImpl transaction;
+    private byte[] transactionBytes;
+
+    @Setup
+    public void setup() {
+        transaction = "FXT".equals(chain) ? BenchmarkData.newFxtTransaction(1) : BenchmarkData.newChildTransaction(1);
+        transactionBytes = transaction.bytes();
+    }
+
+    @Benchmark
+    public TransactionImpl parse() throws NxtException.NotValidException {
+        return TransactionImpl.newTransactionBuilder(transactionBytes).build();
+    }
+
+    @Benchmark
+    public byte[] bytes() {
+        // bytes() caches its result, generate the bytes directly
+        return transaction.generateBytes(false).array();
+    }
+
+}
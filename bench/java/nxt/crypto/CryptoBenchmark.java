@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Signing and signature verification
+ */
+@State(Scope.Benchmark)
+public class CryptoBenchmark {
+
+    private static final String SECRET_PHRASE = "benchmark secret phrase";
+
+    private byte[] message;
+    private byte[] signature;
+    private byte[] publicKey;
+
+    @Setup
+    public void setup() {
+        message = new byte[176];
+        ThreadLocalRandom.current().nextBytes(message);
+        signature = Crypto.sign(message, SECRET_PHRASE);
+        publicKey = Crypto.getPublicKey(SECRET_PHRASE);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return Crypto.sign(message, SECRET_PHRASE);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return Crypto.verify(signature, message, publicKey);
+    }
+
+}
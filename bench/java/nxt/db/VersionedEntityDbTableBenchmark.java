@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.db;
+
+import nxt.dbschema.Db;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Versioned entity table lookups and inserts on the database configured by
+ * bench/conf/nxt.properties (an in-memory H2 database by default)
+ */
+@State(Scope.Benchmark)
+public class VersionedEntityDbTableBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final class Entity {
+
+        private final long id;
+        private final DbKey dbKey;
+        private long value;
+
+        private Entity(long id, DbKey dbKey) {
+            this.id = id;
+            this.dbKey = dbKey;
+        }
+
+        private Entity(ResultSet rs, DbKey dbKey) throws SQLException {
+            this.id = rs.getLong("id");
+            this.dbKey = dbKey;
+            this.value = rs.getLong("value");
+        }
+
+    }
+
+    private static final DbKey.LongKeyFactory<Entity> entityDbKeyFactory = new DbKey.LongKeyFactory<Entity>("id") {
+
+        @Override
+        public DbKey newKey(Entity entity) {
+            return entity.dbKey == null ? newKey(entity.id) : entity.dbKey;
+        }
+
+        @Override
+        public Entity newEntity(DbKey dbKey) {
+            return new Entity(((DbKey.LongKey)dbKey).getId(), dbKey);
+        }
+
+    };
+
+    private static VersionedEntityDbTable<Entity> entityTable;
+
+    @Param({"10000"})
+    private int entityCount;
+
+    private int height;
+
+    @Setup
+    public void setup() throws SQLException {
+        if (entityTable == null) {
+            Db.db.init(Collections.emptyList());
+            try (Connection con = Db.getConnection();
+                 Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("DROP TABLE IF EXISTS bench_entity");
+                stmt.executeUpdate("CREATE TABLE bench_entity (db_id IDENTITY, id BIGINT NOT NULL, value BIGINT NOT NULL, "
+                        + "height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
+                stmt.executeUpdate("CREATE UNIQUE INDEX bench_entity_id_height_idx ON bench_entity (id, height DESC)");
+                stmt.executeUpdate("CREATE INDEX bench_entity_height_id_idx ON bench_entity (height, id)");
+            }
+            entityTable = new VersionedEntityDbTable<Entity>("public.bench_entity", entityDbKeyFactory) {
+
+                @Override
+                protected Entity load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
+                    return new Entity(rs, dbKey);
+                }
+
+                @Override
+                protected void save(Connection con, Entity entity) throws SQLException {
+                    try (PreparedStatement pstmt = con.prepareStatement("MERGE INTO bench_entity (id, value, height, latest) "
+                            + "KEY (id, height) VALUES (?, ?, ?, TRUE)")) {
+                        int i = 0;
+                        pstmt.setLong(++i, entity.id);
+                        pstmt.setLong(++i, entity.value);
+                        pstmt.setInt(++i, height);
+                        pstmt.executeUpdate();
+                    }
+                }
+
+            };
+        }
+        height = 1;
+        Db.db.beginTransaction();
+        try {
+            for (long id = 1; id <= entityCount; id++) {
+                Entity entity = entityTable.newEntity(entityDbKeyFactory.newKey(id));
+                entity.value = id;
+                entityTable.insert(entity);
+            }
+            Db.db.commitTransaction();
+        } finally {
+            Db.db.endTransaction();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Db.db.beginTransaction();
+        try {
+            entityTable.truncate();
+            Db.db.commitTransaction();
+        } finally {
+            Db.db.endTransaction();
+        }
+    }
+
+    @Benchmark
+    public Entity get() {
+        return entityTable.get(entityDbKeyFactory.newKey(ThreadLocalRandom.current().nextLong(entityCount) + 1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insert() {
+        height += 1;
+        Db.db.beginTransaction();
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Entity entity = entityTable.get(entityDbKeyFactory.newKey(ThreadLocalRandom.current().nextLong(entityCount) + 1));
+                entity.value += 1;
+                entityTable.insert(entity);
+            }
+            Db.db.commitTransaction();
+        } finally {
+            Db.db.endTransaction();
+        }
+    }
+
+}
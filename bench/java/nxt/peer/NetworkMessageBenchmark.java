@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.peer;
+
+import nxt.NxtException;
+import nxt.blockchain.BenchmarkData;
+import nxt.blockchain.Block;
+import nxt.blockchain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoding and decoding of the Blocks and Transactions peer messages
+ */
+@State(Scope.Benchmark)
+public class NetworkMessageBenchmark {
+
+    @Param({"10", "100"})
+    private int transactionCount;
+
+    private List<Block> blocks;
+    private List<Transaction> transactions;
+    private byte[] blocksMessageBytes;
+    private byte[] transactionsMessageBytes;
+
+    @Setup
+    public void setup() {
+        blocks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            blocks.add(BenchmarkData.newBlock(BenchmarkData.newFxtTransactions(transactionCount)));
+        }
+        transactions = new ArrayList<>(BenchmarkData.newChildTransactions(transactionCount));
+        blocksMessageBytes = encode(new NetworkMessage.BlocksMessage(1, blocks));
+        transactionsMessageBytes = encode(new NetworkMessage.TransactionsMessage(1, transactions));
+    }
+
+    @Benchmark
+    public byte[] encodeBlocks() {
+        return encode(new NetworkMessage.BlocksMessage(1, blocks));
+    }
+
+    @Benchmark
+    public List<Block> decodeBlocks() throws NetworkException, NxtException.NotValidException {
+        return ((NetworkMessage.BlocksMessage)decode(blocksMessageBytes)).getBlocks();
+    }
+
+    @Benchmark
+    public byte[] encodeTransactions() {
+        return encode(new NetworkMessage.TransactionsMessage(1, transactions));
+    }
+
+    @Benchmark
+    public List<Transaction> decodeTransactions() throws NetworkException, NxtException.NotValidException {
+        return ((NetworkMessage.TransactionsMessage)decode(transactionsMessageBytes)).getTransactions();
+    }
+
+    private static byte[] encode(NetworkMessage message) {
+        ByteBuffer buffer = ByteBuffer.allocate(message.getLength());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        message.getBytes(buffer);
+        return buffer.array();
+    }
+
+    private static NetworkMessage decode(byte[] bytes) throws NetworkException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return NetworkMessage.getMessage(buffer);
+    }
+
+}
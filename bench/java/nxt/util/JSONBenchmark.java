@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.util;
+
+import nxt.blockchain.BenchmarkData;
+import nxt.blockchain.ChildTransactionImpl;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * JSON encoding of API responses
+ */
+@State(Scope.Benchmark)
+public class JSONBenchmark {
+
+    @Param({"1", "100"})
+    private int transactionCount;
+
+    private JSONObject response;
+
+    @Setup
+    public void setup() {
+        JSONArray transactionsJSON = new JSONArray();
+        for (ChildTransactionImpl transaction : BenchmarkData.newChildTransactions(transactionCount)) {
+            transactionsJSON.add(transaction.getJSONObject());
+        }
+        response = new JSONObject();
+        response.put("transactions", transactionsJSON);
+        response.put("requestProcessingTime", 1);
+    }
+
+    @Benchmark
+    public String writeJSONString() throws IOException {
+        StringWriter writer = new StringWriter();
+        JSON.writeJSONString(response, writer);
+        return writer.toString();
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Primitive long collections compared with the boxed JDK collections, for the transaction
+ * identifier duplicate check of a block and the block map of a download.  Run with
+ * -prof gc to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+public class LongHashMapBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private long[] ids;
+
+    @Setup
+    public void setup() {
+        ids = ThreadLocalRandom.current().longs(size).toArray();
+    }
+
+    @Benchmark
+    public int hashSet() {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set.size();
+    }
+
+    @Benchmark
+    public int longHashSet() {
+        LongHashSet set = new LongHashSet();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set.size();
+    }
+
+    @Benchmark
+    public int hashMap() {
+        Map<Long, long[]> map = new HashMap<>();
+        for (long id : ids) {
+            map.put(id, ids);
+        }
+        int found = 0;
+        for (long id : ids) {
+            if (map.get(id) != null) {
+                found += 1;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int longHashMap() {
+        LongHashMap<long[]> map = new LongHashMap<>();
+        for (long id : ids) {
+            map.put(id, ids);
+        }
+        int found = 0;
+        for (long id : ids) {
+            if (map.get(id) != null) {
+                found += 1;
+            }
+        }
+        return found;
+    }
+
+}
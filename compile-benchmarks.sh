@@ -0,0 +1,21 @@
+#!/bin/sh
+CP="lib/*:classes:benchlib/*"
+SP=src/java/:bench/java/
+
+if [ ! -d classes ]; then
+    echo "nxt core class files not found, run compile.sh first"
+    exit 1
+fi
+if ! ls benchlib/jmh-core-*.jar > /dev/null 2>&1; then
+    echo "JMH not found, copy jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3 jars to benchlib/"
+    exit 1
+fi
+
+/bin/rm -rf bench/classes
+/bin/mkdir -p bench/classes/
+
+echo "compiling benchmarks..."
+find bench/java/ -name "*.java" > benchmarks.tmp
+javac -encoding utf8 -sourcepath "${SP}" -classpath "${CP}" -d bench/classes/ @benchmarks.tmp || exit 1
+/bin/rm -f benchmarks.tmp
+echo "benchmarks compiled successfully"
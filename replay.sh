@@ -0,0 +1,12 @@
+#!/bin/sh
+echo "***********************************************************************"
+echo "* This shell script replays the blocks of an existing database and    *"
+echo "* reports the block processing throughput. It modifies the database,  *"
+echo "* only run it on a copy of the node database, with the Ardor server   *"
+echo "* stopped.                                                            *"
+echo "*                                                                     *"
+echo "* Usage: ./replay.sh fromHeight toHeight [validate]                   *"
+echo "***********************************************************************"
+
+java -Xmx2048m -cp "classes:lib/*:conf" nxt.tools.ReplayBlocks $@
+exit $?
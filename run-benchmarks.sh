@@ -0,0 +1,12 @@
+#!/bin/sh
+# Runs the JMH benchmarks, any arguments are passed to JMH, for example:
+#   ./run-benchmarks.sh CryptoBenchmark -f 1 -wi 3 -i 5
+# Run ./run-benchmarks.sh -h for the list of JMH options.
+CP="bench/conf/:conf/:bench/classes/:classes/:lib/*:benchlib/*"
+
+if [ ! -d bench/classes ]; then
+    echo "benchmark class files not found, run compile-benchmarks.sh first"
+    exit 1
+fi
+
+java -classpath "${CP}" org.openjdk.jmh.Main "$@"
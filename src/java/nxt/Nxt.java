@@ -28,6 +28,7 @@ import nxt.ae.AssetHistory;
 import nxt.ae.AssetTransfer;
 import nxt.blockchain.Block;
 import nxt.blockchain.BlockImpl;
+import nxt.blockchain.BlockStateHash;
 import nxt.blockchain.Blockchain;
 import nxt.blockchain.BlockchainImpl;
 import nxt.blockchain.BlockchainProcessor;
@@ -38,6 +39,7 @@ import nxt.blockchain.FxtChain;
 import nxt.blockchain.FxtTransaction;
 import nxt.blockchain.Generator;
 import nxt.blockchain.Transaction;
+import nxt.blockchain.TransactionFilter;
 import nxt.blockchain.TransactionImpl;
 import nxt.blockchain.TransactionProcessor;
 import nxt.blockchain.TransactionProcessorImpl;
@@ -370,6 +372,7 @@ public final class Nxt {
         BlockchainProcessorImpl.getInstance().shutdown();
         Peers.shutdown();
         NetworkHandler.shutdown();
+        TransactionFilter.shutdown();
         Db.shutdown();
         Logger.logShutdownMessage("Ardor server " + VERSION + " stopped.");
         Logger.shutdown();
@@ -394,6 +397,7 @@ public final class Nxt {
                 BlockchainProcessorImpl.getInstance();
                 ChildChain.init();
                 FxtChain.init();
+                TransactionFilter.init();
                 Account.init();
                 AccountRestrictions.init();
                 AccountLedger.init();
@@ -405,6 +409,7 @@ public final class Nxt {
                 CurrencyMint.init();
                 CurrencyTransfer.init();
                 CoinExchange.init();
+                BlockStateHash.init();
                 NetworkHandler.init();
                 Peers.init();
                 APIProxy.init();
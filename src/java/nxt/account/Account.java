@@ -27,11 +27,13 @@ import nxt.blockchain.FxtChain;
 import nxt.blockchain.Transaction;
 import nxt.crypto.Crypto;
 import nxt.crypto.EncryptedData;
+import nxt.db.ContinuationToken;
 import nxt.db.DbClause;
 import nxt.db.DbIterator;
 import nxt.db.DbKey;
 import nxt.db.DbUtils;
 import nxt.db.DerivedDbTable;
+import nxt.db.KeysetSort;
 import nxt.db.VersionedEntityDbTable;
 import nxt.db.VersionedPersistentDbTable;
 import nxt.ms.CurrencyTransfer;
@@ -579,6 +581,8 @@ public final class Account {
 
     };
 
+    private static final KeysetSort assetAccountsSort = new KeysetSort("quantity DESC", "account_id");
+
     private static final VersionedEntityDbTable<AccountAsset> accountAssetTable = new VersionedEntityDbTable<AccountAsset>("public.account_asset", accountAssetDbKeyFactory) {
 
         @Override
@@ -817,9 +821,9 @@ public final class Account {
     }
 
     public static Account getAccount(long id) {
-        DbKey dbKey = accountDbKeyFactory.newKey(id);
-        Account account = accountTable.get(dbKey);
+        Account account = accountTable.get(id);
         if (account == null) {
+            DbKey dbKey = accountDbKeyFactory.newKey(id);
             PublicKey publicKey = publicKeyTable.get(dbKey);
             if (publicKey != null) {
                 account = accountTable.newEntity(dbKey);
@@ -894,9 +898,9 @@ public final class Account {
         if (id == 0) {
             throw new IllegalArgumentException("Invalid accountId 0");
         }
-        DbKey dbKey = accountDbKeyFactory.newKey(id);
-        Account account = accountTable.get(dbKey);
+        Account account = accountTable.get(id);
         if (account == null) {
+            DbKey dbKey = accountDbKeyFactory.newKey(id);
             account = accountTable.newEntity(dbKey);
             PublicKey publicKey = publicKeyTable.get(dbKey);
             if (publicKey == null) {
@@ -935,7 +939,7 @@ public final class Account {
     }
 
     public static AccountAsset getAccountAsset(long accountId, long assetId) {
-        return accountAssetTable.get(accountAssetDbKeyFactory.newKey(accountId, assetId));
+        return accountAssetTable.get(accountId, assetId);
     }
 
     public static AccountAsset getAccountAsset(long accountId, long assetId, int height) {
@@ -950,8 +954,29 @@ public final class Account {
         return accountAssetTable.getManyBy(new DbClause.LongClause("asset_id", assetId), height, from, to, " ORDER BY quantity DESC, account_id ");
     }
 
+    public static DbIterator<AccountAsset> getAssetAccounts(long assetId, int height, ContinuationToken continuation, int from, int to) {
+        return accountAssetTable.getManyBy(new DbClause.LongClause("asset_id", assetId), height, assetAccountsSort, continuation, from, to);
+    }
+
+    /**
+     * Return the asset balances of several accounts.  Accounts without a balance are not returned.
+     *
+     * @param   assetId             Asset identifier
+     * @param   accountIds          Account identifiers
+     * @return                      Account asset iterator
+     */
+    public static DbIterator<AccountAsset> getAssetAccounts(long assetId, long[] accountIds) {
+        return accountAssetTable.getManyBy(new DbClause.LongClause("asset_id", assetId)
+                .and(new DbClause.LongsClause("account_id", accountIds)), 0, -1);
+    }
+
+    public static DbIterator<AccountAsset> getAssetAccounts(long assetId, long[] accountIds, int height) {
+        return accountAssetTable.getManyBy(new DbClause.LongClause("asset_id", assetId)
+                .and(new DbClause.LongsClause("account_id", accountIds)), height, 0, -1);
+    }
+
     public static AccountCurrency getAccountCurrency(long accountId, long currencyId) {
-        return accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(accountId, currencyId));
+        return accountCurrencyTable.get(accountId, currencyId);
     }
 
     public static AccountCurrency getAccountCurrency(long accountId, long currencyId, int height) {
@@ -974,18 +999,35 @@ public final class Account {
         return accountCurrencyTable.getManyBy(new DbClause.LongClause("currency_id", currencyId), height, from, to);
     }
 
+    /**
+     * Return the currency balances of several accounts.  Accounts without a balance are not returned.
+     *
+     * @param   currencyId          Currency identifier
+     * @param   accountIds          Account identifiers
+     * @return                      Account currency iterator
+     */
+    public static DbIterator<AccountCurrency> getCurrencyAccounts(long currencyId, long[] accountIds) {
+        return accountCurrencyTable.getManyBy(new DbClause.LongClause("currency_id", currencyId)
+                .and(new DbClause.LongsClause("account_id", accountIds)), 0, -1);
+    }
+
+    public static DbIterator<AccountCurrency> getCurrencyAccounts(long currencyId, long[] accountIds, int height) {
+        return accountCurrencyTable.getManyBy(new DbClause.LongClause("currency_id", currencyId)
+                .and(new DbClause.LongsClause("account_id", accountIds)), height, 0, -1);
+    }
+
     public static long getAssetBalanceQNT(long accountId, long assetId, int height) {
         AccountAsset accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(accountId, assetId), height);
         return accountAsset == null ? 0 : accountAsset.quantityQNT;
     }
 
     public static long getAssetBalanceQNT(long accountId, long assetId) {
-        AccountAsset accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(accountId, assetId));
+        AccountAsset accountAsset = accountAssetTable.get(accountId, assetId);
         return accountAsset == null ? 0 : accountAsset.quantityQNT;
     }
 
     public static long getUnconfirmedAssetBalanceQNT(long accountId, long assetId) {
-        AccountAsset accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(accountId, assetId));
+        AccountAsset accountAsset = accountAssetTable.get(accountId, assetId);
         return accountAsset == null ? 0 : accountAsset.unconfirmedQuantityQNT;
     }
 
@@ -995,12 +1037,12 @@ public final class Account {
     }
 
     public static long getCurrencyUnits(long accountId, long currencyId) {
-        AccountCurrency accountCurrency = accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(accountId, currencyId));
+        AccountCurrency accountCurrency = accountCurrencyTable.get(accountId, currencyId);
         return accountCurrency == null ? 0 : accountCurrency.units;
     }
 
     public static long getUnconfirmedCurrencyUnits(long accountId, long currencyId) {
-        AccountCurrency accountCurrency = accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(accountId, currencyId));
+        AccountCurrency accountCurrency = accountCurrencyTable.get(accountId, currencyId);
         return accountCurrency == null ? 0 : accountCurrency.unconfirmedUnits;
     }
 
@@ -1331,7 +1373,7 @@ public final class Account {
     }
 
     public AccountAsset getAsset(long assetId) {
-        return accountAssetTable.get(accountAssetDbKeyFactory.newKey(this.id, assetId));
+        return accountAssetTable.get(this.id, assetId);
     }
 
     public AccountAsset getAsset(long assetId, int height) {
@@ -1351,7 +1393,7 @@ public final class Account {
     }
 
     public AccountCurrency getCurrency(long currencyId) {
-        return accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(this.id, currencyId));
+        return accountCurrencyTable.get(this.id, currencyId);
     }
 
     public AccountCurrency getCurrency(long currencyId, int height) {
@@ -1497,7 +1539,7 @@ public final class Account {
             return;
         }
         AccountAsset accountAsset;
-        accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(this.id, assetId));
+        accountAsset = accountAssetTable.get(this.id, assetId);
         long assetBalance = accountAsset == null ? 0 : accountAsset.quantityQNT;
         assetBalance = Math.addExact(assetBalance, quantityQNT);
         if (accountAsset == null) {
@@ -1518,7 +1560,7 @@ public final class Account {
             return;
         }
         AccountAsset accountAsset;
-        accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(this.id, assetId));
+        accountAsset = accountAssetTable.get(this.id, assetId);
         long unconfirmedAssetBalance = accountAsset == null ? 0 : accountAsset.unconfirmedQuantityQNT;
         unconfirmedAssetBalance = Math.addExact(unconfirmedAssetBalance, quantityQNT);
         if (accountAsset == null) {
@@ -1541,7 +1583,7 @@ public final class Account {
             return;
         }
         AccountAsset accountAsset;
-        accountAsset = accountAssetTable.get(accountAssetDbKeyFactory.newKey(this.id, assetId));
+        accountAsset = accountAssetTable.get(this.id, assetId);
         long assetBalance = accountAsset == null ? 0 : accountAsset.quantityQNT;
         assetBalance = Math.addExact(assetBalance, quantityQNT);
         long unconfirmedAssetBalance = accountAsset == null ? 0 : accountAsset.unconfirmedQuantityQNT;
@@ -1572,7 +1614,7 @@ public final class Account {
             return;
         }
         AccountCurrency accountCurrency;
-        accountCurrency = accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(this.id, currencyId));
+        accountCurrency = accountCurrencyTable.get(this.id, currencyId);
         long currencyUnits = accountCurrency == null ? 0 : accountCurrency.units;
         currencyUnits = Math.addExact(currencyUnits, units);
         if (accountCurrency == null) {
@@ -1592,7 +1634,7 @@ public final class Account {
         if (units == 0) {
             return;
         }
-        AccountCurrency accountCurrency = accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(this.id, currencyId));
+        AccountCurrency accountCurrency = accountCurrencyTable.get(this.id, currencyId);
         long unconfirmedCurrencyUnits = accountCurrency == null ? 0 : accountCurrency.unconfirmedUnits;
         unconfirmedCurrencyUnits = Math.addExact(unconfirmedCurrencyUnits, units);
         if (accountCurrency == null) {
@@ -1614,7 +1656,7 @@ public final class Account {
             return;
         }
         AccountCurrency accountCurrency;
-        accountCurrency = accountCurrencyTable.get(accountCurrencyDbKeyFactory.newKey(this.id, currencyId));
+        accountCurrency = accountCurrencyTable.get(this.id, currencyId);
         long currencyUnits = accountCurrency == null ? 0 : accountCurrency.units;
         currencyUnits = Math.addExact(currencyUnits, units);
         long unconfirmedCurrencyUnits = accountCurrency == null ? 0 : accountCurrency.unconfirmedUnits;
@@ -24,6 +24,7 @@ import nxt.blockchain.BlockchainProcessor;
 import nxt.blockchain.Chain;
 import nxt.blockchain.FxtChain;
 import nxt.blockchain.Transaction;
+import nxt.db.ContinuationToken;
 import nxt.db.DbUtils;
 import nxt.db.DerivedDbTable;
 import nxt.dbschema.Db;
@@ -325,6 +326,25 @@ public class AccountLedger {
     public static List<LedgerEntry> getEntries(long accountId, LedgerEvent event, long eventId,
                                                 LedgerHolding holding, long holdingId,
                                                 int firstIndex, int lastIndex) {
+        return getEntries(accountId, event, eventId, holding, holdingId, null, firstIndex, lastIndex);
+    }
+
+    /**
+     * Return the ledger entries sorted in descending insert order, following the entry of a continuation token
+     *
+     * @param   accountId                   Account identifier or zero if no account identifier
+     * @param   event                       Ledger event or null
+     * @param   eventId                     Ledger event identifier or zero if no event identifier
+     * @param   holding                     Ledger holding or null
+     * @param   holdingId                   Ledger holding identifier or zero if no holding identifier
+     * @param   continuation                Ledger identifier of the last entry of the previous page or null
+     * @param   firstIndex                  First matching entry index after the continuation, inclusive
+     * @param   lastIndex                   Last matching entry index after the continuation, inclusive
+     * @return                              List of ledger entries
+     */
+    public static List<LedgerEntry> getEntries(long accountId, LedgerEvent event, long eventId,
+                                                LedgerHolding holding, long holdingId, ContinuationToken continuation,
+                                                int firstIndex, int lastIndex) {
         if (!ledgerEnabled) {
             return Collections.emptyList();
         }
@@ -333,7 +353,7 @@ public class AccountLedger {
         // Build the SELECT statement to search the entries
         StringBuilder sb = new StringBuilder(128);
         sb.append("SELECT * FROM account_ledger ");
-        if (accountId != 0 || event != null || holding != null) {
+        if (accountId != 0 || event != null || holding != null || continuation != null) {
             sb.append("WHERE ");
         }
         if (accountId != 0) {
@@ -355,6 +375,12 @@ public class AccountLedger {
             if (holdingId != 0)
                 sb.append("AND holding_id = ? ");
         }
+        if (continuation != null) {
+            if (accountId != 0 || event != null || holding != null) {
+                sb.append("AND ");
+            }
+            sb.append("db_id < ? ");
+        }
         sb.append("ORDER BY db_id DESC ");
         sb.append(DbUtils.limitsClause(firstIndex, lastIndex));
         //
@@ -379,6 +405,9 @@ public class AccountLedger {
                     pstmt.setLong(++i, holdingId);
                 }
             }
+            if (continuation != null) {
+                pstmt.setLong(++i, continuation.get(0));
+            }
             DbUtils.setLimits(++i, pstmt, firstIndex, lastIndex);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -20,6 +20,8 @@ import nxt.Constants;
 import nxt.Nxt;
 import nxt.blockchain.Chain;
 import nxt.blockchain.FxtChain;
+import nxt.db.DbClause;
+import nxt.db.DbIterator;
 import nxt.db.DbKey;
 import nxt.db.VersionedEntityDbTable;
 import nxt.util.Listener;
@@ -112,14 +114,34 @@ public final class BalanceHome {
     }
 
     public Balance getBalance(long accountId) {
-        DbKey dbKey = balanceDbKeyFactory.newKey(accountId);
-        Balance balance = balanceTable.get(dbKey);
+        Balance balance = balanceTable.get(accountId);
         if (balance == null) {
-            balance = balanceTable.newEntity(dbKey);
+            balance = balanceTable.newEntity(balanceDbKeyFactory.newKey(accountId));
         }
         return balance;
     }
 
+    /**
+     * Return the balances of several accounts.  Accounts without a balance are not returned.
+     *
+     * @param   accountIds          Account identifiers
+     * @return                      Balance iterator
+     */
+    public DbIterator<Balance> getBalances(long[] accountIds) {
+        return balanceTable.getManyBy(new DbClause.LongsClause("account_id", accountIds), 0, -1);
+    }
+
+    /**
+     * Return the balances of several accounts as of a height.  Accounts without a balance are not returned.
+     *
+     * @param   accountIds          Account identifiers
+     * @param   height              Height
+     * @return                      Balance iterator
+     */
+    public DbIterator<Balance> getBalances(long[] accountIds, int height) {
+        return balanceTable.getManyBy(new DbClause.LongsClause("account_id", accountIds), height, 0, -1);
+    }
+
     public Balance getBalance(long accountId, int height) {
         DbKey dbKey = balanceDbKeyFactory.newKey(accountId);
         Balance balance = balanceTable.get(dbKey, height);
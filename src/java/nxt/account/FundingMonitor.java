@@ -34,15 +34,19 @@ import nxt.util.Convert;
 import nxt.util.Filter;
 import nxt.util.Listener;
 import nxt.util.Logger;
+import nxt.util.collections.LongHashMap;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.json.simple.parser.ParseException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 
@@ -78,7 +82,7 @@ public final class FundingMonitor {
     private static final List<FundingMonitor> monitors = new ArrayList<>();
 
     /** Monitored accounts */
-    private static final Map<Long, List<MonitoredAccount>> accounts = new HashMap<>();
+    private static final LongHashMap<List<MonitoredAccount>> accounts = new LongHashMap<>();
 
     /** Process semaphore */
     private static final Semaphore processSemaphore = new Semaphore(0);
@@ -86,6 +90,12 @@ public final class FundingMonitor {
     /** Pending updates */
     private static final ConcurrentLinkedQueue<MonitoredAccount> pendingEvents = new ConcurrentLinkedQueue<>();
 
+    /** Pending updates, to discard duplicate events */
+    private static final Set<MonitoredAccount> pendingSet = ConcurrentHashMap.newKeySet();
+
+    /** Maximum number of target balances read by a single query */
+    private static final int BALANCE_BATCH_SIZE = 256;
+
     /** Account monitor holding type */
     private final HoldingType holdingType;
 
@@ -310,7 +320,7 @@ public final class FundingMonitor {
                 accountList.forEach(account -> {
                     List<MonitoredAccount> activeList = accounts.computeIfAbsent(account.accountId, k -> new ArrayList<>());
                     activeList.add(account);
-                    pendingEvents.add(account);
+                    addPendingEvent(account);
                     Logger.logDebugMessage(String.format("Created %s monitor for target account %s, property '%s', holding %s, "
                                     + "amount %d, threshold %d, interval %d, chain %s",
                             holdingType.name(), account.accountName, monitor.property, Long.toUnsignedString(monitor.holdingId),
@@ -427,16 +437,15 @@ public final class FundingMonitor {
             // Remove monitored accounts (pending fund transactions will still be processed)
             //
             if (wasStopped) {
-                Iterator<List<MonitoredAccount>> accountListIt = accounts.values().iterator();
-                while (accountListIt.hasNext()) {
-                    List<MonitoredAccount> accountList = accountListIt.next();
+                for (long monitoredAccountId : accounts.keys()) {
+                    List<MonitoredAccount> accountList = accounts.get(monitoredAccountId);
                     Iterator<MonitoredAccount> accountIt = accountList.iterator();
                     while (accountIt.hasNext()) {
                         MonitoredAccount account = accountIt.next();
                         if (account.monitor == monitor) {
                             accountIt.remove();
                             if (accountList.isEmpty()) {
-                                accountListIt.remove();
+                                accounts.remove(monitoredAccountId);
                             }
                             break;
                         }
@@ -534,6 +543,30 @@ public final class FundingMonitor {
         }
     }
 
+    /**
+     * Add a pending update unless the monitored account already has one
+     *
+     * @param   account             Monitored account
+     */
+    private static void addPendingEvent(MonitoredAccount account) {
+        if (pendingSet.add(account)) {
+            pendingEvents.add(account);
+        }
+    }
+
+    /**
+     * Remove the next pending update
+     *
+     * @return                      Monitored account or null if there are no pending updates
+     */
+    private static MonitoredAccount pollPendingEvent() {
+        MonitoredAccount account = pendingEvents.poll();
+        if (account != null) {
+            pendingSet.remove(account);
+        }
+        return account;
+    }
+
     /**
      * Stop monitor processing
      */
@@ -595,42 +628,49 @@ public final class FundingMonitor {
                         Logger.logDebugMessage("Account monitor thread stopped");
                         break;
                     }
+                    //
+                    // Group the events which are due by monitor
+                    //
+                    int height = Nxt.getBlockchain().getHeight();
+                    Map<FundingMonitor, List<MonitoredAccount>> dueEvents = new LinkedHashMap<>();
                     MonitoredAccount monitoredAccount;
-                    while ((monitoredAccount = pendingEvents.poll()) != null) {
+                    while ((monitoredAccount = pollPendingEvent()) != null) {
+                        if (height - monitoredAccount.height < monitoredAccount.interval) {
+                            suspendedEvents.add(monitoredAccount);
+                        } else {
+                            dueEvents.computeIfAbsent(monitoredAccount.monitor, k -> new ArrayList<>()).add(monitoredAccount);
+                        }
+                    }
+                    //
+                    // Create the funding transactions and submit them as a single batch
+                    //
+                    List<Transaction> transactions = new ArrayList<>();
+                    LongHashMap<MonitoredAccount> fundedAccounts = new LongHashMap<>();
+                    dueEvents.forEach((monitor, events) -> {
                         try {
-                            Account targetAccount = Account.getAccount(monitoredAccount.accountId);
-                            Account fundingAccount = Account.getAccount(monitoredAccount.monitor.accountId);
-                            if (Nxt.getBlockchain().getHeight() - monitoredAccount.height < monitoredAccount.interval) {
-                                if (!suspendedEvents.contains(monitoredAccount)) {
-                                    suspendedEvents.add(monitoredAccount);
-                                }
-                            } else if (targetAccount == null) {
-                                Logger.logErrorMessage(String.format("Monitored account %s no longer exists",
-                                        monitoredAccount.accountName));
-                            } else if (fundingAccount == null) {
-                                Logger.logErrorMessage(String.format("Funding account %s no longer exists",
-                                        monitoredAccount.monitor.accountName));
-                            } else {
-                                switch (monitoredAccount.monitor.holdingType) {
-                                    case COIN:
-                                        processCoinEvent(monitoredAccount, targetAccount, fundingAccount);
-                                        break;
-                                    case ASSET:
-                                        processAssetEvent(monitoredAccount, targetAccount, fundingAccount);
-                                        break;
-                                    case CURRENCY:
-                                        processCurrencyEvent(monitoredAccount, targetAccount, fundingAccount);
-                                        break;
-                                }
-                            }
+                            processEvents(monitor, events, transactions, fundedAccounts);
                         } catch (Exception exc) {
-                            Logger.logErrorMessage(String.format("Unable to process %s event for account %s, property '%s', holding %s",
-                                    monitoredAccount.monitor.holdingType.name(), monitoredAccount.accountName,
-                                    monitoredAccount.monitor.property, Long.toUnsignedString(monitoredAccount.monitor.holdingId)), exc);
+                            Logger.logErrorMessage(String.format("Unable to process %s events for funding account %s, property '%s', holding %s",
+                                    monitor.holdingType.name(), monitor.accountName, monitor.property,
+                                    Long.toUnsignedString(monitor.holdingId)), exc);
+                        }
+                    });
+                    if (!transactions.isEmpty()) {
+                        List<? extends Transaction> acceptedTransactions = Nxt.getTransactionProcessor().broadcast(transactions);
+                        for (Transaction transaction : acceptedTransactions) {
+                            MonitoredAccount fundedAccount = fundedAccounts.get(transaction.getId());
+                            fundedAccount.height = height;
+                            Logger.logDebugMessage(String.format("%s funding transaction %s submitted for %d units from %s to %s on chain %s",
+                                    fundedAccount.monitor.holdingType.name(), transaction.getStringId(), fundedAccount.amount,
+                                    fundedAccount.monitor.accountName, fundedAccount.accountName, transaction.getChain().getName()));
+                        }
+                        if (acceptedTransactions.size() < transactions.size()) {
+                            Logger.logWarningMessage(String.format("%d of %d funding transactions were not accepted",
+                                    transactions.size() - acceptedTransactions.size(), transactions.size()));
                         }
                     }
                     if (!suspendedEvents.isEmpty()) {
-                        pendingEvents.addAll(suspendedEvents);
+                        suspendedEvents.forEach(FundingMonitor::addPendingEvent);
                         suspendedEvents.clear();
                     }
                 }
@@ -643,118 +683,125 @@ public final class FundingMonitor {
     }
 
     /**
-     * Process a COIN event
+     * Create the funding transactions for the due events of a monitor
      *
-     * @param   monitoredAccount            Monitored account
-     * @param   targetAccount               Target account
-     * @param   fundingAccount              Funding account
-     * @throws NxtException                Unable to create transaction
-     */
-    private static void processCoinEvent(MonitoredAccount monitoredAccount, Account targetAccount, Account fundingAccount)
-                                            throws NxtException {
-        FundingMonitor monitor = monitoredAccount.monitor;
-        Chain chain = monitor.chain;
-        BalanceHome balanceHome = chain.getBalanceHome();
-        if (balanceHome.getBalance(targetAccount.getId()).getBalance() < monitoredAccount.threshold) {
-            Attachment attachment = chain instanceof ChildChain ? PaymentAttachment.INSTANCE : PaymentFxtAttachment.INSTANCE;
-            Transaction.Builder builder = chain.newTransactionBuilder(monitor.publicKey, monitoredAccount.amount, -1, (short)15, attachment);
-            builder.recipientId(monitoredAccount.accountId)
-                   .timestamp(Nxt.getBlockchain().getLastBlockTimestamp());
-            if (builder instanceof ChildTransaction.Builder) {
-                ((ChildTransaction.Builder)builder).feeRateNQTPerFXT(monitor.feeRateNQTPerFXT);
-            }
-            Transaction transaction = builder.build(monitor.secretPhrase);
-            if (Math.addExact(monitoredAccount.amount, transaction.getFee()) > balanceHome.getBalance(fundingAccount.getId()).getUnconfirmedBalance()) {
-                Logger.logWarningMessage(String.format("Funding account %s has insufficient funds; funding transaction discarded",
-                        monitor.accountName));
-            } else {
-                Nxt.getTransactionProcessor().broadcast(transaction);
-                monitoredAccount.height = Nxt.getBlockchain().getHeight();
-                Logger.logDebugMessage(String.format("Coin funding transaction %s for %f %s submitted from %s to %s",
-                        transaction.getStringId(), (double)monitoredAccount.amount / chain.ONE_COIN,
-                        chain.getName(), monitor.accountName, monitoredAccount.accountName));
-            }
-        }
-    }
-
-    /**
-     * Process an ASSET event
+     * The balances of the monitored accounts are read together, and the funding account balance is
+     * reduced by each transaction created so that the batch doesn't exceed it.
      *
-     * @param   monitoredAccount            Monitored account
-     * @param   targetAccount               Target account
-     * @param   fundingAccount              Funding account
-     * @throws  NxtException                Unable to create transaction
+     * @param   monitor                     Funding monitor
+     * @param   events                      Monitored accounts with a pending event
+     * @param   transactions                Funding transactions
+     * @param   fundedAccounts              Monitored account for each funding transaction identifier
      */
-    private static void processAssetEvent(MonitoredAccount monitoredAccount, Account targetAccount, Account fundingAccount)
-                                            throws NxtException {
-        FundingMonitor monitor = monitoredAccount.monitor;
+    private static void processEvents(FundingMonitor monitor, List<MonitoredAccount> events, List<Transaction> transactions,
+                                      LongHashMap<MonitoredAccount> fundedAccounts) {
         Chain chain = monitor.chain;
-        Account.AccountAsset targetAsset = Account.getAccountAsset(targetAccount.getId(), monitor.holdingId);
-        Account.AccountAsset fundingAsset = Account.getAccountAsset(fundingAccount.getId(), monitor.holdingId);
-        if (fundingAsset == null || fundingAsset.getUnconfirmedQuantityQNT() < monitoredAccount.amount) {
-            Logger.logWarningMessage(
-                    String.format("Funding account %s has insufficient quantity for asset %s; funding transaction discarded",
-                            monitor.accountName, Long.toUnsignedString(monitor.holdingId)));
-        } else if (targetAsset == null || targetAsset.getQuantityQNT() < monitoredAccount.threshold) {
-            Attachment attachment = new AssetTransferAttachment(monitor.holdingId, monitoredAccount.amount);
-            Transaction.Builder builder = chain.newTransactionBuilder(monitor.publicKey, 0, -1, (short)15, attachment);
-            builder.recipientId(monitoredAccount.accountId)
-                   .timestamp(Nxt.getBlockchain().getLastBlockTimestamp());
-            if (builder instanceof ChildTransaction.Builder) {
-                ((ChildTransaction.Builder)builder).feeRateNQTPerFXT(monitor.feeRateNQTPerFXT);
-            }
-            Transaction transaction = builder.build(monitor.secretPhrase);
-            if (transaction.getFee() > chain.getBalanceHome().getBalance(fundingAccount.getId()).getUnconfirmedBalance()) {
-                Logger.logWarningMessage(String.format("Funding account %s has insufficient funds on chain %s; funding transaction discarded",
-                        monitor.accountName, chain.getName()));
-            } else {
-                Nxt.getTransactionProcessor().broadcast(transaction);
-                monitoredAccount.height = Nxt.getBlockchain().getHeight();
-                Logger.logDebugMessage(String.format("ASSET funding transaction %s submitted for %d units from %s to %s on chain %s",
-                        transaction.getStringId(), monitoredAccount.amount,
-                        monitor.accountName, monitoredAccount.accountName, chain.getName()));
+        if (Account.getAccount(monitor.accountId) == null) {
+            Logger.logErrorMessage(String.format("Funding account %s no longer exists", monitor.accountName));
+            return;
+        }
+        long fundingBalance = chain.getBalanceHome().getBalance(monitor.accountId).getUnconfirmedBalance();
+        long fundingQuantity = 0;
+        if (monitor.holdingType == HoldingType.ASSET) {
+            Account.AccountAsset fundingAsset = Account.getAccountAsset(monitor.accountId, monitor.holdingId);
+            fundingQuantity = fundingAsset != null ? fundingAsset.getUnconfirmedQuantityQNT() : 0;
+        } else if (monitor.holdingType == HoldingType.CURRENCY) {
+            Account.AccountCurrency fundingCurrency = Account.getAccountCurrency(monitor.accountId, monitor.holdingId);
+            fundingQuantity = fundingCurrency != null ? fundingCurrency.getUnconfirmedUnits() : 0;
+        }
+        LongHashMap<Long> targetBalances = getTargetBalances(monitor, events);
+        for (MonitoredAccount monitoredAccount : events) {
+            try {
+                Long targetBalance = targetBalances.get(monitoredAccount.accountId);
+                if (targetBalance == null && Account.getAccount(monitoredAccount.accountId) == null) {
+                    Logger.logErrorMessage(String.format("Monitored account %s no longer exists",
+                            monitoredAccount.accountName));
+                    continue;
+                }
+                if (targetBalance != null && targetBalance >= monitoredAccount.threshold) {
+                    continue;
+                }
+                if (monitor.holdingType != HoldingType.COIN && fundingQuantity < monitoredAccount.amount) {
+                    Logger.logWarningMessage(
+                            String.format("Funding account %s has insufficient quantity for %s %s; funding transaction discarded",
+                                    monitor.accountName, monitor.holdingType.name().toLowerCase(Locale.ROOT),
+                                    Long.toUnsignedString(monitor.holdingId)));
+                    continue;
+                }
+                long amount = 0;
+                Attachment attachment;
+                switch (monitor.holdingType) {
+                    case ASSET:
+                        attachment = new AssetTransferAttachment(monitor.holdingId, monitoredAccount.amount);
+                        break;
+                    case CURRENCY:
+                        attachment = new CurrencyTransferAttachment(monitor.holdingId, monitoredAccount.amount);
+                        break;
+                    default:
+                        attachment = chain instanceof ChildChain ? PaymentAttachment.INSTANCE : PaymentFxtAttachment.INSTANCE;
+                        amount = monitoredAccount.amount;
+                }
+                Transaction.Builder builder = chain.newTransactionBuilder(monitor.publicKey, amount, -1, (short)15, attachment);
+                builder.recipientId(monitoredAccount.accountId)
+                       .timestamp(Nxt.getBlockchain().getLastBlockTimestamp());
+                if (builder instanceof ChildTransaction.Builder) {
+                    ((ChildTransaction.Builder)builder).feeRateNQTPerFXT(monitor.feeRateNQTPerFXT);
+                }
+                Transaction transaction = builder.build(monitor.secretPhrase);
+                long required = Math.addExact(amount, transaction.getFee());
+                if (required > fundingBalance) {
+                    Logger.logWarningMessage(String.format("Funding account %s has insufficient funds on chain %s; funding transaction discarded",
+                            monitor.accountName, chain.getName()));
+                    continue;
+                }
+                fundingBalance -= required;
+                if (monitor.holdingType != HoldingType.COIN) {
+                    fundingQuantity -= monitoredAccount.amount;
+                }
+                transactions.add(transaction);
+                fundedAccounts.put(transaction.getId(), monitoredAccount);
+            } catch (Exception exc) {
+                Logger.logErrorMessage(String.format("Unable to process %s event for account %s, property '%s', holding %s",
+                        monitor.holdingType.name(), monitoredAccount.accountName,
+                        monitor.property, Long.toUnsignedString(monitor.holdingId)), exc);
             }
         }
     }
 
     /**
-     * Process a CURRENCY event
+     * Get the monitored balances of the target accounts
      *
-     * @param   monitoredAccount            Monitored account
-     * @param   targetAccount               Target account
-     * @param   fundingAccount              Funding account
-     * @throws  NxtException                Unable to create transaction
+     * @param   monitor                     Funding monitor
+     * @param   events                      Monitored accounts
+     * @return                              Balance for each target account having a balance
      */
-    private static void processCurrencyEvent(MonitoredAccount monitoredAccount, Account targetAccount, Account fundingAccount)
-                                            throws NxtException {
-        FundingMonitor monitor = monitoredAccount.monitor;
-        Chain chain = monitor.chain;
-        Account.AccountCurrency targetCurrency = Account.getAccountCurrency(targetAccount.getId(), monitor.holdingId);
-        Account.AccountCurrency fundingCurrency = Account.getAccountCurrency(fundingAccount.getId(), monitor.holdingId);
-        if (fundingCurrency == null || fundingCurrency.getUnconfirmedUnits() < monitoredAccount.amount) {
-            Logger.logWarningMessage(
-                    String.format("Funding account %s has insufficient quantity for currency %s; funding transaction discarded",
-                            monitor.accountName, Long.toUnsignedString(monitor.holdingId)));
-        } else if (targetCurrency == null || targetCurrency.getUnits() < monitoredAccount.threshold) {
-            Attachment attachment = new CurrencyTransferAttachment(monitor.holdingId, monitoredAccount.amount);
-            Transaction.Builder builder = chain.newTransactionBuilder(monitor.publicKey, 0, -1, (short)15, attachment);
-            builder.recipientId(monitoredAccount.accountId)
-                   .timestamp(Nxt.getBlockchain().getLastBlockTimestamp());
-            if (builder instanceof ChildTransaction.Builder) {
-                ((ChildTransaction.Builder)builder).feeRateNQTPerFXT(monitor.feeRateNQTPerFXT);
+    private static LongHashMap<Long> getTargetBalances(FundingMonitor monitor, List<MonitoredAccount> events) {
+        LongHashMap<Long> balances = new LongHashMap<>(events.size());
+        for (int i = 0; i < events.size(); i += BALANCE_BATCH_SIZE) {
+            List<MonitoredAccount> batch = events.subList(i, Math.min(i + BALANCE_BATCH_SIZE, events.size()));
+            long[] accountIds = new long[batch.size()];
+            for (int j = 0; j < accountIds.length; j++) {
+                accountIds[j] = batch.get(j).accountId;
             }
-            Transaction transaction = builder.build(monitor.secretPhrase);
-            if (transaction.getFee() > chain.getBalanceHome().getBalance(fundingAccount.getId()).getUnconfirmedBalance()) {
-                Logger.logWarningMessage(String.format("Funding account %s has insufficient funds on chain %s; funding transaction discarded",
-                        monitor.accountName, chain.getName()));
-            } else {
-                Nxt.getTransactionProcessor().broadcast(transaction);
-                monitoredAccount.height = Nxt.getBlockchain().getHeight();
-                Logger.logDebugMessage(String.format("CURRENCY funding transaction %s submitted for %d units from %s to %s on chain %s",
-                        transaction.getStringId(), monitoredAccount.amount,
-                        monitor.accountName, monitoredAccount.accountName, chain.getName()));
+            switch (monitor.holdingType) {
+                case COIN:
+                    try (DbIterator<BalanceHome.Balance> iterator = monitor.chain.getBalanceHome().getBalances(accountIds)) {
+                        iterator.forEach(balance -> balances.put(balance.getAccountId(), balance.getBalance()));
+                    }
+                    break;
+                case ASSET:
+                    try (DbIterator<Account.AccountAsset> iterator = Account.getAssetAccounts(monitor.holdingId, accountIds)) {
+                        iterator.forEach(accountAsset -> balances.put(accountAsset.getAccountId(), accountAsset.getQuantityQNT()));
+                    }
+                    break;
+                case CURRENCY:
+                    try (DbIterator<Account.AccountCurrency> iterator = Account.getCurrencyAccounts(monitor.holdingId, accountIds)) {
+                        iterator.forEach(accountCurrency -> balances.put(accountCurrency.getAccountId(), accountCurrency.getUnits()));
+                    }
+                    break;
             }
         }
+        return balances;
     }
 
     /**
@@ -880,9 +927,8 @@ public final class FundingMonitor {
                     accountList.forEach((maccount) -> {
                         if (maccount.monitor.holdingType == HoldingType.COIN &&
                                 maccount.monitor.holdingId == balance.getChain().getId() &&
-                                balance.getBalance() < maccount.threshold &&
-                                !pendingEvents.contains(maccount)) {
-                            pendingEvents.add(maccount);
+                                balance.getBalance() < maccount.threshold) {
+                            addPendingEvent(maccount);
                         }
                     });
                 }
@@ -916,9 +962,8 @@ public final class FundingMonitor {
                     accountList.forEach((maccount) -> {
                         if (maccount.monitor.holdingType == HoldingType.ASSET &&
                                 maccount.monitor.holdingId == assetId &&
-                                balance < maccount.threshold &&
-                                !pendingEvents.contains(maccount)) {
-                            pendingEvents.add(maccount);
+                                balance < maccount.threshold) {
+                            addPendingEvent(maccount);
                         }
                     });
                 }
@@ -952,9 +997,8 @@ public final class FundingMonitor {
                     accountList.forEach((maccount) -> {
                         if (maccount.monitor.holdingType == HoldingType.CURRENCY &&
                                 maccount.monitor.holdingId == currencyId &&
-                                balance < maccount.threshold &&
-                                !pendingEvents.contains(maccount)) {
-                            pendingEvents.add(maccount);
+                                balance < maccount.threshold) {
+                            addPendingEvent(maccount);
                         }
                     });
                 }
@@ -994,7 +1038,7 @@ public final class FundingMonitor {
                                 account.amount = newAccount.amount;
                                 account.threshold = newAccount.threshold;
                                 account.interval = newAccount.interval;
-                                pendingEvents.add(account);
+                                addPendingEvent(account);
                                 Logger.logDebugMessage(
                                         String.format("Updated %s monitor for account %s, property '%s', holding %s, "
                                                 + "amount %d, threshold %d, interval %d",
@@ -1013,7 +1057,7 @@ public final class FundingMonitor {
                                 MonitoredAccount account = createMonitoredAccount(accountId, monitor, property.getValue());
                                 accountList = accounts.computeIfAbsent(accountId, k -> new ArrayList<>());
                                 accountList.add(account);
-                                pendingEvents.add(account);
+                                addPendingEvent(account);
                                 Logger.logDebugMessage(
                                         String.format("Created %s monitor for account %s, property '%s', holding %s, "
                                                 + "amount %d, threshold %d, interval %d",
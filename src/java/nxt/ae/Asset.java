@@ -21,9 +21,11 @@ import nxt.Nxt;
 import nxt.account.Account;
 import nxt.blockchain.ChildChain;
 import nxt.blockchain.Transaction;
+import nxt.db.ContinuationToken;
 import nxt.db.DbClause;
 import nxt.db.DbIterator;
 import nxt.db.DbKey;
+import nxt.db.KeysetSort;
 import nxt.db.VersionedEntityDbTable;
 
 import java.sql.Connection;
@@ -42,6 +44,8 @@ public final class Asset {
 
     };
 
+    private static final KeysetSort assetSort = new KeysetSort("id");
+
     private static final VersionedEntityDbTable<Asset> assetTable = new VersionedEntityDbTable<Asset>("public.asset", assetDbKeyFactory, "name,description") {
 
         @Override
@@ -75,12 +79,16 @@ public final class Asset {
         return assetTable.getAll(from, to);
     }
 
+    public static DbIterator<Asset> getAllAssets(ContinuationToken continuation, int from, int to) {
+        return assetTable.getAll(assetSort, continuation, from, to);
+    }
+
     public static int getCount() {
         return assetTable.getCount();
     }
 
     public static Asset getAsset(long id) {
-        return assetTable.get(assetDbKeyFactory.newKey(id));
+        return assetTable.get(id);
     }
 
     public static Asset getAsset(long id, int height) {
@@ -19,11 +19,13 @@ package nxt.ae;
 import nxt.Nxt;
 import nxt.blockchain.Block;
 import nxt.blockchain.ChildChain;
+import nxt.db.ContinuationToken;
 import nxt.db.DbClause;
 import nxt.db.DbIterator;
 import nxt.db.DbKey;
 import nxt.db.DbUtils;
 import nxt.db.EntityDbTable;
+import nxt.db.KeysetSort;
 import nxt.util.Convert;
 import nxt.util.Listener;
 import nxt.util.Listeners;
@@ -50,6 +52,8 @@ public final class TradeHome {
 
     private static final Listeners<Trade, Event> listeners = new Listeners<>();
 
+    private static final KeysetSort tradeSort = new KeysetSort("height DESC", "db_id DESC");
+
     public static boolean addListener(Listener<Trade> listener, Event eventType) {
         return listeners.addListener(listener, eventType);
     }
@@ -87,6 +91,10 @@ public final class TradeHome {
         return tradeTable.getAll(from, to);
     }
 
+    public DbIterator<Trade> getAllTrades(ContinuationToken continuation, int from, int to) {
+        return tradeTable.getAll(tradeSort, continuation, from, to);
+    }
+
     public int getCount() {
         return tradeTable.getCount();
     }
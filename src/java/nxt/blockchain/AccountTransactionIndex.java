@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+
+package nxt.blockchain;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index of the transactions of each account, maintained for each chain.
+ * <p>
+ * The account_transaction table of a child chain, and the account_transaction_fxt table of the
+ * forging chain, have one row for each transaction sent by an account and one row for each transaction
+ * received from another account.  The rows are added when a block is saved and are deleted together
+ * with the transactions when the block is popped off.  The rows of an account are ordered by height and
+ * transaction db_id, since the transactions of a block are saved in block order after those of all
+ * previous blocks, so that the transactions of an account can be paged through without sorting.
+ */
+final class AccountTransactionIndex {
+
+    static final byte SENT = 0;
+    static final byte RECEIVED = 1;
+
+    /**
+     * Index the transactions of a block which has just been saved
+     *
+     * @param   con                 Database connection
+     * @param   block               Saved block
+     * @throws  SQLException        SQL error
+     */
+    static void indexBlock(Connection con, BlockImpl block) throws SQLException {
+        if (block.getFxtTransactions().isEmpty()) {
+            return;
+        }
+        indexBlock(con, block.getId(), getIndexTable(FxtChain.FXT), getTransactionTable(FxtChain.FXT));
+        Set<ChildChain> childChains = new LinkedHashSet<>();
+        for (FxtTransactionImpl transaction : block.getFxtTransactions()) {
+            if (transaction instanceof ChildBlockFxtTransaction) {
+                childChains.add(((ChildBlockFxtTransaction)transaction).getChildChain());
+            }
+        }
+        for (ChildChain childChain : childChains) {
+            indexBlock(con, block.getId(), getIndexTable(childChain), getTransactionTable(childChain));
+        }
+    }
+
+    private static void indexBlock(Connection con, long blockId, String indexTable, String transactionTable) throws SQLException {
+        try (PreparedStatement pstmtSent = con.prepareStatement("INSERT INTO " + indexTable
+                     + " (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                     + "SELECT sender_id, db_id, height, transaction_index, type, subtype, " + SENT + " FROM " + transactionTable
+                     + " WHERE block_id = ? ORDER BY db_id");
+             PreparedStatement pstmtReceived = con.prepareStatement("INSERT INTO " + indexTable
+                     + " (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                     + "SELECT recipient_id, db_id, height, transaction_index, type, subtype, " + RECEIVED + " FROM " + transactionTable
+                     + " WHERE block_id = ? AND recipient_id IS NOT NULL AND recipient_id <> sender_id ORDER BY db_id")) {
+            pstmtSent.setLong(1, blockId);
+            pstmtSent.executeUpdate();
+            pstmtReceived.setLong(1, blockId);
+            pstmtReceived.executeUpdate();
+        }
+    }
+
+    /**
+     * Rebuild the index of all chains from the transaction tables, after the transactions
+     * have been inserted without saving blocks
+     *
+     * @param   con                 Database connection
+     * @throws  SQLException        SQL error
+     */
+    static void indexAll(Connection con) throws SQLException {
+        List<Chain> chains = new ArrayList<>();
+        chains.add(FxtChain.FXT);
+        chains.addAll(ChildChain.getAll());
+        for (Chain chain : chains) {
+            String indexTable = getIndexTable(chain);
+            String transactionTable = getTransactionTable(chain);
+            try (Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("TRUNCATE TABLE " + indexTable);
+                stmt.executeUpdate("INSERT INTO " + indexTable
+                        + " (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT sender_id, db_id, height, transaction_index, type, subtype, " + SENT + " FROM " + transactionTable
+                        + " ORDER BY db_id");
+                stmt.executeUpdate("INSERT INTO " + indexTable
+                        + " (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT recipient_id, db_id, height, transaction_index, type, subtype, " + RECEIVED + " FROM " + transactionTable
+                        + " WHERE recipient_id IS NOT NULL AND recipient_id <> sender_id ORDER BY db_id");
+            }
+        }
+    }
+
+    /**
+     * Return the index table of a chain
+     *
+     * @param   chain               Chain
+     * @return                      Schema and table name
+     */
+    static String getIndexTable(Chain chain) {
+        return chain.getSchemaTable(chain instanceof FxtChain ? "account_transaction_fxt" : "account_transaction");
+    }
+
+    private static String getTransactionTable(Chain chain) {
+        return chain.getSchemaTable(chain instanceof FxtChain ? "transaction_fxt" : "transaction");
+    }
+
+    private AccountTransactionIndex() {} // never
+}
@@ -211,6 +211,7 @@ public final class BlockDb {
                 pstmt.setLong(++i, block.getGeneratorId());
                 pstmt.executeUpdate();
                 TransactionHome.saveTransactions(con, block.getFxtTransactions());
+                AccountTransactionIndex.indexBlock(con, block);
             }
             if (block.getPreviousBlockId() != 0) {
                 try (PreparedStatement pstmt = con.prepareStatement("UPDATE block SET next_block_id = ? WHERE id = ?")) {
@@ -309,10 +310,12 @@ public final class BlockDb {
             try {
                 stmt.executeUpdate("SET REFERENTIAL_INTEGRITY FALSE");
                 stmt.executeUpdate("TRUNCATE TABLE transaction_fxt");
+                stmt.executeUpdate("TRUNCATE TABLE " + AccountTransactionIndex.getIndexTable(FxtChain.FXT));
                 stmt.executeUpdate("TRUNCATE TABLE block");
                 ChildChain.getAll().forEach(childChain -> {
                     try {
                         stmt.executeUpdate("TRUNCATE TABLE " + childChain.getSchemaTable("transaction"));
+                        stmt.executeUpdate("TRUNCATE TABLE " + AccountTransactionIndex.getIndexTable(childChain));
                     } catch (SQLException e) {
                         Logger.logErrorMessage(e.toString(), e);
                     }
@@ -326,6 +329,7 @@ public final class BlockDb {
                 });
                 stmt.executeUpdate("SET REFERENTIAL_INTEGRITY TRUE");
                 Db.db.commitTransaction();
+                TransactionFilter.getAll().forEach(TransactionFilter::clear);
             } catch (SQLException e) {
                 Db.db.rollbackTransaction();
                 throw e;
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.Nxt;
+import nxt.util.Listener;
+import nxt.util.Listeners;
+import nxt.util.Logger;
+import nxt.util.RollingHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time spent in each block processing phase, in applying each transaction type and
+ * in each block listener, kept as rolling histograms of the most recent durations in
+ * nanoseconds.
+ * <p>
+ * This is the only source of block processing timings.  The getBlockProfile API reports
+ * the recent durations, while the block replay tool resets the profiler and reports the
+ * total count and time since the reset, which are not limited to the rolling window.
+ * <p>
+ * The time of a ChildChainBlock transaction includes the time spent applying the child
+ * transactions it bundles.  Listeners implemented as lambdas are reported under the class
+ * declaring them.
+ */
+public final class BlockProfiler {
+
+    public enum Phase {
+        VALIDATE_BLOCK, VALIDATE_PHASED_TRANSACTIONS, VALIDATE_TRANSACTIONS, REQUEUE_UNCONFIRMED, ADD_BLOCK,
+        APPLY_UNCONFIRMED, APPLY_BLOCK, APPLY_TRANSACTIONS, FINISH_PHASED_TRANSACTIONS, COMMIT, PUSH_BLOCK
+    }
+
+    private static final int WINDOW_SIZE = 1000;
+    private static final int logFrequency = Nxt.getIntProperty("nxt.blockProfileLogFrequency");
+
+    private static final Map<Phase, RollingHistogram> phases;
+    static {
+        Map<Phase, RollingHistogram> map = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            map.put(phase, new RollingHistogram(WINDOW_SIZE));
+        }
+        phases = Collections.unmodifiableMap(map);
+    }
+    private static final Map<TransactionType, RollingHistogram> transactionTypes = new ConcurrentHashMap<>();
+    private static final Map<String, RollingHistogram> listeners = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, String> listenerNames = new ConcurrentHashMap<>();
+    private static int pushedBlocks;
+
+    static final Listeners.Timer<Block, BlockchainProcessor.Event> listenerTimer = BlockProfiler::record;
+
+    /**
+     * Record the time of a block processing phase
+     *
+     * @param   phase               Block processing phase
+     * @param   start               Start of the phase as returned by System.nanoTime()
+     * @return                      End of the phase, to be used as start of the next phase
+     */
+    static long record(Phase phase, long start) {
+        long now = System.nanoTime();
+        phases.get(phase).add(now - start);
+        return now;
+    }
+
+    static void record(TransactionType transactionType, long start) {
+        transactionTypes.computeIfAbsent(transactionType, type -> new RollingHistogram(WINDOW_SIZE)).add(System.nanoTime() - start);
+    }
+
+    private static void record(Listener<Block> listener, Enum<BlockchainProcessor.Event> event, long nanos) {
+        String name = listenerNames.computeIfAbsent(listener.getClass(), listenerClass -> {
+            String className = listenerClass.getName();
+            int index = className.indexOf("$$Lambda");
+            return index > 0 ? className.substring(0, index) : className;
+        });
+        listeners.computeIfAbsent(event.name() + " " + name, key -> new RollingHistogram(WINDOW_SIZE)).add(nanos);
+    }
+
+    /**
+     * Count a pushed block and log the profile every nxt.blockProfileLogFrequency blocks.
+     * Must be called while holding the blockchain write lock.
+     */
+    static void blockPushed() {
+        pushedBlocks += 1;
+        if (logFrequency > 0 && pushedBlocks % logFrequency == 0) {
+            log();
+        }
+    }
+
+    public static Map<Phase, RollingHistogram.Snapshot> getPhases() {
+        Map<Phase, RollingHistogram.Snapshot> snapshots = new EnumMap<>(Phase.class);
+        phases.forEach((phase, histogram) -> snapshots.put(phase, histogram.getSnapshot()));
+        return snapshots;
+    }
+
+    public static Map<TransactionType, RollingHistogram.Snapshot> getTransactionTypes() {
+        Map<TransactionType, RollingHistogram.Snapshot> snapshots = new HashMap<>();
+        transactionTypes.forEach((type, histogram) -> snapshots.put(type, histogram.getSnapshot()));
+        return snapshots;
+    }
+
+    public static Map<String, RollingHistogram.Snapshot> getListeners() {
+        Map<String, RollingHistogram.Snapshot> snapshots = new HashMap<>();
+        listeners.forEach((name, histogram) -> snapshots.put(name, histogram.getSnapshot()));
+        return snapshots;
+    }
+
+    public static void reset() {
+        phases.values().forEach(RollingHistogram::reset);
+        transactionTypes.values().forEach(RollingHistogram::reset);
+        listeners.values().forEach(RollingHistogram::reset);
+    }
+
+    public static void log() {
+        StringBuilder sb = new StringBuilder("Block processing profile (mean/p90/max microseconds over the last ")
+                .append(WINDOW_SIZE).append(" samples):");
+        getPhases().forEach((phase, snapshot) -> append(sb, phase.name(), snapshot));
+        sortByTotal(getTransactionTypes()).forEach(entry -> append(sb, entry.getKey().getName(), entry.getValue()));
+        sortByTotal(getListeners()).forEach(entry -> append(sb, entry.getKey(), entry.getValue()));
+        Logger.logInfoMessage(sb.toString());
+    }
+
+    private static <K> List<Map.Entry<K, RollingHistogram.Snapshot>> sortByTotal(Map<K, RollingHistogram.Snapshot> snapshots) {
+        List<Map.Entry<K, RollingHistogram.Snapshot>> entries = new ArrayList<>(snapshots.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue().getTotalValue(), e1.getValue().getTotalValue()));
+        return entries;
+    }
+
+    private static void append(StringBuilder sb, String name, RollingHistogram.Snapshot snapshot) {
+        if (snapshot.getCount() > 0) {
+            sb.append(String.format("\n  %-60s %10d %10d %10d", name,
+                    snapshot.getMean() / 1000, snapshot.getPercentile(90) / 1000, snapshot.getMax() / 1000));
+        }
+    }
+
+    private BlockProfiler() {} // never
+}
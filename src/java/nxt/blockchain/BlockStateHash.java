@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.Nxt;
+import nxt.db.DbIterator;
+import nxt.db.DbKey;
+import nxt.db.DerivedDbTable;
+import nxt.db.EntityDbTable;
+import nxt.db.StateHash;
+import nxt.db.VersionedEntityDbTable;
+import nxt.util.Convert;
+import nxt.util.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * State hash of the versioned entity tables after each block.
+ * <p>
+ * The state hash covers the latest version of every entity in the versioned entity tables,
+ * excluding the persistent tables.  It is updated at the end of each block using the entities
+ * changed since the previous block, and the table hashes are stored in a versioned table, so
+ * that the state hash is only computed from all entities when it is not available for the
+ * previous block.  Nodes which processed the same blocks have the same state hash, regardless
+ * of how and when the derived tables were trimmed or rolled back.
+ */
+public final class BlockStateHash {
+
+    private static final boolean enabled = Nxt.getBooleanProperty("nxt.enableStateHash");
+
+    private static final DerivedDbTable stateHashTable = new DerivedDbTable("public.state_hash") {};
+
+    private static final DbKey.StringKeyFactory<TableHash> tableHashDbKeyFactory = new DbKey.StringKeyFactory<TableHash>("table_name") {
+        @Override
+        public DbKey newKey(TableHash tableHash) {
+            return tableHash.dbKey;
+        }
+    };
+
+    private static final VersionedEntityDbTable<TableHash> tableHashTable = new VersionedEntityDbTable<TableHash>("public.state_table_hash", tableHashDbKeyFactory) {
+        @Override
+        protected TableHash load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
+            return new TableHash(rs, dbKey);
+        }
+
+        @Override
+        protected void save(Connection con, TableHash tableHash) throws SQLException {
+            tableHash.save(con);
+        }
+
+        @Override
+        public boolean isStateHashed() {
+            return false;
+        }
+    };
+
+    /** State hash of the last block, accessed only while holding the blockchain write lock */
+    private static StateHash stateHash;
+    private static long stateBlockId;
+
+    public static void init() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Update the state hash at the end of a block.  Must be called within the database transaction
+     * of the block while holding the blockchain write lock.
+     *
+     * @param   block               Accepted block
+     */
+    static void blockAccepted(BlockImpl block) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            updateStateHash(block);
+        } catch (RuntimeException e) {
+            stateHash = null;
+            throw e;
+        }
+    }
+
+    private static void updateStateHash(BlockImpl block) {
+        long start = System.currentTimeMillis();
+        List<EntityDbTable<?>> tables = getTables();
+        if (stateHash == null || stateBlockId != block.getPreviousBlockId()) {
+            stateHash = load(block.getHeight() - 1, block.getPreviousBlockId());
+        }
+        Map<String, byte[]> previousTableHashes;
+        if (stateHash == null) {
+            stateHash = new StateHash();
+            previousTableHashes = Collections.emptyMap();
+            tables.forEach(table -> table.addStateHash(stateHash));
+            Logger.logDebugMessage("Computed state hash at height " + block.getHeight() + " from all entities in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } else {
+            previousTableHashes = stateHash.getTableHashes();
+            tables.forEach(table -> table.updateStateHash(stateHash));
+        }
+        stateHash.getTableHashes().forEach((schemaTable, hash) -> {
+            if (!Arrays.equals(hash, previousTableHashes.get(schemaTable))) {
+                TableHash tableHash = tableHashTable.get(tableHashDbKeyFactory.newKey(schemaTable));
+                if (tableHash == null) {
+                    tableHash = new TableHash(schemaTable, hash);
+                } else {
+                    tableHash.hash = hash;
+                }
+                tableHashTable.insert(tableHash);
+            }
+        });
+        byte[] hash = stateHash.getHash();
+        try (Connection con = stateHashTable.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("MERGE INTO state_hash (height, block_id, hash) KEY (height) VALUES (?, ?, ?)")) {
+            pstmt.setInt(1, block.getHeight());
+            pstmt.setLong(2, block.getId());
+            pstmt.setBytes(3, hash);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        stateBlockId = block.getId();
+    }
+
+    /**
+     * Return the state hash after a block
+     *
+     * @param   height              Block height
+     * @return                      State hash or null if not available
+     */
+    public static byte[] getStateHash(int height) {
+        try (Connection con = stateHashTable.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT hash FROM state_hash WHERE height = ?")) {
+            pstmt.setInt(1, height);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBytes("hash") : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Return the table hashes after a block.  Table hashes are available only for heights
+     * not below the minimum rollback height.
+     *
+     * @param   height              Block height
+     * @return                      Table hashes in table name order
+     */
+    public static Map<String, byte[]> getTableHashes(int height) {
+        SortedMap<String, byte[]> tableHashes = new TreeMap<>();
+        try (DbIterator<TableHash> iterator = tableHashTable.getAll(height, 0, -1)) {
+            iterator.forEach(tableHash -> tableHashes.put(tableHash.schemaTable, tableHash.hash));
+        }
+        return tableHashes;
+    }
+
+    /**
+     * Load the table hashes stored for the last block
+     *
+     * @param   height              Height of the last block
+     * @param   blockId             Identifier of the last block
+     * @return                      State hash or null if not available
+     */
+    private static StateHash load(int height, long blockId) {
+        try (Connection con = stateHashTable.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT block_id, hash FROM state_hash WHERE height = ?")) {
+            pstmt.setInt(1, height);
+            byte[] hash;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getLong("block_id") != blockId) {
+                    return null;
+                }
+                hash = rs.getBytes("hash");
+            }
+            StateHash loadedStateHash = new StateHash();
+            try (DbIterator<TableHash> iterator = tableHashTable.getAll(0, -1)) {
+                iterator.forEach(tableHash -> loadedStateHash.setTableHash(tableHash.schemaTable, tableHash.hash));
+            }
+            if (!Arrays.equals(hash, loadedStateHash.getHash())) {
+                Logger.logWarningMessage("Stored table hashes don't match the state hash " + Convert.toHexString(hash)
+                        + " at height " + height + ", computing it from all entities");
+                return null;
+            }
+            return loadedStateHash;
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private static List<EntityDbTable<?>> getTables() {
+        List<EntityDbTable<?>> tables = new ArrayList<>();
+        for (DerivedDbTable table : BlockchainProcessorImpl.getInstance().getDerivedTables()) {
+            if (table instanceof EntityDbTable && ((EntityDbTable<?>)table).isStateHashed()) {
+                tables.add((EntityDbTable<?>)table);
+            }
+        }
+        return tables;
+    }
+
+    private static final class TableHash {
+
+        private final String schemaTable;
+        private final DbKey dbKey;
+        private byte[] hash;
+
+        private TableHash(String schemaTable, byte[] hash) {
+            this.schemaTable = schemaTable;
+            this.dbKey = tableHashDbKeyFactory.newKey(schemaTable);
+            this.hash = hash;
+        }
+
+        private TableHash(ResultSet rs, DbKey dbKey) throws SQLException {
+            this.schemaTable = rs.getString("table_name");
+            this.dbKey = dbKey;
+            this.hash = rs.getBytes("hash");
+        }
+
+        private void save(Connection con) throws SQLException {
+            try (PreparedStatement pstmt = con.prepareStatement("MERGE INTO state_table_hash (table_name, hash, height, latest) "
+                    + "KEY (table_name, height) VALUES (?, ?, ?, TRUE)")) {
+                int i = 0;
+                pstmt.setString(++i, schemaTable);
+                pstmt.setBytes(++i, hash);
+                pstmt.setInt(++i, Nxt.getBlockchain().getHeight());
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    private BlockStateHash() {} // never
+}
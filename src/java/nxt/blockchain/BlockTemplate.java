@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.Constants;
+import nxt.Nxt;
+import nxt.util.Logger;
+import nxt.util.ThreadPool;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactions selected for the next block.
+ * <p>
+ * While there are active forgers, the template is rebuilt in the background whenever the
+ * unconfirmed transactions or the last block change, so that a forger only has to sign the
+ * block when its hit time is reached.  The template is selected without a block timestamp,
+ * and is not used if any of its transactions is not valid at the timestamp of the block.
+ */
+final class BlockTemplate {
+
+    /** Incremented when the unconfirmed transactions or the last block change */
+    private static final AtomicLong currentVersion = new AtomicLong();
+
+    /** Current template */
+    private static volatile BlockTemplate template;
+
+    private static final Runnable updateTemplateThread = () -> {
+        try {
+            BlockchainProcessorImpl blockchainProcessor = BlockchainProcessorImpl.getInstance();
+            if (Generator.getAllGenerators().isEmpty() || blockchainProcessor.isDownloading() || blockchainProcessor.isScanning()) {
+                template = null;
+                return;
+            }
+            BlockTemplate currentTemplate = template;
+            if (currentTemplate != null && currentTemplate.version == currentVersion.get()) {
+                return;
+            }
+            TransactionProcessorImpl.getInstance().processWaitingTransactions();
+            BlockchainImpl blockchain = BlockchainImpl.getInstance();
+            blockchain.readLock();
+            try {
+                BlockImpl lastBlock = blockchain.getLastBlock();
+                if (lastBlock == null || lastBlock.getHeight() < Constants.LAST_KNOWN_BLOCK) {
+                    return;
+                }
+                long templateVersion = currentVersion.get();
+                BlockTemplate newTemplate = blockchainProcessor.selectBlockTransactions(lastBlock, 0);
+                newTemplate.version = templateVersion;
+                template = newTemplate;
+            } finally {
+                blockchain.readUnlock();
+            }
+        } catch (Exception e) {
+            Logger.logMessage("Error updating block template", e);
+        }
+    };
+
+    static {
+        if (!Constants.isLightClient) {
+            TransactionProcessorImpl.getInstance().addListener(transactions -> currentVersion.incrementAndGet(),
+                    TransactionProcessor.Event.ADDED_UNCONFIRMED_TRANSACTIONS);
+            TransactionProcessorImpl.getInstance().addListener(transactions -> currentVersion.incrementAndGet(),
+                    TransactionProcessor.Event.REMOVED_UNCONFIRMED_TRANSACTIONS);
+            Nxt.getBlockchainProcessor().addListener(block -> currentVersion.incrementAndGet(), BlockchainProcessor.Event.BLOCK_PUSHED);
+            Nxt.getBlockchainProcessor().addListener(block -> currentVersion.incrementAndGet(), BlockchainProcessor.Event.BLOCK_POPPED);
+            ThreadPool.scheduleThread("UpdateBlockTemplate", updateTemplateThread, 500, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static void init() {}
+
+    /**
+     * Return the current template if it is still valid for a new block
+     *
+     * @param   previousBlock       Previous block
+     * @param   blockTimestamp      Timestamp of the new block
+     * @return                      Block template or null
+     */
+    static BlockTemplate get(Block previousBlock, int blockTimestamp) {
+        BlockTemplate currentTemplate = template;
+        if (currentTemplate == null || currentTemplate.version != currentVersion.get()
+                || currentTemplate.previousBlockId != previousBlock.getId()) {
+            return null;
+        }
+        for (FxtTransactionImpl transaction : currentTemplate.transactions) {
+            if (transaction.getTimestamp() > blockTimestamp + Constants.MAX_TIMEDRIFT || transaction.getExpiration() < blockTimestamp) {
+                return null;
+            }
+        }
+        return currentTemplate;
+    }
+
+    private final long previousBlockId;
+    private final List<FxtTransactionImpl> transactions;
+    private final byte[] payloadHash;
+    private final long totalFeeFQT;
+    private long version = -1;
+
+    BlockTemplate(long previousBlockId, List<FxtTransactionImpl> transactions, byte[] payloadHash, long totalFeeFQT) {
+        this.previousBlockId = previousBlockId;
+        this.transactions = transactions;
+        this.payloadHash = payloadHash;
+        this.totalFeeFQT = totalFeeFQT;
+    }
+
+    List<FxtTransactionImpl> getTransactions() {
+        return transactions;
+    }
+
+    byte[] getPayloadHash() {
+        return payloadHash;
+    }
+
+    long getTotalFeeFQT() {
+        return totalFeeFQT;
+    }
+
+}
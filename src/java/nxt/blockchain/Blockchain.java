@@ -16,6 +16,7 @@
 
 package nxt.blockchain;
 
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import nxt.util.Filter;
 
@@ -53,6 +54,12 @@ public interface Blockchain {
 
     DbIterator<? extends Block> getBlocks(int from, int to);
 
+    /**
+     * Return the blocks below the block of a continuation, highest first.  The continuation holds the
+     * height of the last block of the previous page, or is null to start from the last block.
+     */
+    DbIterator<? extends Block> getBlocks(ContinuationToken continuation, int from, int to);
+
     DbIterator<? extends Block> getBlocks(long accountId, int timestamp);
 
     DbIterator<? extends Block> getBlocks(long accountId, int timestamp, int from, int to);
@@ -88,9 +95,25 @@ public interface Blockchain {
                                                       int blockTimestamp, boolean withMessage, boolean phasedOnly, boolean nonPhasedOnly,
                                                       int from, int to, boolean includeExpiredPrunable, boolean executedOnly);
 
+    /**
+     * Return the transactions of an account, most recent first.  The continuation holds the height
+     * and the identifier of the last transaction of the previous page, or is null for the first page.
+     */
+    DbIterator<? extends ChildTransaction> getTransactions(ChildChain chain, long accountId, int numberOfConfirmations, byte type, byte subtype,
+                                                      int blockTimestamp, boolean withMessage, boolean phasedOnly, boolean nonPhasedOnly,
+                                                      ContinuationToken continuation, int from, int to, boolean includeExpiredPrunable,
+                                                      boolean executedOnly);
+
     DbIterator<? extends FxtTransaction> getTransactions(FxtChain chain, long accountId, int numberOfConfirmations,
             byte type, byte subtype, int blockTimestamp, int from, int to);
 
+    /**
+     * Return the transactions of an account, most recent first.  The continuation holds the height
+     * and the identifier of the last transaction of the previous page, or is null for the first page.
+     */
+    DbIterator<? extends FxtTransaction> getTransactions(FxtChain chain, long accountId, int numberOfConfirmations,
+            byte type, byte subtype, int blockTimestamp, ContinuationToken continuation, int from, int to);
+
     DbIterator<? extends FxtTransaction> getTransactions(FxtChain chain, Connection con, PreparedStatement pstmt);
 
     DbIterator<? extends ChildTransaction> getTransactions(ChildChain childChain, Connection con, PreparedStatement pstmt);
@@ -19,6 +19,7 @@ package nxt.blockchain;
 import nxt.Constants;
 import nxt.Nxt;
 import nxt.NxtException;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import nxt.db.DbUtils;
 import nxt.dbschema.Db;
@@ -143,13 +144,21 @@ public final class BlockchainImpl implements Blockchain {
 
     @Override
     public DbIterator<BlockImpl> getBlocks(int from, int to) {
+        return getBlocks(null, from, to);
+    }
+
+    @Override
+    public DbIterator<BlockImpl> getBlocks(ContinuationToken continuation, int from, int to) {
         Connection con = null;
         try {
             con = BlockDb.getConnection();
             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM block WHERE height <= ? AND height >= ? ORDER BY height DESC");
-            int blockchainHeight = getHeight();
-            pstmt.setInt(1, blockchainHeight - from);
-            pstmt.setInt(2, blockchainHeight - to);
+            int startHeight = getHeight();
+            if (continuation != null) {
+                startHeight = Math.min(startHeight, Math.max(continuation.getInt(0), 0) - 1);
+            }
+            pstmt.setInt(1, startHeight - from);
+            pstmt.setInt(2, startHeight - to);
             return getBlocks(con, pstmt);
         } catch (SQLException e) {
             DbUtils.close(con);
@@ -341,125 +350,159 @@ public final class BlockchainImpl implements Blockchain {
     public DbIterator<ChildTransactionImpl> getTransactions(ChildChain childChain, long accountId, int numberOfConfirmations, byte type, byte subtype,
                                                        int blockTimestamp, boolean withMessage, boolean phasedOnly, boolean nonPhasedOnly,
                                                        int from, int to, boolean includeExpiredPrunable, boolean executedOnly) {
+        return getTransactions(childChain, accountId, numberOfConfirmations, type, subtype, blockTimestamp, withMessage, phasedOnly, nonPhasedOnly,
+                null, from, to, includeExpiredPrunable, executedOnly);
+    }
+
+    @Override
+    public DbIterator<ChildTransactionImpl> getTransactions(ChildChain childChain, long accountId, int numberOfConfirmations, byte type, byte subtype,
+                                                       int blockTimestamp, boolean withMessage, boolean phasedOnly, boolean nonPhasedOnly,
+                                                       ContinuationToken continuation, int from, int to, boolean includeExpiredPrunable,
+                                                       boolean executedOnly) {
         if (phasedOnly && nonPhasedOnly) {
             throw new IllegalArgumentException("At least one of phasedOnly or nonPhasedOnly must be false");
         }
-        int height = numberOfConfirmations > 0 ? getHeight() - numberOfConfirmations : Integer.MAX_VALUE;
-        if (height < 0) {
+        int prunableExpiration = Math.max(0, Constants.INCLUDE_EXPIRED_PRUNABLE && includeExpiredPrunable ?
+                                    Nxt.getEpochTime() - Constants.MAX_PRUNABLE_LIFETIME :
+                                    Nxt.getEpochTime() - Constants.MIN_PRUNABLE_LIFETIME);
+        Connection con = null;
+        try {
+            con = Db.db.getConnection(childChain.getDbSchema());
+            PreparedStatement pstmt = prepareAccountTransactions(con, childChain, accountId, numberOfConfirmations, type >= 0, type, subtype,
+                    blockTimestamp, withMessage, phasedOnly, nonPhasedOnly, executedOnly, prunableExpiration, continuation, from, to);
+            return getTransactions(childChain, con, pstmt);
+        } catch (SQLException e) {
+            DbUtils.close(con);
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Prepare the query for the transactions of an account using the account transaction index
+     *
+     * @param   con                     Database connection
+     * @param   chain                   Chain
+     * @param   accountId               Account identifier
+     * @param   numberOfConfirmations   Minimum number of confirmations
+     * @param   filterType              Only include transactions of the requested type
+     * @param   type                    Transaction type
+     * @param   subtype                 Transaction subtype or -1 for all subtypes of the type
+     * @param   blockTimestamp          Minimum block timestamp or 0
+     * @param   withMessage             Only include transactions with a message
+     * @param   phasedOnly              Only include phased transactions
+     * @param   nonPhasedOnly           Only include transactions which are not phased
+     * @param   executedOnly            Exclude phased transactions which were not approved
+     * @param   prunableExpiration      Minimum timestamp of prunable messages
+     * @param   continuation            Height and identifier of the last transaction of the previous page, or null
+     * @param   from                    Index of the first transaction after the continuation
+     * @param   to                      Index of the last transaction after the continuation, or -1
+     * @return                          Prepared statement
+     * @throws  SQLException            SQL error
+     */
+    private PreparedStatement prepareAccountTransactions(Connection con, Chain chain, long accountId, int numberOfConfirmations, boolean filterType, byte type, byte subtype,
+                                                         int blockTimestamp, boolean withMessage, boolean phasedOnly, boolean nonPhasedOnly,
+                                                         boolean executedOnly, int prunableExpiration, ContinuationToken continuation,
+                                                         int from, int to) throws SQLException {
+        int maxHeight = numberOfConfirmations > 0 ? getHeight() - numberOfConfirmations : Integer.MAX_VALUE;
+        if (maxHeight < 0) {
             throw new IllegalArgumentException("Number of confirmations required " + numberOfConfirmations
                     + " exceeds current blockchain height " + getHeight());
         }
-        Connection con = null;
-        try {
-            StringBuilder buf = new StringBuilder();
-            buf.append("SELECT transaction.* FROM transaction ");
-            if (executedOnly && !nonPhasedOnly) {
-                buf.append(" LEFT JOIN phasing_poll_result ON transaction.id = phasing_poll_result.id ");
-                buf.append(" AND transaction.full_hash = phasing_poll_result.full_hash ");
-            }
-            buf.append("WHERE recipient_id = ? AND sender_id <> ? ");
-            if (blockTimestamp > 0) {
-                buf.append("AND block_timestamp >= ? ");
-            }
-            if (type >= 0) {
-                buf.append("AND type = ? ");
-                if (subtype >= 0) {
-                    buf.append("AND subtype = ? ");
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                buf.append("AND transaction.height <= ? ");
-            }
-            if (withMessage) {
-                buf.append("AND (has_message = TRUE OR has_encrypted_message = TRUE ");
-                buf.append("OR ((has_prunable_message = TRUE OR has_prunable_encrypted_message = TRUE) AND timestamp > ?)) ");
-            }
-            if (phasedOnly) {
-                buf.append("AND phased = TRUE ");
-            } else if (nonPhasedOnly) {
-                buf.append("AND phased = FALSE ");
-            }
-            if (executedOnly && !nonPhasedOnly) {
-                buf.append("AND (phased = FALSE OR approved = TRUE) ");
-            }
-            buf.append("UNION ALL SELECT transaction.* FROM transaction ");
-            if (executedOnly && !nonPhasedOnly) {
-                buf.append(" LEFT JOIN phasing_poll_result ON transaction.id = phasing_poll_result.id ");
-                buf.append(" AND transaction.full_hash = phasing_poll_result.full_hash ");
-            }
-            buf.append("WHERE sender_id = ? ");
-            if (blockTimestamp > 0) {
-                buf.append("AND block_timestamp >= ? ");
-            }
-            if (type >= 0) {
-                buf.append("AND type = ? ");
-                if (subtype >= 0) {
-                    buf.append("AND subtype = ? ");
+        int minHeight = 0;
+        if (blockTimestamp > 0) {
+            // block timestamps increase with the height, so the timestamp filter is a height range of the index
+            try (PreparedStatement pstmt = con.prepareStatement("SELECT MIN(height) AS min_height FROM PUBLIC.block WHERE timestamp >= ?")) {
+                pstmt.setInt(1, blockTimestamp);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    minHeight = rs.getInt("min_height");
+                    if (rs.wasNull()) {
+                        minHeight = Integer.MAX_VALUE;
+                    }
                 }
             }
-            if (height < Integer.MAX_VALUE) {
-                buf.append("AND transaction.height <= ? ");
-            }
-            if (withMessage) {
-                buf.append("AND (has_message = TRUE OR has_encrypted_message = TRUE OR has_encrypttoself_message = TRUE ");
-                buf.append("OR ((has_prunable_message = TRUE OR has_prunable_encrypted_message = TRUE) AND timestamp > ?)) ");
-            }
-            if (phasedOnly) {
-                buf.append("AND phased = TRUE ");
-            } else if (nonPhasedOnly) {
-                buf.append("AND phased = FALSE ");
-            }
-            if (executedOnly && !nonPhasedOnly) {
-                buf.append("AND (phased = FALSE OR approved = TRUE) ");
+        }
+        int afterHeight = Integer.MAX_VALUE;
+        long afterTransactionId = 0;
+        if (continuation != null) {
+            afterHeight = continuation.getInt(0);
+            afterTransactionId = continuation.get(1);
+            maxHeight = Math.min(maxHeight, afterHeight);
+        }
+        String transactionTable = chain.getSchemaTable(chain instanceof FxtChain ? "transaction_fxt" : "transaction");
+        boolean excludeNotApproved = executedOnly && !nonPhasedOnly;
+        StringBuilder buf = new StringBuilder();
+        buf.append("SELECT transaction.* FROM ").append(AccountTransactionIndex.getIndexTable(chain)).append(" AS account_transaction ");
+        buf.append("INNER JOIN ").append(transactionTable).append(" AS transaction ");
+        buf.append("ON transaction.db_id = account_transaction.transaction_db_id ");
+        if (excludeNotApproved) {
+            buf.append("LEFT JOIN phasing_poll_result ON transaction.id = phasing_poll_result.id ");
+            buf.append("AND transaction.full_hash = phasing_poll_result.full_hash ");
+        }
+        buf.append("WHERE account_transaction.account_id = ? ");
+        if (minHeight > 0) {
+            buf.append("AND account_transaction.height >= ? ");
+        }
+        if (maxHeight < Integer.MAX_VALUE) {
+            buf.append("AND account_transaction.height <= ? ");
+        }
+        if (continuation != null) {
+            buf.append("AND (account_transaction.height < ? OR account_transaction.transaction_db_id < ");
+            buf.append("IFNULL((SELECT db_id FROM ").append(transactionTable).append(" WHERE id = ? AND height = ?), 0)) ");
+        }
+        if (filterType) {
+            buf.append("AND account_transaction.type = ? ");
+            if (subtype >= 0) {
+                buf.append("AND account_transaction.subtype = ? ");
             }
-
-            buf.append("ORDER BY block_timestamp DESC, transaction_index DESC");
-            buf.append(DbUtils.limitsClause(from, to));
-            con = Db.db.getConnection(childChain.getDbSchema());
-            PreparedStatement pstmt;
+        }
+        if (withMessage) {
+            buf.append("AND (transaction.has_message = TRUE OR transaction.has_encrypted_message = TRUE ");
+            buf.append("OR (account_transaction.direction = ").append(AccountTransactionIndex.SENT);
+            buf.append(" AND transaction.has_encrypttoself_message = TRUE) ");
+            buf.append("OR ((transaction.has_prunable_message = TRUE OR transaction.has_prunable_encrypted_message = TRUE) ");
+            buf.append("AND transaction.timestamp > ?)) ");
+        }
+        if (phasedOnly) {
+            buf.append("AND transaction.phased = TRUE ");
+        } else if (nonPhasedOnly) {
+            buf.append("AND transaction.phased = FALSE ");
+        }
+        if (excludeNotApproved) {
+            buf.append("AND (transaction.phased = FALSE OR approved = TRUE) ");
+        }
+        // account_id is constant but must be part of the ORDER BY for H2 to read the rows in index order and stop at the limit
+        buf.append("ORDER BY account_transaction.account_id, account_transaction.height DESC, account_transaction.transaction_db_id DESC");
+        buf.append(DbUtils.limitsClause(from, to));
+        PreparedStatement pstmt = con.prepareStatement(buf.toString());
+        try {
             int i = 0;
-            pstmt = con.prepareStatement(buf.toString());
             pstmt.setLong(++i, accountId);
-            pstmt.setLong(++i, accountId);
-            if (blockTimestamp > 0) {
-                pstmt.setInt(++i, blockTimestamp);
-            }
-            if (type >= 0) {
-                pstmt.setByte(++i, type);
-                if (subtype >= 0) {
-                    pstmt.setByte(++i, subtype);
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                pstmt.setInt(++i, height);
+            if (minHeight > 0) {
+                pstmt.setInt(++i, minHeight);
             }
-            int prunableExpiration = Math.max(0, Constants.INCLUDE_EXPIRED_PRUNABLE && includeExpiredPrunable ?
-                                        Nxt.getEpochTime() - Constants.MAX_PRUNABLE_LIFETIME :
-                                        Nxt.getEpochTime() - Constants.MIN_PRUNABLE_LIFETIME);
-            if (withMessage) {
-                pstmt.setInt(++i, prunableExpiration);
+            if (maxHeight < Integer.MAX_VALUE) {
+                pstmt.setInt(++i, maxHeight);
             }
-            pstmt.setLong(++i, accountId);
-            if (blockTimestamp > 0) {
-                pstmt.setInt(++i, blockTimestamp);
+            if (continuation != null) {
+                pstmt.setInt(++i, afterHeight);
+                pstmt.setLong(++i, afterTransactionId);
+                pstmt.setInt(++i, afterHeight);
             }
-            if (type >= 0) {
+            if (filterType) {
                 pstmt.setByte(++i, type);
                 if (subtype >= 0) {
                     pstmt.setByte(++i, subtype);
                 }
             }
-            if (height < Integer.MAX_VALUE) {
-                pstmt.setInt(++i, height);
-            }
             if (withMessage) {
                 pstmt.setInt(++i, prunableExpiration);
             }
             DbUtils.setLimits(++i, pstmt, from, to);
-            return getTransactions(childChain, con, pstmt);
-        } catch (SQLException e) {
-            DbUtils.close(con);
-            throw new RuntimeException(e.toString(), e);
+            return pstmt;
+        } catch (SQLException | RuntimeException e) {
+            DbUtils.close(pstmt);
+            throw e;
         }
     }
 
@@ -485,77 +528,20 @@ public final class BlockchainImpl implements Blockchain {
     }
 
     @Override
-    public DbIterator<? extends FxtTransaction> getTransactions(FxtChain chain, long accountId,
+    public DbIterator<FxtTransactionImpl> getTransactions(FxtChain chain, long accountId,
                 int numberOfConfirmations, byte type, byte subtype, int blockTimestamp, int from, int to) {
-        int height = numberOfConfirmations > 0 ? getHeight() - numberOfConfirmations : Integer.MAX_VALUE;
-        if (height < 0) {
-            throw new IllegalArgumentException("Number of confirmations required " + numberOfConfirmations
-                    + " exceeds current blockchain height " + getHeight());
-        }
+        return getTransactions(chain, accountId, numberOfConfirmations, type, subtype, blockTimestamp, null, from, to);
+    }
+
+    @Override
+    public DbIterator<FxtTransactionImpl> getTransactions(FxtChain chain, long accountId, int numberOfConfirmations, byte type, byte subtype,
+                                                          int blockTimestamp, ContinuationToken continuation, int from, int to) {
         Connection con = null;
         try {
-            StringBuilder buf = new StringBuilder();
-            buf.append("SELECT * FROM transaction_fxt WHERE recipient_id = ? AND sender_id <> ? ");
-            if (blockTimestamp > 0) {
-                buf.append("AND block_timestamp >= ? ");
-            }
-            if (type < 0) {
-                buf.append("AND type = ? ");
-                if (subtype >= 0) {
-                    buf.append("AND subtype = ? ");
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                buf.append("AND height <= ? ");
-            }
-            buf.append("UNION ALL SELECT * FROM transaction_fxt WHERE sender_id = ? ");
-            if (blockTimestamp > 0) {
-                buf.append("AND block_timestamp >= ? ");
-            }
-            if (type < 0) {
-                buf.append("AND type = ? ");
-                if (subtype >= 0) {
-                    buf.append("AND subtype = ? ");
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                buf.append("AND height <= ? ");
-            }
-
-            buf.append("ORDER BY block_timestamp DESC, transaction_index DESC");
-            buf.append(DbUtils.limitsClause(from, to));
-            con = Db.db.getConnection(FxtChain.FXT.getDbSchema());
-            PreparedStatement pstmt;
-            int i = 0;
-            pstmt = con.prepareStatement(buf.toString());
-            pstmt.setLong(++i, accountId);
-            pstmt.setLong(++i, accountId);
-            if (blockTimestamp > 0) {
-                pstmt.setInt(++i, blockTimestamp);
-            }
-            if (type < 0) {
-                pstmt.setByte(++i, type);
-                if (subtype >= 0) {
-                    pstmt.setByte(++i, subtype);
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                pstmt.setInt(++i, height);
-            }
-            pstmt.setLong(++i, accountId);
-            if (blockTimestamp > 0) {
-                pstmt.setInt(++i, blockTimestamp);
-            }
-            if (type < 0) {
-                pstmt.setByte(++i, type);
-                if (subtype >= 0) {
-                    pstmt.setByte(++i, subtype);
-                }
-            }
-            if (height < Integer.MAX_VALUE) {
-                pstmt.setInt(++i, height);
-            }
-            DbUtils.setLimits(++i, pstmt, from, to);
+            con = Db.db.getConnection(chain.getDbSchema());
+            // forging chain transaction types are negative, a positive type selects all types
+            PreparedStatement pstmt = prepareAccountTransactions(con, chain, accountId, numberOfConfirmations, type < 0, type, subtype,
+                    blockTimestamp, false, false, false, false, 0, continuation, from, to);
             return getTransactions(chain, con, pstmt);
         } catch (SQLException e) {
             DbUtils.close(con);
@@ -39,6 +39,13 @@ public interface BlockchainProcessor extends Observable<Block,BlockchainProcesso
 
     boolean isScanning();
 
+    /**
+     * Return the progress of the current scan
+     *
+     * @return                      Scan progress or null if not scanning
+     */
+    ScanProgress getScanProgress();
+
     boolean isDownloading();
 
     boolean isProcessingBlock();
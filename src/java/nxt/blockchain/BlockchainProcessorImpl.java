@@ -35,6 +35,8 @@ import nxt.util.JSON;
 import nxt.util.Listener;
 import nxt.util.Listeners;
 import nxt.util.Logger;
+import nxt.util.collections.LongHashMap;
+import nxt.util.collections.LongHashSet;
 import nxt.util.ThreadPool;
 import nxt.voting.PhasingAppendix;
 import nxt.voting.PhasingPollHome;
@@ -50,10 +52,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -65,12 +70,15 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
@@ -91,6 +99,31 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         checksums = Collections.unmodifiableNavigableMap(map);
     }
 
+    /** Minimum time to wait for a block segment before requesting it from another peer, in milliseconds */
+    private static final long MIN_HEDGE_DELAY = 2000;
+
+    /** Maximum number of blocks a peer returns for a single request */
+    private static final int MAX_SEGMENT_SIZE = 36;
+
+    /** Minimum number of blocks in a segment when the segment size is limited by the peer download rate */
+    private static final int MIN_SEGMENT_SIZE = 4;
+
+    /** Time in which an average peer should return a block segment, in milliseconds */
+    private static final long SEGMENT_TARGET_TIME = 1000;
+
+    /** Maximum estimated size of the blocks prefetched while the current blocks are being pushed */
+    private static final long MAX_PREFETCH_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Response time in milliseconds above which a peer can be disconnected as the slowest download peer.
+     * A peer answering faster than this is limited by the size of the segments it is asked for, not by
+     * its bandwidth, so its low download rate is no reason to replace it.
+     */
+    private static final long SLOW_PEER_RESPONSE_TIME = 100;
+
+    /** Number of blocks loaded and checked ahead of the block being applied during a scan */
+    private static final int SCAN_WINDOW = 256;
+
     private static final BlockchainProcessorImpl instance = new BlockchainProcessorImpl();
 
     public static BlockchainProcessorImpl getInstance() {
@@ -100,6 +133,12 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     private final BlockchainImpl blockchain = BlockchainImpl.getInstance();
 
     private final ExecutorService networkService = Executors.newCachedThreadPool();
+    private final ExecutorService validationService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            runnable -> Executors.defaultThreadFactory().newThread(() -> {
+                // child transactions are validated while the block transaction is open
+                Db.db.useReservedConnections();
+                runnable.run();
+            }));
     private final List<DerivedDbTable> derivedTables = new CopyOnWriteArrayList<>();
     private final boolean trimDerivedTables = Nxt.getBooleanProperty("nxt.trimDerivedTables");
     private final int defaultNumberOfForkConfirmations = Nxt.getIntProperty(Constants.isTestnet
@@ -111,7 +150,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     private volatile int lastRestoreTime = 0;
     private final Set<ChainTransactionId> prunableTransactions = new HashSet<>();
 
-    private final Listeners<Block, Event> blockListeners = new Listeners<>();
+    private final Listeners<Block, Event> blockListeners = new Listeners<>(BlockProfiler.listenerTimer);
     private volatile Peer lastBlockchainFeeder;
     private volatile int lastBlockchainFeederHeight;
     private volatile boolean getMoreBlocks = true;
@@ -119,6 +158,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     private volatile boolean isDownloadSuspended = false;
     private volatile boolean isTrimming;
     private volatile boolean isScanning;
+    private volatile ScanProgress scanProgress;
     private volatile boolean isDownloading;
     private volatile boolean isProcessingBlock;
     private volatile boolean isRestoring;
@@ -141,6 +181,8 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         private List<Long> chainBlockIds;
         private long totalTime = 1;
         private int totalBlocks;
+        private long averageBlockSize;
+        private BlockPrefetch prefetch;
 
         @Override
         public void run() {
@@ -183,6 +225,8 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
 
         private void downloadPeer() throws InterruptedException {
+            BlockPrefetch currentPrefetch = prefetch;
+            prefetch = null;
             try {
                 long startTime = System.currentTimeMillis();
                 int numberOfForkConfirmations = blockchain.getHeight() > Constants.LAST_CHECKSUM_BLOCK - 720 ?
@@ -192,7 +236,12 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     return;
                 }
                 peerHasMore = true;
-                final Peer peer = Peers.getAnyPeer(connectedPublicPeers);
+                //
+                // Continue with the peer which supplied the previous blocks if the next blocks
+                // have been prefetched from it
+                //
+                final Peer peer = currentPrefetch != null && connectedPublicPeers.contains(currentPrefetch.getPeer()) ?
+                        currentPrefetch.getPeer() : Peers.getAnyPeer(connectedPublicPeers);
                 if (peer == null) {
                     return;
                 }
@@ -213,8 +262,15 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 }
 
                 long commonMilestoneBlockId = genesisBlockId;
+                List<GetNextBlocks> prefetchedSegments = null;
+                if (currentPrefetch != null && currentPrefetch.getPeer() == peer &&
+                        currentPrefetch.getLastBlockId() == blockchain.getLastBlock().getId()) {
+                    prefetchedSegments = currentPrefetch.getSegments();
+                }
 
-                if (blockchain.getHeight() > 0) {
+                if (prefetchedSegments != null) {
+                    commonMilestoneBlockId = currentPrefetch.getLastBlockId();
+                } else if (blockchain.getHeight() > 0) {
                     commonMilestoneBlockId = getCommonMilestoneBlockId(peer);
                 }
                 if (commonMilestoneBlockId == 0 || !peerHasMore) {
@@ -223,7 +279,12 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
                 blockchain.updateLock();
                 try {
-                    chainBlockIds = getBlockIdsAfterCommon(peer, commonMilestoneBlockId, false);
+                    if (prefetchedSegments != null && commonMilestoneBlockId == blockchain.getLastBlock().getId()) {
+                        chainBlockIds = prefetchedSegments.get(0).getBlockIds();
+                    } else {
+                        prefetchedSegments = null;
+                        chainBlockIds = getBlockIdsAfterCommon(peer, commonMilestoneBlockId, false);
+                    }
                     if (chainBlockIds.size() < 2 || !peerHasMore) {
                         return;
                     }
@@ -249,7 +310,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                         return;
                     }
                     long lastBlockId = blockchain.getLastBlock().getId();
-                    downloadBlockchain(peer, commonBlock, commonBlock.getHeight());
+                    downloadBlockchain(peer, commonBlock, commonBlock.getHeight(), prefetchedSegments);
                     if (blockchain.getHeight() - commonBlock.getHeight() <= 10) {
                         return;
                     }
@@ -284,7 +345,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                             continue;
                         }
                         Logger.logDebugMessage("Found a peer with better difficulty");
-                        downloadBlockchain(otherPeer, otherPeerCommonBlock, commonBlock.getHeight());
+                        downloadBlockchain(otherPeer, otherPeerCommonBlock, commonBlock.getHeight(), null);
                     }
                     Logger.logDebugMessage("Got " + confirmations + " confirmations");
 
@@ -407,23 +468,22 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
          *
          * @param   feederPeer              Peer supplying the blocks list
          * @param   commonBlock             Common block
+         * @param   startHeight             Height of the common block of the first download
+         * @param   prefetchedSegments      Prefetched segments of the blocks list or null
          * @throws  InterruptedException    Download interrupted
          */
-        private void downloadBlockchain(final Peer feederPeer, final Block commonBlock, final int startHeight) throws InterruptedException {
-            Map<Long, PeerBlock> blockMap = new HashMap<>();
+        private void downloadBlockchain(final Peer feederPeer, final Block commonBlock, final int startHeight,
+                                        List<GetNextBlocks> prefetchedSegments) throws InterruptedException {
+            LongHashMap<PeerBlock> blockMap = new LongHashMap<>();
             //
             // Break the download into multiple segments.  The first block in each segment
-            // is the common block for that segment.
+            // is the common block for that segment.  Segments already requested while the
+            // previous blocks were being pushed are used as they are.
             //
-            List<GetNextBlocks> getList = new ArrayList<>();
-            int segSize = 36;
-            int stop = chainBlockIds.size() - 1;
-            for (int start = 0; start < stop; start += segSize) {
-                getList.add(new GetNextBlocks(chainBlockIds, start, Math.min(start + segSize, stop)));
-            }
-            int nextPeerIndex = ThreadLocalRandom.current().nextInt(connectedPublicPeers.size());
-            long maxResponseTime = 100;
-            Peer slowestPeer = null;
+            int segSize = getSegmentSize();
+            List<GetNextBlocks> getList = prefetchedSegments != null ?
+                    new ArrayList<>(prefetchedSegments) : createSegments(chainBlockIds, segSize);
+            Set<Peer> downloadPeers = new HashSet<>();
             //
             // Issue the getNextBlocks requests and get the results.  We will repeat
             // a request if the peer didn't respond or returned a partial block list.
@@ -432,7 +492,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             //
             download: while (!getList.isEmpty() && !connectedPublicPeers.isEmpty()) {
                 //
-                // Submit threads to issue 'getNextBlocks' requests.  The first segment
+                // Issue asynchronous 'getNextBlocks' requests.  The first segment
                 // will always be sent to the feeder peer.  Subsequent segments will
                 // be sent to the feeder peer if we failed trying to download the blocks
                 // from another peer.  We will stop the download and process any pending
@@ -440,33 +500,27 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 //
                 for (GetNextBlocks nextBlocks : getList) {
                     Peer peer;
+                    if (nextBlocks.getFuture() != null) {
+                        downloadPeers.add(nextBlocks.getPeer());
+                        continue;
+                    }
                     if (nextBlocks.getRequestCount() > 1) {
                         break download;
                     }
                     if (nextBlocks.getStart() == 0 || nextBlocks.getRequestCount() != 0) {
                         peer = feederPeer;
                     } else {
-                        while (true) {
-                            if (connectedPublicPeers.isEmpty()) {
-                                break download;
-                            }
-                            if (nextPeerIndex >= connectedPublicPeers.size()) {
-                                nextPeerIndex = 0;
-                            }
-                            peer = connectedPublicPeers.get(nextPeerIndex++);
-                            if (peer.getState() != Peer.State.CONNECTED) {
-                                connectedPublicPeers.remove(peer);
-                                continue;
-                            }
-                            break;
+                        peer = selectDownloadPeer();
+                        if (peer == null) {
+                            break download;
                         }
                     }
                     if (nextBlocks.getPeer() == peer) {
                         break download;
                     }
                     nextBlocks.setPeer(peer);
-                    Future<List<Block>> future = networkService.submit(nextBlocks);
-                    nextBlocks.setFuture(future);
+                    nextBlocks.setFuture(nextBlocks.request());
+                    downloadPeers.add(peer);
                 }
                 //
                 // Get the results.  A peer is on a different fork if a returned
@@ -477,14 +531,16 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     GetNextBlocks nextBlocks = it.next();
                     List<Block> blockList;
                     try {
-                        blockList = nextBlocks.getFuture().get();
+                        blockList = waitForBlocks(nextBlocks);
                     } catch (ExecutionException exc) {
                         throw new RuntimeException(exc.getMessage(), exc);
                     }
+                    nextBlocks.setFuture(null);
                     if (blockList == null) {
                         connectedPublicPeers.remove(nextBlocks.getPeer());
                         continue;
                     }
+                    updateAverageBlockSize(blockList);
                     Peer peer = nextBlocks.getPeer();
                     int index = nextBlocks.getStart() + 1;
                     for (Block block : blockList) {
@@ -499,10 +555,12 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     } else {
                         nextBlocks.setStart(index - 1);
                     }
-                    if (nextBlocks.getResponseTime() > maxResponseTime) {
-                        maxResponseTime = nextBlocks.getResponseTime();
-                        slowestPeer = nextBlocks.getPeer();
-                    }
+                }
+            }
+            Peer slowestPeer = null;
+            for (Peer peer : downloadPeers) {
+                if (peer.getBlocksResponseTime() > SLOW_PEER_RESPONSE_TIME && (slowestPeer == null || peer.getDownloadRate() < slowestPeer.getDownloadRate())) {
+                    slowestPeer = peer;
                 }
             }
             if (slowestPeer != null &&
@@ -510,11 +568,19 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     NetworkHandler.getConnectionCount() >= segSize &&
                     NetworkHandler.getConnectionCount() >= NetworkHandler.getMaxOutboundConnections() &&
                     chainBlockIds.size() > 360) {
-                Logger.logDebugMessage(slowestPeer.getHost() + " took " + maxResponseTime + " ms, disconnecting");
+                Logger.logDebugMessage(slowestPeer.getHost() + " downloads at " + slowestPeer.getDownloadRate() + " bytes/sec, disconnecting");
                 connectedPublicPeers.remove(slowestPeer);
                 slowestPeer.disconnectPeer();
             }
             //
+            // Start downloading the next blocks from the feeder peer while these blocks are
+            // being pushed, if all of them have been downloaded and extend our blockchain
+            //
+            if (getList.isEmpty() && commonBlock.getId() == blockchain.getLastBlock().getId()
+                    && startHeight == commonBlock.getHeight() && chainBlockIds.size() > 1) {
+                prefetch = startPrefetch(feederPeer);
+            }
+            //
             // Add the new blocks to the blockchain.  We will stop if we encounter
             // a missing block (this will happen if an invalid block is encountered
             // when downloading the blocks)
@@ -555,6 +621,198 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             }
         }
 
+        /**
+         * Return the number of blocks to request in a segment.  A segment is limited to half
+         * the maximum message size for the average block size, so that a peer doesn't truncate
+         * its response because of larger blocks, and to the blocks an average peer returns in
+         * the segment target time.
+         *
+         * @return                          Segment size
+         */
+        private int getSegmentSize() {
+            if (averageBlockSize == 0) {
+                return MAX_SEGMENT_SIZE;
+            }
+            int segSize = (int)Math.max(1, Math.min(MAX_SEGMENT_SIZE, NetworkHandler.MAX_MESSAGE_SIZE / 2 / averageBlockSize));
+            long totalRate = 0;
+            int ratedPeers = 0;
+            for (Peer peer : connectedPublicPeers) {
+                if (peer.getDownloadRate() > 0) {
+                    totalRate += peer.getDownloadRate();
+                    ratedPeers++;
+                }
+            }
+            if (ratedPeers > 0) {
+                long rateSize = totalRate / ratedPeers * SEGMENT_TARGET_TIME / 1000 / averageBlockSize;
+                segSize = (int)Math.min(segSize, Math.max(MIN_SEGMENT_SIZE, rateSize));
+            }
+            return segSize;
+        }
+
+        private void updateAverageBlockSize(List<Block> blockList) {
+            if (blockList.isEmpty()) {
+                return;
+            }
+            long size = 0;
+            for (Block block : blockList) {
+                size += ((BlockImpl)block).bytes().length;
+            }
+            size /= blockList.size();
+            averageBlockSize = averageBlockSize == 0 ? size : (7 * averageBlockSize + size) / 8;
+        }
+
+        /**
+         * Break a block identifier list into segments
+         *
+         * @param   blockIds                Block identifier list starting with the common block
+         * @param   segSize                 Segment size
+         * @return                          Segment list
+         */
+        private List<GetNextBlocks> createSegments(List<Long> blockIds, int segSize) {
+            List<GetNextBlocks> getList = new ArrayList<>();
+            int stop = blockIds.size() - 1;
+            for (int start = 0; start < stop; start += segSize) {
+                getList.add(new GetNextBlocks(blockIds, start, Math.min(start + segSize, stop)));
+            }
+            return getList;
+        }
+
+        /**
+         * Request the block identifiers following the current block identifier list from the
+         * feeder peer, and then the first segments of these blocks.  The first segment is
+         * requested from the feeder peer and the others from the download peers, up to
+         * the maximum prefetch size.
+         *
+         * @param   feederPeer              Peer supplying the blocks list
+         * @return                          Prefetch
+         */
+        private BlockPrefetch startPrefetch(Peer feederPeer) {
+            long lastBlockId = chainBlockIds.get(chainBlockIds.size() - 1);
+            int segSize = getSegmentSize();
+            int maxSegments = (720 + segSize - 1) / segSize;
+            if (averageBlockSize > 0) {
+                maxSegments = (int)Math.max(1, Math.min(maxSegments, MAX_PREFETCH_SIZE / (averageBlockSize * segSize)));
+            }
+            List<Peer> peers = new ArrayList<>(maxSegments);
+            peers.add(feederPeer);
+            while (peers.size() < maxSegments) {
+                Peer peer = selectDownloadPeer();
+                if (peer == null) {
+                    break;
+                }
+                peers.add(peer);
+            }
+            CompletableFuture<List<GetNextBlocks>> segments = feederPeer.sendRequestAsync(
+                    new NetworkMessage.GetNextBlockIdsMessage(lastBlockId, 719)).thenApplyAsync(response -> {
+                if (response == null) {
+                    return null;
+                }
+                List<Long> nextBlockIds = ((NetworkMessage.BlockIdsMessage)response).getBlockIds();
+                if (nextBlockIds.isEmpty()) {
+                    return null;
+                }
+                if (nextBlockIds.size() > 719) {
+                    Logger.logDebugMessage("Obsolete or rogue peer " + feederPeer.getHost() + " sends too many nextBlockIds, blacklisting");
+                    feederPeer.blacklist("Too many nextBlockIds");
+                    return null;
+                }
+                List<Long> blockIds = new ArrayList<>(nextBlockIds.size() + 1);
+                blockIds.add(lastBlockId);
+                blockIds.addAll(nextBlockIds);
+                List<GetNextBlocks> getList = createSegments(blockIds, segSize);
+                for (int i = 0; i < getList.size() && i < peers.size(); i++) {
+                    GetNextBlocks nextBlocks = getList.get(i);
+                    nextBlocks.setPeer(peers.get(i));
+                    nextBlocks.setFuture(nextBlocks.request());
+                }
+                return getList;
+            }, networkService);
+            return new BlockPrefetch(feederPeer, lastBlockId, segments);
+        }
+
+        /**
+         * Select a peer for a block segment.  Peers are selected at random with a probability
+         * proportional to their download rate, peers without a measured rate are selected as
+         * if they had the average rate.
+         *
+         * @return                          Selected peer or null if there are no connected peers
+         */
+        private Peer selectDownloadPeer() {
+            connectedPublicPeers.removeIf(peer -> peer.getState() != Peer.State.CONNECTED);
+            if (connectedPublicPeers.isEmpty()) {
+                return null;
+            }
+            long totalRate = 0;
+            int ratedPeers = 0;
+            for (Peer peer : connectedPublicPeers) {
+                if (peer.getDownloadRate() > 0) {
+                    totalRate += peer.getDownloadRate();
+                    ratedPeers++;
+                }
+            }
+            long defaultRate = ratedPeers == 0 ? 1 : Math.max(totalRate / ratedPeers, 1);
+            long[] weights = new long[connectedPublicPeers.size()];
+            long totalWeight = 0;
+            for (int i = 0; i < weights.length; i++) {
+                long rate = connectedPublicPeers.get(i).getDownloadRate();
+                weights[i] = rate > 0 ? rate : defaultRate;
+                totalWeight += weights[i];
+            }
+            long target = ThreadLocalRandom.current().nextLong(totalWeight);
+            for (int i = 0; i < weights.length; i++) {
+                target -= weights[i];
+                if (target < 0) {
+                    return connectedPublicPeers.get(i);
+                }
+            }
+            return connectedPublicPeers.get(weights.length - 1);
+        }
+
+        /**
+         * Wait for the blocks of a segment.  If the peer doesn't respond within three times
+         * its average response time, the segment is also requested from the fastest other
+         * peer and the first successful response is used.
+         *
+         * @param   nextBlocks              Block segment request
+         * @return                          List of blocks or null if an error occurred
+         * @throws  InterruptedException    Download interrupted
+         * @throws  ExecutionException      Response processing failed
+         */
+        private List<Block> waitForBlocks(GetNextBlocks nextBlocks) throws InterruptedException, ExecutionException {
+            CompletableFuture<List<Block>> future = nextBlocks.getFuture();
+            long hedgeDelay = Math.max(3 * nextBlocks.getPeer().getBlocksResponseTime(), MIN_HEDGE_DELAY);
+            try {
+                return future.get(hedgeDelay, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // request the segment from another peer
+            }
+            Peer hedgePeer = null;
+            for (Peer peer : connectedPublicPeers) {
+                if (peer != nextBlocks.getPeer() && peer.getState() == Peer.State.CONNECTED
+                        && (hedgePeer == null || peer.getDownloadRate() > hedgePeer.getDownloadRate())) {
+                    hedgePeer = peer;
+                }
+            }
+            if (hedgePeer == null) {
+                return future.get();
+            }
+            Logger.logDebugMessage(nextBlocks.getPeer().getHost() + " did not return blocks within " + hedgeDelay
+                    + " ms, also requesting them from " + hedgePeer.getHost());
+            GetNextBlocks hedgedBlocks = new GetNextBlocks(chainBlockIds, nextBlocks.getStart(), nextBlocks.getStop());
+            hedgedBlocks.setPeer(hedgePeer);
+            CompletableFuture<List<Block>> hedgedFuture = hedgedBlocks.request();
+            CompletableFuture.anyOf(future, hedgedFuture).get();
+            if (future.isDone() && future.get() != null) {
+                return future.get();
+            }
+            List<Block> blockList = hedgedFuture.get();
+            if (blockList == null) {
+                return future.get();
+            }
+            nextBlocks.setPeer(hedgePeer);
+            return blockList;
+        }
+
     };
 
     private void processFork(final List<Block> forkBlocks, final Block commonBlock) throws BlockNotAcceptedException {
@@ -607,12 +865,12 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     }
 
     /**
-     * Callable method to get the next block segment from the selected peer
+     * Asynchronous request to get the next block segment from the selected peer
      */
-    private static class GetNextBlocks implements Callable<List<Block>> {
+    private static class GetNextBlocks {
 
-        /** Callable future */
-        private Future<List<Block>> future;
+        /** Request future */
+        private CompletableFuture<List<Block>> future;
 
         /** Peer */
         private Peer peer;
@@ -629,11 +887,8 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         /** Request count */
         private int requestCount;
 
-        /** Time it took to return getNextBlocks */
-        private long responseTime;
-
         /**
-         * Create the callable future
+         * Create the request
          *
          * @param   blockIds            Block identifier list
          * @param   start               Start index within the list
@@ -647,28 +902,38 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
 
         /**
-         * Return the result
+         * Send the request to the current peer
          *
-         * @return                      List of blocks or null if an error occurred
+         * @return                      Future completed with the list of blocks or with null if an error occurred
          */
-        @Override
-        public List<Block> call() {
+        CompletableFuture<List<Block>> request() {
             requestCount++;
             List<Long> idList = new ArrayList<>(stop - start);
             for (int i = start + 1; i <= stop; i++) {
                 idList.add(blockIds.get(i));
             }
-            long startTime = System.currentTimeMillis();
-            NetworkMessage.BlocksMessage response = (NetworkMessage.BlocksMessage)peer.sendRequest(
-                    new NetworkMessage.GetNextBlocksMessage(blockIds.get(start), idList.size(), idList));
-            responseTime = System.currentTimeMillis() - startTime;
+            Peer requestPeer = peer;
+            return requestPeer.sendRequestAsync(new NetworkMessage.GetNextBlocksMessage(blockIds.get(start), idList.size(), idList))
+                    .thenApplyAsync(response -> getBlocks(requestPeer, (NetworkMessage.BlocksMessage)response, idList.size()),
+                            instance.networkService);
+        }
+
+        /**
+         * Return the blocks in the response
+         *
+         * @param   peer                Peer returning the blocks
+         * @param   response            Response message or null
+         * @param   requestedCount      Number of requested blocks
+         * @return                      List of blocks or null if an error occurred
+         */
+        private static List<Block> getBlocks(Peer peer, NetworkMessage.BlocksMessage response, int requestedCount) {
             if (response == null) {
                 return null;
             }
             if (response.getBlockCount() == 0) {
                 return null;
             }
-            if (response.getBlockCount() > idList.size()) {
+            if (response.getBlockCount() > requestedCount) {
                 Logger.logDebugMessage("Obsolete or rogue peer " + peer.getHost() + " sends too many nextBlocks, blacklisting");
                 peer.blacklist("Too many nextBlocks");
                 return null;
@@ -685,20 +950,20 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
 
         /**
-         * Return the callable future
+         * Return the request future
          *
-         * @return                      Callable future
+         * @return                      Request future
          */
-        public Future<List<Block>> getFuture() {
+        public CompletableFuture<List<Block>> getFuture() {
             return future;
         }
 
         /**
-         * Set the callable future
+         * Set the request future
          *
-         * @param   future              Callable future
+         * @param   future              Request future
          */
-        void setFuture(Future<List<Block>> future) {
+        void setFuture(CompletableFuture<List<Block>> future) {
             this.future = future;
         }
 
@@ -757,12 +1022,74 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
 
         /**
-         * Return the response time
+         * Return the block identifier list
          *
-         * @return                      Response time
+         * @return                      Block identifier list
          */
-        public long getResponseTime() {
-            return responseTime;
+        public List<Long> getBlockIds() {
+            return blockIds;
+        }
+    }
+
+    /**
+     * Blocks requested from the feeder peer while the previous blocks are being pushed
+     */
+    private static class BlockPrefetch {
+
+        /** Feeder peer */
+        private final Peer peer;
+
+        /** Last block of the previous block identifier list */
+        private final long lastBlockId;
+
+        /** Segments of the next block identifier list */
+        private final CompletableFuture<List<GetNextBlocks>> segments;
+
+        /**
+         * Create the prefetch
+         *
+         * @param   peer                Feeder peer
+         * @param   lastBlockId         Last block of the previous block identifier list
+         * @param   segments            Future completed with the segments or with null if an error occurred
+         */
+        BlockPrefetch(Peer peer, long lastBlockId, CompletableFuture<List<GetNextBlocks>> segments) {
+            this.peer = peer;
+            this.lastBlockId = lastBlockId;
+            this.segments = segments;
+        }
+
+        /**
+         * Return the feeder peer
+         *
+         * @return                      Feeder peer
+         */
+        public Peer getPeer() {
+            return peer;
+        }
+
+        /**
+         * Return the last block of the previous block identifier list
+         *
+         * @return                      Block identifier
+         */
+        public long getLastBlockId() {
+            return lastBlockId;
+        }
+
+        /**
+         * Wait for the next block identifier list and return its segments.  The first
+         * segments have already been requested.
+         *
+         * @return                      Segment list or null if the block identifiers could not be obtained
+         * @throws  InterruptedException    Wait interrupted
+         */
+        public List<GetNextBlocks> getSegments() throws InterruptedException {
+            try {
+                return segments.get();
+            } catch (ExecutionException e) {
+                Logger.logDebugMessage("Unable to prefetch blocks from " + peer.getHost() + ": " + e.getCause().toString());
+                return null;
+            }
         }
     }
 
@@ -819,10 +1146,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 //
                 // Locate an archive peer
                 //
-                List<Peer> peers = Peers.getPeers(chkPeer -> chkPeer.providesService(Peer.Service.PRUNABLE) &&
-                        !chkPeer.isBlacklisted() &&
+                List<Peer> peers = Peers.getPeers(null, Peer.Service.PRUNABLE.getCode(), chkPeer -> !chkPeer.isBlacklisted() &&
                         (chkPeer.getState() == Peer.State.CONNECTED ||
-                            (chkPeer.getAnnouncedAddress() != null && chkPeer.shareAddress())));
+                            (chkPeer.getAnnouncedAddress() != null && chkPeer.shareAddress())), Integer.MAX_VALUE);
                 while (!peers.isEmpty()) {
                     int index = ThreadLocalRandom.current().nextInt(peers.size());
                     Peer chkPeer = peers.get(index);
@@ -1041,7 +1367,10 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     private void doTrimDerivedTables() {
         lastTrimHeight = Math.max(blockchain.getHeight() - Constants.MAX_ROLLBACK, 0);
         if (lastTrimHeight > 0) {
+            long trimStart = System.currentTimeMillis();
+            StringBuilder timings = new StringBuilder();
             for (DerivedDbTable table : derivedTables) {
+                long start = System.currentTimeMillis();
                 blockchain.readLock();
                 try {
                     table.trim(lastTrimHeight);
@@ -1049,7 +1378,13 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 } finally {
                     blockchain.readUnlock();
                 }
+                long time = System.currentTimeMillis() - start;
+                if (time > 0) {
+                    timings.append(String.format("\n  %-40s %8d ms", table.getSchemaTable(), time));
+                }
             }
+            Logger.logDebugMessage("Trimmed derived tables at height " + lastTrimHeight + " in "
+                    + (System.currentTimeMillis() - trimStart) + " ms" + timings);
         }
     }
 
@@ -1072,6 +1407,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         return isScanning;
     }
 
+    @Override
+    public ScanProgress getScanProgress() {
+        return scanProgress;
+    }
+
     @Override
     public int getInitialScanHeight() {
         return initialScanHeight;
@@ -1253,10 +1593,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         if (!isPruned) {
             return transaction;
         }
-        List<Peer> peers = Peers.getPeers(chkPeer -> chkPeer.providesService(Peer.Service.PRUNABLE) &&
-                !chkPeer.isBlacklisted() &&
+        List<Peer> peers = Peers.getPeers(null, Peer.Service.PRUNABLE.getCode(), chkPeer -> !chkPeer.isBlacklisted() &&
                 (chkPeer.getState() == Peer.State.CONNECTED ||
-                    (chkPeer.getAnnouncedAddress() != null && chkPeer.shareAddress())));
+                    (chkPeer.getAnnouncedAddress() != null && chkPeer.shareAddress())), Integer.MAX_VALUE);
         if (peers.isEmpty()) {
             Logger.logDebugMessage("Cannot find any archive peers");
             return null;
@@ -1299,6 +1638,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
     public void shutdown() {
         ThreadPool.shutdownExecutor("networkService", networkService, 5);
+        ThreadPool.shutdownExecutor("validationService", validationService, 5);
     }
 
     private void addBlock(BlockImpl block) {
@@ -1361,6 +1701,8 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 Db.db.beginTransaction();
                 previousLastBlock = blockchain.getLastBlock();
 
+                long time = System.nanoTime();
+                long pushStart = time;
                 validate(block, previousLastBlock, curTime);
 
                 long nextHitTime = Generator.getNextHitTime(previousLastBlock.getId(), curTime);
@@ -1372,20 +1714,30 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     Generator.setDelay(-Constants.FORGING_SPEEDUP);
                     throw new BlockOutOfOrderException(msg, block);
                 }
+                time = BlockProfiler.record(BlockProfiler.Phase.VALIDATE_BLOCK, time);
 
                 Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
                 List<ChildTransactionImpl> validPhasedTransactions = new ArrayList<>();
                 List<ChildTransactionImpl> invalidPhasedTransactions = new ArrayList<>();
                 validatePhasedTransactions(previousLastBlock.getHeight(), validPhasedTransactions, invalidPhasedTransactions, duplicates);
+                time = BlockProfiler.record(BlockProfiler.Phase.VALIDATE_PHASED_TRANSACTIONS, time);
                 validateTransactions(block, previousLastBlock, curTime, duplicates, previousLastBlock.getHeight() >= Constants.LAST_CHECKSUM_BLOCK);
+                BlockProfiler.record(BlockProfiler.Phase.VALIDATE_TRANSACTIONS, time);
 
                 block.setPrevious(previousLastBlock);
                 blockListeners.notify(block, Event.BEFORE_BLOCK_ACCEPT);
+                time = System.nanoTime();
                 TransactionProcessorImpl.getInstance().requeueAllUnconfirmedTransactions();
+                time = BlockProfiler.record(BlockProfiler.Phase.REQUEUE_UNCONFIRMED, time);
                 addBlock(block);
+                BlockProfiler.record(BlockProfiler.Phase.ADD_BLOCK, time);
                 accept(block, validPhasedTransactions, invalidPhasedTransactions, duplicates);
 
+                time = System.nanoTime();
                 Db.db.commitTransaction();
+                BlockProfiler.record(BlockProfiler.Phase.COMMIT, time);
+                BlockProfiler.record(BlockProfiler.Phase.PUSH_BLOCK, pushStart);
+                BlockProfiler.blockPushed();
             } catch (Exception e) {
                 Db.db.rollbackTransaction();
                 blockchain.setLastBlock(previousLastBlock);
@@ -1469,8 +1821,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                                       boolean fullValidation) throws BlockNotAcceptedException {
         long calculatedTotalFee = 0;
         MessageDigest digest = Crypto.sha256();
-        Set<Long> transactionIds = fullValidation ? new HashSet<>() : null;
-        for (FxtTransactionImpl fxtTransaction : block.getFxtTransactions()) {
+        LongHashSet transactionIds = fullValidation ? new LongHashSet() : null;
+        List<BlockNotAcceptedException[]> childValidationResults = prevalidateChildTransactions(block, previousLastBlock, curTime, fullValidation);
+        List<FxtTransactionImpl> fxtTransactions = block.getFxtTransactions();
+        for (int i = 0; i < fxtTransactions.size(); i++) {
+            FxtTransactionImpl fxtTransaction = fxtTransactions.get(i);
             validateTransaction(fxtTransaction, block, previousLastBlock, curTime);
             if (fullValidation) {
                 if (!transactionIds.add(fxtTransaction.getId())) {
@@ -1478,14 +1833,21 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 }
                 fullyValidateTransaction(fxtTransaction, block, previousLastBlock, curTime);
             }
+            BlockNotAcceptedException[] childValidationErrors = childValidationResults.get(i);
+            int j = 0;
             for (ChildTransactionImpl childTransaction : fxtTransaction.getChildTransactions()) {
                 validateTransaction(childTransaction, block, previousLastBlock, curTime);
                 if (fullValidation) {
                     if (!transactionIds.add(childTransaction.getId())) {
                         throw new TransactionNotAcceptedException("Duplicate transaction id", childTransaction);
                     }
-                    fullyValidateTransaction(childTransaction, block, previousLastBlock, curTime);
+                    if (childValidationErrors == null) {
+                        fullyValidateTransaction(childTransaction, block, previousLastBlock, curTime);
+                    } else if (childValidationErrors[j] != null) {
+                        throw childValidationErrors[j];
+                    }
                 }
+                j += 1;
                 if (childTransaction.attachmentIsDuplicate(duplicates, true)) {
                     throw new TransactionNotAcceptedException("Transaction is a duplicate", childTransaction);
                 }
@@ -1504,6 +1866,75 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
     }
 
+    /**
+     * Verify the child transaction signatures and, for full validation, run the read-only child
+     * transaction checks of each ChildBlockFxtTransaction concurrently. The database is not modified
+     * before the block is accepted, so the checks return the same results as when run sequentially.
+     * Public keys are only verified against the accounts later, when validating the transactions
+     * in block order.
+     *
+     * @param   block               Block being validated
+     * @param   previousLastBlock   Previous block
+     * @param   curTime             Current time
+     * @param   fullValidation      TRUE to run the full child transaction validation
+     * @return                      Validation errors for the child transactions of each FXT transaction, or null
+     *                              if the child transactions of an FXT transaction could not be prevalidated
+     */
+    private List<BlockNotAcceptedException[]> prevalidateChildTransactions(BlockImpl block, BlockImpl previousLastBlock, int curTime,
+                                                                             boolean fullValidation) {
+        List<Callable<BlockNotAcceptedException[]>> tasks = new ArrayList<>();
+        int bundles = 0;
+        for (FxtTransactionImpl fxtTransaction : block.getFxtTransactions()) {
+            Collection<ChildTransactionImpl> childTransactions;
+            try {
+                childTransactions = fxtTransaction.getChildTransactions();
+            } catch (IllegalStateException e) {
+                // missing child transactions are rejected when validating the FXT transaction
+                tasks.add(() -> null);
+                continue;
+            }
+            if (!childTransactions.isEmpty()) {
+                bundles += 1;
+            }
+            tasks.add(() -> {
+                BlockNotAcceptedException[] errors = new BlockNotAcceptedException[childTransactions.size()];
+                int i = 0;
+                for (ChildTransactionImpl childTransaction : childTransactions) {
+                    if (childTransaction.checkSignature() && fullValidation) {
+                        try {
+                            fullyValidateTransaction(childTransaction, block, previousLastBlock, curTime);
+                        } catch (BlockNotAcceptedException e) {
+                            errors[i] = e;
+                        }
+                    }
+                    i += 1;
+                }
+                return errors;
+            });
+        }
+        List<BlockNotAcceptedException[]> results = new ArrayList<>(tasks.size());
+        try {
+            if (bundles > 1) {
+                for (Future<BlockNotAcceptedException[]> future : validationService.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            } else {
+                for (Callable<BlockNotAcceptedException[]> task : tasks) {
+                    results.add(task.call());
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause.toString(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while validating child transactions", e);
+        } catch (Exception e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return results;
+    }
+
     private void validateTransaction(TransactionImpl transaction, BlockImpl block, BlockImpl previousLastBlock, int curTime)
             throws BlockNotAcceptedException {
         if (transaction.getTimestamp() > curTime + Constants.MAX_TIMEDRIFT) {
@@ -1561,6 +1992,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                         Map<TransactionType, Map<String, Integer>> duplicates) throws TransactionNotAcceptedException {
         try {
             isProcessingBlock = true;
+            long time = System.nanoTime();
             for (FxtTransactionImpl transaction : block.getFxtTransactions()) {
                 if (! transaction.applyUnconfirmed()) {
                     throw new TransactionNotAcceptedException("Double spending", transaction);
@@ -1571,14 +2003,19 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     }
                 }
             }
+            BlockProfiler.record(BlockProfiler.Phase.APPLY_UNCONFIRMED, time);
             blockListeners.notify(block, Event.BEFORE_BLOCK_APPLY);
+            time = System.nanoTime();
             block.apply();
             validPhasedTransactions.forEach(transaction -> transaction.getPhasing().countVotes(transaction));
             invalidPhasedTransactions.forEach(transaction -> transaction.getPhasing().reject(transaction));
+            time = BlockProfiler.record(BlockProfiler.Phase.APPLY_BLOCK, time);
             int fromTimestamp = Nxt.getEpochTime() - Constants.MAX_PRUNABLE_LIFETIME;
             for (FxtTransactionImpl transaction : block.getFxtTransactions()) {
                 try {
+                    long start = System.nanoTime();
                     transaction.apply();
+                    BlockProfiler.record(transaction.getType(), start);
                     checkMissingPrunable(transaction, fromTimestamp);
                     for (ChildTransactionImpl childTransaction : transaction.getSortedChildTransactions()) {
                         checkMissingPrunable(childTransaction, fromTimestamp);
@@ -1588,6 +2025,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     throw new BlockchainProcessor.TransactionNotAcceptedException(e, transaction);
                 }
             }
+            time = BlockProfiler.record(BlockProfiler.Phase.APPLY_TRANSACTIONS, time);
             SortedSet<ChildTransactionImpl> possiblyApprovedTransactions = new TreeSet<>(PhasingPollHome.finishingTransactionsComparator);
             block.getFxtTransactions().forEach(fxtTransaction -> {
                 for (ChildTransactionImpl childTransaction : fxtTransaction.getSortedChildTransactions()) {
@@ -1624,6 +2062,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     }
                 }
             });
+            BlockProfiler.record(BlockProfiler.Phase.FINISH_PHASED_TRANSACTIONS, time);
             blockListeners.notify(block, Event.AFTER_BLOCK_APPLY);
             if (block.getFxtTransactions().size() > 0) {
                 List<Transaction> confirmedTransactions = new ArrayList<>();
@@ -1634,6 +2073,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 TransactionProcessorImpl.getInstance().notifyListeners(confirmedTransactions, TransactionProcessor.Event.ADDED_CONFIRMED_TRANSACTIONS);
             }
             AccountLedger.commitEntries();
+            BlockStateHash.blockAccepted(block);
         } finally {
             isProcessingBlock = false;
             AccountLedger.clearEntries();
@@ -1798,18 +2238,22 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             .thenComparingInt(UnconfirmedTransaction::getHeight)
             .thenComparingLong(UnconfirmedTransaction::getId);
 
-    public void generateBlock(String secretPhrase, int blockTimestamp) throws BlockNotAcceptedException {
-
+    /**
+     * Select the transactions for a new block
+     *
+     * @param   previousBlock       Previous block
+     * @param   blockTimestamp      Timestamp of the new block or 0 to ignore the transaction timestamps
+     * @return                      Block template
+     */
+    BlockTemplate selectBlockTransactions(BlockImpl previousBlock, int blockTimestamp) {
         Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
-        for (ChildTransaction phasedTransaction : PhasingPollHome.getFinishingTransactions(blockchain.getHeight() + 1)) {
+        for (ChildTransaction phasedTransaction : PhasingPollHome.getFinishingTransactions(previousBlock.getHeight() + 1)) {
             try {
                 phasedTransaction.validate();
                 ((ChildTransactionImpl)phasedTransaction).attachmentIsDuplicate(duplicates, false); // pre-populate duplicates map
             } catch (NxtException.ValidationException ignore) {
             }
         }
-        BlockImpl previousBlock = blockchain.getLastBlock();
-        TransactionProcessorImpl.getInstance().processWaitingTransactions();
         SortedSet<UnconfirmedFxtTransaction> sortedTransactions = selectUnconfirmedFxtTransactions(duplicates, previousBlock, blockTimestamp);
         List<FxtTransactionImpl> blockTransactions = new ArrayList<>();
         MessageDigest digest = Crypto.sha256();
@@ -1820,7 +2264,21 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             digest.update(transaction.bytes());
             totalFeeFQT += transaction.getFee();
         }
-        byte[] payloadHash = digest.digest();
+        return new BlockTemplate(previousBlock.getId(), Collections.unmodifiableList(blockTransactions), digest.digest(), totalFeeFQT);
+    }
+
+    public void generateBlock(String secretPhrase, int blockTimestamp) throws BlockNotAcceptedException {
+
+        BlockImpl previousBlock = blockchain.getLastBlock();
+        BlockTemplate template = BlockTemplate.get(previousBlock, blockTimestamp);
+        if (template == null) {
+            TransactionProcessorImpl.getInstance().processWaitingTransactions();
+            template = selectBlockTransactions(previousBlock, blockTimestamp);
+        }
+        List<FxtTransactionImpl> blockTransactions = new ArrayList<>(template.getTransactions());
+        long totalFeeFQT = template.getTotalFeeFQT();
+        byte[] payloadHash = template.getPayloadHash();
+        MessageDigest digest = Crypto.sha256();
         digest.update(previousBlock.getGenerationSignature());
         final byte[] publicKey = Crypto.getPublicKey(secretPhrase);
         byte[] generationSignature = digest.digest(publicKey);
@@ -1867,15 +2325,30 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
     @Override
     public void scan(int height, boolean validate) {
-        scan(height, validate, false);
+        scan(height, Integer.MAX_VALUE, validate, false);
+    }
+
+    /**
+     * Scan the blockchain from the start height up to and including the end height.
+     * <p>
+     * If the end height is below the current blockchain height, the scan stops there and
+     * remains scheduled, so that the derived tables are rebuilt at the next start. This is
+     * only intended for replaying blocks on a copy of the database.
+     *
+     * @param   height              Start height
+     * @param   endHeight           End height
+     * @param   validate            TRUE to verify signatures and validate transactions
+     */
+    public void scan(int height, int endHeight, boolean validate) {
+        scan(height, endHeight, validate, false);
     }
 
     @Override
     public void fullScanWithShutdown() {
-        scan(0, true, true);
+        scan(0, Integer.MAX_VALUE, true, true);
     }
 
-    private void scan(int height, boolean validate, boolean shutdown) {
+    private void scan(int height, int endHeight, boolean validate, boolean shutdown) {
         blockchain.writeLock();
         try {
             if (!Db.db.isInTransaction()) {
@@ -1884,7 +2357,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     if (validate) {
                         blockListeners.addListener(checksumListener, Event.BLOCK_SCANNED);
                     }
-                    scan(height, validate, shutdown);
+                    scan(height, endHeight, validate, shutdown);
                     Db.db.commitTransaction();
                 } catch (Exception e) {
                     Db.db.rollbackTransaction();
@@ -1956,80 +2429,95 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 }
                 long dbId = Long.MIN_VALUE;
                 boolean hasMore = true;
-                outer:
-                while (hasMore) {
-                    hasMore = false;
-                    pstmtSelect.setLong(pstmtSelectIndex, dbId);
-                    try (ResultSet rs = pstmtSelect.executeQuery()) {
-                        while (rs.next()) {
-                            try {
-                                dbId = rs.getLong("db_id");
-                                currentBlock = BlockDb.loadBlock(con, rs, true);
-                                if (currentBlock.getHeight() > 0) {
-                                    currentBlock.loadTransactions();
-                                    if (currentBlock.getId() != currentBlockId || currentBlock.getHeight() > blockchain.getHeight() + 1) {
-                                        throw new NxtException.NotValidException("Database blocks in the wrong order!");
-                                    }
-                                    int curTime = Nxt.getEpochTime();
-                                    Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
-                                    List<ChildTransactionImpl> validPhasedTransactions = new ArrayList<>();
-                                    List<ChildTransactionImpl> invalidPhasedTransactions = new ArrayList<>();
-                                    validatePhasedTransactions(blockchain.getHeight(), validPhasedTransactions, invalidPhasedTransactions, duplicates);
-                                    validateTransactions(currentBlock, blockchain.getLastBlock(), curTime, duplicates, validate);
-                                    if (validate) {
-                                        validate(currentBlock, blockchain.getLastBlock(), curTime);
-                                        byte[] blockBytes = currentBlock.bytes();
-                                        if (!Arrays.equals(blockBytes, BlockImpl.parseBlock(blockBytes, currentBlock.getFxtTransactions()).bytes())) {
-                                            throw new NxtException.NotValidException("Block bytes cannot be parsed back to the same block");
-                                        }
-                                        List<TransactionImpl> transactions = new ArrayList<>();
-                                        for (FxtTransactionImpl fxtTransaction : currentBlock.getFxtTransactions()) {
-                                            transactions.add(fxtTransaction);
-                                            transactions.addAll(fxtTransaction.getSortedChildTransactions());
-                                        }
-                                        for (TransactionImpl transaction : transactions) {
-                                            byte[] transactionBytes = transaction.bytes();
-                                            if (!Arrays.equals(transactionBytes, TransactionImpl.newTransactionBuilder(transactionBytes).build().bytes())) {
-                                                throw new NxtException.NotValidException("Transaction bytes cannot be parsed back to the same transaction: "
-                                                        + JSON.toJSONString(transaction.getJSONObject()));
-                                            }
-                                            JSONObject transactionJSON = (JSONObject) JSONValue.parse(JSON.toJSONString(transaction.getJSONObject()));
-                                            if (!Arrays.equals(transactionBytes, TransactionImpl.newTransactionBuilder(transactionJSON).build().bytes())) {
-                                                throw new NxtException.NotValidException("Transaction JSON cannot be parsed back to the same transaction: "
-                                                        + JSON.toJSONString(transaction.getJSONObject()));
-                                            }
-                                        }
-                                    }
-                                    blockListeners.notify(currentBlock, Event.BEFORE_BLOCK_ACCEPT);
-                                    blockchain.setLastBlock(currentBlock);
-                                    accept(currentBlock, validPhasedTransactions, invalidPhasedTransactions, duplicates);
-                                    Db.db.clearCache();
-                                    Db.db.commitTransaction();
-                                    blockListeners.notify(currentBlock, Event.AFTER_BLOCK_ACCEPT);
+                boolean stopped = false;
+                int batchRows = 0;
+                ResultSet rs = null;
+                Deque<ScannedBlock> window = new ArrayDeque<>();
+                ExecutorService scanService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                scanProgress = new ScanProgress(height, Math.min(initialScanHeight, endHeight));
+                try {
+                    while (true) {
+                        while (hasMore && !stopped && window.size() < SCAN_WINDOW) {
+                            if (rs == null) {
+                                pstmtSelect.setLong(pstmtSelectIndex, dbId);
+                                rs = pstmtSelect.executeQuery();
+                                batchRows = 0;
+                            }
+                            if (!rs.next()) {
+                                rs.close();
+                                rs = null;
+                                hasMore = batchRows > 0;
+                                dbId = dbId + 1;
+                                continue;
+                            }
+                            batchRows += 1;
+                            dbId = rs.getLong("db_id");
+                            if (rs.getInt("height") > endHeight) {
+                                stopped = true;
+                                break;
+                            }
+                            window.add(loadScannedBlock(con, rs, scanService, validate));
+                        }
+                        ScannedBlock scannedBlock = window.poll();
+                        if (scannedBlock == null) {
+                            break;
+                        }
+                        try {
+                            currentBlock = scannedBlock.getBlock();
+                            if (currentBlock.getHeight() > 0) {
+                                if (currentBlock.getId() != currentBlockId || currentBlock.getHeight() > blockchain.getHeight() + 1) {
+                                    throw new NxtException.NotValidException("Database blocks in the wrong order!");
+                                }
+                                scannedBlock.awaitChecks();
+                                int curTime = Nxt.getEpochTime();
+                                Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+                                List<ChildTransactionImpl> validPhasedTransactions = new ArrayList<>();
+                                List<ChildTransactionImpl> invalidPhasedTransactions = new ArrayList<>();
+                                validatePhasedTransactions(blockchain.getHeight(), validPhasedTransactions, invalidPhasedTransactions, duplicates);
+                                validateTransactions(currentBlock, blockchain.getLastBlock(), curTime, duplicates, validate);
+                                if (validate) {
+                                    validate(currentBlock, blockchain.getLastBlock(), curTime);
                                 }
-                                blockListeners.notify(currentBlock, Event.BLOCK_SCANNED);
-                                hasMore = true;
-                                currentBlockId = currentBlock.getNextBlockId();
-                            } catch (NxtException | RuntimeException e) {
-                                Db.db.rollbackTransaction();
-                                Logger.logDebugMessage(e.toString(), e);
-                                Logger.logDebugMessage("Applying block " + Long.toUnsignedString(currentBlockId) + " at height "
-                                        + currentBlock.getHeight() + " failed, deleting from database");
-                                BlockImpl lastBlock = BlockDb.deleteBlocksFrom(currentBlockId);
-                                blockchain.setLastBlock(lastBlock);
-                                popOffTo(lastBlock);
-                                break outer;
+                                blockListeners.notify(currentBlock, Event.BEFORE_BLOCK_ACCEPT);
+                                blockchain.setLastBlock(currentBlock);
+                                accept(currentBlock, validPhasedTransactions, invalidPhasedTransactions, duplicates);
+                                Db.db.clearCache();
+                                Db.db.commitTransaction();
+                                blockListeners.notify(currentBlock, Event.AFTER_BLOCK_ACCEPT);
                             }
+                            blockListeners.notify(currentBlock, Event.BLOCK_SCANNED);
+                            currentBlockId = currentBlock.getNextBlockId();
+                            scanProgress.blockScanned(currentBlock.getHeight());
+                        } catch (NxtException | RuntimeException e) {
+                            Db.db.rollbackTransaction();
+                            Logger.logDebugMessage(e.toString(), e);
+                            Logger.logDebugMessage("Applying block " + Long.toUnsignedString(currentBlockId) + " at height "
+                                    + currentBlock.getHeight() + " failed, deleting from database");
+                            BlockImpl lastBlock = BlockDb.deleteBlocksFrom(currentBlockId);
+                            blockchain.setLastBlock(lastBlock);
+                            popOffTo(lastBlock);
+                            // the scan ended below the end height
+                            stopped = false;
+                            break;
                         }
-                        dbId = dbId + 1;
                     }
+                } finally {
+                    if (rs != null) {
+                        rs.close();
+                    }
+                    window.forEach(ScannedBlock::cancel);
+                    scanService.shutdownNow();
                 }
-                if (height == 0) {
-                    for (DerivedDbTable table : derivedTables) {
-                        table.createSearchIndex(con);
+                if (stopped) {
+                    Logger.logMessage("Scan stopped at end height " + endHeight + ", will be completed at next start");
+                } else {
+                    if (height == 0) {
+                        for (DerivedDbTable table : derivedTables) {
+                            table.createSearchIndex(con);
+                        }
                     }
+                    pstmtDone.executeUpdate();
                 }
-                pstmtDone.executeUpdate();
                 Db.db.commitTransaction();
                 blockListeners.notify(currentBlock, Event.RESCAN_END);
                 Logger.logMessage("...done at height " + blockchain.getHeight());
@@ -2041,9 +2529,110 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 throw new RuntimeException(e.toString(), e);
             } finally {
                 isScanning = false;
+                scanProgress = null;
             }
         } finally {
             blockchain.writeUnlock();
         }
     }
+
+    private ScannedBlock loadScannedBlock(Connection con, ResultSet rs, ExecutorService scanService, boolean validate) {
+        try {
+            BlockImpl block = BlockDb.loadBlock(con, rs, true);
+            if (block.getHeight() == 0) {
+                return new ScannedBlock(block, null, null);
+            }
+            block.loadTransactions();
+            return new ScannedBlock(block, scanService.submit(() -> {
+                checkScannedBlock(block, validate);
+                return null;
+            }), null);
+        } catch (RuntimeException e) {
+            return new ScannedBlock(null, null, e);
+        }
+    }
+
+    /**
+     * Verify the signatures of a scanned block and check that the block and its transactions
+     * can be parsed back from their bytes and JSON.  These checks don't depend on the derived
+     * tables, and are done by the scan workers ahead of the block being applied.  The verified
+     * signatures are cached, so that only the account public keys are checked when the block
+     * is validated.
+     *
+     * @param   block               Scanned block
+     * @param   validate            TRUE if this is a scan with validation
+     * @throws  NxtException.NotValidException  Block or transaction cannot be parsed back
+     */
+    private static void checkScannedBlock(BlockImpl block, boolean validate) throws NxtException.NotValidException {
+        List<TransactionImpl> transactions = new ArrayList<>();
+        for (FxtTransactionImpl fxtTransaction : block.getFxtTransactions()) {
+            transactions.add(fxtTransaction);
+            transactions.addAll(fxtTransaction.getSortedChildTransactions());
+        }
+        transactions.forEach(TransactionImpl::checkSignature);
+        if (!validate) {
+            return;
+        }
+        block.checkSignature();
+        byte[] blockBytes = block.bytes();
+        if (!Arrays.equals(blockBytes, BlockImpl.parseBlock(blockBytes, block.getFxtTransactions()).bytes())) {
+            throw new NxtException.NotValidException("Block bytes cannot be parsed back to the same block");
+        }
+        for (TransactionImpl transaction : transactions) {
+            byte[] transactionBytes = transaction.bytes();
+            if (!Arrays.equals(transactionBytes, TransactionImpl.newTransactionBuilder(transactionBytes).build().bytes())) {
+                throw new NxtException.NotValidException("Transaction bytes cannot be parsed back to the same transaction: "
+                        + JSON.toJSONString(transaction.getJSONObject()));
+            }
+            JSONObject transactionJSON = (JSONObject) JSONValue.parse(JSON.toJSONString(transaction.getJSONObject()));
+            if (!Arrays.equals(transactionBytes, TransactionImpl.newTransactionBuilder(transactionJSON).build().bytes())) {
+                throw new NxtException.NotValidException("Transaction JSON cannot be parsed back to the same transaction: "
+                        + JSON.toJSONString(transaction.getJSONObject()));
+            }
+        }
+    }
+
+    private static final class ScannedBlock {
+
+        private final BlockImpl block;
+        private final Future<Void> checks;
+        private final RuntimeException loadException;
+
+        private ScannedBlock(BlockImpl block, Future<Void> checks, RuntimeException loadException) {
+            this.block = block;
+            this.checks = checks;
+            this.loadException = loadException;
+        }
+
+        private BlockImpl getBlock() {
+            if (loadException != null) {
+                throw loadException;
+            }
+            return block;
+        }
+
+        private void awaitChecks() throws NxtException {
+            if (checks == null) {
+                return;
+            }
+            try {
+                checks.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof NxtException) {
+                    throw (NxtException) cause;
+                }
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause.toString(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while checking scanned block", e);
+            }
+        }
+
+        private void cancel() {
+            if (checks != null) {
+                checks.cancel(true);
+            }
+        }
+    }
 }
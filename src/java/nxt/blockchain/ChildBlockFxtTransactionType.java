@@ -144,7 +144,9 @@ public final class ChildBlockFxtTransactionType extends FxtTransactionType {
         ChildBlockAttachment attachment = (ChildBlockAttachment) transaction.getAttachment();
         long totalFee = 0;
         for (ChildTransactionImpl childTransaction : transaction.getSortedChildTransactions()) {
+            long start = System.nanoTime();
             childTransaction.apply();
+            BlockProfiler.record(childTransaction.getType(), start);
             totalFee = Math.addExact(totalFee, childTransaction.getFee());
         }
         ChildChain childChain = ChildChain.getChildChain(attachment.getChainId());
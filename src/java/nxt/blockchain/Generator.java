@@ -25,6 +25,7 @@ import nxt.util.Listener;
 import nxt.util.Listeners;
 import nxt.util.Logger;
 import nxt.util.ThreadPool;
+import nxt.util.collections.LongHashSet;
 
 import java.math.BigInteger;
 import java.security.MessageDigest;
@@ -32,10 +33,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -141,6 +140,7 @@ public final class Generator implements Comparable<Generator> {
     static {
         if (!Constants.isLightClient) {
             ThreadPool.scheduleThread("GenerateBlocks", generateBlocksThread, 500, TimeUnit.MILLISECONDS);
+            BlockTemplate.init();
         }
     }
 
@@ -371,7 +371,7 @@ public final class Generator implements Comparable<Generator> {
     }
 
     /** Active block generators */
-    private static final Set<Long> activeGeneratorIds = new HashSet<>();
+    private static final LongHashSet activeGeneratorIds = new LongHashSet();
 
     /** Active block identifier */
     private static long activeBlockId;
@@ -393,14 +393,16 @@ public final class Generator implements Comparable<Generator> {
         Blockchain blockchain = Nxt.getBlockchain();
         synchronized(activeGenerators) {
             if (!generatorsInitialized) {
-                activeGeneratorIds.addAll(BlockDb.getBlockGenerators(Math.max(1, blockchain.getHeight() - 10000)));
-                activeGeneratorIds.forEach(activeGeneratorId -> activeGenerators.add(new ActiveGenerator(activeGeneratorId)));
+                for (long activeGeneratorId : BlockDb.getBlockGenerators(Math.max(1, blockchain.getHeight() - 10000))) {
+                    if (activeGeneratorIds.add(activeGeneratorId)) {
+                        activeGenerators.add(new ActiveGenerator(activeGeneratorId));
+                    }
+                }
                 Logger.logDebugMessage(activeGeneratorIds.size() + " block generators found");
                 Nxt.getBlockchainProcessor().addListener(block -> {
                     long generatorId = block.getGeneratorId();
                     synchronized(activeGenerators) {
-                        if (!activeGeneratorIds.contains(generatorId)) {
-                            activeGeneratorIds.add(generatorId);
+                        if (activeGeneratorIds.add(generatorId)) {
                             activeGenerators.add(new ActiveGenerator(generatorId));
                         }
                     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.util.Logger;
+
+/**
+ * Progress of a blockchain scan
+ */
+public final class ScanProgress {
+
+    /** Minimum time between progress log messages in milliseconds */
+    private static final long LOG_INTERVAL = 30000;
+
+    private final int startHeight;
+    private final int targetHeight;
+    private final long startTime;
+    private volatile int height;
+    private long lastLogTime;
+
+    ScanProgress(int startHeight, int targetHeight) {
+        this.startHeight = startHeight;
+        this.targetHeight = targetHeight;
+        this.startTime = System.currentTimeMillis();
+        this.height = startHeight - 1;
+        this.lastLogTime = startTime;
+    }
+
+    /**
+     * Record a scanned block and log the progress periodically
+     *
+     * @param   height              Height of the scanned block
+     */
+    void blockScanned(int height) {
+        this.height = height;
+        long now = System.currentTimeMillis();
+        if (now - lastLogTime >= LOG_INTERVAL) {
+            lastLogTime = now;
+            long eta = getEstimatedSeconds();
+            Logger.logMessage(String.format("Scanned height %d of %d, %.1f blocks/s, ETA %s", height, targetHeight,
+                    getBlocksPerSecond(), eta < 0 ? "unknown" : String.format("%d:%02d:%02d", eta / 3600, eta / 60 % 60, eta % 60)));
+        }
+    }
+
+    public int getStartHeight() {
+        return startHeight;
+    }
+
+    public int getTargetHeight() {
+        return targetHeight;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Return the average scan rate since the start of the scan
+     *
+     * @return                      Blocks per second
+     */
+    public double getBlocksPerSecond() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed <= 0 ? 0 : (height - startHeight + 1) * 1000.0 / elapsed;
+    }
+
+    /**
+     * Return the estimated time until the target height is reached
+     *
+     * @return                      Remaining time in seconds, or -1 if not known yet
+     */
+    public long getEstimatedSeconds() {
+        double blocksPerSecond = getBlocksPerSecond();
+        if (blocksPerSecond <= 0) {
+            return -1;
+        }
+        return (long)(Math.max(targetHeight - height, 0) / blocksPerSecond);
+    }
+
+}
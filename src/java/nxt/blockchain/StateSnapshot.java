@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.db.DerivedDbTable;
+import nxt.db.FullTextTrigger;
+import nxt.db.StateHash;
+import nxt.dbschema.Db;
+import nxt.util.Convert;
+import nxt.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot of the blockchain and of the derived tables.
+ * <p>
+ * A snapshot contains the rows of the block and transaction tables and of all registered
+ * derived tables except the unconfirmed transactions.  The derived tables are trimmed before
+ * the export, so that only the versions needed for a rollback of Constants.MAX_ROLLBACK blocks
+ * are included.  The snapshot ends with the state hash of the exported rows, and the state
+ * hash is computed again from the database after an import.  A node started on an imported
+ * snapshot continues from the snapshot height without scanning the blockchain.
+ */
+public final class StateSnapshot {
+
+    private static final byte[] MAGIC = "NXTSNAPSHOT".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+
+    /** Number of rows inserted between commits during an import */
+    private static final int COMMIT_SIZE = 10000;
+
+    /**
+     * Export the snapshot at the current blockchain height
+     *
+     * @param   file                Snapshot file
+     * @return                      State hash
+     * @throws  IOException         I/O error
+     */
+    public static byte[] exportSnapshot(File file) throws IOException {
+        BlockchainImpl blockchain = BlockchainImpl.getInstance();
+        BlockchainProcessorImpl blockchainProcessor = BlockchainProcessorImpl.getInstance();
+        if (blockchainProcessor.getMinRollbackHeight() > 0) {
+            blockchainProcessor.trimDerivedTables();
+        }
+        blockchain.readLock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 65536)));
+             Connection con = Db.getConnection()) {
+            BlockImpl lastBlock = blockchain.getLastBlock();
+            List<String> tables = getTables();
+            out.write(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(lastBlock.getHeight());
+            out.writeLong(lastBlock.getId());
+            out.writeInt(tables.size());
+            StateHash stateHash = new StateHash();
+            for (String schemaTable : tables) {
+                long start = System.currentTimeMillis();
+                int rows = 0;
+                stateHash.addTable(schemaTable);
+                try (Statement stmt = con.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM " + schemaTable)) {
+                    String[] columnNames = getColumnNames(rs.getMetaData());
+                    out.writeUTF(schemaTable);
+                    out.writeInt(columnNames.length);
+                    for (String columnName : columnNames) {
+                        out.writeUTF(columnName);
+                    }
+                    Object[] values = new Object[columnNames.length];
+                    while (rs.next()) {
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = rs.getObject(i + 1);
+                        }
+                        out.writeBoolean(true);
+                        for (Object value : values) {
+                            StateHash.writeValue(out, value);
+                        }
+                        stateHash.addRow(schemaTable, StateHash.getRowHash(columnNames, values));
+                        rows++;
+                    }
+                    out.writeBoolean(false);
+                }
+                Logger.logDebugMessage(String.format("Exported %d rows of %s in %d ms", rows, schemaTable, System.currentTimeMillis() - start));
+            }
+            byte[] hash = stateHash.getHash();
+            out.write(hash);
+            Logger.logMessage("Exported snapshot at height " + lastBlock.getHeight() + " to " + file.getPath()
+                    + ", state hash " + Convert.toHexString(hash));
+            return hash;
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        } finally {
+            blockchain.readUnlock();
+        }
+    }
+
+    /**
+     * Replace the blockchain and the derived tables with the contents of a snapshot.  The
+     * database is emptied if the imported state hash doesn't match the snapshot.
+     *
+     * @param   file                Snapshot file
+     * @return                      State hash
+     * @throws  IOException         I/O error or invalid snapshot
+     */
+    public static byte[] importSnapshot(File file) throws IOException {
+        BlockchainImpl blockchain = BlockchainImpl.getInstance();
+        blockchain.writeLock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file.getPath() + " is not a snapshot file");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int height = in.readInt();
+            long lastBlockId = in.readLong();
+            int tableCount = in.readInt();
+            Set<String> tables = new HashSet<>(getTables());
+            Db.db.beginTransaction();
+            try (Connection con = Db.getConnection();
+                 Statement stmt = con.createStatement()) {
+                BlockDb.deleteAll();
+                TransactionFilter.invalidateAll();
+                Logger.logDebugMessage("Dropping all full text search indexes");
+                FullTextTrigger.dropAll(con);
+                Db.db.commitTransaction();
+                for (int t = 0; t < tableCount; t++) {
+                    String schemaTable = in.readUTF();
+                    if (!tables.remove(schemaTable)) {
+                        throw new IOException("Unknown or duplicate table " + schemaTable);
+                    }
+                    importTable(con, in, schemaTable);
+                }
+                if (!tables.isEmpty()) {
+                    throw new IOException("Missing tables " + tables);
+                }
+                byte[] hash = new byte[32];
+                in.readFully(hash);
+                byte[] importedHash = getStateHash(con);
+                if (!Arrays.equals(hash, importedHash)) {
+                    throw new IOException("Imported state hash " + Convert.toHexString(importedHash)
+                            + " doesn't match snapshot state hash " + Convert.toHexString(hash));
+                }
+                BlockImpl lastBlock = BlockDb.findLastBlock();
+                if (lastBlock == null || lastBlock.getId() != lastBlockId || lastBlock.getHeight() != height) {
+                    throw new IOException("Last block doesn't match snapshot height " + height);
+                }
+                AccountTransactionIndex.indexAll(con);
+                for (DerivedDbTable table : BlockchainProcessorImpl.getInstance().getDerivedTables()) {
+                    table.createSearchIndex(con);
+                }
+                stmt.executeUpdate("UPDATE scan SET rescan = FALSE, height = 0, validate = FALSE");
+                Db.db.commitTransaction();
+                TransactionFilter.rebuildAll(con);
+                Db.db.clearCache();
+                blockchain.setLastBlock(lastBlock);
+                Logger.logMessage("Imported snapshot at height " + height + " from " + file.getPath()
+                        + ", state hash " + Convert.toHexString(hash));
+                return hash;
+            } catch (IOException | RuntimeException e) {
+                Db.db.rollbackTransaction();
+                Logger.logErrorMessage("Snapshot import failed, deleting blockchain");
+                BlockDb.deleteAll();
+                Db.db.clearCache();
+                throw e;
+            } finally {
+                Db.db.endTransaction();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        } finally {
+            blockchain.writeUnlock();
+        }
+    }
+
+    /**
+     * Compute the state hash of the snapshot tables
+     *
+     * @return                      State hash
+     */
+    public static byte[] getStateHash() {
+        BlockchainImpl blockchain = BlockchainImpl.getInstance();
+        blockchain.readLock();
+        try (Connection con = Db.getConnection()) {
+            return getStateHash(con);
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        } finally {
+            blockchain.readUnlock();
+        }
+    }
+
+    private static byte[] getStateHash(Connection con) throws SQLException {
+        StateHash stateHash = new StateHash();
+        for (String schemaTable : getTables()) {
+            stateHash.addTable(schemaTable);
+            try (Statement stmt = con.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM " + schemaTable)) {
+                String[] columnNames = getColumnNames(rs.getMetaData());
+                Object[] values = new Object[columnNames.length];
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    stateHash.addRow(schemaTable, StateHash.getRowHash(columnNames, values));
+                }
+            }
+        }
+        return stateHash.getHash();
+    }
+
+    private static void importTable(Connection con, DataInputStream in, String schemaTable) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        String[] columnNames = new String[in.readInt()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = in.readUTF();
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(schemaTable).append(" (");
+        sql.append(String.join(", ", columnNames)).append(") VALUES (");
+        sql.append(String.join(", ", Collections.nCopies(columnNames.length, "?"))).append(")");
+        int rows = 0;
+        long maxDbId = 0;
+        int dbIdIndex = Arrays.asList(columnNames).indexOf("DB_ID");
+        try (PreparedStatement pstmt = con.prepareStatement(sql.toString())) {
+            while (in.readBoolean()) {
+                for (int i = 0; i < columnNames.length; i++) {
+                    Object value = StateHash.readValue(in);
+                    pstmt.setObject(i + 1, value);
+                    if (i == dbIdIndex) {
+                        maxDbId = Math.max(maxDbId, ((Number)value).longValue());
+                    }
+                }
+                pstmt.addBatch();
+                if (++rows % COMMIT_SIZE == 0) {
+                    pstmt.executeBatch();
+                    Db.db.commitTransaction();
+                }
+            }
+            pstmt.executeBatch();
+            Db.db.commitTransaction();
+        }
+        if (dbIdIndex >= 0) {
+            try (Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE " + schemaTable + " ALTER COLUMN db_id RESTART WITH " + (maxDbId + 1));
+            }
+        }
+        Logger.logDebugMessage(String.format("Imported %d rows of %s in %d ms", rows, schemaTable, System.currentTimeMillis() - start));
+    }
+
+    private static List<String> getTables() {
+        List<String> tables = new ArrayList<>();
+        tables.add("PUBLIC.BLOCK");
+        tables.add("PUBLIC.TRANSACTION_FXT");
+        ChildChain.getAll().forEach(childChain -> tables.add(childChain.getSchemaTable("transaction")));
+        DerivedDbTable unconfirmedTransactionTable = TransactionProcessorImpl.getInstance().unconfirmedTransactionTable;
+        for (DerivedDbTable table : BlockchainProcessorImpl.getInstance().getDerivedTables()) {
+            if (table != unconfirmedTransactionTable) {
+                tables.add(table.getSchemaTable());
+            }
+        }
+        return tables;
+    }
+
+    private static String[] getColumnNames(ResultSetMetaData metaData) throws SQLException {
+        String[] columnNames = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+        }
+        return columnNames;
+    }
+
+    private StateSnapshot() {} // never
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.Nxt;
+import nxt.dbschema.Db;
+import nxt.util.Logger;
+import nxt.util.collections.LongBloomFilter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of the identifiers of the confirmed transactions of a chain.
+ * <p>
+ * The transaction lookups done when validating blocks and unconfirmed transactions are almost
+ * always for transactions which are not in the blockchain, and the filter answers these without a
+ * database query.  The identifiers are added when a block is saved.  They are not removed when a
+ * block is popped off, which only makes false positives more likely, and the filter is rebuilt from
+ * the transaction table when it holds more than its capacity.  The filters are saved in the database
+ * at shutdown together with the last block identifier, and are only reused if the blockchain still
+ * ends with that block.
+ * <p>
+ * The filters are built by init() before the blockchain is processed.  Until then, every transaction
+ * may be present.  A snapshot import inserts the transactions without saving blocks, so the filters
+ * are disabled during the import and rebuilt from the imported transaction tables.
+ */
+public final class TransactionFilter {
+
+    private static final boolean enabled = Nxt.getBooleanProperty("nxt.enableTransactionFilter");
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int MIN_CAPACITY = 100000;
+
+    private final Chain chain;
+    private final String schemaTable;
+    private volatile LongBloomFilter filter;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder savedQueries = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    TransactionFilter(Chain chain, String schemaTable) {
+        this.chain = chain;
+        this.schemaTable = schemaTable;
+    }
+
+    public static void init() {
+        if (!enabled) {
+            return;
+        }
+        try (Connection con = Db.getConnection()) {
+            long lastBlockId = getLastBlockId(con);
+            for (Chain chain : getChains()) {
+                chain.getTransactionHome().getTransactionFilter().load(con, lastBlockId);
+            }
+            try (Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("DELETE FROM transaction_filter");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    public static void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        BlockchainImpl.getInstance().writeLock();
+        try (Connection con = Db.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("MERGE INTO transaction_filter (chain_id, block_id, filter) "
+                     + "KEY (chain_id) VALUES (?, ?, ?)")) {
+            long lastBlockId = getLastBlockId(con);
+            for (Chain chain : getChains()) {
+                LongBloomFilter filter = chain.getTransactionHome().getTransactionFilter().filter;
+                if (filter != null) {
+                    pstmt.setInt(1, chain.getId());
+                    pstmt.setLong(2, lastBlockId);
+                    pstmt.setBytes(3, filter.toBytes());
+                    pstmt.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            Logger.logShutdownMessage("Unable to save transaction filters: " + e.toString(), e);
+        } finally {
+            BlockchainImpl.getInstance().writeUnlock();
+        }
+    }
+
+    /**
+     * Disable the filters while the transaction tables are changed without saving blocks.
+     * A disabled filter reports every transaction as possibly present and is not saved at shutdown.
+     */
+    static void invalidateAll() {
+        getChains().forEach(chain -> chain.getTransactionHome().getTransactionFilter().filter = null);
+    }
+
+    /**
+     * Rebuild the filters from the transaction tables
+     *
+     * @param   con                 Database connection
+     * @throws  SQLException        SQL error
+     */
+    static void rebuildAll(Connection con) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        for (Chain chain : getChains()) {
+            chain.getTransactionHome().getTransactionFilter().build(con);
+        }
+    }
+
+    /**
+     * Return the transaction filters
+     *
+     * @return                      Transaction filters of the forging chain and the child chains
+     */
+    public static List<TransactionFilter> getAll() {
+        List<TransactionFilter> filters = new ArrayList<>();
+        getChains().forEach(chain -> filters.add(chain.getTransactionHome().getTransactionFilter()));
+        return filters;
+    }
+
+    private static List<Chain> getChains() {
+        List<Chain> chains = new ArrayList<>();
+        chains.add(FxtChain.FXT);
+        chains.addAll(ChildChain.getAll());
+        return chains;
+    }
+
+    private static long getLastBlockId(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM block ORDER BY height DESC LIMIT 1")) {
+            return rs.next() ? rs.getLong("id") : 0;
+        }
+    }
+
+    /**
+     * Check if a transaction may be in the blockchain
+     *
+     * @param   transactionId       Transaction identifier
+     * @return                      FALSE if the transaction is not in the blockchain
+     */
+    boolean mightContain(long transactionId) {
+        LongBloomFilter filter = this.filter;
+        if (filter == null) {
+            return true;
+        }
+        queries.increment();
+        if (!filter.mightContain(transactionId)) {
+            savedQueries.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record that the database doesn't have a transaction for which mightContain() returned TRUE
+     */
+    void falsePositive() {
+        if (filter != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Add the transactions of a block which is being saved.  Must be called by the thread holding the
+     * blockchain write lock, within the database transaction saving the block.
+     *
+     * @param   con                 Database connection
+     * @param   transactionIds      Transaction identifiers
+     * @throws  SQLException        SQL error
+     */
+    void add(Connection con, long... transactionIds) throws SQLException {
+        LongBloomFilter filter = this.filter;
+        if (filter == null) {
+            return;
+        }
+        for (long transactionId : transactionIds) {
+            filter.add(transactionId);
+        }
+        if (filter.getCount() > filter.getCapacity()) {
+            build(con);
+        }
+    }
+
+    /**
+     * Clear the filter after all transactions have been deleted
+     */
+    void clear() {
+        if (filter != null) {
+            filter = new LongBloomFilter(MIN_CAPACITY, FALSE_POSITIVE_RATE);
+        }
+    }
+
+    private void load(Connection con, long lastBlockId) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT block_id, filter FROM transaction_filter WHERE chain_id = ?")) {
+            pstmt.setInt(1, chain.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getLong("block_id") == lastBlockId) {
+                    filter = LongBloomFilter.fromBytes(rs.getBytes("filter"));
+                    Logger.logDebugMessage("Loaded %s transaction filter with %d transactions", chain.getName(), filter.getCount());
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                Logger.logErrorMessage("Invalid " + chain.getName() + " transaction filter: " + e.getMessage());
+            }
+        }
+        build(con);
+    }
+
+    private void build(Connection con) throws SQLException {
+        long start = System.currentTimeMillis();
+        int count;
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + schemaTable)) {
+            rs.next();
+            count = rs.getInt(1);
+        }
+        LongBloomFilter newFilter = new LongBloomFilter((int)Math.min(Math.max(MIN_CAPACITY, 2L * count), Integer.MAX_VALUE / 16),
+                FALSE_POSITIVE_RATE);
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM " + schemaTable)) {
+            while (rs.next()) {
+                newFilter.add(rs.getLong(1));
+            }
+        }
+        filter = newFilter;
+        Logger.logDebugMessage("Built %s transaction filter with %d transactions in %d ms", chain.getName(), newFilter.getCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    public Chain getChain() {
+        return chain;
+    }
+
+    public boolean isEnabled() {
+        return filter != null;
+    }
+
+    /**
+     * Return the filter capacity, the filter is rebuilt when it holds more transactions
+     *
+     * @return                      Capacity or 0 if the filter is not enabled
+     */
+    public int getCapacity() {
+        LongBloomFilter filter = this.filter;
+        return filter != null ? filter.getCapacity() : 0;
+    }
+
+    public long getCount() {
+        LongBloomFilter filter = this.filter;
+        return filter != null ? filter.getCount() : 0;
+    }
+
+    public int getBitCount() {
+        LongBloomFilter filter = this.filter;
+        return filter != null ? filter.getBitCount() : 0;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        LongBloomFilter filter = this.filter;
+        return filter != null ? filter.getExpectedFalsePositiveRate() : 0;
+    }
+
+    /**
+     * Return the number of lookups checked against the filter
+     *
+     * @return                      Filter queries
+     */
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    /**
+     * Return the number of lookups answered by the filter without a database query
+     *
+     * @return                      Saved queries
+     */
+    public long getSavedQueries() {
+        return savedQueries.sum();
+    }
+
+    /**
+     * Return the number of lookups passed by the filter for which the database has no transaction
+     *
+     * @return                      False positives
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+}
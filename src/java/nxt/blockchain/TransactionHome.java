@@ -40,13 +40,23 @@ public final class TransactionHome {
 
     private final Chain chain;
     private final Table transactionTable;
+    private final TransactionFilter transactionFilter;
 
     private TransactionHome(Chain chain) {
         this.chain = chain;
         transactionTable = new Table(chain.getSchemaTable(chain instanceof FxtChain ? "transaction_fxt" : "transaction"));
+        transactionFilter = new TransactionFilter(chain, transactionTable.getSchemaTable());
+    }
+
+    public TransactionFilter getTransactionFilter() {
+        return transactionFilter;
     }
 
     static FxtTransactionImpl findFxtTransaction(long transactionId) {
+        TransactionFilter transactionFilter = FxtChain.FXT.getTransactionHome().transactionFilter;
+        if (!transactionFilter.mightContain(transactionId)) {
+            return null;
+        }
         try (Connection con = Db.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM transaction_fxt WHERE id = ? ORDER BY height DESC")) {
             pstmt.setLong(1, transactionId);
@@ -54,6 +64,7 @@ public final class TransactionHome {
                 if (rs.next()) {
                     return (FxtTransactionImpl)TransactionImpl.loadTransaction(FxtChain.FXT, rs);
                 }
+                transactionFilter.falsePositive();
                 return null;
             }
         } catch (SQLException e) {
@@ -69,15 +80,23 @@ public final class TransactionHome {
 
     public TransactionImpl findTransaction(byte[] fullHash, int height) {
         long transactionId = Convert.fullHashToId(fullHash);
+        if (!transactionFilter.mightContain(transactionId)) {
+            return null;
+        }
         try (Connection con = transactionTable.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + transactionTable.getSchemaTable() + " WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
+                boolean found = false;
                 while (rs.next()) {
+                    found = true;
                     if (Arrays.equals(rs.getBytes("full_hash"), fullHash) && rs.getInt("height") <= height) {
                         return TransactionImpl.loadTransaction(chain, rs);
                     }
                 }
+                if (!found) {
+                    transactionFilter.falsePositive();
+                }
                 return null;
             }
         } catch (SQLException e) {
@@ -93,15 +112,24 @@ public final class TransactionHome {
     }
 
     static boolean hasFxtTransaction(long transactionId, int height) {
+        TransactionFilter transactionFilter = FxtChain.FXT.getTransactionHome().transactionFilter;
+        if (!transactionFilter.mightContain(transactionId)) {
+            return false;
+        }
         try (Connection con = Db.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT height FROM transaction_fxt WHERE id = ? ORDER BY height DESC")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
+                boolean found = false;
                 while (rs.next()) {
+                    found = true;
                     if (rs.getInt("height") <= height) {
                         return true;
                     }
                 }
+                if (!found) {
+                    transactionFilter.falsePositive();
+                }
                 return false;
             }
         } catch (SQLException e) {
@@ -126,15 +154,23 @@ public final class TransactionHome {
     }
 
     public boolean hasTransaction(byte[] fullHash, long transactionId, int height) {
+        if (!transactionFilter.mightContain(transactionId)) {
+            return false;
+        }
         try (Connection con = transactionTable.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT full_hash, height FROM " + transactionTable.getSchemaTable() + " WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
+                boolean found = false;
                 while (rs.next()) {
+                    found = true;
                     if (Arrays.equals(rs.getBytes("full_hash"), fullHash) && rs.getInt("height") <= height) {
                         return true;
                     }
                 }
+                if (!found) {
+                    transactionFilter.falsePositive();
+                }
                 return false;
             }
         } catch (SQLException e) {
@@ -243,8 +279,18 @@ public final class TransactionHome {
 
     static void saveTransactions(Connection con, List<FxtTransactionImpl> transactions) {
         try {
+            TransactionFilter fxtTransactionFilter = FxtChain.FXT.getTransactionHome().transactionFilter;
             for (FxtTransactionImpl transaction : transactions) {
                 transaction.save(con, "transaction_fxt");
+                fxtTransactionFilter.add(con, transaction.getId());
+                if (transaction instanceof ChildBlockFxtTransactionImpl) {
+                    ChildBlockFxtTransactionImpl childBlockTransaction = (ChildBlockFxtTransactionImpl)transaction;
+                    TransactionFilter childTransactionFilter = ChildChain.getChildChain(
+                            ((ChildBlockAttachment)childBlockTransaction.getAttachment()).getChainId()).getTransactionHome().transactionFilter;
+                    for (ChildTransactionImpl childTransaction : childBlockTransaction.getSortedChildTransactions()) {
+                        childTransactionFilter.add(con, childTransaction.getId());
+                    }
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
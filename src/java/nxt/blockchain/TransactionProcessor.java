@@ -62,6 +62,15 @@ public interface TransactionProcessor extends Observable<List<? extends Transact
 
     void broadcast(Transaction transaction) throws NxtException.ValidationException;
 
+    /**
+     * Broadcast a batch of new transactions.  The transactions are processed while holding the blockchain
+     * lock once, and are announced to the peers and the listeners together.  Invalid transactions are skipped.
+     *
+     * @param   transactions        Transactions to broadcast
+     * @return                      Transactions accepted in the unconfirmed pool or queued for it
+     */
+    List<? extends Transaction> broadcast(List<? extends Transaction> transactions);
+
     void broadcastLater(Transaction transaction);
 
     List<? extends Transaction> processPeerTransactions(List<Transaction> transactions) throws NxtException.NotValidException;
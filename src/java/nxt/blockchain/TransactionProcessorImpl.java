@@ -404,42 +404,93 @@ public final class TransactionProcessorImpl implements TransactionProcessor {
     public void broadcast(Transaction transaction) throws NxtException.ValidationException {
         BlockchainImpl.getInstance().writeLock();
         try {
-            if (transaction.getChain().getTransactionHome().hasTransaction(transaction)) {
-                Logger.logMessage("Transaction " + transaction.getStringId() + " already in blockchain, will not broadcast again");
-                return;
-            }
-            DbKey dbKey = unconfirmedTransactionDbKeyFactory.newKey(transaction.getId());
-            if (getUnconfirmedTransaction(dbKey) != null) {
-                if (enableTransactionRebroadcasting) {
-                    broadcastedTransactions.add((TransactionImpl) transaction);
-                    Logger.logMessage("Transaction " + transaction.getStringId() + " already in unconfirmed pool, will re-broadcast");
-                } else {
-                    Logger.logMessage("Transaction " + transaction.getStringId() + " already in unconfirmed pool, will not broadcast again");
+            List<Transaction> acceptedTransactions = new ArrayList<>(1);
+            broadcast(transaction, acceptedTransactions);
+            notifyAcceptedTransactions(acceptedTransactions);
+        } finally {
+            BlockchainImpl.getInstance().writeUnlock();
+        }
+    }
+
+    @Override
+    public List<? extends Transaction> broadcast(List<? extends Transaction> transactions) {
+        List<Transaction> broadcastTransactions = new ArrayList<>(transactions.size());
+        BlockchainImpl.getInstance().writeLock();
+        try {
+            List<Transaction> acceptedTransactions = new ArrayList<>(transactions.size());
+            try {
+                for (Transaction transaction : transactions) {
+                    try {
+                        if (broadcast(transaction, acceptedTransactions)) {
+                            broadcastTransactions.add(transaction);
+                        }
+                    } catch (NxtException.ValidationException e) {
+                        Logger.logDebugMessage("Transaction " + transaction.getStringId() + " not broadcast: " + e.getMessage());
+                    }
                 }
-                return;
+            } finally {
+                // transactions already added to the unconfirmed pool must be announced
+                notifyAcceptedTransactions(acceptedTransactions);
             }
-            transaction.validate();
-            UnconfirmedTransaction unconfirmedTransaction = ((TransactionImpl) transaction).newUnconfirmedTransaction(System.currentTimeMillis(), false);
-            boolean broadcastLater = BlockchainProcessorImpl.getInstance().isProcessingBlock();
-            if (broadcastLater) {
-                waitingTransactions.add(unconfirmedTransaction);
+        } finally {
+            BlockchainImpl.getInstance().writeUnlock();
+        }
+        return broadcastTransactions;
+    }
+
+    /**
+     * Add a new transaction to the unconfirmed pool, or queue it if a block is being processed.
+     * Must be called while holding the blockchain write lock.
+     *
+     * @param   transaction             Transaction to broadcast
+     * @param   acceptedTransactions    Transactions added to the unconfirmed pool, to be announced
+     * @return                          TRUE if the transaction was added or queued
+     * @throws  NxtException.ValidationException  Transaction is not valid
+     */
+    private boolean broadcast(Transaction transaction, List<Transaction> acceptedTransactions) throws NxtException.ValidationException {
+        if (transaction.getChain().getTransactionHome().hasTransaction(transaction)) {
+            Logger.logMessage("Transaction " + transaction.getStringId() + " already in blockchain, will not broadcast again");
+            return false;
+        }
+        DbKey dbKey = unconfirmedTransactionDbKeyFactory.newKey(transaction.getId());
+        if (getUnconfirmedTransaction(dbKey) != null) {
+            if (enableTransactionRebroadcasting) {
                 broadcastedTransactions.add((TransactionImpl) transaction);
-                Logger.logDebugMessage("Will broadcast new transaction later " + transaction.getStringId());
+                Logger.logMessage("Transaction " + transaction.getStringId() + " already in unconfirmed pool, will re-broadcast");
             } else {
-                Set<? extends TransactionImpl> displaced = processTransaction(unconfirmedTransaction);
-                Logger.logDebugMessage(String.format("Accepted new transaction %s on chain %s", Convert.toHexString(transaction.getFullHash()), transaction.getChain().getName()));
-                removeUnconfirmedTransactions(displaced);
-                List<Transaction> acceptedTransactions = Collections.singletonList(transaction);
-                TransactionsInventory.cacheTransactions(acceptedTransactions);
-                NetworkHandler.broadcastMessage(new NetworkMessage.TransactionsInventoryMessage(acceptedTransactions));
-                transactionListeners.notify(acceptedTransactions, Event.ADDED_UNCONFIRMED_TRANSACTIONS);
-                if (enableTransactionRebroadcasting) {
-                    broadcastedTransactions.add((TransactionImpl) transaction);
-                }
+                Logger.logMessage("Transaction " + transaction.getStringId() + " already in unconfirmed pool, will not broadcast again");
             }
-        } finally {
-            BlockchainImpl.getInstance().writeUnlock();
+            return false;
+        }
+        transaction.validate();
+        UnconfirmedTransaction unconfirmedTransaction = ((TransactionImpl) transaction).newUnconfirmedTransaction(System.currentTimeMillis(), false);
+        boolean broadcastLater = BlockchainProcessorImpl.getInstance().isProcessingBlock();
+        if (broadcastLater) {
+            waitingTransactions.add(unconfirmedTransaction);
+            broadcastedTransactions.add((TransactionImpl) transaction);
+            Logger.logDebugMessage("Will broadcast new transaction later " + transaction.getStringId());
+        } else {
+            Set<? extends TransactionImpl> displaced = processTransaction(unconfirmedTransaction);
+            Logger.logDebugMessage(String.format("Accepted new transaction %s on chain %s", Convert.toHexString(transaction.getFullHash()), transaction.getChain().getName()));
+            removeUnconfirmedTransactions(displaced);
+            acceptedTransactions.add(transaction);
+            if (enableTransactionRebroadcasting) {
+                broadcastedTransactions.add((TransactionImpl) transaction);
+            }
+        }
+        return true;
+    }
+
+    private void notifyAcceptedTransactions(List<Transaction> acceptedTransactions) {
+        if (acceptedTransactions.isEmpty()) {
+            return;
+        }
+        TransactionsInventory.cacheTransactions(acceptedTransactions);
+        for (int i = 0; i < acceptedTransactions.size(); i += NetworkMessage.MAX_LIST_SIZE) {
+            List<Transaction> transactionList = acceptedTransactions.subList(i, Math.min(i + NetworkMessage.MAX_LIST_SIZE, acceptedTransactions.size()));
+            NetworkHandler.broadcastMessage(new NetworkMessage.TransactionsInventoryMessage(transactionList));
         }
+        transactionListeners.notify(acceptedTransactions, Event.ADDED_UNCONFIRMED_TRANSACTIONS);
     }
 
     @Override
@@ -18,7 +18,6 @@ package nxt.db;
 
 import nxt.Nxt;
 import nxt.util.Logger;
-import org.h2.jdbcx.JdbcConnectionPool;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -37,6 +36,7 @@ public class BasicDb {
         private String dbUsername;
         private String dbPassword;
         private int maxConnections;
+        private int reservedConnections;
         private int loginTimeout;
         private int defaultLockTimeout;
         private int maxMemoryRows;
@@ -81,6 +81,11 @@ public class BasicDb {
             return this;
         }
 
+        public DbProperties reservedConnections(int reservedConnections) {
+            this.reservedConnections = reservedConnections;
+            return this;
+        }
+
         public DbProperties loginTimeout(int loginTimeout) {
             this.loginTimeout = loginTimeout;
             return this;
@@ -98,12 +103,12 @@ public class BasicDb {
 
     }
 
-    private JdbcConnectionPool cp;
-    private volatile int maxActiveConnections;
+    private ConnectionPool cp;
     private final String dbUrl;
     private final String dbUsername;
     private final String dbPassword;
     private final int maxConnections;
+    private final int reservedConnections;
     private final int loginTimeout;
     private final int defaultLockTimeout;
     private final int maxMemoryRows;
@@ -129,6 +134,7 @@ public class BasicDb {
         this.dbUsername = dbProperties.dbUsername;
         this.dbPassword = dbProperties.dbPassword;
         this.maxConnections = dbProperties.maxConnections;
+        this.reservedConnections = dbProperties.reservedConnections;
         this.loginTimeout = dbProperties.loginTimeout;
         this.defaultLockTimeout = dbProperties.defaultLockTimeout;
         this.maxMemoryRows = dbProperties.maxMemoryRows;
@@ -137,10 +143,8 @@ public class BasicDb {
     public final void init(List<DbVersion> dbVersions) {
         Logger.logDebugMessage("Database jdbc url set to %s username %s", dbUrl, dbUsername);
         FullTextTrigger.setActive(true);
-        cp = JdbcConnectionPool.create(dbUrl, dbUsername, dbPassword);
-        cp.setMaxConnections(maxConnections);
-        cp.setLoginTimeout(loginTimeout);
-        try (Connection con = cp.getConnection();
+        cp = new ConnectionPool(dbUrl, dbUsername, dbPassword, maxConnections, reservedConnections, loginTimeout);
+        try (Connection con = cp.getConnection(true);
              Statement stmt = con.createStatement()) {
             stmt.executeUpdate("SET DEFAULT_LOCK_TIMEOUT " + defaultLockTimeout);
             stmt.executeUpdate("SET MAX_MEMORY_ROWS " + maxMemoryRows);
@@ -158,7 +162,7 @@ public class BasicDb {
         }
         try {
             FullTextTrigger.setActive(false);
-            Connection con = cp.getConnection();
+            Connection con = cp.getConnection(true);
             Statement stmt = con.createStatement();
             stmt.execute("SHUTDOWN COMPACT");
             Logger.logShutdownMessage("Database shutdown completed");
@@ -168,7 +172,7 @@ public class BasicDb {
     }
 
     public final void analyzeTables() {
-        try (Connection con = cp.getConnection();
+        try (Connection con = cp.getConnection(true);
              Statement stmt = con.createStatement()) {
             stmt.execute("ANALYZE");
         } catch (SQLException e) {
@@ -187,13 +191,21 @@ public class BasicDb {
     }
 
     protected Connection getPooledConnection() throws SQLException {
-        Connection con = cp.getConnection();
-        int activeConnections = cp.getActiveConnections();
-        if (activeConnections > maxActiveConnections) {
-            maxActiveConnections = activeConnections;
-            Logger.logDebugMessage("Database connection pool current size: " + activeConnections);
-        }
-        return con;
+        return cp.getConnection(false);
+    }
+
+    /**
+     * Get a connection which can use the connections reserved for database transactions
+     *
+     * @return                      Pooled connection
+     * @throws  SQLException        No connection available or SQL error
+     */
+    protected Connection getReservedConnection() throws SQLException {
+        return cp.getConnection(true);
+    }
+
+    public final ConnectionPool getConnectionPool() {
+        return cp;
     }
 
     public final String getUrl() {
@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+
+package nxt.db;
+
+import nxt.util.Logger;
+import nxt.util.RollingHistogram;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Database connection pool with capacity reserved for database transactions.
+ * <p>
+ * The physical connections are provided by the H2 connection pool.  Autocommit connections used
+ * by API requests and peer requests can use at most the pool size less the reserved connections,
+ * while database transactions, such as block processing, and the threads validating a block on
+ * their behalf can use the whole pool.  A burst of read
+ * requests therefore can't delay the connection needed to push a block.  The time spent waiting
+ * for a connection is recorded separately for both kinds of connections.
+ */
+public final class ConnectionPool {
+
+    private final JdbcConnectionPool cp;
+    private final int maxConnections;
+    private final int reservedConnections;
+    private final long timeout;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final RollingHistogram waitTimes = new RollingHistogram(1000);
+    private final RollingHistogram reservedWaitTimes = new RollingHistogram(1000);
+    private int activeConnections;
+    private int peakConnections;
+    private int waitingThreads;
+    private long timeouts;
+
+    /**
+     * Create the connection pool
+     *
+     * @param   dbUrl               Database URL
+     * @param   dbUsername          Database user name
+     * @param   dbPassword          Database password
+     * @param   maxConnections      Maximum number of connections
+     * @param   reservedConnections Number of connections reserved for database transactions
+     * @param   loginTimeout        Maximum time to wait for a connection in seconds
+     */
+    ConnectionPool(String dbUrl, String dbUsername, String dbPassword, int maxConnections, int reservedConnections, int loginTimeout) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Maximum number of connections must be positive");
+        }
+        this.maxConnections = maxConnections;
+        this.reservedConnections = Math.min(Math.max(reservedConnections, 0), maxConnections - 1);
+        this.timeout = TimeUnit.SECONDS.toNanos(loginTimeout);
+        cp = JdbcConnectionPool.create(dbUrl, dbUsername, dbPassword);
+        cp.setMaxConnections(maxConnections);
+        cp.setLoginTimeout(loginTimeout);
+    }
+
+    /**
+     * Get a connection from the pool.  The connection is returned to the pool when it is closed.
+     *
+     * @param   reserved            TRUE to allow the use of the reserved connections
+     * @return                      Pooled connection
+     * @throws  SQLException        No connection available within the login timeout or SQL error
+     */
+    Connection getConnection(boolean reserved) throws SQLException {
+        int limit = reserved ? maxConnections : maxConnections - reservedConnections;
+        long start = System.nanoTime();
+        int active;
+        lock.lock();
+        try {
+            if (activeConnections >= limit) {
+                long remaining = timeout;
+                waitingThreads += 1;
+                try {
+                    while (activeConnections >= limit) {
+                        if (remaining <= 0) {
+                            timeouts += 1;
+                            throw new SQLException("Timeout waiting for a database connection, " + activeConnections
+                                    + " connections active, " + DbIteratorTracker.getOpenCount() + " iterators open");
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                } finally {
+                    waitingThreads -= 1;
+                }
+            }
+            active = activeConnections += 1;
+            if (active > peakConnections) {
+                peakConnections = active;
+                Logger.logDebugMessage("Database connection pool current size: " + active);
+            }
+        } finally {
+            lock.unlock();
+            (reserved ? reservedWaitTimes : waitTimes).add(System.nanoTime() - start);
+        }
+        try {
+            return new PooledConnection(cp.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            activeConnections -= 1;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the maximum number of connections
+     *
+     * @return                      Pool size
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Return the number of connections which can only be used by database transactions
+     *
+     * @return                      Reserved connections
+     */
+    public int getReservedConnections() {
+        return reservedConnections;
+    }
+
+    /**
+     * Return the number of connections currently in use
+     *
+     * @return                      Active connections
+     */
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return activeConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the maximum number of connections in use at the same time since the pool was created
+     *
+     * @return                      Peak connections
+     */
+    public int getPeakConnections() {
+        lock.lock();
+        try {
+            return peakConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of threads currently waiting for a connection
+     *
+     * @return                      Waiting threads
+     */
+    public int getWaitingThreads() {
+        lock.lock();
+        try {
+            return waitingThreads;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of connection requests which timed out since the pool was created
+     *
+     * @return                      Timeouts
+     */
+    public long getTimeouts() {
+        lock.lock();
+        try {
+            return timeouts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the time spent waiting for a connection, in nanoseconds
+     *
+     * @param   reserved            TRUE for database transactions, FALSE for autocommit connections
+     * @return                      Wait time histogram
+     */
+    public RollingHistogram.Snapshot getWaitTimes(boolean reserved) {
+        return (reserved ? reservedWaitTimes : waitTimes).getSnapshot();
+    }
+
+    /**
+     * Pooled connection which releases its pool slot when closed
+     */
+    private final class PooledConnection extends FilteredConnection {
+
+        private boolean closed;
+
+        private PooledConnection(Connection con) {
+            super(con, pooledFactory);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Statements of a pooled connection are not wrapped
+     */
+    private static final FilteredFactory pooledFactory = new FilteredFactory() {
+        @Override
+        public Statement createStatement(FilteredConnection con, Statement stmt) {
+            return stmt;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(FilteredConnection con, PreparedStatement stmt, String sql) {
+            return stmt;
+        }
+    };
+}
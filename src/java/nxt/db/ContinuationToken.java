@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+
+package nxt.db;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page, used to resume a query after that row.
+ * <p>
+ * The token holds the values of the ordering columns of the last row returned, and the next page
+ * is selected with a range condition on these columns rather than with an offset, so that each page
+ * costs the same regardless of its position.  The string form is an opaque URL-safe token.
+ */
+public final class ContinuationToken {
+
+    private final long[] values;
+
+    public ContinuationToken(long... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Continuation token must have at least one value");
+        }
+        this.values = values.clone();
+    }
+
+    /**
+     * Parse a continuation token
+     *
+     * @param   token               Token returned by toString()
+     * @param   count               Expected number of values
+     * @return                      Continuation token
+     * @throws  IllegalArgumentException  Invalid token
+     */
+    public static ContinuationToken parse(String token, int count) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+        if (bytes.length != count * 8) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getLong();
+        }
+        return new ContinuationToken(values);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int getInt(int index) {
+        long value = values[index];
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+        return (int)value;
+    }
+
+    @Override
+    public String toString() {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ContinuationToken && Arrays.equals(values, ((ContinuationToken)o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+}
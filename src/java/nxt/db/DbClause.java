@@ -20,6 +20,7 @@ import nxt.util.Convert;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
 
 public abstract class DbClause {
 
@@ -156,6 +157,27 @@ public abstract class DbClause {
         }
     }
 
+    public static final class LongsClause extends DbClause {
+
+        private final long[] values;
+
+        public LongsClause(String columnName, long[] values) {
+            super(" " + columnName + " IN (" + String.join(", ", Collections.nCopies(values.length, "?")) + ") ");
+            if (values.length == 0) {
+                throw new IllegalArgumentException("No values");
+            }
+            this.values = values.clone();
+        }
+
+        @Override
+        protected int set(PreparedStatement pstmt, int index) throws SQLException {
+            for (long value : values) {
+                pstmt.setLong(index++, value);
+            }
+            return index;
+        }
+    }
+
     public static final class IntClause extends DbClause {
 
         private final int value;
@@ -33,14 +33,30 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
     private final PreparedStatement pstmt;
     private final ResultSetReader<T> rsReader;
     private final ResultSet rs;
+    private final DbIteratorTracker.Tracked tracked;
+    private final KeysetSort keysetSort;
 
     private boolean hasNext;
     private boolean iterated;
+    private ContinuationToken continuation;
 
     public DbIterator(Connection con, PreparedStatement pstmt, ResultSetReader<T> rsReader) {
+        this(con, pstmt, rsReader, null);
+    }
+
+    /**
+     * Create an iterator which records the continuation token of the last row returned
+     *
+     * @param   con                 Database connection
+     * @param   pstmt               Query ordered by the keyset sort
+     * @param   rsReader            Result set reader
+     * @param   keysetSort          Keyset sort of the query or null
+     */
+    public DbIterator(Connection con, PreparedStatement pstmt, ResultSetReader<T> rsReader, KeysetSort keysetSort) {
         this.con = con;
         this.pstmt = pstmt;
         this.rsReader = rsReader;
+        this.keysetSort = keysetSort;
         try {
             this.rs = pstmt.executeQuery();
             this.hasNext = rs.next();
@@ -48,12 +64,13 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
             DbUtils.close(pstmt, con);
             throw new RuntimeException(e.toString(), e);
         }
+        this.tracked = DbIteratorTracker.open(this, rs, pstmt, con);
     }
 
     @Override
     public boolean hasNext() {
         if (! hasNext) {
-            DbUtils.close(rs, pstmt, con);
+            close();
         }
         return hasNext;
     }
@@ -61,19 +78,32 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
     @Override
     public T next() {
         if (! hasNext) {
-            DbUtils.close(rs, pstmt, con);
+            close();
             throw new NoSuchElementException();
         }
         try {
             T result = rsReader.get(con, rs);
+            if (keysetSort != null) {
+                continuation = keysetSort.getContinuation(rs);
+            }
             hasNext = rs.next();
             return result;
         } catch (Exception e) {
-            DbUtils.close(rs, pstmt, con);
+            close();
             throw new RuntimeException(e.toString(), e);
         }
     }
 
+    /**
+     * Return the continuation token of the last row returned, to get the following rows of a query
+     * ordered by a keyset sort
+     *
+     * @return                      Continuation token or null if no row was returned or the query has no keyset sort
+     */
+    public ContinuationToken getContinuation() {
+        return continuation;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException("Removal not supported");
@@ -82,6 +112,7 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
     @Override
     public void close() {
         DbUtils.close(rs, pstmt, con);
+        tracked.close();
     }
 
     @Override
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+
+package nxt.db;
+
+import nxt.Nxt;
+import nxt.util.Logger;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Track the open database iterators.
+ * <p>
+ * Each DbIterator holds a pooled connection until it is closed or fully iterated.  An iterator
+ * which is garbage collected while still open has leaked its connection: the leak is logged, together
+ * with the stack trace of its creation when nxt.dbIteratorStackTraces is enabled, and its result set,
+ * statement and connection are closed.  The connection is returned to the pool even if the leak is
+ * detected by a thread running a database transaction.  The connection of a database transaction is not
+ * closed, since it is still used by the thread which started the transaction and is closed when the
+ * transaction ends.
+ */
+public final class DbIteratorTracker {
+
+    private static final boolean captureStackTraces = Nxt.getBooleanProperty("nxt.dbIteratorStackTraces");
+
+    private static final Map<Long, Tracked> openIterators = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<DbIterator<?>> collectedIterators = new ReferenceQueue<>();
+    private static final AtomicLong nextId = new AtomicLong();
+    private static final LongAdder leakCount = new LongAdder();
+
+    /**
+     * Start tracking an open iterator
+     *
+     * @param   iterator            Database iterator
+     * @param   rs                  Result set
+     * @param   pstmt               Prepared statement
+     * @param   con                 Database connection
+     * @return                      Tracked iterator, to be closed when the iterator is closed
+     */
+    static Tracked open(DbIterator<?> iterator, ResultSet rs, PreparedStatement pstmt, Connection con) {
+        checkLeaks();
+        Tracked tracked = new Tracked(iterator, rs, pstmt, TransactionalDb.isTransactionConnection(con) ? null : con);
+        openIterators.put(tracked.id, tracked);
+        return tracked;
+    }
+
+    /**
+     * Close the resources of the iterators which were garbage collected without being closed
+     */
+    public static void checkLeaks() {
+        Tracked tracked;
+        while ((tracked = (Tracked)collectedIterators.poll()) != null) {
+            if (openIterators.remove(tracked.id) != null) {
+                leakCount.increment();
+                String msg = String.format("Database iterator created by thread %s was not closed, open for %d ms",
+                        tracked.threadName, System.currentTimeMillis() - tracked.openTime);
+                if (tracked.stackTrace != null) {
+                    Logger.logErrorMessage(msg, tracked.stackTrace);
+                } else {
+                    Logger.logErrorMessage(msg + ", set nxt.dbIteratorStackTraces=true to log where it was created");
+                }
+                DbUtils.close(tracked.rs, tracked.pstmt);
+                if (tracked.con != null) {
+                    TransactionalDb.closeLeakedConnection(tracked.con);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of open iterators
+     *
+     * @return                      Open iterator count
+     */
+    public static int getOpenCount() {
+        return openIterators.size();
+    }
+
+    /**
+     * Return the number of leaked iterators detected since the server was started
+     *
+     * @return                      Leaked iterator count
+     */
+    public static long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    /**
+     * Return the open iterators
+     *
+     * @return                      Open iterators, oldest first
+     */
+    public static List<OpenIterator> getOpenIterators() {
+        checkLeaks();
+        List<OpenIterator> iterators = new ArrayList<>();
+        openIterators.values().forEach(tracked -> iterators.add(new OpenIterator(tracked)));
+        iterators.sort(Comparator.comparingLong(OpenIterator::getOpenTime));
+        return iterators;
+    }
+
+    static final class Tracked extends WeakReference<DbIterator<?>> {
+
+        private final long id = nextId.incrementAndGet();
+        private final ResultSet rs;
+        private final PreparedStatement pstmt;
+        private final Connection con;
+        private final long openTime = System.currentTimeMillis();
+        private final String threadName = Thread.currentThread().getName();
+        private final Throwable stackTrace = captureStackTraces ? new Throwable("Database iterator created") : null;
+
+        private Tracked(DbIterator<?> iterator, ResultSet rs, PreparedStatement pstmt, Connection con) {
+            super(iterator, collectedIterators);
+            this.rs = rs;
+            this.pstmt = pstmt;
+            this.con = con;
+        }
+
+        void close() {
+            clear();
+            openIterators.remove(id);
+        }
+    }
+
+    public static final class OpenIterator {
+
+        private final long openTime;
+        private final String threadName;
+        private final StackTraceElement[] stackTrace;
+
+        private OpenIterator(Tracked tracked) {
+            this.openTime = tracked.openTime;
+            this.threadName = tracked.threadName;
+            this.stackTrace = tracked.stackTrace != null ? tracked.stackTrace.getStackTrace() : null;
+        }
+
+        public long getOpenTime() {
+            return openTime;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Return the stack trace of the iterator creation
+         *
+         * @return                  Stack trace or null if nxt.dbIteratorStackTraces is not enabled
+         */
+        public List<StackTraceElement> getStackTrace() {
+            return stackTrace != null ? Arrays.asList(stackTrace) : null;
+        }
+    }
+
+    private DbIteratorTracker() {} // never
+}
@@ -358,6 +358,14 @@ public interface DbKey {
             return new long[]{idA, idB};
         }
 
+        long getIdA() {
+            return idA;
+        }
+
+        long getIdB() {
+            return idB;
+        }
+
         @Override
         public int setPK(PreparedStatement pstmt) throws SQLException {
             return setPK(pstmt, 1);
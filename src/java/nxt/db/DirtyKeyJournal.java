@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.db;
+
+import nxt.Nxt;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keys of a versioned table which received a new version at each height since the last trim.
+ * <p>
+ * The journal is kept in memory only, so it is complete starting with the height following the
+ * blockchain height at which it was first used, or the height the table was last rolled back to
+ * if lower.  Until a trim at or above that height has been done the table has to be trimmed by
+ * a full table scan.
+ */
+final class DirtyKeyJournal {
+
+    private final SortedMap<Integer, Set<DbKey>> keys = new TreeMap<>();
+    private int startHeight = -1;
+    private int lastTrimHeight = -1;
+
+    /**
+     * Record a new version of an entity at the current blockchain height
+     *
+     * @param   dbKey               Entity key
+     */
+    synchronized void record(DbKey dbKey) {
+        record(dbKey, Nxt.getBlockchain().getHeight());
+    }
+
+    synchronized void record(DbKey dbKey, int height) {
+        start();
+        keys.computeIfAbsent(height, h -> new HashSet<>()).add(dbKey);
+    }
+
+    /**
+     * Drop the versions above the height, all versions added after that are recorded
+     *
+     * @param   height              Height the table was rolled back to
+     */
+    synchronized void popOffTo(int height) {
+        keys.tailMap(height + 1).clear();
+        if (startHeight < 0 || startHeight > height + 1) {
+            startHeight = height + 1;
+        }
+    }
+
+    /**
+     * Return the keys which received a new version below the trim height since the last trim
+     *
+     * @param   height              Trim height
+     * @return                      Keys to trim, or null if the journal is not complete and the whole table must be trimmed
+     */
+    synchronized Set<DbKey> getKeys(int height) {
+        start();
+        if (lastTrimHeight < startHeight) {
+            return null;
+        }
+        Set<DbKey> dbKeys = new HashSet<>();
+        keys.headMap(height).values().forEach(dbKeys::addAll);
+        return dbKeys;
+    }
+
+    synchronized void trimmed(int height) {
+        keys.headMap(height).clear();
+        lastTrimHeight = Math.max(lastTrimHeight, height);
+    }
+
+    private void start() {
+        if (startHeight < 0) {
+            startHeight = Nxt.getBlockchain().getHeight() + 1;
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import nxt.util.collections.LongHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entities of a table loaded or saved in the current database transaction.
+ * <p>
+ * While a block is applied, the transaction cache is the working set of the block, so each
+ * account, balance and asset holding touched by the block is loaded from the database once.
+ * Entities with a single long key or a pair of long keys are stored in primitive-keyed maps,
+ * so that they can be looked up without creating a key, and without hashing and comparing
+ * key objects.
+ */
+final class EntityCache {
+
+    private final Map<DbKey, Object> entities = new HashMap<>();
+    private final LongHashMap<Object> longKeyEntities = new LongHashMap<>();
+    private final LongHashMap<LongHashMap<Object>> longLongKeyEntities = new LongHashMap<>();
+
+    Object get(DbKey dbKey) {
+        if (dbKey instanceof DbKey.LongKey) {
+            return longKeyEntities.get(((DbKey.LongKey)dbKey).getId());
+        }
+        if (dbKey instanceof DbKey.LongLongKey) {
+            DbKey.LongLongKey key = (DbKey.LongLongKey)dbKey;
+            return get(key.getIdA(), key.getIdB());
+        }
+        return entities.get(dbKey);
+    }
+
+    Object get(long id) {
+        return longKeyEntities.get(id);
+    }
+
+    Object get(long idA, long idB) {
+        LongHashMap<Object> map = longLongKeyEntities.get(idA);
+        return map == null ? null : map.get(idB);
+    }
+
+    void put(DbKey dbKey, Object entity) {
+        if (dbKey instanceof DbKey.LongKey) {
+            longKeyEntities.put(((DbKey.LongKey)dbKey).getId(), entity);
+        } else if (dbKey instanceof DbKey.LongLongKey) {
+            DbKey.LongLongKey key = (DbKey.LongLongKey)dbKey;
+            longLongKeyEntities.computeIfAbsent(key.getIdA(), idA -> new LongHashMap<>()).put(key.getIdB(), entity);
+        } else {
+            entities.put(dbKey, entity);
+        }
+    }
+
+    void remove(DbKey dbKey) {
+        if (dbKey instanceof DbKey.LongKey) {
+            longKeyEntities.remove(((DbKey.LongKey)dbKey).getId());
+        } else if (dbKey instanceof DbKey.LongLongKey) {
+            DbKey.LongLongKey key = (DbKey.LongLongKey)dbKey;
+            LongHashMap<Object> map = longLongKeyEntities.get(key.getIdA());
+            if (map != null) {
+                map.remove(key.getIdB());
+                if (map.isEmpty()) {
+                    longLongKeyEntities.remove(key.getIdA());
+                }
+            }
+        } else {
+            entities.remove(dbKey);
+        }
+    }
+
+    void clear() {
+        entities.clear();
+        if (!longKeyEntities.isEmpty()) {
+            longKeyEntities.clear();
+        }
+        if (!longLongKeyEntities.isEmpty()) {
+            longLongKeyEntities.clear();
+        }
+    }
+
+}
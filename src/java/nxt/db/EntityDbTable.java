@@ -24,14 +24,29 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class EntityDbTable<T> extends DerivedDbTable {
 
     protected static final DbClause LATEST = new DbClause.FixedClause(" latest = TRUE ");
 
+    private static final boolean enableStateHash = Nxt.getBooleanProperty("nxt.enableStateHash");
+
+    /** Columns which are not part of the state hash of a row */
+    private static final Set<String> STATE_HASH_EXCLUDED_COLUMNS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("DB_ID", "HEIGHT", "LATEST")));
+
     private final boolean multiversion;
     protected final DbKey.Factory<T> dbKeyFactory;
+    final DirtyKeyJournal journal;
+    /** State hash of the latest version of each entity changed since the last state hash update, null if there was none */
+    private final Map<DbKey, byte[]> previousRowHashes;
     private final String defaultSort;
     private final String fullTextSearchColumns;
 
@@ -47,6 +62,8 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         super(schemaTable);
         this.dbKeyFactory = dbKeyFactory;
         this.multiversion = multiversion;
+        this.journal = multiversion ? new DirtyKeyJournal() : null;
+        this.previousRowHashes = multiversion && enableStateHash ? new HashMap<>() : null;
         this.defaultSort = " ORDER BY " + (multiversion ? dbKeyFactory.getPKColumns() : " height DESC, db_id DESC ");
         if (fullTextSearchColumns != null) {
             fullTextSearchColumns = fullTextSearchColumns.toUpperCase(Locale.ROOT);
@@ -99,6 +116,41 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         return get(dbKey, true);
     }
 
+    /**
+     * Return the latest version of an entity with a long key, without creating the key
+     * if the entity is in the transaction cache
+     *
+     * @param   id                  Entity key
+     * @return                      Entity or null
+     */
+    public final T get(long id) {
+        if (db.isInTransaction()) {
+            T t = (T) db.getCache(schemaTable).get(id);
+            if (t != null) {
+                return t;
+            }
+        }
+        return get(((DbKey.LongKeyFactory<T>)dbKeyFactory).newKey(id));
+    }
+
+    /**
+     * Return the latest version of an entity with a pair of long keys, without creating the
+     * key if the entity is in the transaction cache
+     *
+     * @param   idA                 First entity key
+     * @param   idB                 Second entity key
+     * @return                      Entity or null
+     */
+    public final T get(long idA, long idB) {
+        if (db.isInTransaction()) {
+            T t = (T) db.getCache(schemaTable).get(idA, idB);
+            if (t != null) {
+                return t;
+            }
+        }
+        return get(((DbKey.LongLongKeyFactory<T>)dbKeyFactory).newKey(idA, idB));
+    }
+
     public final T get(DbKey dbKey, boolean cache) {
         if (cache && db.isInTransaction()) {
             T t = (T) db.getCache(schemaTable).get(dbKey);
@@ -200,6 +252,27 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     }
 
     public final DbIterator<T> getManyBy(DbClause dbClause, int from, int to, String sort) {
+        return getManyBy(dbClause, from, to, sort, null);
+    }
+
+    /**
+     * Return a page of entities ordered by a keyset sort.  The following page is returned by passing
+     * the continuation token of the returned iterator, and costs the same as the first page when the
+     * sort columns are indexed.
+     *
+     * @param   dbClause            Database clause
+     * @param   keysetSort          Sort order
+     * @param   continuation        Continuation token of the last entity of the previous page or null
+     * @param   from                Index of the first entity after the continuation
+     * @param   to                  Index of the last entity after the continuation
+     * @return                      Entity iterator
+     */
+    public final DbIterator<T> getManyBy(DbClause dbClause, KeysetSort keysetSort, ContinuationToken continuation, int from, int to) {
+        return getManyBy(continuation != null ? dbClause.and(keysetSort.after(continuation)) : dbClause,
+                from, to, keysetSort.getOrderBy(), keysetSort);
+    }
+
+    private DbIterator<T> getManyBy(DbClause dbClause, int from, int to, String sort, KeysetSort keysetSort) {
         Connection con = null;
         try {
             con = getConnection();
@@ -209,7 +282,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
             int i = 0;
             i = dbClause.set(pstmt, ++i);
             i = DbUtils.setLimits(i, pstmt, from, to);
-            return getManyBy(con, pstmt, true);
+            return getManyBy(con, pstmt, true, keysetSort);
         } catch (SQLException e) {
             DbUtils.close(con);
             throw new RuntimeException(e.toString(), e);
@@ -221,8 +294,29 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     }
 
     public final DbIterator<T> getManyBy(DbClause dbClause, int height, int from, int to, String sort) {
+        return getManyBy(dbClause, height, from, to, sort, null);
+    }
+
+    /**
+     * Return a page of entities as of a height ordered by a keyset sort
+     *
+     * @param   dbClause            Database clause
+     * @param   height              Height or -1 for the latest entities
+     * @param   keysetSort          Sort order
+     * @param   continuation        Continuation token of the last entity of the previous page or null
+     * @param   from                Index of the first entity after the continuation
+     * @param   to                  Index of the last entity after the continuation
+     * @return                      Entity iterator
+     */
+    public final DbIterator<T> getManyBy(DbClause dbClause, int height, KeysetSort keysetSort, ContinuationToken continuation,
+                                         int from, int to) {
+        return getManyBy(continuation != null ? dbClause.and(keysetSort.after(continuation)) : dbClause,
+                height, from, to, keysetSort.getOrderBy(), keysetSort);
+    }
+
+    private DbIterator<T> getManyBy(DbClause dbClause, int height, int from, int to, String sort, KeysetSort keysetSort) {
         if (height < 0 || doesNotExceed(height)) {
-            return getManyBy(dbClause, from, to, sort);
+            return getManyBy(dbClause, from, to, sort, keysetSort);
         }
         checkAvailable(height);
         Connection con = null;
@@ -243,7 +337,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
                 pstmt.setInt(++i, height);
             }
             i = DbUtils.setLimits(++i, pstmt, from, to);
-            return getManyBy(con, pstmt, false);
+            return getManyBy(con, pstmt, false, keysetSort);
         } catch (SQLException e) {
             DbUtils.close(con);
             throw new RuntimeException(e.toString(), e);
@@ -251,6 +345,10 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     }
 
     public final DbIterator<T> getManyBy(Connection con, PreparedStatement pstmt, boolean cache) {
+        return getManyBy(con, pstmt, cache, null);
+    }
+
+    private DbIterator<T> getManyBy(Connection con, PreparedStatement pstmt, boolean cache, KeysetSort keysetSort) {
         final boolean doCache = cache && db.isInTransaction();
         return new DbIterator<>(con, pstmt, (connection, rs) -> {
             T t = null;
@@ -266,7 +364,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
                 }
             }
             return t;
-        });
+        }, keysetSort);
     }
 
     public final DbIterator<T> search(String query, DbClause dbClause, int from, int to) {
@@ -298,6 +396,19 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         return getAll(from, to, defaultSort());
     }
 
+    /**
+     * Return a page of all entities ordered by a keyset sort
+     *
+     * @param   keysetSort          Sort order
+     * @param   continuation        Continuation token of the last entity of the previous page or null
+     * @param   from                Index of the first entity after the continuation
+     * @param   to                  Index of the last entity after the continuation
+     * @return                      Entity iterator
+     */
+    public final DbIterator<T> getAll(KeysetSort keysetSort, ContinuationToken continuation, int from, int to) {
+        return getManyBy(DbClause.EMPTY_CLAUSE, keysetSort, continuation, from, to);
+    }
+
     public final DbIterator<T> getAll(int from, int to, String sort) {
         Connection con = null;
         try {
@@ -403,9 +514,11 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
             if (multiversion) {
                 try (PreparedStatement pstmt = con.prepareStatement("UPDATE " + schemaTable
                         + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1")) {
+                    recordPreviousRow(con, dbKey);
                     dbKey.setPK(pstmt);
                     pstmt.executeUpdate();
                 }
+                journal.record(dbKey);
             }
             save(con, t);
         } catch (SQLException e) {
@@ -413,10 +526,100 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         }
     }
 
+    /**
+     * Check if the latest versions of the entities are part of the state hash
+     *
+     * @return                      TRUE if the table is included in the state hash
+     */
+    public boolean isStateHashed() {
+        return previousRowHashes != null && !isPersistent();
+    }
+
+    /**
+     * Record the state hash of the latest version of an entity before its first change since
+     * the last state hash update
+     *
+     * @param   con                 Connection
+     * @param   dbKey               Entity key
+     * @throws  SQLException        SQL error
+     */
+    final void recordPreviousRow(Connection con, DbKey dbKey) throws SQLException {
+        if (isStateHashed() && !previousRowHashes.containsKey(dbKey)) {
+            previousRowHashes.put(dbKey, getLatestRowHash(con, dbKey));
+        }
+    }
+
+    /**
+     * Update the state hash with the entities changed since the last update
+     *
+     * @param   stateHash           State hash
+     */
+    public final void updateStateHash(StateHash stateHash) {
+        if (!isStateHashed()) {
+            return;
+        }
+        try (Connection con = getConnection()) {
+            for (Map.Entry<DbKey, byte[]> entry : previousRowHashes.entrySet()) {
+                if (entry.getValue() != null) {
+                    stateHash.removeRow(schemaTable, entry.getValue());
+                }
+                byte[] rowHash = getLatestRowHash(con, entry.getKey());
+                if (rowHash != null) {
+                    stateHash.addRow(schemaTable, rowHash);
+                }
+            }
+            previousRowHashes.clear();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Add the latest versions of all entities to the state hash
+     *
+     * @param   stateHash           State hash
+     */
+    public final void addStateHash(StateHash stateHash) {
+        if (!isStateHashed()) {
+            return;
+        }
+        stateHash.addTable(schemaTable);
+        try (Connection con = getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + schemaTable + " WHERE latest = TRUE");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                stateHash.addRow(schemaTable, StateHash.getRowHash(rs, STATE_HASH_EXCLUDED_COLUMNS));
+            }
+            previousRowHashes.clear();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Discard the changes recorded since the last state hash update
+     */
+    public final void clearStateHashChanges() {
+        if (previousRowHashes != null) {
+            previousRowHashes.clear();
+        }
+    }
+
+    private byte[] getLatestRowHash(Connection con, DbKey dbKey) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + schemaTable
+                + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1")) {
+            dbKey.setPK(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? StateHash.getRowHash(rs, STATE_HASH_EXCLUDED_COLUMNS) : null;
+            }
+        }
+    }
+
     @Override
     public void popOffTo(int height) {
         if (multiversion) {
-            VersionedEntityDbTable.popOff(db, schema, schemaTable, height, dbKeyFactory);
+            VersionedEntityDbTable.popOff(db, schema, schemaTable, height, dbKeyFactory, journal);
+            clearStateHashChanges();
         } else {
             super.popOffTo(height);
         }
@@ -425,12 +628,21 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     @Override
     public void trim(int height) {
         if (multiversion) {
-            VersionedEntityDbTable.trim(db, schema, schemaTable, height, dbKeyFactory);
+            VersionedEntityDbTable.trim(db, schema, schemaTable, height, dbKeyFactory, journal);
         } else {
             super.trim(height);
         }
     }
 
+    @Override
+    public void truncate() {
+        super.truncate();
+        if (multiversion) {
+            journal.popOffTo(-1);
+            clearStateHashChanges();
+        }
+    }
+
     @Override
     public final void createSearchIndex(Connection con) throws SQLException {
         if (fullTextSearchColumns != null) {
@@ -52,6 +52,15 @@ public class FilteredConnection implements Connection {
         this.factory = factory;
     }
 
+    /**
+     * Return the wrapped connection
+     *
+     * @return                      Wrapped connection
+     */
+    protected Connection getWrappedConnection() {
+        return con;
+    }
+
     @Override
     public Statement createStatement() throws SQLException {
         return factory.createStatement(this, con.createStatement());
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Ordering of a paged query which can be resumed after the last row of a page.
+ * <p>
+ * The sort columns must be integer columns which together identify a row.  The continuation token
+ * of a row holds its values of the sort columns, and the next page is selected with a range condition
+ * on these columns rather than with an offset, so that the cost of a page doesn't depend on its position
+ * when the columns are indexed.
+ */
+public final class KeysetSort {
+
+    private final String[] columns;
+    private final boolean[] descending;
+    private final String orderBy;
+    private final String afterClause;
+
+    /**
+     * Create a keyset sort
+     *
+     * @param   columns             Sort columns in order, each optionally followed by ASC or DESC
+     */
+    public KeysetSort(String... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("No sort columns");
+        }
+        this.columns = new String[columns.length];
+        this.descending = new boolean[columns.length];
+        StringBuilder sb = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < columns.length; i++) {
+            String[] parts = columns[i].trim().split("\\s+");
+            if (parts.length > 2 || (parts.length == 2 && !parts[1].equalsIgnoreCase("ASC") && !parts[1].equalsIgnoreCase("DESC"))) {
+                throw new IllegalArgumentException("Invalid sort column " + columns[i]);
+            }
+            this.columns[i] = parts[0].toLowerCase(Locale.ROOT);
+            this.descending[i] = parts.length == 2 && parts[1].equalsIgnoreCase("DESC");
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(this.columns[i]).append(descending[i] ? " DESC" : "");
+        }
+        this.orderBy = sb.append(' ').toString();
+        String clause = afterClause(0);
+        if (columns.length > 1) {
+            clause = this.columns[0] + (descending[0] ? " <= ?" : " >= ?") + " AND " + clause;
+        }
+        this.afterClause = " " + clause + " ";
+    }
+
+    private String afterClause(int index) {
+        String column = columns[index];
+        String comparison = column + (descending[index] ? " < ?" : " > ?");
+        if (index == columns.length - 1) {
+            return comparison;
+        }
+        return "(" + comparison + " OR (" + column + " = ? AND " + afterClause(index + 1) + "))";
+    }
+
+    /**
+     * Return the number of sort columns, which is the size of the continuation tokens
+     *
+     * @return                      Number of sort columns
+     */
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Return the ORDER BY clause
+     *
+     * @return                      ORDER BY clause
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * Return a clause selecting the rows following a row in the sort order
+     *
+     * @param   continuation        Continuation token of the row
+     * @return                      Database clause
+     */
+    public DbClause after(ContinuationToken continuation) {
+        if (continuation.size() != columns.length) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+        return new DbClause(afterClause) {
+            @Override
+            protected int set(PreparedStatement pstmt, int index) throws SQLException {
+                if (columns.length > 1) {
+                    pstmt.setLong(index++, continuation.get(0));
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    pstmt.setLong(index++, continuation.get(i));
+                    if (i < columns.length - 1) {
+                        pstmt.setLong(index++, continuation.get(i));
+                    }
+                }
+                return index;
+            }
+        };
+    }
+
+    /**
+     * Return the continuation token of the current row
+     *
+     * @param   rs                  Result set positioned on the row
+     * @return                      Continuation token
+     * @throws  SQLException        SQL error
+     */
+    ContinuationToken getContinuation(ResultSet rs) throws SQLException {
+        long[] values = new long[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = rs.getLong(columns[i]);
+        }
+        return new ContinuationToken(values);
+    }
+}
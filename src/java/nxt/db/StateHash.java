@@ -0,0 +1,307 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.db;
+
+import nxt.crypto.Crypto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Hash of the contents of a set of database tables.
+ * <p>
+ * Each row is hashed separately using the canonical encoding of its column values, excluding
+ * the DB_ID column and optionally other columns, and the row hashes of a table are added modulo 2^256.  The table hash
+ * therefore doesn't depend on the order of the rows and can be updated incrementally when
+ * rows are added or removed.  The state hash is the SHA-256 hash of the table names and
+ * table hashes, in table name order.
+ */
+public final class StateHash {
+
+    private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(256);
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte STRING = 6;
+    private static final byte BYTES = 7;
+    private static final byte ARRAY = 8;
+    private static final byte DECIMAL = 9;
+    private static final byte TIMESTAMP = 10;
+
+    private final SortedMap<String, BigInteger> tableHashes = new TreeMap<>();
+
+    /**
+     * Include a table in the state hash even if it has no rows
+     *
+     * @param   schemaTable         Table name
+     */
+    public void addTable(String schemaTable) {
+        tableHashes.putIfAbsent(schemaTable, BigInteger.ZERO);
+    }
+
+    /**
+     * Add a row to a table
+     *
+     * @param   schemaTable         Table name
+     * @param   rowHash             Row hash returned by getRowHash()
+     */
+    public void addRow(String schemaTable, byte[] rowHash) {
+        tableHashes.merge(schemaTable, new BigInteger(1, rowHash), (h1, h2) -> h1.add(h2).mod(MODULUS));
+    }
+
+    /**
+     * Remove a row from a table
+     *
+     * @param   schemaTable         Table name
+     * @param   rowHash             Row hash returned by getRowHash()
+     */
+    public void removeRow(String schemaTable, byte[] rowHash) {
+        tableHashes.merge(schemaTable, MODULUS.subtract(new BigInteger(1, rowHash)), (h1, h2) -> h1.add(h2).mod(MODULUS));
+    }
+
+    /**
+     * Set the hash of a table
+     *
+     * @param   schemaTable         Table name
+     * @param   hash                Table hash returned by getTableHashes()
+     */
+    public void setTableHash(String schemaTable, byte[] hash) {
+        tableHashes.put(schemaTable, new BigInteger(1, hash));
+    }
+
+    /**
+     * Return the table hashes
+     *
+     * @return                      Table hashes in table name order
+     */
+    public Map<String, byte[]> getTableHashes() {
+        SortedMap<String, byte[]> hashes = new TreeMap<>();
+        tableHashes.forEach((schemaTable, hash) -> hashes.put(schemaTable, toBytes(hash)));
+        return Collections.unmodifiableSortedMap(hashes);
+    }
+
+    /**
+     * Return the state hash
+     *
+     * @return                      SHA-256 hash of the table names and table hashes
+     */
+    public byte[] getHash() {
+        MessageDigest digest = Crypto.sha256();
+        tableHashes.forEach((schemaTable, hash) -> {
+            digest.update(schemaTable.getBytes(StandardCharsets.UTF_8));
+            digest.update(toBytes(hash));
+        });
+        return digest.digest();
+    }
+
+    /**
+     * Return the hash of a row
+     *
+     * @param   columnNames         Column names
+     * @param   values              Column values
+     * @return                      SHA-256 hash of the canonical encoding of the values, excluding DB_ID
+     */
+    public static byte[] getRowHash(String[] columnNames, Object[] values) {
+        return getRowHash(columnNames, values, Collections.singleton("DB_ID"));
+    }
+
+    /**
+     * Return the hash of the current row of a result set
+     *
+     * @param   rs                  Result set
+     * @param   excludedColumns     Names of the columns which are not part of the hash
+     * @return                      SHA-256 hash of the canonical encoding of the values
+     * @throws  SQLException        SQL error
+     */
+    public static byte[] getRowHash(ResultSet rs, Set<String> excludedColumns) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        String[] columnNames = new String[metaData.getColumnCount()];
+        Object[] values = new Object[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+            values[i] = rs.getObject(i + 1);
+        }
+        return getRowHash(columnNames, values, excludedColumns);
+    }
+
+    /**
+     * Return the hash of a row
+     *
+     * @param   columnNames         Column names
+     * @param   values              Column values
+     * @param   excludedColumns     Names of the columns which are not part of the hash
+     * @return                      SHA-256 hash of the canonical encoding of the values
+     */
+    public static byte[] getRowHash(String[] columnNames, Object[] values, Set<String> excludedColumns) {
+        MessageDigest digest = Crypto.sha256();
+        DataOutputStream out = new DataOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                digest.update((byte)b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                digest.update(b, off, len);
+            }
+        });
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (!excludedColumns.contains(columnNames[i])) {
+                    writeValue(out, values[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Write a column value using the canonical encoding
+     *
+     * @param   out                 Output
+     * @param   value               Value returned by ResultSet.getObject()
+     * @throws  IOException         I/O error
+     */
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short)value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer)value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long)value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(out, ((String)value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[])value);
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[])value;
+            out.writeByte(ARRAY);
+            out.writeInt(array.length);
+            for (Object element : array) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp)value).getTime());
+        } else {
+            throw new IllegalArgumentException("Unsupported column type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Read a column value written by writeValue()
+     *
+     * @param   in                  Input
+     * @return                      Value
+     * @throws  IOException         I/O error or invalid encoding
+     */
+    public static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case BYTES:
+                return readBytes(in);
+            case ARRAY:
+                Object[] array = new Object[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readValue(in);
+                }
+                return array;
+            case DECIMAL:
+                return new BigDecimal(new String(readBytes(in), StandardCharsets.UTF_8));
+            case TIMESTAMP:
+                return new Timestamp(in.readLong());
+            default:
+                throw new IOException("Invalid column type " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] toBytes(BigInteger hash) {
+        byte[] bytes = hash.toByteArray();
+        byte[] result = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, result, 32 - length, length);
+        return result;
+    }
+
+}
@@ -26,9 +26,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 public class TransactionalDb extends BasicDb {
 
@@ -36,6 +39,7 @@ public class TransactionalDb extends BasicDb {
     private static final long stmtThreshold;
     private static final long txThreshold;
     private static final long txInterval;
+    private static final int statementCacheSize = Math.max(Nxt.getIntProperty("nxt.statementCacheSize"), 0);
     static {
         long temp;
         stmtThreshold = (temp=Nxt.getIntProperty("nxt.statementLogThreshold")) != 0 ? temp : 1000;
@@ -44,11 +48,18 @@ public class TransactionalDb extends BasicDb {
     }
 
     private final ThreadLocal<DbConnection> localConnection = new ThreadLocal<>();
-    private final ThreadLocal<Map<String,Map<DbKey,Object>>> transactionCaches = new ThreadLocal<>();
+    private final ThreadLocal<Map<String,EntityCache>> transactionCaches = new ThreadLocal<>();
     private final ThreadLocal<Set<TransactionCallback>> transactionCallback = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> reservedConnectionThread = ThreadLocal.withInitial(() -> Boolean.FALSE);
     private volatile long txTimes = 0;
     private volatile long txCount = 0;
     private volatile long statsTime = 0;
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder updateCount = new LongAdder();
+    private final LongAdder prepareCount = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder prepareTime = new LongAdder();
 
     public TransactionalDb(DbProperties dbProperties) {
         super(dbProperties);
@@ -66,6 +77,48 @@ public class TransactionalDb extends BasicDb {
         return con;
     }
 
+    /**
+     * Allow the current thread to use the connections reserved for database transactions.  This is
+     * used by the worker threads which read the database on behalf of block processing, so they are
+     * not delayed by API and peer requests.
+     */
+    public void useReservedConnections() {
+        reservedConnectionThread.set(Boolean.TRUE);
+    }
+
+    @Override
+    protected Connection getPooledConnection() throws SQLException {
+        return reservedConnectionThread.get() ? getReservedConnection() : super.getPooledConnection();
+    }
+
+    /**
+     * Check if a connection is the connection of a database transaction.  The connection of a
+     * transaction belongs to the thread which started the transaction and must only be closed by
+     * that thread.
+     *
+     * @param   con                 Database connection
+     * @return                      TRUE if this is a transaction connection
+     */
+    public static boolean isTransactionConnection(Connection con) {
+        return con instanceof DbConnection && ((DbConnection)con).isTransaction;
+    }
+
+    /**
+     * Close the connection of a leaked database iterator.  The iterator is closed on whichever thread
+     * detects the leak, which may be running a database transaction, so the connection is returned to
+     * the pool without checking the transaction of the current thread.  The connection must not be the
+     * connection of a database transaction.
+     *
+     * @param   con                 Database connection
+     */
+    static void closeLeakedConnection(Connection con) {
+        if (con instanceof DbConnection) {
+            ((DbConnection)con).closeConnection();
+        } else {
+            DbUtils.close(con);
+        }
+    }
+
     public boolean isInTransaction() {
         return localConnection.get() != null;
     }
@@ -79,10 +132,11 @@ public class TransactionalDb extends BasicDb {
             throw new IllegalStateException("Transaction already in progress");
         }
         try {
-            Connection con = getPooledConnection();
+            Connection con = getReservedConnection();
             con.setAutoCommit(false);
             con = new DbConnection(con, schema);
             ((DbConnection)con).txStart = System.currentTimeMillis();
+            ((DbConnection)con).isTransaction = true;
             localConnection.set((DbConnection)con);
             transactionCaches.set(new HashMap<>());
             return con;
@@ -168,22 +222,85 @@ public class TransactionalDb extends BasicDb {
         callbacks.add(callback);
     }
 
-    Map<DbKey,Object> getCache(String schemaTable) {
+    EntityCache getCache(String schemaTable) {
         if (!isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
-        return transactionCaches.get().computeIfAbsent(schemaTable, k -> new HashMap<>());
+        return transactionCaches.get().computeIfAbsent(schemaTable, k -> new EntityCache());
     }
 
     void clearCache(String schemaTable) {
-        Map<DbKey,Object> cacheMap = transactionCaches.get().get(schemaTable);
-        if (cacheMap != null) {
-            cacheMap.clear();
+        EntityCache cache = transactionCaches.get().get(schemaTable);
+        if (cache != null) {
+            cache.clear();
         }
     }
 
     public void clearCache() {
-        transactionCaches.get().values().forEach(Map::clear);
+        transactionCaches.get().values().forEach(EntityCache::clear);
+    }
+
+    /**
+     * Return the number of queries executed since the database was started
+     *
+     * @return                      Query count
+     */
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    /**
+     * Return the number of updates and other statements executed since the database was started
+     *
+     * @return                      Update count
+     */
+    public long getUpdateCount() {
+        return updateCount.sum();
+    }
+
+    /**
+     * Return the number of prepared statements created since the database was started
+     *
+     * @return                      Prepared statement count
+     */
+    public long getPrepareCount() {
+        return prepareCount.sum();
+    }
+
+    /**
+     * Return the maximum number of idle prepared statements cached for each connection
+     *
+     * @return                      Statement cache size or 0 if the cache is disabled
+     */
+    static int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Return the number of prepared statements reused from the statement cache since the database was started
+     *
+     * @return                      Statement cache hits
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * Return the number of prepared statements which were not found in the statement cache since the database was started
+     *
+     * @return                      Statement cache misses
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Return the time spent by the database preparing statements since the database was started
+     *
+     * @return                      Prepare time in nanoseconds
+     */
+    public long getPrepareTime() {
+        return prepareTime.sum();
     }
 
     private static void logThreshold(String msg) {
@@ -207,13 +324,85 @@ public class TransactionalDb extends BasicDb {
     private final class DbConnection extends FilteredConnection {
 
         private long txStart = 0;
+        private volatile boolean isTransaction;
         private volatile String schema;
+        /** Idle prepared statements in least recently used order, or null if the cache is disabled */
+        private final Map<StatementKey, PreparedStatement> statementCache;
+        private boolean closed;
 
         private DbConnection(Connection con, String schema) throws SQLException {
             super(con, factory);
+            statementCache = statementCacheSize > 0 ? new LinkedHashMap<>(16, 0.75f, true) : null;
             setSchema(schema);
         }
 
+        /**
+         * Prepare a statement, reusing an idle statement for the same schema and SQL if one
+         * has been returned to the statement cache.  The statement is removed from the cache while
+         * it is in use, so each caller has exclusive use of the returned statement until it is closed.
+         */
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            if (statementCache == null) {
+                return prepareNewStatement(sql, null);
+            }
+            StatementKey key = new StatementKey(schema, sql);
+            PreparedStatement stmt;
+            synchronized (statementCache) {
+                stmt = statementCache.remove(key);
+            }
+            if (stmt == null) {
+                return prepareNewStatement(sql, key);
+            }
+            statementCacheHits.increment();
+            return new DbPreparedStatement(this, stmt, sql, key);
+        }
+
+        private PreparedStatement prepareNewStatement(String sql, StatementKey key) throws SQLException {
+            statementCacheMisses.increment();
+            prepareCount.increment();
+            long start = System.nanoTime();
+            PreparedStatement stmt = getWrappedConnection().prepareStatement(sql);
+            prepareTime.add(System.nanoTime() - start);
+            return new DbPreparedStatement(this, stmt, sql, key);
+        }
+
+        /**
+         * Return a closed prepared statement to the statement cache.  The least recently used
+         * statement is closed if the cache is full.
+         */
+        private void releaseStatement(StatementKey key, PreparedStatement stmt) throws SQLException {
+            PreparedStatement evicted = null;
+            synchronized (statementCache) {
+                if (!closed) {
+                    stmt.clearParameters();
+                    stmt.clearBatch();
+                    evicted = statementCache.put(key, stmt);
+                    if (evicted == null && statementCache.size() > statementCacheSize) {
+                        Iterator<PreparedStatement> it = statementCache.values().iterator();
+                        evicted = it.next();
+                        it.remove();
+                    }
+                } else {
+                    evicted = stmt;
+                }
+            }
+            if (evicted != null) {
+                evicted.close();
+            }
+        }
+
+        private void closeStatements() {
+            if (statementCache == null) {
+                return;
+            }
+            synchronized (statementCache) {
+                closed = true;
+                statementCache.values().forEach(DbUtils::close);
+                statementCache.clear();
+            }
+        }
+
         @Override
         public void setAutoCommit(boolean autoCommit) {
             throw new UnsupportedOperationException("Use Db.beginTransaction() to start a new transaction");
@@ -252,12 +441,22 @@ public class TransactionalDb extends BasicDb {
         @Override
         public void close() throws SQLException {
             if (localConnection.get() == null) {
+                closeStatements();
                 super.close();
             } else if (this != localConnection.get()) {
                 throw new IllegalStateException("Previous connection not committed");
             }
         }
 
+        private void closeConnection() {
+            closeStatements();
+            try {
+                super.close();
+            } catch (SQLException e) {
+                Logger.logErrorMessage("Unable to close leaked connection", e);
+            }
+        }
+
         @Override
         public void setSchema(String schema) throws SQLException {
             schema = schema.toUpperCase(Locale.ROOT);
@@ -293,6 +492,7 @@ public class TransactionalDb extends BasicDb {
         public boolean execute(String sql) throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            updateCount.increment();
             boolean b = super.execute(sql);
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
@@ -305,6 +505,7 @@ public class TransactionalDb extends BasicDb {
         public ResultSet executeQuery(String sql) throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            queryCount.increment();
             ResultSet r = super.executeQuery(sql);
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
@@ -317,6 +518,7 @@ public class TransactionalDb extends BasicDb {
         public int executeUpdate(String sql) throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            updateCount.increment();
             int c = super.executeUpdate(sql);
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
@@ -336,17 +538,49 @@ public class TransactionalDb extends BasicDb {
 
         private final FilteredConnection con;
         private final String schema;
+        private final PreparedStatement stmt;
+        private final StatementKey key;
+        private ResultSet resultSet;
+        private boolean closed;
 
         private DbPreparedStatement(FilteredConnection con, PreparedStatement stmt, String sql) throws SQLException {
+            this(con, stmt, sql, null);
+        }
+
+        private DbPreparedStatement(FilteredConnection con, PreparedStatement stmt, String sql, StatementKey key) throws SQLException {
             super(stmt, sql);
             this.con = con;
             this.schema = con.getSchema();
+            this.stmt = stmt;
+            this.key = key;
+        }
+
+        /**
+         * Close the statement, returning the wrapped statement to the statement cache of the connection
+         * if it was prepared by a caching connection
+         */
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key == null) {
+                super.close();
+                return;
+            }
+            if (resultSet != null) {
+                resultSet.close();
+                resultSet = null;
+            }
+            ((DbConnection)con).releaseStatement(key, stmt);
         }
 
         @Override
         public boolean execute() throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            updateCount.increment();
             boolean b = super.execute();
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
@@ -359,7 +593,9 @@ public class TransactionalDb extends BasicDb {
         public ResultSet executeQuery() throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            queryCount.increment();
             ResultSet r = super.executeQuery();
+            resultSet = r;
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
                 logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
@@ -371,6 +607,7 @@ public class TransactionalDb extends BasicDb {
         public int executeUpdate() throws SQLException {
             long start = System.currentTimeMillis();
             con.setSchema(schema);
+            updateCount.increment();
             int c = super.executeUpdate();
             long elapsed = System.currentTimeMillis() - start;
             if (elapsed > stmtThreshold)
@@ -386,6 +623,33 @@ public class TransactionalDb extends BasicDb {
 
     }
 
+    private static final class StatementKey {
+
+        private final String schema;
+        private final String sql;
+        private final int hashCode;
+
+        private StatementKey(String schema, String sql) {
+            this.schema = schema;
+            this.sql = sql;
+            this.hashCode = 31 * schema.hashCode() + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey)o;
+            return hashCode == other.hashCode && sql.equals(other.sql) && schema.equals(other.schema);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     private final class DbFactory implements FilteredFactory {
 
         @Override
@@ -395,6 +659,7 @@ public class TransactionalDb extends BasicDb {
 
         @Override
         public PreparedStatement createPreparedStatement(FilteredConnection con, PreparedStatement stmt, String sql) throws SQLException {
+            prepareCount.increment();
             return new DbPreparedStatement(con, stmt, sql);
         }
     }
@@ -29,6 +29,7 @@ public abstract class ValuesDbTable<T,V> extends DerivedDbTable {
 
     private final boolean multiversion;
     protected final DbKey.Factory<T> dbKeyFactory;
+    final DirtyKeyJournal journal;
 
     protected ValuesDbTable(String schemaTable, DbKey.Factory<T> dbKeyFactory) {
         this(schemaTable, dbKeyFactory, false);
@@ -38,6 +39,7 @@ public abstract class ValuesDbTable<T,V> extends DerivedDbTable {
         super(schemaTable);
         this.dbKeyFactory = dbKeyFactory;
         this.multiversion = multiversion;
+        this.journal = multiversion ? new DirtyKeyJournal() : null;
     }
 
     protected abstract V load(Connection con, ResultSet rs) throws SQLException;
@@ -110,6 +112,7 @@ public abstract class ValuesDbTable<T,V> extends DerivedDbTable {
                     dbKey.setPK(pstmt);
                     pstmt.executeUpdate();
                 }
+                journal.record(dbKey);
             }
             for (V v : values) {
                 save(con, t, v);
@@ -122,7 +125,7 @@ public abstract class ValuesDbTable<T,V> extends DerivedDbTable {
     @Override
     public final void popOffTo(int height) {
         if (multiversion) {
-            VersionedEntityDbTable.popOff(db, schema, schemaTable, height, dbKeyFactory);
+            VersionedEntityDbTable.popOff(db, schema, schemaTable, height, dbKeyFactory, journal);
         } else {
             super.popOffTo(height);
         }
@@ -131,10 +134,18 @@ public abstract class ValuesDbTable<T,V> extends DerivedDbTable {
     @Override
     public final void trim(int height) {
         if (multiversion) {
-            VersionedEntityDbTable.trim(db, schema, schemaTable, height, dbKeyFactory);
+            VersionedEntityDbTable.trim(db, schema, schemaTable, height, dbKeyFactory, journal);
         } else {
             super.trim(height);
         }
     }
 
+    @Override
+    public final void truncate() {
+        super.truncate();
+        if (multiversion) {
+            journal.popOffTo(-1);
+        }
+    }
+
 }
@@ -26,6 +26,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
 
@@ -52,10 +53,12 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
         try (Connection con = getConnection();
              PreparedStatement pstmtCount = con.prepareStatement("SELECT 1 FROM " + schemaTable
                      + dbKeyFactory.getPKClause() + " AND height < ? LIMIT 1")) {
+            recordPreviousRow(con, dbKey);
             int i = dbKey.setPK(pstmtCount);
             pstmtCount.setInt(i, Nxt.getBlockchain().getHeight());
             try (ResultSet rs = pstmtCount.executeQuery()) {
                 if (rs.next()) {
+                    journal.record(dbKey);
                     try (PreparedStatement pstmt = con.prepareStatement("UPDATE " + schemaTable
                             + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1")) {
                         dbKey.setPK(pstmt);
@@ -80,7 +83,8 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
         }
     }
 
-    static void popOff(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory) {
+    static void popOff(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory,
+                       final DirtyKeyJournal journal) {
         if (!db.isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
@@ -111,11 +115,14 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
                 Logger.logDebugMessage(String.format("rollback table %s deleting %d records", table, deletedRecordsCount));
             }
             */
+            journal.popOffTo(height);
             for (DbKey dbKey : dbKeys) {
                 int i = 1;
                 i = dbKey.setPK(pstmtSetLatest, i);
                 i = dbKey.setPK(pstmtSetLatest, i);
                 pstmtSetLatest.executeUpdate();
+                // versions deleted at a lower height may have been kept by a previous trim because of the removed ones
+                journal.record(dbKey, height);
                 //Db.getCache(schemaTable).remove(dbKey);
             }
         } catch (SQLException e) {
@@ -123,10 +130,68 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
         }
     }
 
-    static void trim(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory) {
+    static void trim(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory,
+                     final DirtyKeyJournal journal) {
         if (!db.isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
+        Set<DbKey> dbKeys = journal.getKeys(height);
+        if (dbKeys == null) {
+            trim(db, schema, schemaTable, height, dbKeyFactory);
+        } else {
+            trim(db, schema, schemaTable, height, dbKeyFactory, dbKeys);
+        }
+        journal.trimmed(height);
+    }
+
+    private static void trim(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory,
+                             final Set<DbKey> dbKeys) {
+        try (Connection con = db.getConnection(schema);
+             PreparedStatement pstmtSelect = con.prepareStatement("SELECT MAX(height) AS max_height FROM " + schemaTable
+                     + dbKeyFactory.getPKClause() + " AND height < ?");
+             PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM " + schemaTable + dbKeyFactory.getPKClause()
+                     + " AND height < ? AND height >= 0 LIMIT " + Constants.BATCH_COMMIT_SIZE);
+             PreparedStatement pstmtDeleteDeleted = con.prepareStatement("DELETE FROM " + schemaTable + dbKeyFactory.getPKClause()
+                     + " AND height < ? AND height >= 0 AND latest = FALSE AND NOT EXISTS (SELECT 1 FROM " + schemaTable
+                     + dbKeyFactory.getPKClause() + " AND height >= ?)")) {
+            int count = 0;
+            int deleted;
+            for (DbKey dbKey : dbKeys) {
+                int i = dbKey.setPK(pstmtSelect);
+                pstmtSelect.setInt(i, height);
+                int maxHeight;
+                try (ResultSet rs = pstmtSelect.executeQuery()) {
+                    rs.next();
+                    maxHeight = rs.getInt("max_height");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                }
+                i = dbKey.setPK(pstmtDelete);
+                pstmtDelete.setInt(i, maxHeight);
+                do {
+                    deleted = pstmtDelete.executeUpdate();
+                    if ((count += deleted) >= Constants.BATCH_COMMIT_SIZE) {
+                        db.commitTransaction();
+                        count = 0;
+                    }
+                } while (deleted >= Constants.BATCH_COMMIT_SIZE);
+                i = dbKey.setPK(pstmtDeleteDeleted);
+                pstmtDeleteDeleted.setInt(i, height);
+                i = dbKey.setPK(pstmtDeleteDeleted, i + 1);
+                pstmtDeleteDeleted.setInt(i, height);
+                if ((count += pstmtDeleteDeleted.executeUpdate()) >= Constants.BATCH_COMMIT_SIZE) {
+                    db.commitTransaction();
+                    count = 0;
+                }
+            }
+            db.commitTransaction();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private static void trim(final TransactionalDb db, final String schema, final String schemaTable, final int height, final DbKey.Factory dbKeyFactory) {
         try (Connection con = db.getConnection(schema);
              PreparedStatement pstmtSelect = con.prepareStatement("SELECT " + dbKeyFactory.getPKColumns() + ", MAX(height) AS max_height"
                      + " FROM " + schemaTable + " WHERE height < ? GROUP BY " + dbKeyFactory.getPKColumns() + " HAVING COUNT(DISTINCT height) > 1");
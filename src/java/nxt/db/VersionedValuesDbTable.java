@@ -46,6 +46,7 @@ public abstract class VersionedValuesDbTable<T, V> extends ValuesDbTable<T, V> {
             pstmtCount.setInt(i, height);
             try (ResultSet rs = pstmtCount.executeQuery()) {
                 if (rs.next()) {
+                    journal.record(dbKey, height);
                     try (PreparedStatement pstmt = con.prepareStatement("UPDATE " + schemaTable
                             + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND height = ? AND latest = TRUE")) {
                         int j = dbKey.setPK(pstmt);
@@ -458,6 +458,21 @@ public class ChildDbVersion extends DbVersion {
             case 153:
                 apply("CREATE INDEX IF NOT EXISTS shuffling_data_height_idx ON shuffling_data (height)");
             case 154:
+                apply("CREATE TABLE IF NOT EXISTS account_transaction (account_id BIGINT NOT NULL, "
+                        + "transaction_db_id BIGINT NOT NULL, FOREIGN KEY (transaction_db_id) REFERENCES transaction (db_id) ON DELETE CASCADE, "
+                        + "height INT NOT NULL, transaction_index SMALLINT NOT NULL, type TINYINT NOT NULL, subtype TINYINT NOT NULL, "
+                        + "direction TINYINT NOT NULL)");
+            case 155:
+                apply("INSERT INTO account_transaction (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT sender_id, db_id, height, transaction_index, type, subtype, 0 FROM transaction");
+            case 156:
+                apply("INSERT INTO account_transaction (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT recipient_id, db_id, height, transaction_index, type, subtype, 1 FROM transaction "
+                        + "WHERE recipient_id IS NOT NULL AND recipient_id <> sender_id");
+            case 157:
+                apply("CREATE INDEX IF NOT EXISTS account_transaction_account_id_height_idx ON account_transaction "
+                        + "(account_id, height DESC, transaction_db_id DESC)");
+            case 158:
                 return;
             default:
                 throw new RuntimeException("Child chain " + schema + " database inconsistent with code, at update " + nextUpdate
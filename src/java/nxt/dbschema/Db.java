@@ -40,6 +40,7 @@ public final class Db {
             .dbUsername(Nxt.getStringProperty(PREFIX + "Username"))
             .dbPassword(Nxt.getStringProperty(PREFIX + "Password", null, true))
             .maxConnections(Nxt.getIntProperty("nxt.maxDbConnections"))
+            .reservedConnections(Nxt.getIntProperty("nxt.reservedDbConnections"))
             .loginTimeout(Nxt.getIntProperty("nxt.dbLoginTimeout"))
             .defaultLockTimeout(Nxt.getIntProperty("nxt.dbDefaultLockTimeout") * 1000)
             .maxMemoryRows(Nxt.getIntProperty("nxt.dbMaxMemoryRows"))
@@ -432,6 +432,49 @@ public class FxtDbVersion extends DbVersion {
                 }
                 apply(null);
             case 140:
+                apply("CREATE TABLE IF NOT EXISTS state_hash (db_id IDENTITY, height INT NOT NULL, block_id BIGINT NOT NULL, "
+                        + "hash BINARY(32) NOT NULL)");
+            case 141:
+                apply("CREATE UNIQUE INDEX IF NOT EXISTS state_hash_height_idx ON state_hash (height)");
+            case 142:
+                apply("CREATE TABLE IF NOT EXISTS state_table_hash (db_id IDENTITY, table_name VARCHAR NOT NULL, "
+                        + "hash BINARY(32) NOT NULL, height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
+            case 143:
+                apply("CREATE UNIQUE INDEX IF NOT EXISTS state_table_hash_name_height_idx ON state_table_hash (table_name, height DESC)");
+            case 144:
+                apply("CREATE TABLE IF NOT EXISTS account_transaction_fxt (account_id BIGINT NOT NULL, "
+                        + "transaction_db_id BIGINT NOT NULL, FOREIGN KEY (transaction_db_id) REFERENCES transaction_fxt (db_id) ON DELETE CASCADE, "
+                        + "height INT NOT NULL, transaction_index SMALLINT NOT NULL, type TINYINT NOT NULL, subtype TINYINT NOT NULL, "
+                        + "direction TINYINT NOT NULL)");
+            case 145:
+                apply("INSERT INTO account_transaction_fxt (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT sender_id, db_id, height, transaction_index, type, subtype, 0 FROM transaction_fxt");
+            case 146:
+                apply("INSERT INTO account_transaction_fxt (account_id, transaction_db_id, height, transaction_index, type, subtype, direction) "
+                        + "SELECT recipient_id, db_id, height, transaction_index, type, subtype, 1 FROM transaction_fxt "
+                        + "WHERE recipient_id IS NOT NULL AND recipient_id <> sender_id");
+            case 147:
+                apply("CREATE INDEX IF NOT EXISTS account_transaction_fxt_account_id_height_idx ON account_transaction_fxt "
+                        + "(account_id, height DESC, transaction_db_id DESC)");
+            case 148:
+                apply("CREATE TABLE IF NOT EXISTS transaction_filter (chain_id INT NOT NULL PRIMARY KEY, "
+                        + "block_id BIGINT NOT NULL, filter BLOB NOT NULL)");
+            case 149:
+                apply("CREATE INDEX IF NOT EXISTS account_asset_asset_id_quantity_idx ON account_asset "
+                        + "(asset_id, quantity DESC, account_id)");
+            case 150:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS last_connected INT NOT NULL DEFAULT 0");
+            case 151:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS connect_failures INT NOT NULL DEFAULT 0");
+            case 152:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS response_time BIGINT NOT NULL DEFAULT 0");
+            case 153:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS response_size BIGINT NOT NULL DEFAULT 0");
+            case 154:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS blacklisting_time INT NOT NULL DEFAULT 0");
+            case 155:
+                apply("ALTER TABLE peer ADD COLUMN IF NOT EXISTS blacklisting_cause VARCHAR");
+            case 156:
                 return;
             default:
                 throw new RuntimeException("Forging chain database inconsistent with code, at update " + nextUpdate
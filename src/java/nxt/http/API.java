@@ -318,6 +318,7 @@ public final class API {
     public static void init() {}
 
     public static void shutdown() {
+        APIProxyCache.shutdown();
         if (apiServer != null) {
             try {
                 apiServer.stop();
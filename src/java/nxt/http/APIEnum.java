@@ -255,6 +255,10 @@ public enum APIEnum {
     DUMP_PEERS("dumpPeers", DumpPeers.instance),
     GET_LOG("getLog", GetLog.instance),
     GET_STACK_TRACES("getStackTraces", GetStackTraces.instance),
+    GET_BLOCK_PROFILE("getBlockProfile", GetBlockProfile.instance),
+    GET_STATE_HASH("getStateHash", GetStateHash.instance),
+    GET_DB_POOL_STATUS("getDbPoolStatus", GetDbPoolStatus.instance),
+    GET_TRANSACTION_FILTERS("getTransactionFilters", GetTransactionFilters.instance),
     RETRIEVE_PRUNED_DATA("retrievePrunedData", RetrievePrunedData.instance),
     RETRIEVE_PRUNED_TRANSACTION("retrievePrunedTransaction", RetrievePrunedTransaction.instance),
     SET_LOGGING("setLogging", SetLogging.instance),
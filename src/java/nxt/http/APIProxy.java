@@ -89,6 +89,9 @@ public class APIProxy {
     static {
         if (!Constants.isOffline && enableAPIProxy) {
             ThreadPool.scheduleThread("APIProxyPeersUpdate", peersUpdateThread, 60);
+            if (APIProxyCache.isEnabled()) {
+                ThreadPool.scheduleThread("APIProxyCacheCheck", APIProxyCache.lastBlockCheckThread, APIProxyCache.CHECK_INTERVAL);
+            }
         }
     }
 
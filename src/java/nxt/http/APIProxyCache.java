@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.http;
+
+import nxt.Nxt;
+import nxt.util.Convert;
+import nxt.util.Logger;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.util.MultiMap;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the responses to API requests forwarded by the API proxy.
+ * <p>
+ * Only the request types listed in nxt.apiProxyCacheTTL are cached, each for at most its
+ * configured time to live.  Cached responses are also discarded when the remote server
+ * which returned them reports a new last block.  The last block is only tracked for the
+ * remote servers which have cached responses.
+ */
+final class APIProxyCache {
+
+    /** Maximum size of a cached response */
+    private static final int MAX_CONTENT_SIZE = 1024 * 1024;
+
+    /** Interval between last block checks in seconds */
+    static final int CHECK_INTERVAL = 10;
+
+    /** Parameters which are not part of the cache key */
+    private static final Set<String> IGNORED_PARAMETERS = Collections.singleton("random");
+
+    private static final int maxSize = Nxt.getIntProperty("nxt.apiProxyCacheSize");
+    private static final Map<String, Long> timeToLive;
+    static {
+        Map<String, Long> map = new HashMap<>();
+        for (String entry : Nxt.getStringListProperty("nxt.apiProxyCacheTTL")) {
+            int index = entry.indexOf(':');
+            if (index <= 0) {
+                Logger.logWarningMessage("Invalid nxt.apiProxyCacheTTL entry " + entry);
+                continue;
+            }
+            map.put(entry.substring(0, index).trim(), Long.parseLong(entry.substring(index + 1).trim()) * 1000);
+        }
+        timeToLive = Collections.unmodifiableMap(map);
+    }
+
+    static final class Entry {
+
+        private final byte[] content;
+        private final List<String[]> headers;
+        private final String serverUrl;
+        private final long lastBlockId;
+        private final long expiration;
+
+        private Entry(byte[] content, List<String[]> headers, String serverUrl, long lastBlockId, long expiration) {
+            this.content = content;
+            this.headers = headers;
+            this.serverUrl = serverUrl;
+            this.lastBlockId = lastBlockId;
+            this.expiration = expiration;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Return the response headers
+         *
+         * @return                  List of header name and value pairs
+         */
+        List<String[]> getHeaders() {
+            return headers;
+        }
+
+    }
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /** Last block reported by each remote server */
+    private static final Map<String, Long> lastBlockIds = new ConcurrentHashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private static HttpClient httpClient;
+    private static volatile boolean stopped;
+
+    static final Runnable lastBlockCheckThread = () -> {
+        if (stopped) {
+            return;
+        }
+        try {
+            Set<String> serverUrls = new HashSet<>();
+            synchronized (cache) {
+                cache.values().forEach(entry -> serverUrls.add(entry.serverUrl));
+            }
+            lastBlockIds.keySet().retainAll(serverUrls);
+            for (String serverUrl : serverUrls) {
+                long lastBlockId = getLastBlockId(serverUrl);
+                if (lastBlockId == 0) {
+                    continue;
+                }
+                Long previousLastBlockId = lastBlockIds.put(serverUrl, lastBlockId);
+                if (previousLastBlockId == null || previousLastBlockId != lastBlockId) {
+                    invalidate(serverUrl, lastBlockId);
+                }
+            }
+        } catch (Exception e) {
+            Logger.logDebugMessage("Error checking API proxy last blocks", e);
+        }
+    };
+
+    private APIProxyCache() {}
+
+    /**
+     * Stop the last block checks and the HTTP client used by them
+     */
+    static synchronized void shutdown() {
+        stopped = true;
+        if (httpClient != null) {
+            try {
+                httpClient.stop();
+            } catch (Exception e) {
+                Logger.logShutdownMessage("Failed to stop API proxy cache HTTP client", e);
+            }
+            httpClient = null;
+        }
+    }
+
+    private static synchronized HttpClient getHttpClient() throws Exception {
+        if (stopped) {
+            return null;
+        }
+        if (httpClient == null) {
+            HttpClient client = HttpClientFactory.newHttpClient();
+            client.start();
+            httpClient = client;
+        }
+        return httpClient;
+    }
+
+    static boolean isEnabled() {
+        return maxSize > 0 && !timeToLive.isEmpty();
+    }
+
+    /**
+     * Return the cache key for a request, or null if the response should not be cached
+     *
+     * @param   requestType         Request type
+     * @param   parameters          Request parameters
+     * @return                      Cache key or null
+     */
+    static String getKey(String requestType, MultiMap<String> parameters) {
+        if (!isEnabled() || !timeToLive.containsKey(requestType)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(requestType);
+        new TreeMap<>(parameters).forEach((name, values) -> {
+            if (!IGNORED_PARAMETERS.contains(name) && !"requestType".equals(name)) {
+                for (String value : values) {
+                    key.append('&').append(name).append('=').append(Convert.nullToEmpty(value));
+                }
+            }
+        });
+        return key.toString();
+    }
+
+    static Entry get(String key) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+            if (entry != null && (entry.expiration < System.currentTimeMillis()
+                    || entry.lastBlockId != lastBlockIds.getOrDefault(entry.serverUrl, 0L))) {
+                cache.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    static void put(String key, String requestType, String serverUrl, byte[] content, List<String[]> headers) {
+        long expiration = System.currentTimeMillis() + timeToLive.get(requestType);
+        Entry entry = new Entry(content, headers, serverUrl, lastBlockIds.getOrDefault(serverUrl, 0L), expiration);
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    static boolean isCacheable(int contentSize) {
+        return contentSize <= MAX_CONTENT_SIZE;
+    }
+
+    /**
+     * Check if a response can be cached, error responses are never cached
+     *
+     * @param   content             Response content
+     * @return                      TRUE if the response can be cached
+     */
+    static boolean isCacheable(byte[] content) {
+        return isCacheable(content.length) && !new String(content, 0, Math.min(content.length, 256)).contains("\"errorCode\"");
+    }
+
+    static JSONObject getStatistics() {
+        JSONObject json = new JSONObject();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        json.put("size", size);
+        json.put("hits", hitCount);
+        json.put("misses", missCount);
+        json.put("hitRate", hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount));
+        json.put("invalidations", invalidations.get());
+        return json;
+    }
+
+    private static void invalidate(String serverUrl, long lastBlockId) {
+        synchronized (cache) {
+            Iterator<Entry> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.serverUrl.equals(serverUrl) && entry.lastBlockId != lastBlockId) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static long getLastBlockId(String serverUrl) {
+        try {
+            HttpClient client = getHttpClient();
+            if (client == null) {
+                return 0;
+            }
+            ContentResponse response = client.newRequest(serverUrl + "/nxt?requestType=getBlockchainStatus")
+                    .timeout(CHECK_INTERVAL, TimeUnit.SECONDS).send();
+            Object json = JSONValue.parse(response.getContentAsString());
+            if (json instanceof JSONObject) {
+                return Convert.parseUnsignedLong((String) ((JSONObject) json).get("lastBlock"));
+            }
+        } catch (Exception e) {
+            Logger.logDebugMessage("Unable to get last block from " + serverUrl + ": " + e.toString());
+        }
+        return 0;
+    }
+}
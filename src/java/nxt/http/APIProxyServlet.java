@@ -24,6 +24,8 @@ import nxt.util.Logger;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.proxy.AsyncMiddleManServlet;
 import org.eclipse.jetty.util.MultiMap;
@@ -39,7 +41,10 @@ import java.io.IOException;
 import java.io.Writer;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static nxt.http.JSONResponses.ERROR_NOT_ALLOWED;
 
@@ -47,6 +52,11 @@ public final class APIProxyServlet extends AsyncMiddleManServlet {
 
     private static final String REMOTE_URL = APIProxyServlet.class.getName() + ".remoteUrl";
     private static final String REMOTE_SERVER_IDLE_TIMEOUT = APIProxyServlet.class.getName() + ".remoteServerIdleTimeout";
+    private static final String REMOTE_SERVER_URL = APIProxyServlet.class.getName() + ".remoteServerUrl";
+    private static final String REQUEST_TYPE = APIProxyServlet.class.getName() + ".requestType";
+    private static final String CACHE_KEY = APIProxyServlet.class.getName() + ".cacheKey";
+    private static final Set<HttpHeader> NOT_CACHED_HEADERS = EnumSet.of(HttpHeader.CONTENT_LENGTH, HttpHeader.CONTENT_ENCODING,
+            HttpHeader.TRANSFER_ENCODING, HttpHeader.CONNECTION, HttpHeader.DATE, HttpHeader.SERVER);
     static final int PROXY_IDLE_TIMEOUT_DELTA = 5000;
 
     static void initClass() {}
@@ -71,8 +81,22 @@ public final class APIProxyServlet extends AsyncMiddleManServlet {
                 if (parameters.containsKey("secretPhrase") || parameters.containsKey("adminPassword") || parameters.containsKey("sharedKey")) {
                     throw new ParameterException(JSONResponses.PROXY_SECRET_DATA_DETECTED);
                 }
+                String cacheKey = "GET".equals(request.getMethod()) ? APIProxyCache.getKey(requestType, parameters) : null;
+                if (cacheKey != null) {
+                    APIProxyCache.Entry entry = APIProxyCache.get(cacheKey);
+                    if (entry != null) {
+                        for (String[] header : entry.getHeaders()) {
+                            response.addHeader(header[0], header[1]);
+                        }
+                        response.setContentLength(entry.getContent().length);
+                        response.getOutputStream().write(entry.getContent());
+                        return;
+                    }
+                    request.setAttribute(CACHE_KEY, cacheKey);
+                    request.setAttribute(REQUEST_TYPE, requestType);
+                }
                 if (!initRemoteRequest(request, requestType)) {
-                    if (Peers.getPeers(peer -> peer.getState() == Peer.State.CONNECTED, 1).size() >= 1) {
+                    if (Peers.getPeers(Peer.State.CONNECTED, null, 1).size() >= 1) {
                         responseJson = JSONResponses.API_PROXY_NO_OPEN_API_PEERS;
                     } else {
                         responseJson = JSONResponses.API_PROXY_NO_PUBLIC_PEERS;
@@ -179,6 +203,7 @@ public final class APIProxyServlet extends AsyncMiddleManServlet {
             uri = servingPeer.getPeerApiUri();
             clientRequest.setAttribute(REMOTE_SERVER_IDLE_TIMEOUT, servingPeer.getApiServerIdleTimeout());
         }
+        clientRequest.setAttribute(REMOTE_SERVER_URL, uri.toString());
         uri.append("/nxt");
         String query = clientRequest.getQueryString();
         if (query != null) {
@@ -203,6 +228,33 @@ public final class APIProxyServlet extends AsyncMiddleManServlet {
         return true;
     }
 
+    @Override
+    protected void sendProxyRequest(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, Request proxyRequest) {
+        if (clientRequest.getAttribute(CACHE_KEY) != null) {
+            // cached responses are stored as received, so they must not be compressed
+            proxyRequest.header(HttpHeader.ACCEPT_ENCODING, null);
+        }
+        super.sendProxyRequest(clientRequest, proxyResponse, proxyRequest);
+    }
+
+    @Override
+    protected ContentTransformer newServerResponseContentTransformer(HttpServletRequest clientRequest,
+                                                                     HttpServletResponse proxyResponse, Response serverResponse) {
+        String cacheKey = (String) clientRequest.getAttribute(CACHE_KEY);
+        if (cacheKey == null || serverResponse.getStatus() != HttpStatus.OK_200
+                || serverResponse.getHeaders().containsKey(HttpHeader.CONTENT_ENCODING.asString())) {
+            return super.newServerResponseContentTransformer(clientRequest, proxyResponse, serverResponse);
+        }
+        List<String[]> headers = new ArrayList<>();
+        for (HttpField field : serverResponse.getHeaders()) {
+            if (!NOT_CACHED_HEADERS.contains(field.getHeader())) {
+                headers.add(new String[] {field.getName(), field.getValue()});
+            }
+        }
+        return new CachingContentTransformer(cacheKey, (String) clientRequest.getAttribute(REQUEST_TYPE),
+                (String) clientRequest.getAttribute(REMOTE_SERVER_URL), headers);
+    }
+
     @Override
     protected Response.Listener newProxyResponseListener(HttpServletRequest request, HttpServletResponse response) {
         return new APIProxyResponseListener(request, response);
@@ -236,6 +288,42 @@ public final class APIProxyServlet extends AsyncMiddleManServlet {
         }
     }
 
+    private static class CachingContentTransformer implements AsyncMiddleManServlet.ContentTransformer {
+
+        private final String cacheKey;
+        private final String requestType;
+        private final String serverUrl;
+        private final List<String[]> headers;
+        private final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        private boolean cacheable = true;
+
+        private CachingContentTransformer(String cacheKey, String requestType, String serverUrl, List<String[]> headers) {
+            this.cacheKey = cacheKey;
+            this.requestType = requestType;
+            this.serverUrl = serverUrl;
+            this.headers = headers;
+        }
+
+        @Override
+        public void transform(ByteBuffer input, boolean finished, List<ByteBuffer> output) throws IOException {
+            if (cacheable && input.hasRemaining()) {
+                byte[] b = new byte[input.remaining()];
+                input.get(b);
+                output.add(ByteBuffer.wrap(b));
+                os.write(b);
+                cacheable = APIProxyCache.isCacheable(os.size());
+            } else if (input.hasRemaining()) {
+                output.add(input);
+            }
+            if (finished && cacheable) {
+                byte[] content = os.toByteArray();
+                if (APIProxyCache.isCacheable(content)) {
+                    APIProxyCache.put(cacheKey, requestType, serverUrl, content, headers);
+                }
+            }
+        }
+    }
+
     private static class PasswordDetectedException extends RuntimeException {
         private final JSONStreamAware errorResponse;
 
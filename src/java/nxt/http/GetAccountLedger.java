@@ -21,6 +21,7 @@ import nxt.account.AccountLedger;
 import nxt.account.AccountLedger.LedgerEntry;
 import nxt.account.AccountLedger.LedgerEvent;
 import nxt.account.AccountLedger.LedgerHolding;
+import nxt.db.ContinuationToken;
 import nxt.util.Convert;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -105,6 +106,13 @@ import java.util.List;
  *           unless the administrator password is specified.
  *       </td>
  *     </tr>
+ *     <tr>
+ *       <td>continuation</td>
+ *       <td>Continuation returned by the previous request, to return the entries following
+ *           the last entry of the previous request.  'firstIndex' and 'lastIndex' are then relative
+ *           to that entry.  A continuation is returned when the maximum number of entries is returned.
+ *       </td>
+ *     </tr>
  *   </tbody>
  * </table>
  * <br>
@@ -228,7 +236,7 @@ public class GetAccountLedger extends APIServlet.APIRequestHandler {
      * Create the GetAccountLedger instance
      */
     private GetAccountLedger() {
-        super(new APITag[] {APITag.ACCOUNTS}, "account", "firstIndex", "lastIndex",
+        super(new APITag[] {APITag.ACCOUNTS}, "account", "firstIndex", "lastIndex", "continuation",
                 "eventType", "event", "holdingType", "holding", "includeTransactions", "includeHoldingInfo");
     }
 
@@ -247,6 +255,7 @@ public class GetAccountLedger extends APIServlet.APIRequestHandler {
         long accountId = ParameterParser.getAccountId(req, "account", false);
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 1);
         String eventType = Convert.emptyToNull(req.getParameter("eventType"));
         LedgerEvent event = null;
         long eventId = 0;
@@ -276,7 +285,7 @@ public class GetAccountLedger extends APIServlet.APIRequestHandler {
         // Get the ledger entries
         //
         List<LedgerEntry> ledgerEntries = AccountLedger.getEntries(accountId, event, eventId,
-                                                                   holding, holdingId, firstIndex, lastIndex);
+                                                                   holding, holdingId, continuation, firstIndex, lastIndex);
         //
         // Return the response
         //
@@ -288,6 +297,9 @@ public class GetAccountLedger extends APIServlet.APIRequestHandler {
         });
         JSONObject response = new JSONObject();
         response.put("entries", responseEntries);
+        if (lastIndex < Integer.MAX_VALUE && ledgerEntries.size() == lastIndex - firstIndex + 1) {
+            response.put("continuation", new ContinuationToken(ledgerEntries.get(ledgerEntries.size() - 1).getLedgerId()).toString());
+        }
         return response;
     }
 
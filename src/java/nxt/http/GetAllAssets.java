@@ -16,7 +16,9 @@
 
 package nxt.http;
 
+import nxt.NxtException;
 import nxt.ae.Asset;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -29,23 +31,27 @@ public final class GetAllAssets extends APIServlet.APIRequestHandler {
     static final GetAllAssets instance = new GetAllAssets();
 
     private GetAllAssets() {
-        super(new APITag[] {APITag.AE}, "firstIndex", "lastIndex", "includeCounts");
+        super(new APITag[] {APITag.AE}, "firstIndex", "lastIndex", "continuation", "includeCounts");
     }
 
     @Override
-    protected JSONStreamAware processRequest(HttpServletRequest req) {
+    protected JSONStreamAware processRequest(HttpServletRequest req) throws NxtException {
 
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 1);
         boolean includeCounts = "true".equalsIgnoreCase(req.getParameter("includeCounts"));
 
         JSONObject response = new JSONObject();
         JSONArray assetsJSONArray = new JSONArray();
         response.put("assets", assetsJSONArray);
-        try (DbIterator<Asset> assets = Asset.getAllAssets(firstIndex, lastIndex)) {
+        try (DbIterator<Asset> assets = Asset.getAllAssets(continuation, firstIndex, lastIndex)) {
             while (assets.hasNext()) {
                 assetsJSONArray.add(JSONData.asset(assets.next(), includeCounts));
             }
+            if (lastIndex < Integer.MAX_VALUE && assetsJSONArray.size() == lastIndex - firstIndex + 1) {
+                response.put("continuation", assets.getContinuation().toString());
+            }
         }
         return response;
     }
@@ -19,6 +19,7 @@ package nxt.http;
 import nxt.NxtException;
 import nxt.ae.TradeHome;
 import nxt.blockchain.ChildChain;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -31,7 +32,7 @@ public final class GetAllTrades extends APIServlet.APIRequestHandler {
     static final GetAllTrades instance = new GetAllTrades();
 
     private GetAllTrades() {
-        super(new APITag[] {APITag.AE}, "timestamp", "firstIndex", "lastIndex", "includeAssetInfo");
+        super(new APITag[] {APITag.AE}, "timestamp", "firstIndex", "lastIndex", "continuation", "includeAssetInfo");
     }
     
     @Override
@@ -39,12 +40,13 @@ public final class GetAllTrades extends APIServlet.APIRequestHandler {
         final int timestamp = ParameterParser.getTimestamp(req);
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 2);
         boolean includeAssetInfo = "true".equalsIgnoreCase(req.getParameter("includeAssetInfo"));
         ChildChain childChain = ParameterParser.getChildChain(req);
 
         JSONObject response = new JSONObject();
         JSONArray trades = new JSONArray();
-        try (DbIterator<TradeHome.Trade> tradeIterator = childChain.getTradeHome().getAllTrades(firstIndex, lastIndex)) {
+        try (DbIterator<TradeHome.Trade> tradeIterator = childChain.getTradeHome().getAllTrades(continuation, firstIndex, lastIndex)) {
             while (tradeIterator.hasNext()) {
                 TradeHome.Trade trade = tradeIterator.next();
                 if (trade.getTimestamp() < timestamp) {
@@ -52,6 +54,9 @@ public final class GetAllTrades extends APIServlet.APIRequestHandler {
                 }
                 trades.add(JSONData.trade(trade, includeAssetInfo));
             }
+            if (lastIndex < Integer.MAX_VALUE && trades.size() == lastIndex - firstIndex + 1) {
+                response.put("continuation", tradeIterator.getContinuation().toString());
+            }
         }
         response.put("trades", trades);
         return response;
@@ -18,6 +18,7 @@ package nxt.http;
 
 import nxt.NxtException;
 import nxt.account.Account;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -30,7 +31,7 @@ public final class GetAssetAccounts extends APIServlet.APIRequestHandler {
     static final GetAssetAccounts instance = new GetAssetAccounts();
 
     private GetAssetAccounts() {
-        super(new APITag[] {APITag.AE}, "asset", "height", "firstIndex", "lastIndex");
+        super(new APITag[] {APITag.AE}, "asset", "height", "firstIndex", "lastIndex", "continuation");
     }
 
     @Override
@@ -39,17 +40,21 @@ public final class GetAssetAccounts extends APIServlet.APIRequestHandler {
         long assetId = ParameterParser.getUnsignedLong(req, "asset", true);
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 2);
         int height = ParameterParser.getHeight(req);
 
+        JSONObject response = new JSONObject();
         JSONArray accountAssets = new JSONArray();
-        try (DbIterator<Account.AccountAsset> iterator = Account.getAssetAccounts(assetId, height, firstIndex, lastIndex)) {
+        try (DbIterator<Account.AccountAsset> iterator = Account.getAssetAccounts(assetId, height, continuation, firstIndex, lastIndex)) {
             while (iterator.hasNext()) {
                 Account.AccountAsset accountAsset = iterator.next();
                 accountAssets.add(JSONData.accountAsset(accountAsset, true, false));
             }
+            if (lastIndex < Integer.MAX_VALUE && accountAssets.size() == lastIndex - firstIndex + 1) {
+                response.put("continuation", iterator.getContinuation().toString());
+            }
         }
 
-        JSONObject response = new JSONObject();
         response.put("accountAssets", accountAssets);
         return response;
 
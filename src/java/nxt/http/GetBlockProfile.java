@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.http;
+
+import nxt.blockchain.BlockProfiler;
+import nxt.blockchain.TransactionType;
+import nxt.util.RollingHistogram;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+
+/**
+ * <p>The GetBlockProfile API returns the time spent processing the most recent blocks.</p>
+ *
+ * <p>Response parameters:</p>
+ * <ul>
+ * <li>phases           - Array of timing objects for each block processing phase</li>
+ * <li>transactionTypes - Array of timing objects for applying each transaction type</li>
+ * <li>listeners        - Array of timing objects for each block event and listener</li>
+ * </ul>
+ *
+ * <p>Timing object:</p>
+ * <ul>
+ * <li>name        - Phase, transaction type or listener name</li>
+ * <li>count       - Number of recent samples</li>
+ * <li>totalCount  - Number of samples since the server was started</li>
+ * <li>totalMillis - Total time since the server was started</li>
+ * <li>meanMicros, p50Micros, p90Micros, p99Micros, maxMicros - Distribution of the recent samples</li>
+ * </ul>
+ */
+public final class GetBlockProfile extends APIServlet.APIRequestHandler {
+
+    static final GetBlockProfile instance = new GetBlockProfile();
+
+    private GetBlockProfile() {
+        super(new APITag[] {APITag.DEBUG});
+    }
+
+    @Override
+    protected JSONStreamAware processRequest(HttpServletRequest req) {
+        JSONObject response = new JSONObject();
+        JSONArray phasesJSON = new JSONArray();
+        BlockProfiler.getPhases().forEach((phase, snapshot) -> phasesJSON.add(JSONData.histogram(phase.name(), snapshot)));
+        response.put("phases", phasesJSON);
+        JSONArray transactionTypesJSON = new JSONArray();
+        for (Map.Entry<TransactionType, RollingHistogram.Snapshot> entry : BlockProfiler.getTransactionTypes().entrySet()) {
+            TransactionType transactionType = entry.getKey();
+            JSONObject json = JSONData.histogram(transactionType.getName(), entry.getValue());
+            json.put("type", transactionType.getType());
+            json.put("subtype", transactionType.getSubtype());
+            transactionTypesJSON.add(json);
+        }
+        response.put("transactionTypes", transactionTypesJSON);
+        JSONArray listenersJSON = new JSONArray();
+        BlockProfiler.getListeners().forEach((name, snapshot) -> listenersJSON.add(JSONData.histogram(name, snapshot)));
+        response.put("listeners", listenersJSON);
+        return response;
+    }
+
+    @Override
+    protected boolean requirePassword() {
+        return true;
+    }
+
+    @Override
+    protected boolean allowRequiredBlockParameters() {
+        return false;
+    }
+
+    @Override
+    protected boolean requireBlockchain() {
+        return false;
+    }
+
+    @Override
+    protected boolean isChainSpecific() {
+        return false;
+    }
+
+}
@@ -21,6 +21,7 @@ import nxt.Nxt;
 import nxt.account.AccountLedger;
 import nxt.blockchain.Block;
 import nxt.blockchain.BlockchainProcessor;
+import nxt.blockchain.ScanProgress;
 import nxt.peer.Peer;
 import nxt.peer.Peers;
 import org.json.simple.JSONArray;
@@ -51,6 +52,13 @@ public final class GetBlockchainStatus extends APIServlet.APIRequestHandler {
         response.put("lastBlockchainFeeder", lastBlockchainFeeder == null ? null : lastBlockchainFeeder.getAnnouncedAddress());
         response.put("lastBlockchainFeederHeight", blockchainProcessor.getLastBlockchainFeederHeight());
         response.put("isScanning", blockchainProcessor.isScanning());
+        ScanProgress scanProgress = blockchainProcessor.getScanProgress();
+        if (scanProgress != null) {
+            response.put("scanHeight", scanProgress.getHeight());
+            response.put("scanTargetHeight", scanProgress.getTargetHeight());
+            response.put("scanBlocksPerSecond", Math.round(scanProgress.getBlocksPerSecond() * 10) / 10.0);
+            response.put("scanETA", scanProgress.getEstimatedSeconds());
+        }
         response.put("isDownloading", blockchainProcessor.isDownloading());
         response.put("maxRollback", Constants.MAX_ROLLBACK);
         response.put("currentMinRollbackHeight", Nxt.getBlockchainProcessor().getMinRollbackHeight());
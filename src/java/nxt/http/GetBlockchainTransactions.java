@@ -22,6 +22,7 @@ import nxt.blockchain.Chain;
 import nxt.blockchain.ChildChain;
 import nxt.blockchain.FxtChain;
 import nxt.blockchain.Transaction;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -36,7 +37,7 @@ public final class GetBlockchainTransactions extends APIServlet.APIRequestHandle
     private GetBlockchainTransactions() {
         super(new APITag[] {APITag.ACCOUNTS, APITag.TRANSACTIONS}, "account", "timestamp", "type", "subtype",
                 "firstIndex", "lastIndex", "numberOfConfirmations", "withMessage", "phasedOnly", "nonPhasedOnly",
-                "includeExpiredPrunable", "includePhasingResult", "executedOnly");
+                "includeExpiredPrunable", "includePhasingResult", "executedOnly", "continuation");
     }
 
     @Override
@@ -72,31 +73,36 @@ public final class GetBlockchainTransactions extends APIServlet.APIRequestHandle
 
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 2);
 
         JSONArray transactions = new JSONArray();
+        Transaction lastTransaction = null;
         if (chain instanceof ChildChain) {
             try (DbIterator<? extends Transaction> iterator =
                     Nxt.getBlockchain().getTransactions((ChildChain)chain, accountId, numberOfConfirmations,
-                            type, subtype, timestamp, withMessage, phasedOnly, nonPhasedOnly, firstIndex, lastIndex,
+                            type, subtype, timestamp, withMessage, phasedOnly, nonPhasedOnly, continuation, firstIndex, lastIndex,
                             includeExpiredPrunable, executedOnly)) {
                 while (iterator.hasNext()) {
-                    Transaction transaction = iterator.next();
-                    transactions.add(JSONData.transaction(transaction, includePhasingResult));
+                    lastTransaction = iterator.next();
+                    transactions.add(JSONData.transaction(lastTransaction, includePhasingResult));
                 }
             }
         } else {
             try (DbIterator<? extends Transaction> iterator =
                     Nxt.getBlockchain().getTransactions((FxtChain)chain, accountId, numberOfConfirmations,
-                            type, subtype, timestamp, firstIndex, lastIndex)) {
+                            type, subtype, timestamp, continuation, firstIndex, lastIndex)) {
                 while (iterator.hasNext()) {
-                    Transaction transaction = iterator.next();
-                    transactions.add(JSONData.transaction(transaction));
+                    lastTransaction = iterator.next();
+                    transactions.add(JSONData.transaction(lastTransaction));
                 }
             }
         }
 
         JSONObject response = new JSONObject();
         response.put("transactions", transactions);
+        if (lastTransaction != null && lastIndex < Integer.MAX_VALUE && transactions.size() == lastIndex - firstIndex + 1) {
+            response.put("continuation", new ContinuationToken(lastTransaction.getHeight(), lastTransaction.getId()).toString());
+        }
         return response;
     }
 
@@ -19,6 +19,7 @@ package nxt.http;
 import nxt.Nxt;
 import nxt.NxtException;
 import nxt.blockchain.Block;
+import nxt.db.ContinuationToken;
 import nxt.db.DbIterator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -31,7 +32,7 @@ public final class GetBlocks extends APIServlet.APIRequestHandler {
     static final GetBlocks instance = new GetBlocks();
 
     private GetBlocks() {
-        super(new APITag[] {APITag.BLOCKS}, "firstIndex", "lastIndex", "timestamp", "includeTransactions", "includeExecutedPhased");
+        super(new APITag[] {APITag.BLOCKS}, "firstIndex", "lastIndex", "continuation", "timestamp", "includeTransactions", "includeExecutedPhased");
     }
 
     @Override
@@ -39,23 +40,29 @@ public final class GetBlocks extends APIServlet.APIRequestHandler {
 
         int firstIndex = ParameterParser.getFirstIndex(req);
         int lastIndex = ParameterParser.getLastIndex(req);
+        ContinuationToken continuation = ParameterParser.getContinuation(req, 1);
         final int timestamp = ParameterParser.getTimestamp(req);
         boolean includeTransactions = "true".equalsIgnoreCase(req.getParameter("includeTransactions"));
         boolean includeExecutedPhased = "true".equalsIgnoreCase(req.getParameter("includeExecutedPhased"));
 
         JSONArray blocks = new JSONArray();
-        try (DbIterator<? extends Block> iterator = Nxt.getBlockchain().getBlocks(firstIndex, lastIndex)) {
+        Block lastBlock = null;
+        try (DbIterator<? extends Block> iterator = Nxt.getBlockchain().getBlocks(continuation, firstIndex, lastIndex)) {
             while (iterator.hasNext()) {
                 Block block = iterator.next();
                 if (block.getTimestamp() < timestamp) {
                     break;
                 }
                 blocks.add(JSONData.block(block, includeTransactions, includeExecutedPhased));
+                lastBlock = block;
             }
         }
 
         JSONObject response = new JSONObject();
         response.put("blocks", blocks);
+        if (lastBlock != null && lastIndex < Integer.MAX_VALUE && blocks.size() == lastIndex - firstIndex + 1) {
+            response.put("continuation", new ContinuationToken(lastBlock.getHeight()).toString());
+        }
 
         return response;
     }
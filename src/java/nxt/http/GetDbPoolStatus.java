@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+
+package nxt.http;
+
+import nxt.db.ConnectionPool;
+import nxt.db.DbIteratorTracker;
+import nxt.dbschema.Db;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * <p>The GetDbPoolStatus API returns the state of the database connection pool.</p>
+ *
+ * <p>Response parameters:</p>
+ * <ul>
+ * <li>maxConnections       - Pool size</li>
+ * <li>reservedConnections  - Connections reserved for database transactions</li>
+ * <li>activeConnections    - Connections currently in use</li>
+ * <li>peakConnections      - Maximum connections in use since the server was started</li>
+ * <li>waitingThreads       - Threads currently waiting for a connection</li>
+ * <li>timeouts             - Connection requests which timed out</li>
+ * <li>waitTimes            - Timing object for the autocommit connections used by API and peer requests</li>
+ * <li>reservedWaitTimes    - Timing object for the database transactions</li>
+ * <li>statementCacheHits   - Prepared statements reused from the statement cache</li>
+ * <li>statementCacheMisses - Prepared statements created</li>
+ * <li>openIterators        - Array of open database iterators, oldest first, with the age in milliseconds,
+ *                            the creating thread and the creation stack trace if enabled</li>
+ * <li>leakedIterators      - Iterators garbage collected without being closed</li>
+ * </ul>
+ *
+ * <p>The timing objects are described by the GetBlockProfile API.</p>
+ */
+public final class GetDbPoolStatus extends APIServlet.APIRequestHandler {
+
+    static final GetDbPoolStatus instance = new GetDbPoolStatus();
+
+    private GetDbPoolStatus() {
+        super(new APITag[] {APITag.DEBUG});
+    }
+
+    @Override
+    protected JSONStreamAware processRequest(HttpServletRequest req) {
+        JSONObject response = new JSONObject();
+        ConnectionPool pool = Db.db.getConnectionPool();
+        response.put("maxConnections", pool.getMaxConnections());
+        response.put("reservedConnections", pool.getReservedConnections());
+        response.put("activeConnections", pool.getActiveConnections());
+        response.put("peakConnections", pool.getPeakConnections());
+        response.put("waitingThreads", pool.getWaitingThreads());
+        response.put("timeouts", pool.getTimeouts());
+        response.put("waitTimes", JSONData.histogram("autocommit", pool.getWaitTimes(false)));
+        response.put("reservedWaitTimes", JSONData.histogram("transaction", pool.getWaitTimes(true)));
+        response.put("statementCacheHits", Db.db.getStatementCacheHits());
+        response.put("statementCacheMisses", Db.db.getStatementCacheMisses());
+        long now = System.currentTimeMillis();
+        JSONArray iteratorsJSON = new JSONArray();
+        DbIteratorTracker.getOpenIterators().forEach(iterator -> {
+            JSONObject json = new JSONObject();
+            json.put("ageMillis", now - iterator.getOpenTime());
+            json.put("thread", iterator.getThreadName());
+            if (iterator.getStackTrace() != null) {
+                JSONArray stackTraceJSON = new JSONArray();
+                iterator.getStackTrace().forEach(element -> stackTraceJSON.add(element.toString()));
+                json.put("stackTrace", stackTraceJSON);
+            }
+            iteratorsJSON.add(json);
+        });
+        response.put("openIterators", iteratorsJSON);
+        response.put("leakedIterators", DbIteratorTracker.getLeakCount());
+        return response;
+    }
+
+    @Override
+    protected boolean requirePassword() {
+        return true;
+    }
+
+    @Override
+    protected boolean allowRequiredBlockParameters() {
+        return false;
+    }
+
+    @Override
+    protected boolean requireBlockchain() {
+        return false;
+    }
+
+    @Override
+    protected boolean isChainSpecific() {
+        return false;
+    }
+
+}
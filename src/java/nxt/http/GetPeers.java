@@ -25,6 +25,8 @@ import org.json.simple.JSONStreamAware;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 
 public final class GetPeers extends APIServlet.APIRequestHandler {
 
@@ -62,37 +64,26 @@ public final class GetPeers extends APIServlet.APIRequestHandler {
             }
         }
 
-        Collection<Peer> peers;
+        Set<Peer.State> states;
         if (active) {
-            peers = Peers.getPeers(p -> p.getState() != Peer.State.NON_CONNECTED);
+            states = EnumSet.of(Peer.State.CONNECTED, Peer.State.DISCONNECTED);
         } else if (state != null) {
-            peers = Peers.getPeers(p -> p.getState() == state);
+            states = EnumSet.of(state);
         } else {
+            states = null;
+        }
+        Collection<Peer> peers;
+        if (states == null && serviceCodes == 0) {
             peers = Peers.getAllPeers();
+        } else {
+            peers = Peers.getPeers(states, serviceCodes, null, Integer.MAX_VALUE);
         }
 
         JSONArray peersJSON = new JSONArray();
-        if (serviceCodes != 0) {
-            final long services = serviceCodes;
-            if (includePeerInfo) {
-                peers.forEach(peer -> {
-                    if (peer.providesServices(services)) {
-                        peersJSON.add(JSONData.peer(peer));
-                    }
-                });
-            } else {
-                peers.forEach(peer -> {
-                    if (peer.providesServices(services)) {
-                        peersJSON.add(peer.getHost());
-                    }
-                });
-            }
+        if (includePeerInfo) {
+            peers.forEach(peer -> peersJSON.add(JSONData.peer(peer)));
         } else {
-            if (includePeerInfo) {
-                peers.forEach(peer -> peersJSON.add(JSONData.peer(peer)));
-            } else {
-                peers.forEach(peer -> peersJSON.add(peer.getHost()));
-            }
+            peers.forEach(peer -> peersJSON.add(peer.getHost()));
         }
 
         JSONObject response = new JSONObject();
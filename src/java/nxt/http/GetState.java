@@ -96,6 +96,9 @@ public final class GetState extends APIServlet.APIRequestHandler {
         response.put("isOffline", Constants.isOffline);
         response.put("needsAdminPassword", !API.disableAdminPassword);
         response.put("customLoginWarning", Constants.customLoginWarning);
+        if (APIProxy.enableAPIProxy && APIProxyCache.isEnabled()) {
+            response.put("apiProxyCache", APIProxyCache.getStatistics());
+        }
         InetAddress externalAddress = UPnP.getExternalAddress();
         if (externalAddress != null) {
             response.put("upnpExternalAddress", externalAddress.getHostAddress());
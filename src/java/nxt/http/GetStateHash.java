@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.http;
+
+import nxt.Nxt;
+import nxt.blockchain.BlockStateHash;
+import nxt.util.Convert;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static nxt.http.JSONResponses.FEATURE_NOT_AVAILABLE;
+import static nxt.http.JSONResponses.HEIGHT_NOT_AVAILABLE;
+
+/**
+ * <p>The GetStateHash API returns the state hash of the versioned derived tables after a block.
+ * The state hash is computed only if nxt.enableStateHash is set.</p>
+ *
+ * <p>Request parameters:</p>
+ * <ul>
+ * <li>height        - Block height, defaults to the current blockchain height</li>
+ * <li>includeTables - Include the table hashes, which are available only at heights
+ * not below the minimum rollback height</li>
+ * </ul>
+ *
+ * <p>Response parameters:</p>
+ * <ul>
+ * <li>height    - Block height</li>
+ * <li>block     - Block identifier</li>
+ * <li>stateHash - State hash</li>
+ * <li>tables    - Table hash for each table name</li>
+ * </ul>
+ */
+public final class GetStateHash extends APIServlet.APIRequestHandler {
+
+    static final GetStateHash instance = new GetStateHash();
+
+    private GetStateHash() {
+        super(new APITag[] {APITag.BLOCKS}, "height", "includeTables");
+    }
+
+    @Override
+    protected JSONStreamAware processRequest(HttpServletRequest req) throws ParameterException {
+        if (!BlockStateHash.isEnabled()) {
+            return FEATURE_NOT_AVAILABLE;
+        }
+        int height = ParameterParser.getHeight(req);
+        if (height < 0) {
+            height = Nxt.getBlockchain().getHeight();
+        }
+        boolean includeTables = "true".equalsIgnoreCase(req.getParameter("includeTables"));
+        if (includeTables && height < Nxt.getBlockchainProcessor().getMinRollbackHeight()) {
+            return HEIGHT_NOT_AVAILABLE;
+        }
+        byte[] stateHash = BlockStateHash.getStateHash(height);
+        if (stateHash == null) {
+            return HEIGHT_NOT_AVAILABLE;
+        }
+        JSONObject response = new JSONObject();
+        response.put("height", height);
+        response.put("block", Long.toUnsignedString(Nxt.getBlockchain().getBlockIdAtHeight(height)));
+        response.put("stateHash", Convert.toHexString(stateHash));
+        if (includeTables) {
+            JSONObject tablesJSON = new JSONObject();
+            BlockStateHash.getTableHashes(height).forEach((schemaTable, hash) -> tablesJSON.put(schemaTable, Convert.toHexString(hash)));
+            response.put("tables", tablesJSON);
+        }
+        return response;
+    }
+
+    @Override
+    protected boolean isChainSpecific() {
+        return false;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.http;
+
+import nxt.blockchain.TransactionFilter;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * <p>The GetTransactionFilters API returns the state of the Bloom filters checked before looking up
+ * a transaction in the database.</p>
+ *
+ * <p>Response parameters:</p>
+ * <ul>
+ * <li>filters - Array of chain filters</li>
+ * </ul>
+ *
+ * <p>Chain filter object:</p>
+ * <ul>
+ * <li>chain                     - Chain identifier</li>
+ * <li>enabled                   - TRUE if the filter is built</li>
+ * <li>capacity                  - Number of transactions before the filter is rebuilt</li>
+ * <li>count                     - Number of transactions added to the filter</li>
+ * <li>bits                      - Filter size in bits</li>
+ * <li>expectedFalsePositiveRate - False positive rate expected for the current count</li>
+ * <li>queries                   - Transaction lookups checked against the filter</li>
+ * <li>savedQueries              - Lookups answered without a database query</li>
+ * <li>falsePositives            - Lookups passed by the filter for transactions not in the database</li>
+ * </ul>
+ */
+public final class GetTransactionFilters extends APIServlet.APIRequestHandler {
+
+    static final GetTransactionFilters instance = new GetTransactionFilters();
+
+    private GetTransactionFilters() {
+        super(new APITag[] {APITag.DEBUG});
+    }
+
+    @Override
+    protected JSONStreamAware processRequest(HttpServletRequest req) {
+        JSONArray filtersJSON = new JSONArray();
+        TransactionFilter.getAll().forEach(filter -> {
+            JSONObject json = new JSONObject();
+            json.put("chain", filter.getChain().getId());
+            json.put("enabled", filter.isEnabled());
+            json.put("capacity", filter.getCapacity());
+            json.put("count", filter.getCount());
+            json.put("bits", filter.getBitCount());
+            json.put("expectedFalsePositiveRate", filter.getExpectedFalsePositiveRate());
+            json.put("queries", filter.getQueries());
+            json.put("savedQueries", filter.getSavedQueries());
+            json.put("falsePositives", filter.getFalsePositives());
+            filtersJSON.add(json);
+        });
+        JSONObject response = new JSONObject();
+        response.put("filters", filtersJSON);
+        return response;
+    }
+
+    @Override
+    protected boolean requirePassword() {
+        return true;
+    }
+
+    @Override
+    protected boolean allowRequiredBlockParameters() {
+        return false;
+    }
+
+    @Override
+    protected boolean requireBlockchain() {
+        return false;
+    }
+
+    @Override
+    protected boolean isChainSpecific() {
+        return false;
+    }
+
+}
@@ -73,6 +73,7 @@ import nxt.shuffling.ShufflingParticipantHome;
 import nxt.taggeddata.TaggedDataHome;
 import nxt.util.Convert;
 import nxt.util.Filter;
+import nxt.util.RollingHistogram;
 import nxt.voting.PhasingPollHome;
 import nxt.voting.PhasingVoteHome;
 import nxt.voting.PollHome;
@@ -589,6 +590,8 @@ public final class JSONData {
         json.put("shareAddress", peer.shareAddress());
         json.put("downloadedVolume", peer.getDownloadedVolume());
         json.put("uploadedVolume", peer.getUploadedVolume());
+        json.put("responseTime", peer.getResponseTime());
+        json.put("downloadRate", peer.getDownloadRate());
         json.put("application", peer.getApplication());
         json.put("version", peer.getVersion());
         json.put("platform", peer.getPlatform());
@@ -1241,6 +1244,20 @@ public final class JSONData {
         return json;
     }
 
+    static JSONObject histogram(String name, RollingHistogram.Snapshot snapshot) {
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        json.put("count", snapshot.getCount());
+        json.put("totalCount", snapshot.getTotalCount());
+        json.put("totalMillis", snapshot.getTotalValue() / 1000000);
+        json.put("meanMicros", snapshot.getMean() / 1000);
+        json.put("p50Micros", snapshot.getPercentile(50) / 1000);
+        json.put("p90Micros", snapshot.getPercentile(90) / 1000);
+        json.put("p99Micros", snapshot.getPercentile(99) / 1000);
+        json.put("maxMicros", snapshot.getMax() / 1000);
+        return json;
+    }
+
     static JSONObject bundler(Bundler bundler) {
         JSONObject json = new JSONObject();
         putAccount(json, "bundler", bundler.getAccountId());
@@ -30,6 +30,7 @@ import nxt.blockchain.ChildChain;
 import nxt.blockchain.Transaction;
 import nxt.crypto.Crypto;
 import nxt.crypto.EncryptedData;
+import nxt.db.ContinuationToken;
 import nxt.dgs.DigitalGoodsHome;
 import nxt.messaging.EncryptToSelfMessageAppendix;
 import nxt.messaging.EncryptedMessageAppendix;
@@ -577,6 +578,26 @@ public final class ParameterParser {
         }
     }
 
+    /**
+     * Return the continuation token of a paged request
+     *
+     * @param   req                 HTTP request
+     * @param   size                Number of values in the token
+     * @return                      Continuation token or null if not specified
+     * @throws  ParameterException  Invalid continuation token
+     */
+    public static ContinuationToken getContinuation(HttpServletRequest req, int size) throws ParameterException {
+        String continuation = Convert.emptyToNull(req.getParameter("continuation"));
+        if (continuation == null) {
+            return null;
+        }
+        try {
+            return ContinuationToken.parse(continuation, size);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(incorrect("continuation"));
+        }
+    }
+
     public static int getLastIndex(HttpServletRequest req) {
         int lastIndex = Integer.MAX_VALUE;
         try {
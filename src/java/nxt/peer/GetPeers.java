@@ -30,8 +30,7 @@ final class GetPeers {
      * @return                          Response message
      */
     static NetworkMessage processRequest(PeerImpl peer, NetworkMessage.GetPeersMessage request) {
-        List<Peer> peerList = Peers.getPeers(p -> !p.isBlacklisted()
-                        && p.getState() == Peer.State.CONNECTED
+        List<Peer> peerList = Peers.getPeers(Peer.State.CONNECTED, p -> !p.isBlacklisted()
                         && p.getAnnouncedAddress() != null
                         && p.shareAddress()
                         && !p.getAnnouncedAddress().equals(peer.getAnnouncedAddress()),
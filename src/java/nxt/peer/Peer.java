@@ -19,6 +19,7 @@ package nxt.peer;
 import nxt.http.APIEnum;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Peer network node
@@ -93,6 +94,27 @@ public interface Peer {
      */
     long getUploadedVolume();
 
+    /**
+     * Get the average response time
+     *
+     * @return                          Response time in milliseconds or 0 if there are no responses yet
+     */
+    long getResponseTime();
+
+    /**
+     * Get the average response time of the GetNextBlocks requests
+     *
+     * @return                          Response time in milliseconds or 0 if there are no responses yet
+     */
+    long getBlocksResponseTime();
+
+    /**
+     * Get the average download rate of the GetNextBlocks responses
+     *
+     * @return                          Download rate in bytes per second or 0 if there are no responses yet
+     */
+    long getDownloadRate();
+
     /**
      * Get the application name
      *
@@ -255,4 +277,12 @@ public interface Peer {
      * @return                          Response message or null if there is no response
      */
     NetworkMessage sendRequest(NetworkMessage message);
+
+    /**
+     * Send a request without waiting for the response
+     *
+     * @param   message                 Request message
+     * @return                          Future completed with the response message or with null if there is no response
+     */
+    CompletableFuture<NetworkMessage> sendRequestAsync(NetworkMessage message);
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.peer;
+
+import nxt.dbschema.Db;
+import nxt.util.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Address book of the known peers
+ *
+ * The known peers are indexed by connection state and by provided service, so that peer selection
+ * only examines the peers in the requested state or providing the requested service.
+ *
+ * The peer database is updated using a write-behind queue.  Peer changes, including the connection
+ * history and blacklisting, only mark the peer as changed, and the changed peers are periodically
+ * written to the database in a single transaction.  The response statistics are written along with
+ * the other changes.  The saved metadata is restored when the peers are loaded after a restart.
+ */
+final class PeerAddressBook {
+
+    /** Peers not updated within this time are removed from the peer database */
+    private static final int MAX_PEER_AGE = 7*24*3600;
+
+    /** Peer database entries are rewritten when the last update time changes by more than this */
+    private static final int LAST_UPDATED_SAVE_INTERVAL = 24*3600;
+
+    /** Indexed peers */
+    private static final Set<PeerImpl> indexedPeers = ConcurrentHashMap.newKeySet();
+
+    /** Peers by state */
+    private static final Map<Peer.State, Set<PeerImpl>> stateIndex = new EnumMap<>(Peer.State.class);
+
+    /** Peers by service */
+    private static final Map<Peer.Service, Set<PeerImpl>> serviceIndex = new EnumMap<>(Peer.Service.class);
+
+    static {
+        for (Peer.State state : Peer.State.values()) {
+            stateIndex.put(state, ConcurrentHashMap.newKeySet());
+        }
+        for (Peer.Service service : Peer.Service.values()) {
+            serviceIndex.put(service, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /** Peers changed since the peer database was updated */
+    private static final Set<PeerImpl> changedPeers = ConcurrentHashMap.newKeySet();
+
+    /** Announced addresses no longer used since the peer database was updated */
+    private static final Set<String> removedAddresses = ConcurrentHashMap.newKeySet();
+
+    /** Peer database entries by announced address */
+    private static final Map<String, PeerDb.Entry> savedEntries = new ConcurrentHashMap<>();
+
+    /**
+     * Set the entries stored in the peer database
+     *
+     * @param   entries                 Peer database entries
+     */
+    static void setSavedEntries(List<PeerDb.Entry> entries) {
+        entries.forEach(entry -> savedEntries.put(entry.getAddress(), entry));
+    }
+
+    /**
+     * Add a peer to the address book
+     *
+     * @param   peer                    Peer
+     */
+    static void addPeer(PeerImpl peer) {
+        synchronized (peer) {
+            if (Peers.getPeer(peer.getHost()) != peer || !indexedPeers.add(peer)) {
+                return;
+            }
+            stateIndex.get(peer.getState()).add(peer);
+            long services = peer.getServices();
+            for (Peer.Service service : Peer.Service.values()) {
+                if ((services & service.getCode()) != 0) {
+                    serviceIndex.get(service).add(peer);
+                }
+            }
+        }
+        changedPeers.add(peer);
+    }
+
+    /**
+     * Remove a peer from the address book
+     *
+     * @param   peer                    Peer
+     */
+    static void removePeer(PeerImpl peer) {
+        synchronized (peer) {
+            if (!indexedPeers.remove(peer)) {
+                return;
+            }
+            stateIndex.get(peer.getState()).remove(peer);
+            serviceIndex.values().forEach(peers -> peers.remove(peer));
+        }
+        changedPeers.remove(peer);
+        if (peer.getAnnouncedAddress() != null) {
+            removedAddresses.add(peer.getAnnouncedAddress());
+        }
+    }
+
+    /**
+     * Update the state index.  Must be called while holding the peer lock.
+     *
+     * @param   peer                    Peer
+     * @param   oldState                Previous state
+     * @param   newState                New state
+     */
+    static void stateChanged(PeerImpl peer, Peer.State oldState, Peer.State newState) {
+        if (indexedPeers.contains(peer)) {
+            stateIndex.get(oldState).remove(peer);
+            stateIndex.get(newState).add(peer);
+        }
+    }
+
+    /**
+     * Update the service index.  Must be called while holding the peer lock.
+     *
+     * @param   peer                    Peer
+     * @param   oldServices             Previous services
+     * @param   newServices             New services
+     */
+    static void servicesChanged(PeerImpl peer, long oldServices, long newServices) {
+        if (oldServices == newServices || !indexedPeers.contains(peer)) {
+            return;
+        }
+        for (Peer.Service service : Peer.Service.values()) {
+            if ((newServices & service.getCode()) != 0) {
+                serviceIndex.get(service).add(peer);
+            } else {
+                serviceIndex.get(service).remove(peer);
+            }
+        }
+        changedPeers.add(peer);
+    }
+
+    /**
+     * Mark a peer as changed
+     *
+     * @param   peer                    Peer
+     */
+    static void peerChanged(PeerImpl peer) {
+        if (indexedPeers.contains(peer)) {
+            changedPeers.add(peer);
+        }
+    }
+
+    /**
+     * Mark a peer as changed after its announced address has changed
+     *
+     * @param   peer                    Peer
+     * @param   oldAddress              Previous announced address or null
+     */
+    static void announcedAddressChanged(PeerImpl peer, String oldAddress) {
+        if (oldAddress != null) {
+            removedAddresses.add(oldAddress);
+        }
+        peerChanged(peer);
+    }
+
+    /**
+     * Get a list of peers in the specified states and providing the specified services
+     *
+     * @param   states                  Peer states or null for all states
+     * @param   services                Required services as a bit map or 0 for any services
+     * @param   filter                  Filter or null if no filter supplied
+     * @param   limit                   Maximum number of peers to return
+     * @return                          List of peers
+     */
+    static List<Peer> getPeers(Set<Peer.State> states, long services, Filter<Peer> filter, int limit) {
+        List<Collection<PeerImpl>> candidates = new ArrayList<>();
+        int candidateCount = Integer.MAX_VALUE;
+        if (states != null) {
+            candidateCount = 0;
+            for (Peer.State state : states) {
+                Set<PeerImpl> peers = stateIndex.get(state);
+                candidates.add(peers);
+                candidateCount += peers.size();
+            }
+        }
+        for (Peer.Service service : Peer.Service.values()) {
+            if ((services & service.getCode()) != 0) {
+                Set<PeerImpl> peers = serviceIndex.get(service);
+                if (peers.size() < candidateCount) {
+                    candidates.clear();
+                    candidates.add(peers);
+                    candidateCount = peers.size();
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates.add(indexedPeers);
+        }
+        // A peer changing state can be seen in two state sets
+        Set<Peer> added = candidates.size() > 1 ? new HashSet<>() : null;
+        List<Peer> result = new ArrayList<>();
+        for (Collection<PeerImpl> peers : candidates) {
+            for (PeerImpl peer : peers) {
+                if ((states == null || states.contains(peer.getState()))
+                        && (added == null || added.add(peer))
+                        && peer.providesServices(services)
+                        && (filter == null || filter.ok(peer))) {
+                    result.add(peer);
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Update the peer database
+     *
+     * Only the entries for the peers changed since the last update and the entries which may have
+     * expired are examined.  A peer is saved if it shares its announced address, is not blacklisted
+     * except for a temporary blacklisting, and has been updated within the last week.  The saved entry
+     * is rewritten when the peer metadata changes or the last update time has changed by more than a day.
+     *
+     * @param   now                     Current epoch time
+     */
+    static void updatePeerDb(int now) {
+        Set<String> addresses = new HashSet<>();
+        List<PeerImpl> drainedPeers = new ArrayList<>();
+        Iterator<PeerImpl> changedIterator = changedPeers.iterator();
+        while (changedIterator.hasNext()) {
+            PeerImpl peer = changedIterator.next();
+            changedIterator.remove();
+            drainedPeers.add(peer);
+            if (peer.getAnnouncedAddress() != null) {
+                addresses.add(peer.getAnnouncedAddress());
+            }
+        }
+        List<String> drainedAddresses = new ArrayList<>();
+        Iterator<String> removedIterator = removedAddresses.iterator();
+        while (removedIterator.hasNext()) {
+            String address = removedIterator.next();
+            removedIterator.remove();
+            drainedAddresses.add(address);
+            addresses.add(address);
+        }
+        savedEntries.values().forEach(entry -> {
+            if (now - entry.getLastUpdated() >= MAX_PEER_AGE) {
+                addresses.add(entry.getAddress());
+            }
+        });
+        //
+        // Build the delete and update lists (note that there can be multiple peers
+        // with the same announced address)
+        //
+        List<PeerDb.Entry> toDelete = new ArrayList<>();
+        Map<String, PeerDb.Entry> toUpdate = new HashMap<>();
+        for (String address : addresses) {
+            PeerDb.Entry currentEntry = getCurrentEntry(address, now);
+            PeerDb.Entry savedEntry = savedEntries.get(address);
+            if (currentEntry == null) {
+                if (savedEntry != null) {
+                    toDelete.add(savedEntry);
+                }
+            } else if (savedEntry == null || currentEntry.isMetadataChanged(savedEntry)
+                    || currentEntry.getLastUpdated() - savedEntry.getLastUpdated() > LAST_UPDATED_SAVE_INTERVAL) {
+                toUpdate.put(address, currentEntry);
+            }
+        }
+        if (toDelete.isEmpty() && toUpdate.isEmpty()) {
+            return;
+        }
+        try {
+            Db.db.beginTransaction();
+            PeerDb.deletePeers(toDelete);
+            PeerDb.updatePeers(toUpdate.values());
+            Db.db.commitTransaction();
+        } catch (Exception e) {
+            Db.db.rollbackTransaction();
+            // keep the pending changes for the next update
+            changedPeers.addAll(drainedPeers);
+            removedAddresses.addAll(drainedAddresses);
+            throw e;
+        } finally {
+            Db.db.endTransaction();
+        }
+        toDelete.forEach(entry -> savedEntries.remove(entry.getAddress()));
+        savedEntries.putAll(toUpdate);
+    }
+
+    /**
+     * Return the database entry for a known peer
+     *
+     * @param   address                 Announced address
+     * @param   now                     Current epoch time
+     * @return                          Peer database entry or null if the peer should not be saved
+     */
+    private static PeerDb.Entry getCurrentEntry(String address, int now) {
+        PeerImpl peer = Peers.getPeerByAnnouncedAddress(address);
+        if (peer == null || !indexedPeers.contains(peer)
+                || !address.equals(peer.getAnnouncedAddress())
+                || !peer.shareAddress()
+                || (peer.isBlacklisted() && peer.getBlacklistingTime() == 0)
+                || now - peer.getLastUpdated() >= MAX_PEER_AGE) {
+            return null;
+        }
+        return new PeerDb.Entry(address, peer);
+    }
+
+    private PeerAddressBook() {}
+}
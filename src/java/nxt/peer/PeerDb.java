@@ -32,11 +32,47 @@ final class PeerDb {
         private final String address;
         private final long services;
         private final int lastUpdated;
+        private final int lastConnected;
+        private final int connectFailures;
+        private final long responseTime;
+        private final long responseSize;
+        private final int blacklistingTime;
+        private final String blacklistingCause;
 
         Entry(String address, long services, int lastUpdated) {
             this.address = address;
             this.services = services;
             this.lastUpdated = lastUpdated;
+            this.lastConnected = 0;
+            this.connectFailures = 0;
+            this.responseTime = 0;
+            this.responseSize = 0;
+            this.blacklistingTime = 0;
+            this.blacklistingCause = null;
+        }
+
+        Entry(String address, PeerImpl peer) {
+            this.address = address;
+            this.services = peer.getServices();
+            this.lastUpdated = peer.getLastUpdated();
+            this.lastConnected = peer.getLastConnected();
+            this.connectFailures = peer.getConnectFailures();
+            this.responseTime = peer.getBlocksResponseTime();
+            this.responseSize = peer.getBlocksResponseSize();
+            this.blacklistingTime = peer.getBlacklistingTime();
+            this.blacklistingCause = blacklistingTime > 0 ? peer.getBlacklistingCause() : null;
+        }
+
+        private Entry(ResultSet rs) throws SQLException {
+            this.address = rs.getString("address");
+            this.services = rs.getLong("services");
+            this.lastUpdated = rs.getInt("last_updated");
+            this.lastConnected = rs.getInt("last_connected");
+            this.connectFailures = rs.getInt("connect_failures");
+            this.responseTime = rs.getLong("response_time");
+            this.responseSize = rs.getLong("response_size");
+            this.blacklistingTime = rs.getInt("blacklisting_time");
+            this.blacklistingCause = rs.getString("blacklisting_cause");
         }
 
         public String getAddress() {
@@ -51,6 +87,43 @@ final class PeerDb {
             return lastUpdated;
         }
 
+        public int getLastConnected() {
+            return lastConnected;
+        }
+
+        public int getConnectFailures() {
+            return connectFailures;
+        }
+
+        public long getResponseTime() {
+            return responseTime;
+        }
+
+        public long getResponseSize() {
+            return responseSize;
+        }
+
+        public int getBlacklistingTime() {
+            return blacklistingTime;
+        }
+
+        public String getBlacklistingCause() {
+            return blacklistingCause;
+        }
+
+        /**
+         * Check if the peer metadata differs from another entry, ignoring the last update time
+         * and the response statistics.  The response statistics change with every response and
+         * are saved along with the other changes.
+         *
+         * @param   other               Other entry
+         * @return                      TRUE if the metadata differs
+         */
+        boolean isMetadataChanged(Entry other) {
+            return services != other.services || lastConnected != other.lastConnected
+                    || connectFailures != other.connectFailures || blacklistingTime != other.blacklistingTime;
+        }
+
         @Override
         public int hashCode() {
             return address.hashCode();
@@ -70,7 +143,7 @@ final class PeerDb {
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM peer");
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                peers.add(new Entry(rs.getString("address"), rs.getLong("services"), rs.getInt("last_updated")));
+                peers.add(new Entry(rs));
             }
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
@@ -83,8 +156,9 @@ final class PeerDb {
              PreparedStatement pstmt = con.prepareStatement("DELETE FROM peer WHERE address = ?")) {
             for (Entry peer : peers) {
                 pstmt.setString(1, peer.getAddress());
-                pstmt.executeUpdate();
+                pstmt.addBatch();
             }
+            pstmt.executeBatch();
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
@@ -93,26 +167,23 @@ final class PeerDb {
     static void updatePeers(Collection<Entry> peers) {
         try (Connection con = peerTable.getConnection();
                 PreparedStatement pstmt = con.prepareStatement("MERGE INTO peer "
-                        + "(address, services, last_updated) KEY(address) VALUES(?, ?, ?)")) {
+                        + "(address, services, last_updated, last_connected, connect_failures, response_time, "
+                        + "response_size, blacklisting_time, blacklisting_cause) KEY(address) "
+                        + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
             for (Entry peer : peers) {
-                pstmt.setString(1, peer.getAddress());
-                pstmt.setLong(2, peer.getServices());
-                pstmt.setInt(3, peer.getLastUpdated());
-                pstmt.executeUpdate();
+                int i = 0;
+                pstmt.setString(++i, peer.getAddress());
+                pstmt.setLong(++i, peer.getServices());
+                pstmt.setInt(++i, peer.getLastUpdated());
+                pstmt.setInt(++i, peer.getLastConnected());
+                pstmt.setInt(++i, peer.getConnectFailures());
+                pstmt.setLong(++i, peer.getResponseTime());
+                pstmt.setLong(++i, peer.getResponseSize());
+                pstmt.setInt(++i, peer.getBlacklistingTime());
+                pstmt.setString(++i, peer.getBlacklistingCause());
+                pstmt.addBatch();
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e.toString(), e);
-        }
-    }
-
-    static void updatePeer(PeerImpl peer) {
-        try (Connection con = peerTable.getConnection();
-                PreparedStatement pstmt = con.prepareStatement("MERGE INTO peer "
-                        + "(address, services, last_updated) KEY(address) VALUES(?, ?, ?)")) {
-            pstmt.setString(1, peer.getAnnouncedAddress());
-            pstmt.setLong(2, peer.getServices());
-            pstmt.setInt(3, peer.getLastUpdated());
-            pstmt.executeUpdate();
+            pstmt.executeBatch();
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
@@ -35,18 +35,35 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 final class PeerImpl implements Peer {
 
+    /** Request timeout timer shared by all peers */
+    private static final ScheduledThreadPoolExecutor requestTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "PeerRequestTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static {
+        requestTimer.setRemoveOnCancelPolicy(true);
+    }
+
     /** Host address */
     private final String host;
 
@@ -98,6 +115,12 @@ final class PeerImpl implements Peer {
     /** Time of last connect attempt */
     private volatile int lastConnectAttempt = Integer.MIN_VALUE;
 
+    /** Time of last successful outbound connection */
+    private volatile int lastConnected;
+
+    /** Number of failed outbound connections since the last successful connection */
+    private final AtomicInteger connectFailures = new AtomicInteger();
+
     /** Peer services */
     private volatile long services;
 
@@ -116,6 +139,18 @@ final class PeerImpl implements Peer {
     /** Peer uploaded volume */
     private volatile long uploadedVolume;
 
+    /** Moving average of the response time in milliseconds */
+    private volatile long averageResponseTime;
+
+    /** Moving average of the response size in bytes */
+    private volatile long averageResponseSize;
+
+    /** Moving average of the GetNextBlocks response time in milliseconds */
+    private volatile long blocksResponseTime;
+
+    /** Moving average of the GetNextBlocks response size in bytes */
+    private volatile long blocksResponseSize;
+
     /** Connection address */
     private InetSocketAddress connectionAddress;
 
@@ -149,8 +184,8 @@ final class PeerImpl implements Peer {
     /** Output buffer */
     private ByteBuffer outputBuffer;
 
-    /** Response list */
-    private final ConcurrentHashMap<Long, ResponseEntry> responseMap = new ConcurrentHashMap<>();
+    /** Pending requests */
+    private final ConcurrentHashMap<Long, CompletableFuture<NetworkMessage>> responseMap = new ConcurrentHashMap<>();
 
     /** Connection lock */
     private final ReentrantLock connectLock = new ReentrantLock();
@@ -205,6 +240,7 @@ final class PeerImpl implements Peer {
      */
     private synchronized void setState(State state) {
         if (this.state != state) {
+            PeerAddressBook.stateChanged(this, this.state, state);
             if (this.state == State.NON_CONNECTED) {
                 this.state = state;
                 Peers.notifyListeners(this, Peers.Event.ADD_ACTIVE_PEER);
@@ -290,6 +326,77 @@ final class PeerImpl implements Peer {
         downloadedVolume += volume;
     }
 
+    /**
+     * Get the average response time
+     *
+     * @return                          Response time in milliseconds or 0 if there are no responses yet
+     */
+    @Override
+    public long getResponseTime() {
+        return averageResponseTime;
+    }
+
+    /**
+     * Get the average response time of the GetNextBlocks requests
+     *
+     * @return                          Response time in milliseconds or 0 if there are no responses yet
+     */
+    @Override
+    public long getBlocksResponseTime() {
+        return blocksResponseTime;
+    }
+
+    /**
+     * Get the average download rate of the GetNextBlocks responses
+     *
+     * @return                          Download rate in bytes per second or 0 if there are no responses yet
+     */
+    @Override
+    public synchronized long getDownloadRate() {
+        return blocksResponseTime == 0 ? 0 : blocksResponseSize * 1000 / blocksResponseTime;
+    }
+
+    /**
+     * Update the response statistics with a new response
+     *
+     * The averages are exponential moving averages with a smoothing factor of 1/8, so
+     * the download rate is weighted by the size of the responses.  The GetNextBlocks
+     * responses are also averaged separately, since the download rate of a peer is
+     * determined by the block downloads and not by the small responses to other requests.
+     *
+     * @param   message                 Request message
+     * @param   responseTime            Response time in milliseconds
+     * @param   responseSize            Response size in bytes
+     */
+    private synchronized void updateResponseStatistics(NetworkMessage message, long responseTime, int responseSize) {
+        responseTime = Math.max(responseTime, 1);
+        if (averageResponseTime == 0) {
+            averageResponseSize = responseSize;
+            averageResponseTime = responseTime;
+        } else {
+            averageResponseSize += (responseSize - averageResponseSize) / 8;
+            averageResponseTime = Math.max(averageResponseTime + (responseTime - averageResponseTime) / 8, 1);
+        }
+        if (message instanceof NetworkMessage.GetNextBlocksMessage) {
+            if (blocksResponseTime == 0) {
+                blocksResponseSize = responseSize;
+                blocksResponseTime = responseTime;
+            } else {
+                blocksResponseSize += (responseSize - blocksResponseSize) / 8;
+                blocksResponseTime = Math.max(blocksResponseTime + (responseTime - blocksResponseTime) / 8, 1);
+            }
+        }
+    }
+
+    /**
+     * Get the average response size of the GetNextBlocks requests
+     *
+     * @return                          Response size in bytes or 0 if there are no responses yet
+     */
+    long getBlocksResponseSize() {
+        return blocksResponseSize;
+    }
+
     /**
      * Get the upload volume
      *
@@ -514,7 +621,10 @@ final class PeerImpl implements Peer {
      * @param   shareAddress            TRUE if address should be shared
      */
     void setShareAddress(boolean shareAddress) {
-        this.shareAddress = shareAddress;
+        if (this.shareAddress != shareAddress) {
+            this.shareAddress = shareAddress;
+            PeerAddressBook.peerChanged(this);
+        }
     }
 
     /**
@@ -538,6 +648,15 @@ final class PeerImpl implements Peer {
         return blacklistingCause;
     }
 
+    /**
+     * Get the blacklisting time
+     *
+     * @return                          Epoch time or 0 if the peer is not blacklisted
+     */
+    int getBlacklistingTime() {
+        return blacklistingTime;
+    }
+
     /**
      * Blacklist the peer
      *
@@ -571,6 +690,7 @@ final class PeerImpl implements Peer {
     public void blacklist(String cause) {
         blacklistingTime = Nxt.getEpochTime();
         blacklistingCause = cause;
+        PeerAddressBook.peerChanged(this);
         disconnectPeer();
         Peers.notifyListeners(this, Peers.Event.BLACKLIST);
     }
@@ -586,6 +706,7 @@ final class PeerImpl implements Peer {
         Logger.logDebugMessage("Unblacklisting " + host);
         blacklistingTime = 0;
         blacklistingCause = null;
+        PeerAddressBook.peerChanged(this);
         Peers.notifyListeners(this, Peers.Event.UNBLACKLIST);
     }
 
@@ -620,6 +741,7 @@ final class PeerImpl implements Peer {
      */
     void setLastUpdated(int lastUpdated) {
         this.lastUpdated = lastUpdated;
+        PeerAddressBook.peerChanged(this);
     }
 
     /**
@@ -641,6 +763,47 @@ final class PeerImpl implements Peer {
         this.lastConnectAttempt = lastConnectAttempt;
     }
 
+    /**
+     * Get the time of the last successful outbound connection
+     *
+     * @return                          Epoch time or 0 if we haven't connected to the peer
+     */
+    int getLastConnected() {
+        return lastConnected;
+    }
+
+    /**
+     * Get the number of failed outbound connections since the last successful connection
+     *
+     * @return                          Number of failed connections
+     */
+    int getConnectFailures() {
+        return connectFailures.get();
+    }
+
+    /**
+     * Restore the peer metadata saved in the peer database
+     *
+     * The peer is blacklisted again if the saved blacklisting has not expired yet
+     *
+     * @param   entry                   Peer database entry
+     * @param   curTime                 The current EPOCH time
+     */
+    void restore(PeerDb.Entry entry, int curTime) {
+        lastUpdated = entry.getLastUpdated();
+        lastConnected = entry.getLastConnected();
+        connectFailures.set(entry.getConnectFailures());
+        synchronized (this) {
+            blocksResponseTime = entry.getResponseTime();
+            blocksResponseSize = entry.getResponseSize();
+        }
+        if (entry.getBlacklistingTime() > 0 && entry.getBlacklistingTime() + Peers.blacklistingPeriod > curTime) {
+            blacklistingTime = entry.getBlacklistingTime();
+            blacklistingCause = entry.getBlacklistingCause();
+        }
+        setServices(entry.getServices());
+    }
+
     /**
      * Verify the announced address
      *
@@ -677,6 +840,7 @@ final class PeerImpl implements Peer {
         boolean notifyListeners;
         synchronized (this) {
             notifyListeners = ((services & service.getCode()) == 0);
+            PeerAddressBook.servicesChanged(this, services, services | service.getCode());
             services |= service.getCode();
         }
         if (notifyListeners && doNotify) {
@@ -694,6 +858,7 @@ final class PeerImpl implements Peer {
         boolean notifyListeners;
         synchronized (this) {
             notifyListeners = ((services & service.getCode()) != 0);
+            PeerAddressBook.servicesChanged(this, services, services & (~service.getCode()));
             services &= (~service.getCode());
         }
         if (notifyListeners && doNotify) {
@@ -719,6 +884,7 @@ final class PeerImpl implements Peer {
      */
     void setServices(long services) {
         synchronized (this) {
+            PeerAddressBook.servicesChanged(this, this.services, services);
             this.services = services;
         }
     }
@@ -922,6 +1088,10 @@ final class PeerImpl implements Peer {
                     connectPending = true;
                 }
                 if (!connectCondition.await(NetworkHandler.peerConnectTimeout, TimeUnit.SECONDS)) {
+                    if (connectPending) {
+                        connectFailures.incrementAndGet();
+                        PeerAddressBook.peerChanged(this);
+                    }
                     disconnectPeer();
                 }
             }
@@ -952,9 +1122,14 @@ final class PeerImpl implements Peer {
             if (success && channel != null) {
                 handshakePending = true;
                 lastUpdated = Nxt.getEpochTime();
+                lastConnected = lastUpdated;
+                connectFailures.set(0);
+                PeerAddressBook.peerChanged(this);
                 setState(State.CONNECTED);
                 Logger.logInfoMessage("Connection to " + host + " completed");
             } else {
+                connectFailures.incrementAndGet();
+                PeerAddressBook.peerChanged(this);
                 disconnectPeer();
             }
         } finally {
@@ -1027,6 +1202,7 @@ final class PeerImpl implements Peer {
      */
     @Override
     public void disconnectPeer() {
+        List<CompletableFuture<NetworkMessage>> pendingRequests;
         disconnectPending = true;
         connectLock.lock();
         try {
@@ -1042,9 +1218,7 @@ final class PeerImpl implements Peer {
             outputQueue.clear();
             pendingOutputQueue.clear();
             pendingInputQueue.clear();
-            for (ResponseEntry entry : responseMap.values()) {
-                entry.responseSignal(null);
-            }
+            pendingRequests = new ArrayList<>(responseMap.values());
             responseMap.clear();
             isInbound = false;
             handshakePending = false;
@@ -1062,6 +1236,7 @@ final class PeerImpl implements Peer {
             disconnectPending = false;
             connectLock.unlock();
         }
+        pendingRequests.forEach(request -> request.complete(null));
     }
 
     /**
@@ -1163,32 +1338,73 @@ final class PeerImpl implements Peer {
      */
     @Override
     public NetworkMessage sendRequest(NetworkMessage message) {
+        try {
+            return sendRequestAsync(message).get(NetworkHandler.peerReadTimeout, TimeUnit.SECONDS);
+        } catch (TimeoutException exc) {
+            Logger.logDebugMessage("Read from " + host + " timed out");
+        } catch (InterruptedException exc) {
+            Logger.logDebugMessage("Read from " + host + " interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exc) {
+            Logger.logErrorMessage("Request to " + host + " failed", exc.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Send a request without waiting for the response
+     *
+     * The peer is disconnected if there is no response within the peer read timeout or
+     * if the peer returns a severe error.
+     *
+     * @param   message                 Request message
+     * @return                          Future completed with the response message or with null if an error occurred
+     */
+    @Override
+    public CompletableFuture<NetworkMessage> sendRequestAsync(NetworkMessage message) {
         if (state != State.CONNECTED || disconnectPending) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
-        ResponseEntry entry = new ResponseEntry();
-        responseMap.put(message.getMessageId(), entry);
+        long messageId = message.getMessageId();
+        CompletableFuture<NetworkMessage> request = new CompletableFuture<>();
+        responseMap.put(messageId, request);
+        long startTime = System.currentTimeMillis();
         sendMessage(message);
         if (state != State.CONNECTED) {
-            responseMap.remove(message.getMessageId());
-            return null;
+            responseMap.remove(messageId);
+            return CompletableFuture.completedFuture(null);
         }
-        NetworkMessage response = entry.responseWait();
-        responseMap.remove(message.getMessageId());
-        if (response == null) {
-            disconnectPeer();
-            return null;
-        }
-        if (response instanceof NetworkMessage.ErrorMessage) {
-            NetworkMessage.ErrorMessage error = (NetworkMessage.ErrorMessage)response;
-            if (error.isSevereError()) {
-                Logger.logDebugMessage(String.format("Error returned by %s for %s[%d] message: %s",
-                        host, error.getErrorName(), error.getMessageId(), error.getErrorMessage()));
-                disconnectPeer();
+        ScheduledFuture<?> timeout = requestTimer.schedule(() -> {
+            if (request.complete(null)) {
+                Logger.logDebugMessage("Read from " + host + " timed out");
             }
-            return null;
-        }
-        return response;
+        }, NetworkHandler.peerReadTimeout, TimeUnit.SECONDS);
+        //
+        // The request is completed on the request timer thread or on the message handler thread.
+        // The response is checked on that thread, since a peer executor thread may be waiting for it,
+        // and the peer is disconnected by the peer executor to avoid delaying other peers.
+        //
+        return request.thenApply(response -> {
+            timeout.cancel(false);
+            responseMap.remove(messageId);
+            if (response == null) {
+                if (state == State.CONNECTED) {
+                    Peers.peersService.execute(this::disconnectPeer);
+                }
+                return null;
+            }
+            if (response instanceof NetworkMessage.ErrorMessage) {
+                NetworkMessage.ErrorMessage error = (NetworkMessage.ErrorMessage)response;
+                if (error.isSevereError()) {
+                    Logger.logDebugMessage(String.format("Error returned by %s for %s[%d] message: %s",
+                            host, error.getErrorName(), error.getMessageId(), error.getErrorMessage()));
+                    Peers.peersService.execute(this::disconnectPeer);
+                }
+                return null;
+            }
+            updateResponseStatistics(message, System.currentTimeMillis() - startTime, response.getLength());
+            return response;
+        });
     }
 
     /**
@@ -1197,9 +1413,9 @@ final class PeerImpl implements Peer {
      * @param   message                 Response message
      */
     void completeRequest(NetworkMessage message) {
-        ResponseEntry entry = responseMap.get(message.getMessageId());
-        if (entry != null) {
-            entry.responseSignal(message);
+        CompletableFuture<NetworkMessage> request = responseMap.get(message.getMessageId());
+        if (request != null) {
+            request.complete(message);
         } else {
             Logger.logErrorMessage("Request not found for '" + message.getMessageName() + "' message");
         }
@@ -1246,48 +1462,4 @@ final class PeerImpl implements Peer {
                 '}';
     }
 
-    /**
-     * Message response entry
-     */
-    private class ResponseEntry {
-
-        /** Response latch */
-        private final CountDownLatch responseLatch = new CountDownLatch(1);
-
-        /** Response message */
-        private NetworkMessage responseMessage;
-
-        /**
-         * Construct a response entry
-         */
-        private ResponseEntry() {
-        }
-
-        /**
-         * Wait for a response
-         *
-         * @return                              Response message or null if there is no message
-         */
-        private NetworkMessage responseWait() {
-            try {
-                if (!responseLatch.await(NetworkHandler.peerReadTimeout, TimeUnit.SECONDS)) {
-                    Logger.logDebugMessage("Read from " + host + " timed out");
-                }
-            } catch (InterruptedException exc) {
-                Logger.logDebugMessage("Read from " + host + " interrupted");
-            }
-            return responseMessage;
-        }
-
-        /**
-         * Signal that a response has been received
-         *
-         * @param   responseMessage             Response message or null if there is no message
-         */
-        private void responseSignal(NetworkMessage responseMessage) {
-            this.responseMessage = responseMessage;
-            responseLatch.countDown();
-        }
-    }
-
 }
@@ -25,7 +25,6 @@ import nxt.blockchain.Bundler;
 import nxt.blockchain.Chain;
 import nxt.blockchain.ChildChain;
 import nxt.crypto.Crypto;
-import nxt.dbschema.Db;
 import nxt.http.API;
 import nxt.util.Convert;
 import nxt.util.Filter;
@@ -40,9 +39,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -114,6 +115,9 @@ public final class Peers {
     /** Save peers */
     private static final boolean savePeers = Nxt.getBooleanProperty("nxt.savePeers");
 
+    /** Peer database update interval in seconds */
+    private static final int savePeersInterval = Math.max(10, Nxt.getIntProperty("nxt.savePeersInterval", 60));
+
     /** Hide error details */
     static final boolean hideErrorDetails = Nxt.getBooleanProperty("nxt.hideErrorDetails");
 
@@ -225,6 +229,12 @@ public final class Peers {
     /** Broadcast bundler rates */
     private static final Map<Long, List<BundlerRate>> bundlerRates = new HashMap<>();
 
+    /** Peer database update lock */
+    private static final Object updatePeerDbLock = new Object();
+
+    /** Scheduled peer database updates have been stopped */
+    private static boolean updatePeerDbStopped = false;
+
     /**
      * Initialize peer processing
      */
@@ -265,6 +275,7 @@ public final class Peers {
                     defaultPeers.forEach(address -> entries.add(new PeerDb.Entry(address, 0, startTime - 1)));
                     if (savePeers) {
                         List<PeerDb.Entry> dbPeers = PeerDb.loadPeers();
+                        PeerAddressBook.setSavedEntries(dbPeers);
                         dbPeers.forEach(entry -> {
                             if (!entries.add(entry)) {
                                 // Database entries override entries from nxt.properties
@@ -279,8 +290,7 @@ public final class Peers {
                         PeerImpl peer = (PeerImpl)Peers.findOrCreatePeer(entry.getAddress(), true);
                         if (peer != null) {
                             peer.setShareAddress(true);
-                            peer.setLastUpdated(entry.getLastUpdated());
-                            peer.setServices(entry.getServices());
+                            peer.restore(entry, Nxt.getEpochTime());
                             Peers.addPeer(peer);
                             return null;
                         }
@@ -318,7 +328,7 @@ public final class Peers {
             ThreadPool.scheduleThread("GetMorePeers", getMorePeersThread, 10*60);
     	}
         if (savePeers) {
-            ThreadPool.scheduleThread("UpdatePeerDb", updatePeerDbThread, 60*60);
+            ThreadPool.scheduleThread("UpdatePeerDb", updatePeerDbThread, savePeersInterval);
         }
     }
 
@@ -327,6 +337,20 @@ public final class Peers {
      */
     public static void shutdown() {
         ThreadPool.shutdownExecutor("peersService", peersService, 5);
+        if (savePeers) {
+            //
+            // Stop the scheduled update, waiting for a running update to complete, before
+            // writing the final changes
+            //
+            synchronized (updatePeerDbLock) {
+                updatePeerDbStopped = true;
+                try {
+                    PeerAddressBook.updatePeerDb(Nxt.getEpochTime());
+                } catch (RuntimeException e) {
+                    Logger.logErrorMessage("Unable to update peer database", e);
+                }
+            }
+        }
     }
 
     /**
@@ -373,6 +397,7 @@ public final class Peers {
             return false;
         }
         selfAnnouncedAddresses.put(peer.getAnnouncedAddress(), peer.getHost());
+        PeerAddressBook.addPeer((PeerImpl)peer);
         listeners.notify(peer, Event.ADD_PEER);
         return true;
     }
@@ -384,9 +409,11 @@ public final class Peers {
      * @param   newAnnouncedAddress     The new announced address
      */
     static void changePeerAnnouncedAddress(PeerImpl peer, String newAnnouncedAddress) {
-        selfAnnouncedAddresses.remove(peer.getAnnouncedAddress());
+        String oldAnnouncedAddress = peer.getAnnouncedAddress();
+        selfAnnouncedAddresses.remove(oldAnnouncedAddress);
         peer.setAnnouncedAddress(newAnnouncedAddress);
         selfAnnouncedAddresses.put(peer.getAnnouncedAddress(), peer.getHost());
+        PeerAddressBook.announcedAddressChanged(peer, oldAnnouncedAddress);
         listeners.notify(peer,Event.CHANGE_ANNOUNCED_ADDRESS);
     }
 
@@ -403,6 +430,7 @@ public final class Peers {
         if (peers.remove(peer.getHost()) == null) {
             return false;
         }
+        PeerAddressBook.removePeer((PeerImpl)peer);
         notifyListeners(peer, Event.REMOVE_PEER);
         return true;
     }
@@ -507,6 +535,17 @@ public final class Peers {
         return peers.get(host);
     }
 
+    /**
+     * Get a known peer using its announced address
+     *
+     * @param   announcedAddress        Announced address
+     * @return                          Peer or null if the peer is not known
+     */
+    static PeerImpl getPeerByAnnouncedAddress(String announcedAddress) {
+        String host = selfAnnouncedAddresses.get(announcedAddress);
+        return host != null ? peers.get(host) : null;
+    }
+
     /**
      * Get a random peer that satisfies the supplied filter
      *
@@ -591,6 +630,36 @@ public final class Peers {
         return result;
     }
 
+    /**
+     * Get a list of peers in the specified state satisfying the supplied filter
+     *
+     * Only the peers in the specified state are examined
+     *
+     * @param   state                   Peer state
+     * @param   filter                  Filter or null if no filter supplied
+     * @param   limit                   Maximum number of peers to return
+     * @return                          List of peers
+     */
+    public static List<Peer> getPeers(Peer.State state, Filter<Peer> filter, int limit) {
+        return PeerAddressBook.getPeers(EnumSet.of(state), 0, filter, limit);
+    }
+
+    /**
+     * Get a list of peers in the specified states, providing the specified services and
+     * satisfying the supplied filter
+     *
+     * Only the peers in the specified states or providing one of the specified services are examined
+     *
+     * @param   states                  Peer states or null for all states
+     * @param   services                Required services as a bit map or 0 for any services
+     * @param   filter                  Filter or null if no filter supplied
+     * @param   limit                   Maximum number of peers to return
+     * @return                          List of peers
+     */
+    public static List<Peer> getPeers(Set<Peer.State> states, long services, Filter<Peer> filter, int limit) {
+        return PeerAddressBook.getPeers(states, services, filter, limit);
+    }
+
     /**
      * Return all known peers
      *
@@ -680,17 +749,29 @@ public final class Peers {
                 }
             }
             if (connectCount > 0) {
-                List<Peer> resultList = getPeers(peer -> !peer.isBlacklisted()
+                List<Peer> resultList = getPeers(EnumSet.of(Peer.State.NON_CONNECTED, Peer.State.DISCONNECTED), 0,
+                        peer -> !peer.isBlacklisted()
                         && peer.shareAddress()
                         && peer.getState() != Peer.State.CONNECTED
                         && (now - peer.getLastUpdated() > 60*60 || peer.getLastUpdated() < startTime)
-                        && now - peer.getLastConnectAttempt() > 10*60 || peer.getLastConnectAttempt() < startTime);
-                while (!resultList.isEmpty() && connectCount > 0) {
-                    int i = ThreadLocalRandom.current().nextInt(resultList.size());
-                    PeerImpl peer = (PeerImpl)resultList.remove(i);
-                    peer.setLastConnectAttempt(now);
-                    connectList.add(peer);
-                    connectCount--;
+                        && now - peer.getLastConnectAttempt() > 10*60 || peer.getLastConnectAttempt() < startTime,
+                        Integer.MAX_VALUE);
+                //
+                // Peers we have connected to without a failure since then are selected first,
+                // so that connections are established quickly after a restart
+                //
+                List<Peer> preferredList = new ArrayList<>();
+                List<Peer> otherList = new ArrayList<>();
+                resultList.forEach(peer -> (((PeerImpl)peer).getLastConnected() > 0
+                        && ((PeerImpl)peer).getConnectFailures() == 0 ? preferredList : otherList).add(peer));
+                for (List<Peer> selectList : Arrays.asList(preferredList, otherList)) {
+                    while (!selectList.isEmpty() && connectCount > 0) {
+                        int i = ThreadLocalRandom.current().nextInt(selectList.size());
+                        PeerImpl peer = (PeerImpl)selectList.remove(i);
+                        peer.setLastConnectAttempt(now);
+                        connectList.add(peer);
+                        connectCount--;
+                    }
                 }
             }
             if (!connectList.isEmpty()) {
@@ -765,8 +846,7 @@ public final class Peers {
                 //
                 // Send a list of our connected peers
                 //
-                List<Peer> peerList = getPeers(p -> !p.isBlacklisted()
-                        && p.getState() == Peer.State.CONNECTED
+                List<Peer> peerList = getPeers(Peer.State.CONNECTED, p -> !p.isBlacklisted()
                         && p.getAnnouncedAddress() != null
                         && p.shareAddress()
                         && !p.getAnnouncedAddress().equals(peer.getAnnouncedAddress()),
@@ -786,60 +866,10 @@ public final class Peers {
      */
     private static final Runnable updatePeerDbThread = () -> {
         try {
-            int now = Nxt.getEpochTime();
-            //
-            // Load the current database entries and map announced address to database entry
-            //
-            List<PeerDb.Entry> oldPeers = PeerDb.loadPeers();
-            Map<String, PeerDb.Entry> oldMap = new HashMap<>(oldPeers.size());
-            oldPeers.forEach(entry -> oldMap.put(entry.getAddress(), entry));
-            //
-            // Create the current peer map (note that there can be duplicate peer entries with
-            // the same announced address)
-            //
-            Map<String, PeerDb.Entry> currentPeers = new HashMap<>();
-            peers.values().forEach(peer -> {
-                if (peer.getAnnouncedAddress() != null
-                        && peer.shareAddress()
-                        && !peer.isBlacklisted()
-                        && now - peer.getLastUpdated() < 7*24*3600) {
-                    currentPeers.put(peer.getAnnouncedAddress(),
-                            new PeerDb.Entry(peer.getAnnouncedAddress(), peer.getServices(), peer.getLastUpdated()));
+            synchronized (updatePeerDbLock) {
+                if (!updatePeerDbStopped) {
+                    PeerAddressBook.updatePeerDb(Nxt.getEpochTime());
                 }
-            });
-            //
-            // Build toDelete and toUpdate lists
-            //
-            List<PeerDb.Entry> toDelete = new ArrayList<>(oldPeers.size());
-            oldPeers.forEach(entry -> {
-                if (currentPeers.get(entry.getAddress()) == null)
-                    toDelete.add(entry);
-            });
-            List<PeerDb.Entry> toUpdate = new ArrayList<>(currentPeers.size());
-            currentPeers.values().forEach(entry -> {
-                PeerDb.Entry oldEntry = oldMap.get(entry.getAddress());
-                if (oldEntry == null || entry.getLastUpdated() - oldEntry.getLastUpdated() > 24*3600)
-                    toUpdate.add(entry);
-            });
-            //
-            // Nothing to do if all of the lists are empty
-            //
-            if (toDelete.isEmpty() && toUpdate.isEmpty()) {
-                return;
-            }
-            //
-            // Update the peer database
-            //
-            try {
-                Db.db.beginTransaction();
-                PeerDb.deletePeers(toDelete);
-                PeerDb.updatePeers(toUpdate);
-                Db.db.commitTransaction();
-            } catch (Exception e) {
-                Db.db.rollbackTransaction();
-                throw e;
-            } finally {
-                Db.db.endTransaction();
             }
         } catch (Throwable t) {
             Logger.logErrorMessage("CRITICAL ERROR. PLEASE REPORT TO THE DEVELOPERS", t);
@@ -847,26 +877,6 @@ public final class Peers {
         }
     };
 
-    /*
-     * Update the peer database when the services provided by a peer changes
-     */
-    static {
-        Peers.addListener(peer -> peersService.submit(() -> {
-            if (peer.getAnnouncedAddress() != null && !peer.isBlacklisted()) {
-                try {
-                    Db.db.beginTransaction();
-                    PeerDb.updatePeer((PeerImpl) peer);
-                    Db.db.commitTransaction();
-                } catch (RuntimeException e) {
-                    Logger.logErrorMessage("Unable to update peer database", e);
-                    Db.db.rollbackTransaction();
-                } finally {
-                    Db.db.endTransaction();
-                }
-            }
-        }), Peers.Event.CHANGE_SERVICES);
-    }
-
     /**
      * Check for an old NRS version
      *
@@ -73,70 +73,132 @@ public final class TransactionsInventory {
         if (requestIds.isEmpty()) {
             return null;
         }
-        Peers.peersService.execute(() -> {
-            //
-            // Request the transactions, starting with the peer that sent the TransactionsInventory
-            // message.  We will update the transaction cache with transactions that have
-            // been successfully processed.  We will keep contacting peers until
-            // we have received all of the transactions or we run out of peers.
-            //
-            try {
-                List<Peer> connectedPeers = Peers.getConnectedPeers();
-                if (connectedPeers.isEmpty()) {
-                    return;
-                }
-                int startIndex = connectedPeers.indexOf(peer);
-                if (startIndex < 0) {
-                    startIndex = 0;
-                }
-                int index = startIndex;
-                Set<Transaction> notAcceptedTransactions = new HashSet<>();
-                while (true) {
-                    Peer feederPeer = connectedPeers.get(index);
-                    NetworkMessage.GetTransactionsMessage transactionsRequest =
-                            new NetworkMessage.GetTransactionsMessage(requestIds);
-                    NetworkMessage.TransactionsMessage response =
-                            (NetworkMessage.TransactionsMessage)feederPeer.sendRequest(transactionsRequest);
-                    if (response != null && response.getTransactionCount() > 0) {
+        //
+        // Request the transactions, starting with the peer that sent the TransactionsInventory
+        // message.  The responses are processed by the peers service without keeping a
+        // thread waiting for them.
+        //
+        List<Peer> connectedPeers = Peers.getConnectedPeers();
+        if (connectedPeers.isEmpty()) {
+            requestIds.forEach(pendingTransactions::remove);
+            return null;
+        }
+        int startIndex = connectedPeers.indexOf(peer);
+        new TransactionsRequest(connectedPeers, Math.max(startIndex, 0), requestIds).send();
+        return null;
+    }
+
+    /**
+     * Request for missing transactions
+     *
+     * We will update the transaction cache with transactions that have been successfully
+     * processed.  We will keep contacting peers until we have received all of the
+     * transactions or we run out of peers.
+     */
+    private static final class TransactionsRequest {
+
+        /** Connected peers */
+        private final List<Peer> connectedPeers;
+
+        /** Index of the first peer */
+        private final int startIndex;
+
+        /** Index of the current peer */
+        private int index;
+
+        /** Transactions not received yet */
+        private final List<ChainTransactionId> requestIds;
+
+        /** Received transactions which were not accepted */
+        private final Set<Transaction> notAcceptedTransactions = new HashSet<>();
+
+        /**
+         * Create the request
+         *
+         * @param   connectedPeers      Connected peers
+         * @param   startIndex          Index of the first peer to contact
+         * @param   requestIds          Requested transactions
+         */
+        private TransactionsRequest(List<Peer> connectedPeers, int startIndex, List<ChainTransactionId> requestIds) {
+            this.connectedPeers = connectedPeers;
+            this.startIndex = startIndex;
+            this.index = startIndex;
+            this.requestIds = requestIds;
+        }
+
+        /**
+         * Send the request to the current peer
+         */
+        private void send() {
+            Peer feederPeer = connectedPeers.get(index);
+            feederPeer.sendRequestAsync(new NetworkMessage.GetTransactionsMessage(requestIds))
+                    .thenAcceptAsync(response -> {
+                        boolean done = true;
                         try {
-                            List<Transaction> transactions = response.getTransactions();
-                            notAcceptedTransactions.addAll(transactions);
-                            transactions.forEach(tx -> {
-                                ChainTransactionId transactionId = ChainTransactionId.getChainTransactionId(tx);
-                                requestIds.remove(transactionId);
-                                pendingTransactions.remove(transactionId);
-                                if (Peers.isLogLevelEnabled(Peers.LOG_LEVEL_DETAILS)) {
-                                    Logger.logDebugMessage("Received transaction " + tx.getStringId());
-                                }
-                            });
-                            List<? extends Transaction> addedTransactions = Nxt.getTransactionProcessor().processPeerTransactions(transactions);
-                            cacheTransactions(addedTransactions);
-                            notAcceptedTransactions.removeAll(addedTransactions);
-                        } catch (RuntimeException | NxtException.ValidationException e) {
-                            feederPeer.blacklist(e);
+                            processResponse(feederPeer, (NetworkMessage.TransactionsMessage)response);
+                            if (!requestIds.isEmpty()) {
+                                index = (index < connectedPeers.size()-1 ? index + 1 : 0);
+                                done = (index == startIndex);
+                            }
+                            if (!done) {
+                                send();
+                            }
+                        } finally {
+                            if (done) {
+                                finish();
+                            }
                         }
-                    }
-                    if (requestIds.isEmpty()) {
-                        break;
-                    }
-                    index = (index < connectedPeers.size()-1 ? index + 1 : 0);
-                    if (index == startIndex) {
-                        break;
-                    }
-                }
+                    }, Peers.peersService)
+                    .exceptionally(exc -> {
+                        Logger.logErrorMessage("Unable to request transactions", exc);
+                        requestIds.forEach(pendingTransactions::remove);
+                        return null;
+                    });
+        }
+
+        /**
+         * Process the transactions returned by a peer
+         *
+         * @param   feederPeer          Peer
+         * @param   response            Response message or null
+         */
+        private void processResponse(Peer feederPeer, NetworkMessage.TransactionsMessage response) {
+            if (response != null && response.getTransactionCount() > 0) {
                 try {
-                    notAcceptedTransactions.forEach(transaction -> notCurrentlyValidTransactions.put(ChainTransactionId.getChainTransactionId(transaction), transaction));
-                    //some not currently valid transactions may have become valid as others were fetched from peers, try processing them again
-                    List<? extends Transaction> addedTransactions = Nxt.getTransactionProcessor().processPeerTransactions(new ArrayList<>(notCurrentlyValidTransactions.values()));
-                    addedTransactions.forEach(transaction -> notCurrentlyValidTransactions.remove(ChainTransactionId.getChainTransactionId(transaction)));
-                } catch (NxtException.NotValidException e) {
-                    Logger.logErrorMessage(e.getMessage(), e); //should not happen
+                    List<Transaction> transactions = response.getTransactions();
+                    notAcceptedTransactions.addAll(transactions);
+                    transactions.forEach(tx -> {
+                        ChainTransactionId transactionId = ChainTransactionId.getChainTransactionId(tx);
+                        requestIds.remove(transactionId);
+                        pendingTransactions.remove(transactionId);
+                        if (Peers.isLogLevelEnabled(Peers.LOG_LEVEL_DETAILS)) {
+                            Logger.logDebugMessage("Received transaction " + tx.getStringId());
+                        }
+                    });
+                    List<? extends Transaction> addedTransactions = Nxt.getTransactionProcessor().processPeerTransactions(transactions);
+                    cacheTransactions(addedTransactions);
+                    notAcceptedTransactions.removeAll(addedTransactions);
+                } catch (RuntimeException | NxtException.ValidationException e) {
+                    feederPeer.blacklist(e);
                 }
+            }
+        }
+
+        /**
+         * Retry the transactions which were not accepted once all peers have been contacted
+         */
+        private void finish() {
+            try {
+                notAcceptedTransactions.forEach(transaction -> notCurrentlyValidTransactions.put(ChainTransactionId.getChainTransactionId(transaction), transaction));
+                //some not currently valid transactions may have become valid as others were fetched from peers, try processing them again
+                List<? extends Transaction> addedTransactions = Nxt.getTransactionProcessor().processPeerTransactions(new ArrayList<>(notCurrentlyValidTransactions.values()));
+                addedTransactions.forEach(transaction -> notCurrentlyValidTransactions.remove(ChainTransactionId.getChainTransactionId(transaction)));
+            } catch (NxtException.NotValidException e) {
+                Logger.logErrorMessage(e.getMessage(), e); //should not happen
             } finally {
                 requestIds.forEach(pendingTransactions::remove);
             }
-        });
-        return null;
+        }
     }
 
     /**
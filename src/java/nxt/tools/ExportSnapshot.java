@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.tools;
+
+import nxt.Nxt;
+import nxt.blockchain.StateSnapshot;
+import nxt.util.Convert;
+import nxt.util.Logger;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Export a snapshot of the blockchain and of the derived tables at the current height.
+ * <p>
+ * The node database is configured in conf/nxt.properties as usual and the NRS application
+ * must not be running.  The snapshot can be imported on another node using ImportSnapshot.
+ *
+ * To run the export tool on Linux or Mac:
+ *
+ *   java -cp "classes:lib/*:conf" nxt.tools.ExportSnapshot snapshotFile
+ */
+public final class ExportSnapshot {
+
+    /**
+     * Export the snapshot
+     *
+     * @param   args                Snapshot file
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: ExportSnapshot snapshotFile");
+            System.exit(1);
+        }
+        int exitCode = 0;
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("nxt.isOffline", "true");
+            properties.setProperty("nxt.enableAPIServer", "false");
+            properties.setProperty("nxt.launchDesktopApplication", "false");
+            properties.setProperty("nxt.disableGenerateBlocksThread", "true");
+            properties.setProperty("nxt.disableProcessTransactionsThread", "true");
+            Nxt.init(properties);
+            byte[] stateHash = StateSnapshot.exportSnapshot(new File(args[0]));
+            System.out.println("Snapshot at height " + Nxt.getBlockchain().getHeight() + ", state hash " + Convert.toHexString(stateHash));
+        } catch (Throwable t) {
+            Logger.logErrorMessage("Snapshot export failed", t);
+            exitCode = 1;
+        }
+        Nxt.shutdown();
+        System.exit(exitCode);
+    }
+
+    private ExportSnapshot() {} // never
+}
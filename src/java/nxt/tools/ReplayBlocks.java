@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.tools;
+
+import nxt.Nxt;
+import nxt.blockchain.Block;
+import nxt.blockchain.BlockProfiler;
+import nxt.blockchain.BlockchainProcessor;
+import nxt.blockchain.BlockchainProcessorImpl;
+import nxt.blockchain.FxtTransaction;
+import nxt.blockchain.TransactionType;
+import nxt.dbschema.Db;
+import nxt.util.Listener;
+import nxt.util.Logger;
+import nxt.util.RollingHistogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Replay the blocks of an existing database to measure block processing throughput.
+ * <p>
+ * The derived tables are rolled back to the start height and the stored blocks are accepted
+ * again up to and including the end height.  The derived tables can't be rolled back below the
+ * minimum rollback height, so a lower start height replays all blocks from the genesis block.  The tool modifies the database and leaves a
+ * rescan scheduled for the remaining blocks, so it must be run on a copy of the node
+ * database, configured in conf/nxt.properties as usual.  The NRS application must not be
+ * running.
+ * <p>
+ * The report contains the number of blocks and transactions per second, the time spent in
+ * each block processing phase and applying each transaction type, the number of SQL
+ * statements executed and the garbage collection activity during the replay.
+ *
+ * To run the replay tool on Linux or Mac:
+ *
+ *   java -cp "classes:lib/*:conf" nxt.tools.ReplayBlocks fromHeight toHeight [validate]
+ */
+public final class ReplayBlocks {
+
+    /**
+     * Replay the blocks
+     *
+     * @param   args                Start height, end height and optional "validate"
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: ReplayBlocks fromHeight toHeight [validate]");
+            System.exit(1);
+        }
+        int fromHeight = Integer.parseInt(args[0]);
+        int toHeight = Integer.parseInt(args[1]);
+        boolean validate = args.length > 2 && "validate".equals(args[2]);
+        if (fromHeight < 0 || toHeight < fromHeight) {
+            System.out.println("Invalid height range " + fromHeight + " - " + toHeight);
+            System.exit(1);
+        }
+        int exitCode = 0;
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("nxt.isOffline", "true");
+            properties.setProperty("nxt.enableAPIServer", "false");
+            properties.setProperty("nxt.launchDesktopApplication", "false");
+            properties.setProperty("nxt.disableGenerateBlocksThread", "true");
+            properties.setProperty("nxt.disableProcessTransactionsThread", "true");
+            Nxt.init(properties);
+            replay(fromHeight, toHeight, validate);
+        } catch (Throwable t) {
+            Logger.logErrorMessage("Replay failed", t);
+            exitCode = 1;
+        }
+        Nxt.shutdown();
+        System.exit(exitCode);
+    }
+
+    private static void replay(int fromHeight, int toHeight, boolean validate) {
+        BlockchainProcessorImpl blockchainProcessor = BlockchainProcessorImpl.getInstance();
+        int height = Nxt.getBlockchain().getHeight();
+        if (toHeight > height) {
+            Logger.logMessage("End height " + toHeight + " exceeds blockchain height " + height + ", replaying up to " + height);
+            toHeight = height;
+        }
+        //
+        // The scan starts from the genesis block if the derived tables can't be rolled back to
+        // the start height, and all of the scanned blocks are then replayed and counted
+        //
+        int minRollbackHeight = blockchainProcessor.getMinRollbackHeight();
+        int startHeight = fromHeight;
+        if (startHeight > 0 && startHeight < minRollbackHeight) {
+            Logger.logWarningMessage("Start height " + fromHeight + " is below the minimum rollback height "
+                    + minRollbackHeight + ", replaying from the genesis block");
+            startHeight = 0;
+        }
+        int[] blockCount = new int[1];
+        long[] transactionCount = new long[1];
+        Listener<Block> counter = block -> {
+            blockCount[0] += 1;
+            for (FxtTransaction fxtTransaction : block.getFxtTransactions()) {
+                transactionCount[0] += 1 + fxtTransaction.getSortedChildTransactions().size();
+            }
+        };
+        blockchainProcessor.addListener(counter, BlockchainProcessor.Event.BLOCK_SCANNED);
+        BlockProfiler.reset();
+        long queryCount = Db.db.getQueryCount();
+        long updateCount = Db.db.getUpdateCount();
+        long prepareCount = Db.db.getPrepareCount();
+        long statementCacheHits = Db.db.getStatementCacheHits();
+        long prepareTime = Db.db.getPrepareTime();
+        long gcCount = getGcCount();
+        long gcTime = getGcTime();
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        try {
+            blockchainProcessor.scan(startHeight, toHeight, validate);
+        } finally {
+            blockchainProcessor.removeListener(counter, BlockchainProcessor.Event.BLOCK_SCANNED);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Logger.logMessage(String.format("Replayed %d blocks from height %d to %d%s in %.3f seconds",
+                blockCount[0], startHeight, Nxt.getBlockchain().getHeight(), validate ? " with validation" : "", seconds));
+        Logger.logMessage(String.format("%.1f blocks/sec, %.1f transactions/sec (%d transactions)",
+                blockCount[0] / seconds, transactionCount[0] / seconds, transactionCount[0]));
+        for (Map.Entry<BlockProfiler.Phase, RollingHistogram.Snapshot> entry : BlockProfiler.getPhases().entrySet()) {
+            RollingHistogram.Snapshot snapshot = entry.getValue();
+            if (snapshot.getTotalCount() > 0) {
+                Logger.logMessage(String.format("  %-30s %8d times, %10.3f ms total",
+                        entry.getKey().name(), snapshot.getTotalCount(), snapshot.getTotalValue() / 1e6));
+            }
+        }
+        List<Map.Entry<TransactionType, RollingHistogram.Snapshot>> typeStats = new ArrayList<>(BlockProfiler.getTransactionTypes().entrySet());
+        typeStats.sort((e1, e2) -> Long.compare(e2.getValue().getTotalValue(), e1.getValue().getTotalValue()));
+        for (Map.Entry<TransactionType, RollingHistogram.Snapshot> entry : typeStats) {
+            TransactionType type = entry.getKey();
+            RollingHistogram.Snapshot snapshot = entry.getValue();
+            if (snapshot.getTotalCount() > 0) {
+                Logger.logMessage(String.format("  %-30s %3d:%-3d %8d applied, %10.3f ms total, %8.3f us average",
+                        type.getName(), type.getType(), type.getSubtype(), snapshot.getTotalCount(),
+                        snapshot.getTotalValue() / 1e6, snapshot.getTotalValue() / 1e3 / snapshot.getTotalCount()));
+            }
+        }
+        long queries = Db.db.getQueryCount() - queryCount;
+        long updates = Db.db.getUpdateCount() - updateCount;
+        long prepares = Db.db.getPrepareCount() - prepareCount;
+        Logger.logMessage(String.format("SQL: %d queries, %d updates, %d prepared statements, %.1f statements per block",
+                queries, updates, prepares, blockCount[0] == 0 ? 0 : (double) (queries + updates) / blockCount[0]));
+        Logger.logMessage(String.format("SQL: %d statement cache hits, %.3f ms spent preparing statements",
+                Db.db.getStatementCacheHits() - statementCacheHits, (Db.db.getPrepareTime() - prepareTime) / 1e6));
+        long allocated = getAllocatedBytes() - allocatedBytes;
+        Logger.logMessage(String.format("GC: %d collections, %d ms%s", getGcCount() - gcCount, getGcTime() - gcTime,
+                allocatedBytes < 0 ? "" : String.format(", %.1f MB allocated by the replay thread", allocated / 1048576.0)));
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gcBean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gcBean.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private ReplayBlocks() {} // never
+}
@@ -19,11 +19,14 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -52,17 +55,47 @@ public class BooleanExpression {
     public static final char CONJUNCTION_OPERATOR = '&';
     public static final char DISJUNCTION_OPERATOR = '|';
     public static final char NEGATION_OPERATOR = '!';
+
+    /** Maximum number of compiled expressions kept by {@link #compile(String)} */
+    private static final int COMPILED_CACHE_SIZE = 1000;
+
+    private static final Map<String, BooleanExpression> compiledExpressions =
+            new LinkedHashMap<String, BooleanExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BooleanExpression> eldest) {
+                    return size() > COMPILED_CACHE_SIZE;
+                }
+            };
+
     private final Set<String> variables;
     private final Disjunction disjunction;
     private final BadSyntaxException syntaxException;
     private final List<SemanticWarning> semanticWarnings;
     private final int literalsCount;
 
+    /**
+     * Returns the parsed expression, reusing the expression parsed for an earlier call with the same string.
+     * The returned expression is shared and must not be modified.
+     *
+     * @param expression The expression string in disjunctive normal form
+     * @return The parsed expression
+     */
+    public static BooleanExpression compile(String expression) {
+        synchronized (compiledExpressions) {
+            BooleanExpression booleanExpression = compiledExpressions.get(expression);
+            if (booleanExpression == null) {
+                booleanExpression = new BooleanExpression(expression);
+                compiledExpressions.put(expression, booleanExpression);
+            }
+            return booleanExpression;
+        }
+    }
+
     /**
      * @param expression The expression string in disjunctive normal form
      */
     public BooleanExpression(String expression) {
-        semanticWarnings = new ArrayList<>();
+        List<SemanticWarning> semanticWarnings = new ArrayList<>();
         Disjunction disjunction;
         BadSyntaxException syntaxException;
         try {
@@ -72,6 +105,7 @@ public class BooleanExpression {
             disjunction = null;
             syntaxException = e;
         }
+        this.semanticWarnings = Collections.unmodifiableList(semanticWarnings);
         this.syntaxException = syntaxException;
         this.disjunction = disjunction;
         if (disjunction != null) {
@@ -99,10 +133,36 @@ public class BooleanExpression {
      * @throws BadSyntaxException in case of error in the expression syntax
      */
     public Value evaluate(Map<String, Value> variableValues) throws BadSyntaxException {
+        return evaluate(variableValues::get);
+    }
+
+    /**
+     * Evaluates the expression, obtaining the variable values only when needed.
+     * The evaluation stops at the first conjunction which evaluates to {@link Value#TRUE}, and the evaluation of a
+     * conjunction stops at the first literal which evaluates to {@link Value#FALSE}, so the value of a variable
+     * is not requested if it can't change the result. The value of each variable is requested at most once.
+     * A null value is considered {@link Value#UNKNOWN}, same as for {@link #evaluate(Map)}
+     *
+     * @param variableValues Returns the value of the variable with the specified name
+     * @return The result from evaluating the expression
+     * @throws BadSyntaxException in case of error in the expression syntax
+     */
+    public Value evaluate(Function<String, Value> variableValues) throws BadSyntaxException {
         if (syntaxException != null) {
             throw syntaxException;
         }
-        return disjunction.evaluate(variableValues);
+        Map<String, Value> values = new HashMap<>();
+        return disjunction.evaluate(variableName -> {
+            Value value = values.get(variableName);
+            if (value == null) {
+                value = variableValues.apply(variableName);
+                if (value == null) {
+                    value = Value.UNKNOWN;
+                }
+                values.put(variableName, value);
+            }
+            return value;
+        });
     }
 
     /**
@@ -306,8 +366,8 @@ public class BooleanExpression {
             variableName = variableBuilder.toString();
         }
 
-        Value evaluate(Map<String, Value> variablesValues) {
-            Value variableValue = variablesValues.get(variableName);
+        Value evaluate(Function<String, Value> variablesValues) {
+            Value variableValue = variablesValues.apply(variableName);
             if (variableValue == null || variableValue == Value.UNKNOWN) {
                 return Value.UNKNOWN;
             }
@@ -398,7 +458,7 @@ public class BooleanExpression {
             return this.literals.containsAll(consequent.literals);
         }
 
-        Value evaluate(Map<String, Value> variablesValues) {
+        Value evaluate(Function<String, Value> variablesValues) {
             boolean isResultUnknown = false;
             for (Literal l : literals) {
                 Value literalVal = l.evaluate(variablesValues);
@@ -444,7 +504,7 @@ public class BooleanExpression {
         }
 
 
-        private Value evaluate(Map<String, Value> variableValues) {
+        private Value evaluate(Function<String, Value> variableValues) {
             boolean isResultUnknown = false;
             for (Conjunction c : conjunctions) {
                 Value conjunctionVal = c.evaluate(variableValues);
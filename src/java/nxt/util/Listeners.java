@@ -22,7 +22,25 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class Listeners<T,E extends Enum<E>> {
 
+    /**
+     * Receives the time taken by each listener notification
+     */
+    public interface Timer<T, E extends Enum<E>> {
+
+        void record(Listener<T> listener, Enum<E> eventType, long nanos);
+
+    }
+
     private final ConcurrentHashMap<Enum<E>, List<Listener<T>>> listenersMap = new ConcurrentHashMap<>();
+    private final Timer<T, E> timer;
+
+    public Listeners() {
+        this(null);
+    }
+
+    public Listeners(Timer<T, E> timer) {
+        this.timer = timer;
+    }
 
     public boolean addListener(Listener<T> listener, Enum<E> eventType) {
         synchronized (eventType) {
@@ -45,7 +63,13 @@ public final class Listeners<T,E extends Enum<E>> {
         List<Listener<T>> listeners = listenersMap.get(eventType);
         if (listeners != null) {
             for (Listener<T> listener : listeners) {
-                listener.notify(t);
+                if (timer == null) {
+                    listener.notify(t);
+                } else {
+                    long start = System.nanoTime();
+                    listener.notify(t);
+                    timer.record(listener, eventType, System.nanoTime() - start);
+                }
             }
         }
     }
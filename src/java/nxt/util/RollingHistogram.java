@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.util;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the most recent values added to the histogram, together with
+ * the count and the sum of all values added since the last reset
+ */
+public final class RollingHistogram {
+
+    private final long[] values;
+    private int next;
+    private int size;
+    private long totalCount;
+    private long totalValue;
+
+    /**
+     * Create a rolling histogram
+     *
+     * @param   capacity            Number of recent values kept
+     */
+    public RollingHistogram(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        values = new long[capacity];
+    }
+
+    public synchronized void add(long value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        if (size < values.length) {
+            size += 1;
+        }
+        totalCount += 1;
+        totalValue += value;
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        size = 0;
+        totalCount = 0;
+        totalValue = 0;
+    }
+
+    public Snapshot getSnapshot() {
+        long[] recentValues;
+        long count, total;
+        synchronized (this) {
+            recentValues = Arrays.copyOf(values, size);
+            count = totalCount;
+            total = totalValue;
+        }
+        Arrays.sort(recentValues);
+        return new Snapshot(recentValues, count, total);
+    }
+
+    public static final class Snapshot {
+
+        private final long[] sortedValues;
+        private final long totalCount;
+        private final long totalValue;
+
+        private Snapshot(long[] sortedValues, long totalCount, long totalValue) {
+            this.sortedValues = sortedValues;
+            this.totalCount = totalCount;
+            this.totalValue = totalValue;
+        }
+
+        /**
+         * Return the number of recent values
+         *
+         * @return                  Number of values in the rolling window
+         */
+        public int getCount() {
+            return sortedValues.length;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public long getTotalValue() {
+            return totalValue;
+        }
+
+        public long getMean() {
+            if (sortedValues.length == 0) {
+                return 0;
+            }
+            long sum = 0;
+            for (long value : sortedValues) {
+                sum += value;
+            }
+            return sum / sortedValues.length;
+        }
+
+        public long getMax() {
+            return sortedValues.length == 0 ? 0 : sortedValues[sortedValues.length - 1];
+        }
+
+        /**
+         * Return the recent value at the requested percentile, using the nearest rank method
+         *
+         * @param   percentile      Percentile between 0 and 100
+         * @return                  Value at the percentile, or 0 if there are no values
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (sortedValues.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedValues.length);
+            return sortedValues[Math.max(rank, 1) - 1];
+        }
+
+    }
+
+}
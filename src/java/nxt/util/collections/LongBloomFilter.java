@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.util.collections;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of primitive long values.
+ * <p>
+ * A value which has been added is always reported as possibly present, while a value which has
+ * not been added is reported as possibly present with the false positive probability of the filter.
+ * Values can't be removed.  The bit positions are derived from two hashes of the value using double
+ * hashing.  Values can be added and tested concurrently.
+ */
+public final class LongBloomFilter {
+
+    private static final int MAX_BITS = 1 << 30;
+
+    private final AtomicLongArray words;
+    private final int bitMask;
+    private final int numHashes;
+    private final int capacity;
+    private final AtomicLong count;
+
+    /**
+     * Create a Bloom filter
+     *
+     * @param   capacity            Expected number of values
+     * @param   falsePositiveRate   False positive probability when the filter holds the expected number of values
+     */
+    public LongBloomFilter(int capacity, double falsePositiveRate) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        double bits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int numBits = 64;
+        while (numBits < bits && numBits < MAX_BITS) {
+            numBits <<= 1;
+        }
+        this.words = new AtomicLongArray(numBits >>> 6);
+        this.bitMask = numBits - 1;
+        this.numHashes = Math.max(1, Math.min(16, (int)Math.round((double)numBits / capacity * Math.log(2))));
+        this.capacity = capacity;
+        this.count = new AtomicLong();
+    }
+
+    private LongBloomFilter(long[] words, int numHashes, int capacity, long count) {
+        this.words = new AtomicLongArray(words);
+        this.bitMask = (words.length << 6) - 1;
+        this.numHashes = numHashes;
+        this.capacity = capacity;
+        this.count = new AtomicLong(count);
+    }
+
+    /**
+     * Add a value
+     *
+     * @param   value               Value
+     */
+    public void add(long value) {
+        int h1 = hash1(value);
+        int h2 = hash2(value);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Check if a value may have been added
+     *
+     * @param   value               Value
+     * @return                      FALSE if the value has not been added, TRUE if it may have been added
+     */
+    public boolean mightContain(long value) {
+        int h1 = hash1(value);
+        int h2 = hash2(value);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the expected number of values
+     *
+     * @return                      Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Return the number of values added, including duplicates
+     *
+     * @return                      Number of values added
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    public int getBitCount() {
+        return bitMask + 1;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * Return the false positive probability for the number of values added
+     *
+     * @return                      Expected false positive rate
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double)numHashes * count.get() / getBitCount()), numHashes);
+    }
+
+    /**
+     * Return the serialized filter
+     *
+     * @return                      Filter bytes
+     */
+    public byte[] toBytes() {
+        int length = words.length();
+        ByteBuffer buffer = ByteBuffer.allocate(16 + length * 8);
+        buffer.putInt(numHashes);
+        buffer.putInt(capacity);
+        buffer.putLong(count.get());
+        for (int i = 0; i < length; i++) {
+            buffer.putLong(words.get(i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Create a filter from its serialized bytes
+     *
+     * @param   bytes               Bytes returned by toBytes()
+     * @return                      Bloom filter
+     * @throws  IllegalArgumentException  Invalid filter bytes
+     */
+    public static LongBloomFilter fromBytes(byte[] bytes) {
+        int length = (bytes.length - 16) / 8;
+        if (bytes.length < 16 + 8 || (bytes.length - 16) % 8 != 0 || Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter length " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int numHashes = buffer.getInt();
+        int capacity = buffer.getInt();
+        long count = buffer.getLong();
+        if (numHashes < 1 || numHashes > 16 || capacity <= 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid Bloom filter header");
+        }
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new LongBloomFilter(words, numHashes, capacity, count);
+    }
+
+    private static int hash1(long value) {
+        return LongHashSet.hash(value);
+    }
+
+    private static int hash2(long value) {
+        long h = (value ^ (value >>> 29)) * 0xBF58476D1CE4E5B9L;
+        return (int)(h >>> 32) | 1;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Map with primitive long keys.
+ * <p>
+ * The entries are stored in open-addressing arrays using linear probing, so no key objects or
+ * entry objects are allocated.  Key 0 is stored separately since it marks an empty slot.  The
+ * map is not synchronized.
+ *
+ * @param   <V>                 Value type
+ */
+public final class LongHashMap<V> {
+
+    /**
+     * Consumer of map entries
+     *
+     * @param   <V>             Value type
+     */
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeSize;
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public LongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Create a map
+     *
+     * @param   expectedSize        Number of entries the map can hold without resizing
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(LongHashSet.tableSize(expectedSize));
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : keys[find(key)] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return key == 0 ? zeroValue : (V)values[find(key)];
+    }
+
+    /**
+     * Add or replace an entry
+     *
+     * @param   key                 Key
+     * @param   value               Value
+     * @return                      Previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V previousValue = zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previousValue;
+        }
+        int index = find(key);
+        if (keys[index] != 0) {
+            V previousValue = (V)values[index];
+            values[index] = value;
+            return previousValue;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeSize) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Return the value of an entry, adding the entry if it doesn't exist
+     *
+     * @param   key                 Key
+     * @param   mappingFunction     Function returning the value of a new entry
+     * @return                      Current value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove an entry
+     *
+     * @param   key                 Key
+     * @return                      Removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V previousValue = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return previousValue;
+        }
+        int index = find(key);
+        if (keys[index] == 0) {
+            return null;
+        }
+        V previousValue = (V)values[index];
+        LongHashSet.shiftKeys(keys, values, index, mask);
+        size -= 1;
+        return previousValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    /**
+     * Process each entry.  The map must not be modified by the consumer.
+     *
+     * @param   consumer            Entry consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectConsumer<? super V> consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], (V)values[i]);
+            }
+        }
+    }
+
+    /**
+     * Return the keys
+     *
+     * @return                      Array of keys in no particular order
+     */
+    public long[] keys() {
+        long[] result = new long[size()];
+        int n = 0;
+        if (hasZeroKey) {
+            result[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the values
+     *
+     * @return                      List of values in no particular order
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        forEach((key, value) -> result.add(value));
+        return result;
+    }
+
+    private int find(long key) {
+        int index = LongHashSet.hash(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeSize = (int)(capacity * LongHashSet.LOAD_FACTOR);
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of primitive long values.
+ * <p>
+ * The values are stored in an open-addressing array using linear probing, so no objects are
+ * allocated when values are added.  Value 0 is stored separately since it marks an empty slot.
+ * The set is not synchronized.
+ */
+public final class LongHashSet {
+
+    static final float LOAD_FACTOR = 0.5f;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int resizeSize;
+    private boolean hasZeroKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Create a set
+     *
+     * @param   expectedSize        Number of values the set can hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(long key) {
+        return key == 0 ? hasZeroKey : keys[find(key)] != 0;
+    }
+
+    /**
+     * Add a value
+     *
+     * @param   key                 Value
+     * @return                      TRUE if the value was added, FALSE if it was already in the set
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            return added;
+        }
+        int index = find(key);
+        if (keys[index] != 0) {
+            return false;
+        }
+        keys[index] = key;
+        if (++size > resizeSize) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value
+     *
+     * @param   key                 Value
+     * @return                      TRUE if the value was removed, FALSE if it was not in the set
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            return removed;
+        }
+        int index = find(key);
+        if (keys[index] == 0) {
+            return false;
+        }
+        shiftKeys(keys, null, index, mask);
+        size -= 1;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Process each value.  The set must not be modified by the consumer.
+     *
+     * @param   consumer            Value consumer
+     */
+    public void forEach(LongConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Return the values
+     *
+     * @return                      Array of values in no particular order
+     */
+    public long[] toArray() {
+        long[] result = new long[size()];
+        int n = 0;
+        if (hasZeroKey) {
+            result[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int find(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        allocate(keys.length * 2);
+        for (long key : oldKeys) {
+            if (key != 0) {
+                keys[find(key)] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeSize = (int)(capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spread the bits of a key, since account and transaction identifiers are not always
+     * uniformly distributed in their low bits
+     */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Return the table size for the expected number of entries
+     */
+    static int tableSize(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max((int)Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR), 2) - 1) << 1;
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size " + expectedSize + " is too large");
+        }
+        return capacity;
+    }
+
+    /**
+     * Remove the entry at an index and move the following entries of the probe sequence back,
+     * so that no deleted markers are needed
+     */
+    static void shiftKeys(long[] keys, Object[] values, int index, int mask) {
+        int free = index;
+        int next = (free + 1) & mask;
+        while (keys[next] != 0) {
+            int slot = hash(keys[next]) & mask;
+            if (free <= next ? (slot <= free || slot > next) : (slot <= free && slot > next)) {
+                keys[free] = keys[next];
+                if (values != null) {
+                    values[free] = values[next];
+                }
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        if (values != null) {
+            values[free] = null;
+        }
+    }
+
+}
@@ -141,7 +141,7 @@ public class PhasingParams {
 
         private CompositeVoting(ByteBuffer buffer) throws NxtException.NotValidException {
             this.expressionStr = Convert.readString(buffer, buffer.getShort(), Constants.MAX_PHASING_COMPOSITE_VOTE_EXPRESSION_LENGTH);
-            this.expression = new BooleanExpression(this.expressionStr);
+            this.expression = BooleanExpression.compile(this.expressionStr);
             byte subPollsNum = buffer.get();
             if (subPollsNum > 0) {
                 SortedMap<String, PhasingParams> subPolls = new TreeMap<>();
@@ -158,13 +158,13 @@ public class PhasingParams {
 
         public CompositeVoting(String expression, SortedMap<String, PhasingParams> subPolls) {
             this.expressionStr = Convert.nullToEmpty(expression);
-            this.expression = new BooleanExpression(expressionStr);
+            this.expression = BooleanExpression.compile(expressionStr);
             this.subPolls = subPolls == null ? Collections.emptySortedMap() : Collections.unmodifiableSortedMap(subPolls);
         }
 
         private CompositeVoting(JSONObject attachmentData) {
             this.expressionStr = Convert.nullToEmpty((String)attachmentData.get("phasingExpression"));
-            this.expression = new BooleanExpression(this.expressionStr);
+            this.expression = BooleanExpression.compile(this.expressionStr);
             Set<String> variables = this.expression.getVariables();
             JSONObject subPollsJson = (JSONObject)attachmentData.get("phasingSubPolls");
             subPolls = new TreeMap<>();
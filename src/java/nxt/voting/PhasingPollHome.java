@@ -30,6 +30,7 @@ import nxt.db.DbUtils;
 import nxt.db.DerivedDbTable;
 import nxt.db.EntityDbTable;
 import nxt.db.ValuesDbTable;
+import nxt.dbschema.Db;
 import nxt.util.BooleanExpression;
 import nxt.util.Convert;
 
@@ -47,6 +48,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -321,6 +323,9 @@ public final class PhasingPollHome {
     private final DbKey.HashKeyFactory<PhasingPoll> subPollsDbKeyFactory;
     private final ValuesDbTable<PhasingPoll, PhasingSubPoll> subPollsTable;
 
+    /** Sub-poll vote counts after the last block, used when counting votes outside of block processing */
+    private volatile SubPollCounts subPollCounts;
+
     private PhasingPollHome(ChildChain childChain) {
         this.childChain = childChain;
         this.phasingVoteHome = childChain.getPhasingVoteHome();
@@ -585,6 +590,16 @@ public final class PhasingPollHome {
     }
 
 
+    private static final class SubPollCounts {
+
+        private final long blockId;
+        private final Map<DbKey, Map<String, Long>> counts = new ConcurrentHashMap<>();
+
+        private SubPollCounts(long blockId) {
+            this.blockId = blockId;
+        }
+    }
+
     public final class PhasingPoll extends AbstractPoll {
 
         private final long recipientAccountId;
@@ -700,32 +715,38 @@ public final class PhasingPollHome {
         }
 
         public long countVotes() {
-            return countVotes(null, params);
+            return countVotes(null, params, new VoteWeights(getCountHeight()));
         }
 
         BooleanExpression.Value getCompositeVotingResult() {
-            Map<String, BooleanExpression.Value> values = params.getSubPolls().entrySet().stream().collect(
-                    Collectors.toMap(Map.Entry::getKey, e -> {
-                        PhasingParams subPoll = e.getValue();
-                        final long quorum = subPoll.getQuorum();
-
-                        if (PhasingPoll.this.finishHeight <= Nxt.getBlockchain().getHeight()) {
-                            // after finishHeight
-                            return BooleanExpression.Value.fromBoolean(countVotes(e.getKey(), subPoll) >= quorum);
-                        } else {
-                            if (subPoll.allowEarlyFinish()) {
-                                if (countVotes(e.getKey(), subPoll) >= quorum) {
-                                    return BooleanExpression.Value.TRUE;
-                                } else {
-                                    return BooleanExpression.Value.UNKNOWN;
-                                }
-                            } else {
-                                return BooleanExpression.Value.UNKNOWN;
-                            }
-                        }
-                    }));
+            return getCompositeVotingResult(new VoteWeights(getCountHeight()));
+        }
+
+        private int getCountHeight() {
+            return Math.min(this.finishHeight, Nxt.getBlockchain().getHeight());
+        }
+
+        private BooleanExpression.Value getCompositeVotingResult(VoteWeights voteWeights) {
+            // The sub-polls share the vote weights, so that the balances of a holding are read once,
+            // and a sub-poll is only counted if its value is needed to evaluate the expression
+            SortedMap<String, PhasingParams> subPolls = params.getSubPolls();
+            boolean isFinished = PhasingPoll.this.finishHeight <= Nxt.getBlockchain().getHeight();
             try {
-                return params.getExpression().evaluate(values);
+                return params.getExpression().evaluate(subPollName -> {
+                    PhasingParams subPoll = subPolls.get(subPollName);
+                    if (subPoll == null) {
+                        return BooleanExpression.Value.UNKNOWN;
+                    }
+                    final long quorum = subPoll.getQuorum();
+                    if (isFinished) {
+                        // after finishHeight
+                        return BooleanExpression.Value.fromBoolean(countSubPollVotes(subPollName, subPoll, voteWeights) >= quorum);
+                    } else if (subPoll.allowEarlyFinish() && countSubPollVotes(subPollName, subPoll, voteWeights) >= quorum) {
+                        return BooleanExpression.Value.TRUE;
+                    } else {
+                        return BooleanExpression.Value.UNKNOWN;
+                    }
+                });
             } catch (BooleanExpression.BooleanExpressionException e) {
                 //Should never happen - these phasing parameters are always loaded from the DB and the expression
                 //should be validated before entering the DB
@@ -733,18 +754,50 @@ public final class PhasingPollHome {
             }
         }
 
+        /**
+         * Count the votes of a sub-poll.  Outside of block processing, the count is kept until the next block,
+         * so that API requests for the same poll don't count the votes again.  The votes are always counted
+         * while processing a block, since the sub-poll results change as the block transactions are applied.
+         */
+        private long countSubPollVotes(String subPollName, PhasingParams subPoll, VoteWeights voteWeights) {
+            if (Db.db.isInTransaction()) {
+                return countVotes(subPollName, subPoll, voteWeights);
+            }
+            Nxt.getBlockchain().readLock();
+            try {
+                if (voteWeights.getHeight() != getCountHeight()) {
+                    return countVotes(subPollName, subPoll, voteWeights);
+                }
+                long blockId = Nxt.getBlockchain().getLastBlock().getId();
+                SubPollCounts counts = subPollCounts;
+                if (counts == null || counts.blockId != blockId) {
+                    counts = new SubPollCounts(blockId);
+                    subPollCounts = counts;
+                }
+                Map<String, Long> pollCounts = counts.counts.computeIfAbsent(dbKey, key -> new ConcurrentHashMap<>());
+                Long count = pollCounts.get(subPollName);
+                if (count == null) {
+                    count = countVotes(subPollName, subPoll, voteWeights);
+                    pollCounts.put(subPollName, count);
+                }
+                return count;
+            } finally {
+                Nxt.getBlockchain().readUnlock();
+            }
+        }
+
         private boolean isPropertyVotingValid(PhasingParams.PropertyVoting propertyVoting, Account.AccountProperty property) {
             return property != null && property.getValue() != null && (propertyVoting.getValue().isEmpty()
                     || propertyVoting.getValue().equals(property.getValue()));
         }
 
-        private long countVotes(String subPollName, PhasingParams phasingParams) {
+        private long countVotes(String subPollName, PhasingParams phasingParams, VoteWeights voteWeights) {
             VoteWeighting voteWeighting = phasingParams.getVoteWeighting();
             VoteWeighting.VotingModel votingModel = voteWeighting.getVotingModel();
             if (votingModel == NONE) {
                 return 0;
             }
-            int height = Math.min(this.finishHeight, Nxt.getBlockchain().getHeight());
+            int height = voteWeights.getHeight();
             if (votingModel == TRANSACTION) {
                 int count = 0;
                 for (ChainTransactionId linkedTransaction : phasingParams.getLinkedTransactionsIds()) {
@@ -775,7 +828,7 @@ public final class PhasingPollHome {
                 return isPropertyVotingValid(propertyVoting, property) ? 1 : 0;
             }
             if (votingModel == COMPOSITE) {
-                BooleanExpression.Value result = getCompositeVotingResult();
+                BooleanExpression.Value result = getCompositeVotingResult(voteWeights);
                 switch (result) {
                     case TRUE:
                         return 1;
@@ -791,20 +844,22 @@ public final class PhasingPollHome {
                 }
             }
 
-            long cumulativeWeight = 0;
+            List<Long> voterIds = new ArrayList<>();
             if (subPollName == null) {
                 try (DbIterator<PhasingVoteHome.PhasingVote> votes = phasingVoteHome.getVotes(this.hash, 0, Integer.MAX_VALUE)) {
-                    for (PhasingVoteHome.PhasingVote vote : votes) {
-                        cumulativeWeight += votingModel.calcWeight(voteWeighting, vote.getVoterId(), height);
-                    }
+                    votes.forEach(vote -> voterIds.add(vote.getVoterId()));
                 }
             } else {
                 try (DbIterator<PhasingVoteHome.PhasingVoteSubPoll> votes = phasingVoteHome.getSubPollVotes(this.hash, subPollName)) {
-                    for (PhasingVoteHome.PhasingVoteSubPoll vote : votes) {
-                        cumulativeWeight += votingModel.calcWeight(voteWeighting, vote.getVoterId(), height);
-                    }
+                    votes.forEach(vote -> voterIds.add(vote.getVoterId()));
                 }
             }
+            long[] ids = voterIds.stream().mapToLong(Long::longValue).toArray();
+            voteWeights.addVoters(voteWeighting, ids);
+            long cumulativeWeight = 0;
+            for (long voterId : ids) {
+                cumulativeWeight += voteWeights.getWeight(voteWeighting, voterId);
+            }
             return cumulativeWeight;
         }
 
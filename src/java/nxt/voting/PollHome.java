@@ -34,8 +34,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class PollHome {
 
@@ -180,17 +183,38 @@ public final class PollHome {
     }
 
     private void checkPolls(int currentHeight) {
+        // The votes of all polls finishing at this height are read first, so that the balances
+        // of their voters are read together for each holding
+        VoteWeights voteWeights = new VoteWeights(currentHeight);
+        Map<Poll, List<VoteHome.Vote>> pollVotes = new LinkedHashMap<>();
         try (DbIterator<Poll> polls = getPollsFinishingAt(currentHeight)) {
             for (Poll poll : polls) {
                 try {
-                    List<OptionResult> results = poll.countResults(poll.getVoteWeighting(), currentHeight);
-                    pollResultsTable.insert(poll, results);
-                    Logger.logDebugMessage("Poll " + Long.toUnsignedString(poll.getId()) + " has been finished");
+                    List<VoteHome.Vote> votes = poll.getVoteList();
+                    voteWeights.addVoters(poll.getVoteWeighting(), getVoterIds(votes));
+                    pollVotes.put(poll, votes);
                 } catch (RuntimeException e) {
                     Logger.logErrorMessage("Couldn't count votes for poll " + Long.toUnsignedString(poll.getId()));
                 }
             }
         }
+        pollVotes.forEach((poll, votes) -> {
+            try {
+                List<OptionResult> results = poll.countResults(poll.getVoteWeighting(), votes, voteWeights);
+                pollResultsTable.insert(poll, results);
+                Logger.logDebugMessage("Poll " + Long.toUnsignedString(poll.getId()) + " has been finished");
+            } catch (RuntimeException e) {
+                Logger.logErrorMessage("Couldn't count votes for poll " + Long.toUnsignedString(poll.getId()));
+            }
+        });
+    }
+
+    private static long[] getVoterIds(List<VoteHome.Vote> votes) {
+        long[] voterIds = new long[votes.size()];
+        for (int i = 0; i < voterIds.length; i++) {
+            voterIds[i] = votes.get(i).getVoterId();
+        }
+        return voterIds;
     }
 
 
@@ -335,22 +359,26 @@ public final class PollHome {
         }
 
         private List<OptionResult> countResults(VoteWeighting voteWeighting, int height) {
+            List<VoteHome.Vote> votes = getVoteList();
+            VoteWeights voteWeights = new VoteWeights(height);
+            voteWeights.addVoters(voteWeighting, getVoterIds(votes));
+            return countResults(voteWeighting, votes, voteWeights);
+        }
+
+        private List<OptionResult> countResults(VoteWeighting voteWeighting, List<VoteHome.Vote> votes, VoteWeights voteWeights) {
             final OptionResult[] result = new OptionResult[options.length];
-            VoteWeighting.VotingModel votingModel = voteWeighting.getVotingModel();
-            try (DbIterator<VoteHome.Vote> votes = childChain.getVoteHome().getVotes(this.getId(), 0, -1)) {
-                for (VoteHome.Vote vote : votes) {
-                    long weight = votingModel.calcWeight(voteWeighting, vote.getVoterId(), height);
-                    if (weight <= 0) {
-                        continue;
-                    }
-                    long[] partialResult = countVote(vote, weight);
-                    for (int i = 0; i < partialResult.length; i++) {
-                        if (partialResult[i] != Long.MIN_VALUE) {
-                            if (result[i] == null) {
-                                result[i] = new OptionResult(partialResult[i], weight);
-                            } else {
-                                result[i].add(partialResult[i], weight);
-                            }
+            for (VoteHome.Vote vote : votes) {
+                long weight = voteWeights.getWeight(voteWeighting, vote.getVoterId());
+                if (weight <= 0) {
+                    continue;
+                }
+                long[] partialResult = countVote(vote, weight);
+                for (int i = 0; i < partialResult.length; i++) {
+                    if (partialResult[i] != Long.MIN_VALUE) {
+                        if (result[i] == null) {
+                            result[i] = new OptionResult(partialResult[i], weight);
+                        } else {
+                            result[i].add(partialResult[i], weight);
                         }
                     }
                 }
@@ -358,6 +386,14 @@ public final class PollHome {
             return Arrays.asList(result);
         }
 
+        private List<VoteHome.Vote> getVoteList() {
+            List<VoteHome.Vote> votes = new ArrayList<>();
+            try (DbIterator<VoteHome.Vote> iterator = childChain.getVoteHome().getVotes(this.getId(), 0, -1)) {
+                iterator.forEach(votes::add);
+            }
+            return votes;
+        }
+
         private long[] countVote(VoteHome.Vote vote, long weight) {
             final long[] partialResult = new long[options.length];
             final byte[] optionValues = vote.getVoteBytes();
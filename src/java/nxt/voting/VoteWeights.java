@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.voting;
+
+import nxt.account.Account;
+import nxt.account.BalanceHome;
+import nxt.blockchain.Chain;
+import nxt.db.DbIterator;
+import nxt.util.collections.LongHashMap;
+import nxt.util.collections.LongHashSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Vote weights of the voters counted at a height.
+ * <p>
+ * The balances needed by the COIN, ASSET and CURRENCY voting models and by the ACCOUNT voting model
+ * with a minimum balance are read together for all the voters registered for a holding, instead of
+ * with a query for each voter, and are kept for the following polls using the same holding.  The
+ * balances at the current height change when phased transactions are released, so an instance must
+ * only be used while counting votes without applying transactions in between.
+ */
+final class VoteWeights {
+
+    /** Maximum number of balances read by a single query */
+    private static final int BATCH_SIZE = 256;
+
+    private final int height;
+    private final Map<HoldingKey, Holding> holdings = new HashMap<>();
+
+    VoteWeights(int height) {
+        this.height = height;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Register voters whose weight will be needed, so that their balances are read together
+     *
+     * @param   voteWeighting       Vote weighting
+     * @param   voterIds            Voter identifiers
+     */
+    void addVoters(VoteWeighting voteWeighting, long[] voterIds) {
+        Holding holding = getHolding(voteWeighting);
+        if (holding != null) {
+            for (long voterId : voterIds) {
+                if (!holding.balances.containsKey(voterId)) {
+                    holding.pendingVoterIds.add(voterId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the weight of a voter, as calculated by VotingModel.calcWeight()
+     *
+     * @param   voteWeighting       Vote weighting
+     * @param   voterId             Voter identifier
+     * @return                      Vote weight
+     */
+    long getWeight(VoteWeighting voteWeighting, long voterId) {
+        VoteWeighting.VotingModel votingModel = voteWeighting.getVotingModel();
+        Holding holding = getHolding(voteWeighting);
+        if (holding == null) {
+            return votingModel == VoteWeighting.VotingModel.ACCOUNT ? 1 : votingModel.calcWeight(voteWeighting, voterId, height);
+        }
+        long balance = holding.getBalance(voterId);
+        if (votingModel == VoteWeighting.VotingModel.ACCOUNT) {
+            return balance >= voteWeighting.getMinBalance() ? 1 : 0;
+        }
+        return balance >= voteWeighting.getMinBalance() ? balance : 0;
+    }
+
+    private Holding getHolding(VoteWeighting voteWeighting) {
+        VoteWeighting.MinBalanceModel minBalanceModel;
+        switch (voteWeighting.getVotingModel()) {
+            case ACCOUNT:
+                if (voteWeighting.getMinBalance() == 0) {
+                    return null;
+                }
+                minBalanceModel = voteWeighting.getMinBalanceModel();
+                break;
+            case COIN:
+            case ASSET:
+            case CURRENCY:
+                minBalanceModel = voteWeighting.getVotingModel().getMinBalanceModel();
+                break;
+            default:
+                return null;
+        }
+        if (minBalanceModel == VoteWeighting.MinBalanceModel.NONE) {
+            throw new IllegalStateException("No minimum balance model for voting model " + voteWeighting.getVotingModel()
+                    + " and holding " + Long.toUnsignedString(voteWeighting.getHoldingId()));
+        }
+        return holdings.computeIfAbsent(new HoldingKey(minBalanceModel, voteWeighting.getHoldingId()), Holding::new);
+    }
+
+    private static final class HoldingKey {
+
+        private final VoteWeighting.MinBalanceModel minBalanceModel;
+        private final long holdingId;
+
+        private HoldingKey(VoteWeighting.MinBalanceModel minBalanceModel, long holdingId) {
+            this.minBalanceModel = minBalanceModel;
+            this.holdingId = holdingId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HoldingKey && minBalanceModel == ((HoldingKey)o).minBalanceModel
+                    && holdingId == ((HoldingKey)o).holdingId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(minBalanceModel, holdingId);
+        }
+    }
+
+    private final class Holding {
+
+        private final HoldingKey key;
+        private final LongHashMap<Long> balances = new LongHashMap<>();
+        private final LongHashSet pendingVoterIds = new LongHashSet();
+
+        private Holding(HoldingKey key) {
+            this.key = key;
+        }
+
+        private long getBalance(long voterId) {
+            Long balance = balances.get(voterId);
+            if (balance == null) {
+                pendingVoterIds.add(voterId);
+                load();
+                balance = balances.get(voterId);
+            }
+            return balance;
+        }
+
+        private void load() {
+            long[] voterIds = pendingVoterIds.toArray();
+            pendingVoterIds.clear();
+            for (long voterId : voterIds) {
+                balances.put(voterId, 0L);
+            }
+            for (int i = 0; i < voterIds.length; i += BATCH_SIZE) {
+                long[] batch = new long[Math.min(BATCH_SIZE, voterIds.length - i)];
+                System.arraycopy(voterIds, i, batch, 0, batch.length);
+                switch (key.minBalanceModel) {
+                    case COIN:
+                        try (DbIterator<BalanceHome.Balance> iterator = Chain.getChain(Math.toIntExact(key.holdingId)).getBalanceHome()
+                                .getBalances(batch, height)) {
+                            iterator.forEach(balance -> balances.put(balance.getAccountId(), balance.getBalance()));
+                        }
+                        break;
+                    case ASSET:
+                        try (DbIterator<Account.AccountAsset> iterator = Account.getAssetAccounts(key.holdingId, batch, height)) {
+                            iterator.forEach(accountAsset -> balances.put(accountAsset.getAccountId(), accountAsset.getQuantityQNT()));
+                        }
+                        break;
+                    case CURRENCY:
+                        try (DbIterator<Account.AccountCurrency> iterator = Account.getCurrencyAccounts(key.holdingId, batch, height)) {
+                            iterator.forEach(accountCurrency -> balances.put(accountCurrency.getAccountId(), accountCurrency.getUnits()));
+                        }
+                        break;
+                }
+            }
+        }
+    }
+}
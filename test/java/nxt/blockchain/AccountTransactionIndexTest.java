@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.blockchain;
+
+import nxt.BlockchainTest;
+import nxt.Tester;
+import nxt.db.ContinuationToken;
+import nxt.db.DbIterator;
+import nxt.dbschema.Db;
+import nxt.http.APICall;
+import nxt.util.Convert;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class AccountTransactionIndexTest extends BlockchainTest {
+
+    @Test
+    public void indexedWhenSavedAndRemovedWhenPoppedOff() {
+        int height = blockchain.getHeight();
+        long transactionId = sendMoney(ALICE, BOB);
+        generateBlock();
+        List<long[]> rows = getIndexRows(transactionId);
+        Assert.assertEquals(2, rows.size());
+        Assert.assertArrayEquals(new long[] {ALICE.getId(), AccountTransactionIndex.SENT}, rows.get(0));
+        Assert.assertArrayEquals(new long[] {BOB.getId(), AccountTransactionIndex.RECEIVED}, rows.get(1));
+        Assert.assertTrue(getIndexCount(ChildChain.IGNIS, height) > 0);
+        Assert.assertTrue(getIndexCount(FxtChain.FXT, height) > 0);
+        blockchainProcessor.popOffTo(height);
+        Assert.assertEquals(0, getIndexCount(ChildChain.IGNIS, height));
+        Assert.assertEquals(0, getIndexCount(FxtChain.FXT, height));
+    }
+
+    @Test
+    public void senderIsRecipient() {
+        long transactionId = sendMessage(ALICE, ALICE);
+        generateBlock();
+        List<long[]> rows = getIndexRows(transactionId);
+        Assert.assertEquals(1, rows.size());
+        Assert.assertArrayEquals(new long[] {ALICE.getId(), AccountTransactionIndex.SENT}, rows.get(0));
+        int count = 0;
+        for (ChildTransactionImpl transaction : getTransactions(ALICE, (byte)-1, (byte)-1, null, 0, -1)) {
+            if (transaction.getId() == transactionId) {
+                count += 1;
+            }
+        }
+        Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void typeFilter() {
+        long paymentId = sendMoney(ALICE, BOB);
+        long messageId = sendMessage(ALICE, BOB);
+        generateBlock();
+        TransactionType messageType = ChildChain.IGNIS.getTransactionHome().findTransaction(getFullHash(messageId)).getType();
+        for (Tester tester : new Tester[] {ALICE, BOB}) {
+            List<ChildTransactionImpl> transactions = getTransactions(tester, messageType.getType(), messageType.getSubtype(), null, 0, -1);
+            List<Long> ids = new ArrayList<>();
+            for (ChildTransactionImpl transaction : transactions) {
+                Assert.assertEquals(messageType, transaction.getType());
+                ids.add(transaction.getId());
+            }
+            Assert.assertTrue(ids.contains(messageId));
+            Assert.assertFalse(ids.contains(paymentId));
+            for (ChildTransactionImpl transaction : getTransactions(tester, messageType.getType(), (byte)-1, null, 0, -1)) {
+                Assert.assertEquals(messageType.getType(), transaction.getType().getType());
+            }
+        }
+    }
+
+    @Test
+    public void continuationPaging() {
+        for (int i = 0; i < 5; i++) {
+            sendMoney(ALICE, BOB);
+        }
+        generateBlock();
+        sendMoney(ALICE, CHUCK);
+        sendMoney(BOB, ALICE);
+        sendMessage(ALICE, ALICE);
+        generateBlock();
+        List<ChildTransactionImpl> all = getTransactions(ALICE, (byte)-1, (byte)-1, null, 0, -1);
+        List<ChildTransactionImpl> paged = new ArrayList<>();
+        ContinuationToken continuation = null;
+        while (true) {
+            List<ChildTransactionImpl> page = getTransactions(ALICE, (byte)-1, (byte)-1, continuation, 0, 1);
+            paged.addAll(page);
+            if (page.size() < 2) {
+                break;
+            }
+            ChildTransactionImpl last = page.get(page.size() - 1);
+            continuation = new ContinuationToken(last.getHeight(), last.getId());
+        }
+        Assert.assertEquals(getIds(all), getIds(paged));
+        // the previous query without the index ordered the transactions of a block differently
+        List<Long> expected = new ArrayList<>();
+        List<Integer> expectedHeights = new ArrayList<>();
+        try (Connection con = Db.db.getConnection(ChildChain.IGNIS.getDbSchema());
+             PreparedStatement pstmt = con.prepareStatement("SELECT transaction.* FROM transaction WHERE recipient_id = ? AND sender_id <> ? "
+                     + "UNION ALL SELECT transaction.* FROM transaction WHERE sender_id = ? "
+                     + "ORDER BY block_timestamp DESC, transaction_index DESC")) {
+            pstmt.setLong(1, ALICE.getId());
+            pstmt.setLong(2, ALICE.getId());
+            pstmt.setLong(3, ALICE.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    expected.add(rs.getLong("id"));
+                    expectedHeights.add(rs.getInt("height"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        Assert.assertEquals(expected.size(), paged.size());
+        Assert.assertEquals(new HashSet<>(expected), new HashSet<>(getIds(paged)));
+        List<Integer> heights = new ArrayList<>();
+        paged.forEach(transaction -> heights.add(transaction.getHeight()));
+        Assert.assertEquals(expectedHeights, heights);
+    }
+
+    private static long sendMoney(Tester sender, Tester recipient) {
+        JSONObject response = new APICall.Builder("sendMoney").
+                param("secretPhrase", sender.getSecretPhrase()).
+                param("recipient", recipient.getStrId()).
+                param("amountNQT", ChildChain.IGNIS.ONE_COIN).
+                param("feeNQT", ChildChain.IGNIS.ONE_COIN).
+                build().invoke();
+        return Convert.fullHashToId(Convert.parseHexString((String)response.get("fullHash")));
+    }
+
+    private static long sendMessage(Tester sender, Tester recipient) {
+        JSONObject response = new APICall.Builder("sendMessage").
+                param("secretPhrase", sender.getSecretPhrase()).
+                param("recipient", recipient.getStrId()).
+                param("message", "hello world").
+                param("feeNQT", ChildChain.IGNIS.ONE_COIN).
+                build().invoke();
+        return Convert.fullHashToId(Convert.parseHexString((String)response.get("fullHash")));
+    }
+
+    private static byte[] getFullHash(long transactionId) {
+        try (Connection con = Db.db.getConnection(ChildChain.IGNIS.getDbSchema());
+             PreparedStatement pstmt = con.prepareStatement("SELECT full_hash FROM transaction WHERE id = ?")) {
+            pstmt.setLong(1, transactionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                return rs.getBytes("full_hash");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private static List<ChildTransactionImpl> getTransactions(Tester tester, byte type, byte subtype, ContinuationToken continuation,
+                                                              int from, int to) {
+        List<ChildTransactionImpl> transactions = new ArrayList<>();
+        try (DbIterator<ChildTransactionImpl> iterator = blockchain.getTransactions(ChildChain.IGNIS, tester.getId(), 0, type, subtype,
+                0, false, false, false, continuation, from, to, false, false)) {
+            iterator.forEach(transactions::add);
+        }
+        return transactions;
+    }
+
+    private static List<Long> getIds(List<ChildTransactionImpl> transactions) {
+        List<Long> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+
+    private static List<long[]> getIndexRows(long transactionId) {
+        List<long[]> rows = new ArrayList<>();
+        try (Connection con = Db.db.getConnection(ChildChain.IGNIS.getDbSchema());
+             PreparedStatement pstmt = con.prepareStatement("SELECT account_id, direction FROM "
+                     + AccountTransactionIndex.getIndexTable(ChildChain.IGNIS) + " INNER JOIN transaction "
+                     + "ON transaction_db_id = transaction.db_id WHERE transaction.id = ? ORDER BY direction")) {
+            pstmt.setLong(1, transactionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new long[] {rs.getLong("account_id"), rs.getByte("direction")});
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return rows;
+    }
+
+    private static int getIndexCount(Chain chain, int height) {
+        try (Connection con = Db.db.getConnection(chain.getDbSchema());
+             PreparedStatement pstmt = con.prepareStatement("SELECT COUNT(*) FROM " + AccountTransactionIndex.getIndexTable(chain)
+                     + " WHERE height > ?")) {
+            pstmt.setInt(1, height);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+}
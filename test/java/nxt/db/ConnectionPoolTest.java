@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class ConnectionPoolTest {
+
+    private static ConnectionPool newPool(String name, int maxConnections, int reservedConnections) {
+        return new ConnectionPool("jdbc:h2:mem:" + name, "sa", "sa", maxConnections, reservedConnections, 1);
+    }
+
+    @Test
+    public void reservedConnections() throws SQLException {
+        ConnectionPool pool = newPool("reserved", 2, 1);
+        try (Connection con = pool.getConnection(false)) {
+            Assert.assertEquals(1, pool.getActiveConnections());
+            try (Connection ignored = pool.getConnection(false)) {
+                Assert.fail("Reserved connection used by an autocommit request");
+            } catch (SQLException expected) {
+                Assert.assertEquals(1, pool.getTimeouts());
+            }
+            try (Connection reserved = pool.getConnection(true)) {
+                Assert.assertEquals(2, pool.getActiveConnections());
+            }
+        }
+        Assert.assertEquals(0, pool.getActiveConnections());
+        Assert.assertEquals(2, pool.getPeakConnections());
+        Assert.assertEquals(2, pool.getWaitTimes(false).getTotalCount());
+        Assert.assertEquals(1, pool.getWaitTimes(true).getTotalCount());
+    }
+
+    @Test
+    public void doubleClose() throws SQLException {
+        ConnectionPool pool = newPool("close", 1, 0);
+        Connection con = pool.getConnection(false);
+        con.close();
+        con.close();
+        Assert.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    public void leakedIterator() throws Exception {
+        ConnectionPool pool = newPool("leak", 1, 0);
+        long leakCount = DbIteratorTracker.getLeakCount();
+        openIterator(pool);
+        Assert.assertEquals(1, pool.getActiveConnections());
+        for (int i = 0; i < 50 && DbIteratorTracker.getLeakCount() == leakCount; i++) {
+            System.gc();
+            Thread.sleep(20);
+            DbIteratorTracker.checkLeaks();
+        }
+        Assert.assertEquals(leakCount + 1, DbIteratorTracker.getLeakCount());
+        Assert.assertEquals(0, pool.getActiveConnections());
+    }
+
+    private static void openIterator(ConnectionPool pool) throws SQLException {
+        Connection con = pool.getConnection(false);
+        DbIterator<Integer> iterator = new DbIterator<>(con, con.prepareStatement("SELECT X FROM SYSTEM_RANGE(1, 10)"),
+                (c, rs) -> rs.getInt(1));
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(1, DbIteratorTracker.getOpenIterators().size());
+    }
+}
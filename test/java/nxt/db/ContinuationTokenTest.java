@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContinuationTokenTest {
+
+    @Test
+    public void roundTrip() {
+        ContinuationToken token = new ContinuationToken(123456, -1L, Long.MAX_VALUE);
+        ContinuationToken parsed = ContinuationToken.parse(token.toString(), 3);
+        Assert.assertEquals(token, parsed);
+        Assert.assertEquals(123456, parsed.getInt(0));
+        Assert.assertEquals(-1L, parsed.get(1));
+        Assert.assertEquals(Long.MAX_VALUE, parsed.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongSize() {
+        ContinuationToken.parse(new ContinuationToken(1, 2).toString(), 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidEncoding() {
+        ContinuationToken.parse("not a token!", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnInt() {
+        new ContinuationToken(Long.MAX_VALUE).getInt(0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class DirtyKeyJournalTest {
+
+    private static final DbKey.LongKeyFactory<Object> keyFactory = new DbKey.LongKeyFactory<Object>("id") {
+        @Override
+        public DbKey newKey(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final DbKey key1 = keyFactory.newKey(1);
+    private static final DbKey key2 = keyFactory.newKey(2);
+    private static final DbKey key3 = keyFactory.newKey(3);
+
+    @Test
+    public void incompleteUntilTrimmed() {
+        DirtyKeyJournal journal = new DirtyKeyJournal();
+        journal.record(key1, 1);
+        Assert.assertNull(journal.getKeys(10));
+        journal.trimmed(1);
+        Assert.assertEquals(Collections.singleton(key1), journal.getKeys(10));
+    }
+
+    @Test
+    public void recordAndDrain() {
+        DirtyKeyJournal journal = new DirtyKeyJournal();
+        journal.trimmed(1);
+        journal.record(key1, 1);
+        journal.record(key2, 2);
+        journal.record(key1, 3);
+        journal.record(key3, 3);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(key1, key2)), journal.getKeys(3));
+        journal.trimmed(3);
+        Assert.assertEquals(Collections.emptySet(), journal.getKeys(3));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(key1, key3)), journal.getKeys(4));
+        journal.trimmed(4);
+        Assert.assertEquals(Collections.emptySet(), journal.getKeys(10));
+    }
+
+    @Test
+    public void rollback() {
+        DirtyKeyJournal journal = new DirtyKeyJournal();
+        journal.trimmed(1);
+        journal.record(key1, 1);
+        journal.record(key2, 2);
+        journal.record(key3, 3);
+        journal.popOffTo(1);
+        Assert.assertEquals(Collections.singleton(key1), journal.getKeys(10));
+        journal.record(key3, 2);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(key1, key3)), journal.getKeys(10));
+        journal.popOffTo(-1);
+        Assert.assertEquals(Collections.emptySet(), journal.getKeys(10));
+    }
+
+    @Test
+    public void rollbackBelowStart() {
+        DirtyKeyJournal journal = new DirtyKeyJournal();
+        journal.popOffTo(5);
+        journal.record(key1, 6);
+        Assert.assertNull(journal.getKeys(10));
+        journal.trimmed(6);
+        Assert.assertEquals(Collections.singleton(key1), journal.getKeys(10));
+        journal.popOffTo(2);
+        Assert.assertEquals(Collections.emptySet(), journal.getKeys(10));
+    }
+}
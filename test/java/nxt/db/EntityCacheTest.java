@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityCacheTest {
+
+    private static final DbKey.LongKeyFactory<Object> longKeyFactory = new DbKey.LongKeyFactory<Object>("id") {
+        @Override
+        public DbKey newKey(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final DbKey.LongLongKeyFactory<Object> longLongKeyFactory = new DbKey.LongLongKeyFactory<Object>("id_a", "id_b") {
+        @Override
+        public DbKey newKey(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final DbKey.StringKeyFactory<Object> stringKeyFactory = new DbKey.StringKeyFactory<Object>("name") {
+        @Override
+        public DbKey newKey(Object o) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Test
+    public void longKeys() {
+        EntityCache cache = new EntityCache();
+        cache.put(longKeyFactory.newKey(1), "one");
+        cache.put(longKeyFactory.newKey(0), "zero");
+        Assert.assertEquals("one", cache.get(1));
+        Assert.assertEquals("one", cache.get(longKeyFactory.newKey(1)));
+        Assert.assertEquals("zero", cache.get(0));
+        Assert.assertNull(cache.get(2));
+        cache.remove(longKeyFactory.newKey(1));
+        Assert.assertNull(cache.get(1));
+    }
+
+    @Test
+    public void longLongKeys() {
+        EntityCache cache = new EntityCache();
+        cache.put(longLongKeyFactory.newKey(1, 2), "one two");
+        cache.put(longLongKeyFactory.newKey(1, 3), "one three");
+        Assert.assertEquals("one two", cache.get(1, 2));
+        Assert.assertEquals("one three", cache.get(longLongKeyFactory.newKey(1, 3)));
+        Assert.assertNull(cache.get(2, 1));
+        Assert.assertNull(cache.get(1));
+        cache.remove(longLongKeyFactory.newKey(1, 2));
+        Assert.assertNull(cache.get(1, 2));
+        Assert.assertEquals("one three", cache.get(1, 3));
+        cache.clear();
+        Assert.assertNull(cache.get(1, 3));
+    }
+
+    @Test
+    public void otherKeys() {
+        EntityCache cache = new EntityCache();
+        cache.put(stringKeyFactory.newKey("a"), "A");
+        Assert.assertEquals("A", cache.get(stringKeyFactory.newKey("a")));
+        cache.remove(stringKeyFactory.newKey("a"));
+        Assert.assertNull(cache.get(stringKeyFactory.newKey("a")));
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeysetSortTest {
+
+    @Test
+    public void pages() throws SQLException {
+        KeysetSort keysetSort = new KeysetSort("quantity DESC", "account_id", "db_id DESC");
+        Assert.assertEquals(" ORDER BY quantity DESC, account_id, db_id DESC ", keysetSort.getOrderBy());
+        try (Connection con = DriverManager.getConnection("jdbc:h2:mem:keyset", "sa", "sa")) {
+            try (Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE test (db_id BIGINT NOT NULL, quantity BIGINT NOT NULL, account_id BIGINT NOT NULL)");
+                stmt.executeUpdate("INSERT INTO test SELECT X, MOD(X, 7), MOD(X, 3) - 1 FROM SYSTEM_RANGE(1, 100)");
+            }
+            List<Long> expected = query(keysetSort, null, 100, null);
+            Assert.assertEquals(100, expected.size());
+            List<Long> actual = new ArrayList<>();
+            ContinuationToken[] continuation = new ContinuationToken[1];
+            do {
+                int size = actual.size();
+                actual.addAll(query(keysetSort, continuation[0], 9, continuation));
+                if (actual.size() == size) {
+                    break;
+                }
+                continuation[0] = ContinuationToken.parse(continuation[0].toString(), keysetSort.size());
+            } while (true);
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidColumn() {
+        new KeysetSort("height DOWN");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidContinuation() {
+        new KeysetSort("height DESC", "db_id DESC").after(new ContinuationToken(1));
+    }
+
+    private static List<Long> query(KeysetSort keysetSort, ContinuationToken continuation, int limit,
+                                    ContinuationToken[] lastContinuation) throws SQLException {
+        Connection con = DriverManager.getConnection("jdbc:h2:mem:keyset", "sa", "sa");
+        DbClause dbClause = continuation != null ? keysetSort.after(continuation) : DbClause.EMPTY_CLAUSE;
+        PreparedStatement pstmt = con.prepareStatement("SELECT * FROM test WHERE " + dbClause.getClause()
+                + keysetSort.getOrderBy() + "LIMIT ?");
+        int i = dbClause.set(pstmt, 1);
+        pstmt.setInt(i, limit);
+        List<Long> result = new ArrayList<>();
+        try (DbIterator<Long> iterator = new DbIterator<>(con, pstmt, (c, rs) -> rs.getLong("db_id"), keysetSort)) {
+            iterator.forEach(result::add);
+            if (lastContinuation != null && iterator.getContinuation() != null) {
+                lastContinuation[0] = iterator.getContinuation();
+            }
+        }
+        return result;
+    }
+}
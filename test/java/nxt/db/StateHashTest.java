@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StateHashTest {
+
+    private static final String[] COLUMNS = {"DB_ID", "ID", "NAME", "DATA", "TAGS", "LATEST"};
+
+    private static final Object[] ROW1 = {1L, 10L, "one", new byte[] {1, 2, 3}, new Object[] {"a", "b"}, true};
+    private static final Object[] ROW2 = {2L, 20L, null, new byte[0], null, false};
+    private static final Object[] ROW3 = {3L, 30L, "three", new byte[] {3}, new Object[0], true};
+
+    @Test
+    public void orderIndependent() {
+        StateHash hash1 = new StateHash();
+        hash1.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW1));
+        hash1.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW2));
+        hash1.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW3));
+        StateHash hash2 = new StateHash();
+        hash2.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW3));
+        hash2.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW1));
+        hash2.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW2));
+        Assert.assertArrayEquals(hash1.getHash(), hash2.getHash());
+    }
+
+    @Test
+    public void removeRow() {
+        StateHash hash1 = new StateHash();
+        hash1.addTable("PUBLIC.TEST");
+        hash1.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW1));
+        StateHash hash2 = new StateHash();
+        hash2.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW2));
+        hash2.addRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW1));
+        Assert.assertFalse(Arrays.equals(hash1.getHash(), hash2.getHash()));
+        hash2.removeRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW2));
+        Assert.assertArrayEquals(hash1.getHash(), hash2.getHash());
+        hash1.removeRow("PUBLIC.TEST", StateHash.getRowHash(COLUMNS, ROW1));
+        StateHash empty = new StateHash();
+        empty.addTable("PUBLIC.TEST");
+        Assert.assertArrayEquals(empty.getHash(), hash1.getHash());
+    }
+
+    @Test
+    public void dbIdExcluded() {
+        Object[] row = ROW1.clone();
+        row[0] = 100L;
+        Assert.assertArrayEquals(StateHash.getRowHash(COLUMNS, ROW1), StateHash.getRowHash(COLUMNS, row));
+        row[1] = 11L;
+        Assert.assertFalse(Arrays.equals(StateHash.getRowHash(COLUMNS, ROW1), StateHash.getRowHash(COLUMNS, row)));
+    }
+
+    @Test
+    public void setTableHash() {
+        StateHash hash1 = new StateHash();
+        hash1.addRow("PUBLIC.TEST1", StateHash.getRowHash(COLUMNS, ROW1));
+        hash1.addRow("PUBLIC.TEST2", StateHash.getRowHash(COLUMNS, ROW2));
+        StateHash hash2 = new StateHash();
+        hash1.getTableHashes().forEach(hash2::setTableHash);
+        Assert.assertArrayEquals(hash1.getHash(), hash2.getHash());
+        hash1.addRow("PUBLIC.TEST1", StateHash.getRowHash(COLUMNS, ROW3));
+        hash2.addRow("PUBLIC.TEST1", StateHash.getRowHash(COLUMNS, ROW3));
+        Assert.assertArrayEquals(hash1.getHash(), hash2.getHash());
+    }
+
+    @Test
+    public void excludedColumns() {
+        Object[] row = ROW1.clone();
+        row[5] = false;
+        Set<String> excludedColumns = new HashSet<>(Arrays.asList("DB_ID", "LATEST"));
+        Assert.assertArrayEquals(StateHash.getRowHash(COLUMNS, ROW1, excludedColumns), StateHash.getRowHash(COLUMNS, row, excludedColumns));
+        Assert.assertFalse(Arrays.equals(StateHash.getRowHash(COLUMNS, ROW1), StateHash.getRowHash(COLUMNS, row)));
+    }
+
+    @Test
+    public void encoding() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Object[] values = {null, true, (byte)1, (short)2, 3, 4L, "five", new byte[] {6}, new Object[] {7L, "eight", null}};
+        for (Object value : values) {
+            StateHash.writeValue(out, value);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Object[] result = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = StateHash.readValue(in);
+        }
+        Assert.assertArrayEquals(StateHash.getRowHash(new String[values.length], values), StateHash.getRowHash(new String[values.length], result));
+        Assert.assertEquals("five", result[6]);
+        Assert.assertEquals(4L, result[5]);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.db;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TransactionalDbTest {
+
+    private static TransactionalDb db;
+
+    @BeforeClass
+    public static void init() {
+        db = new TransactionalDb(new BasicDb.DbProperties()
+                .dbUrl("jdbc:h2:mem:statementCache")
+                .dbUsername("sa")
+                .dbPassword("sa")
+                .maxConnections(2)
+                .loginTimeout(1)
+                .defaultLockTimeout(1000)
+                .maxMemoryRows(1000));
+        db.init(Collections.emptyList());
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        db.shutdown();
+    }
+
+    @Test
+    public void statementReuse() throws SQLException {
+        Assume.assumeTrue(TransactionalDb.getStatementCacheSize() > 0);
+        try (Connection con = db.getConnection("PUBLIC")) {
+            PreparedStatement first = prepareAndClose(con, "SELECT 1");
+            long hits = db.getStatementCacheHits();
+            try (PreparedStatement pstmt = con.prepareStatement("SELECT 1")) {
+                Assert.assertSame(first, pstmt.unwrap(PreparedStatement.class));
+                Assert.assertEquals(1, query(pstmt));
+            }
+            Assert.assertEquals(hits + 1, db.getStatementCacheHits());
+            Assert.assertFalse(first.isClosed());
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedEviction() throws SQLException {
+        int cacheSize = TransactionalDb.getStatementCacheSize();
+        Assume.assumeTrue(cacheSize > 1);
+        try (Connection con = db.getConnection("PUBLIC")) {
+            List<PreparedStatement> statements = new ArrayList<>(cacheSize);
+            for (int i = 0; i < cacheSize; i++) {
+                statements.add(prepareAndClose(con, "SELECT " + i));
+            }
+            for (PreparedStatement pstmt : statements) {
+                Assert.assertFalse(pstmt.isClosed());
+            }
+            Assert.assertSame(statements.get(0), prepareAndClose(con, "SELECT 0"));
+            PreparedStatement added = prepareAndClose(con, "SELECT " + cacheSize);
+            Assert.assertTrue(statements.get(1).isClosed());
+            Assert.assertFalse(statements.get(0).isClosed());
+            Assert.assertFalse(added.isClosed());
+            Assert.assertNotSame(statements.get(1), prepareAndClose(con, "SELECT 1"));
+        }
+    }
+
+    @Test
+    public void statementInUse() throws SQLException {
+        int cacheSize = TransactionalDb.getStatementCacheSize();
+        Assume.assumeTrue(cacheSize > 0);
+        try (Connection con = db.getConnection("PUBLIC")) {
+            try (PreparedStatement inUse = con.prepareStatement("SELECT 'in use'")) {
+                for (int i = 0; i <= cacheSize; i++) {
+                    prepareAndClose(con, "SELECT " + i);
+                }
+                Assert.assertFalse(inUse.unwrap(PreparedStatement.class).isClosed());
+                try (ResultSet rs = inUse.executeQuery()) {
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals("in use", rs.getString(1));
+                }
+            }
+            PreparedStatement pstmt1 = con.prepareStatement("SELECT 2");
+            PreparedStatement pstmt2 = con.prepareStatement("SELECT 2");
+            PreparedStatement stmt1 = pstmt1.unwrap(PreparedStatement.class);
+            PreparedStatement stmt2 = pstmt2.unwrap(PreparedStatement.class);
+            Assert.assertNotSame(stmt1, stmt2);
+            pstmt1.close();
+            Assert.assertFalse(stmt1.isClosed());
+            pstmt2.close();
+            Assert.assertTrue(stmt1.isClosed());
+            Assert.assertSame(stmt2, prepareAndClose(con, "SELECT 2"));
+        }
+    }
+
+    @Test
+    public void closeConnection() throws SQLException {
+        Assume.assumeTrue(TransactionalDb.getStatementCacheSize() > 0);
+        PreparedStatement cached;
+        PreparedStatement open;
+        try (Connection con = db.getConnection("PUBLIC")) {
+            cached = prepareAndClose(con, "SELECT 1");
+            open = con.prepareStatement("SELECT 2");
+            Assert.assertFalse(cached.isClosed());
+        }
+        Assert.assertTrue(cached.isClosed());
+        PreparedStatement stmt = open.unwrap(PreparedStatement.class);
+        open.close();
+        Assert.assertTrue(stmt.isClosed());
+        Assert.assertEquals(0, db.getConnectionPool().getActiveConnections());
+    }
+
+    @Test
+    public void leakedIteratorInTransaction() throws Exception {
+        long leakCount = DbIteratorTracker.getLeakCount();
+        openIterator();
+        Assert.assertEquals(1, db.getConnectionPool().getActiveConnections());
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 50 && DbIteratorTracker.getLeakCount() == leakCount; i++) {
+                System.gc();
+                Thread.sleep(20);
+                DbIteratorTracker.checkLeaks();
+            }
+            Assert.assertEquals(leakCount + 1, DbIteratorTracker.getLeakCount());
+            Assert.assertEquals(1, db.getConnectionPool().getActiveConnections());
+        } finally {
+            db.endTransaction();
+        }
+        Assert.assertEquals(0, db.getConnectionPool().getActiveConnections());
+    }
+
+    private static void openIterator() throws SQLException {
+        Connection con = db.getConnection("PUBLIC");
+        DbIterator<Integer> iterator = new DbIterator<>(con, con.prepareStatement("SELECT X FROM SYSTEM_RANGE(1, 10)"),
+                (c, rs) -> rs.getInt(1));
+        Assert.assertTrue(iterator.hasNext());
+    }
+
+    private static PreparedStatement prepareAndClose(Connection con, String sql) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(sql)) {
+            query(pstmt);
+            return pstmt.unwrap(PreparedStatement.class);
+        }
+    }
+
+    private static int query(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            Assert.assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
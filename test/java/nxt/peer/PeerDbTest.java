@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.peer;
+
+import nxt.BlockchainTest;
+import nxt.Nxt;
+import nxt.dbschema.Db;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public class PeerDbTest extends BlockchainTest {
+
+    private static final String ADDRESS = "192.0.2.1:26874";
+
+    private PeerImpl peer;
+
+    @Before
+    public void createPeer() throws UnknownHostException {
+        peer = new PeerImpl(InetAddress.getByName("192.0.2.1"), ADDRESS);
+        peer.setShareAddress(true);
+    }
+
+    @After
+    public void removePeer() {
+        Peers.removePeer(peer);
+        PeerAddressBook.updatePeerDb(Nxt.getEpochTime());
+        executeUpdate("DELETE FROM peer WHERE address = '" + ADDRESS + "'");
+    }
+
+    @Test
+    public void roundTrip() throws UnknownHostException {
+        int now = Nxt.getEpochTime();
+        // restore the peer from a saved entry, as it is done at startup
+        executeUpdate("INSERT INTO peer (address, services, last_updated, last_connected, connect_failures, response_time, "
+                + "response_size, blacklisting_time, blacklisting_cause) VALUES('" + ADDRESS + "', 0, " + now + ", " + (now - 100)
+                + ", 3, 200, 100000, 0, NULL)");
+        PeerAddressBook.setSavedEntries(PeerDb.loadPeers());
+        peer.restore(getEntry(), now);
+        Peers.addPeer(peer);
+        peer.blacklist("test blacklisting");
+        PeerAddressBook.updatePeerDb(now);
+
+        PeerDb.Entry entry = getEntry();
+        Assert.assertEquals(now - 100, entry.getLastConnected());
+        Assert.assertEquals(3, entry.getConnectFailures());
+        Assert.assertEquals(peer.getBlacklistingTime(), entry.getBlacklistingTime());
+        Assert.assertTrue(entry.getBlacklistingTime() > 0);
+        Assert.assertEquals("test blacklisting", entry.getBlacklistingCause());
+
+        PeerImpl restoredPeer = new PeerImpl(InetAddress.getByName("192.0.2.1"), ADDRESS);
+        restoredPeer.restore(entry, now);
+        Assert.assertEquals(now - 100, restoredPeer.getLastConnected());
+        Assert.assertEquals(3, restoredPeer.getConnectFailures());
+        Assert.assertEquals(200, restoredPeer.getBlocksResponseTime());
+        Assert.assertEquals(100000, restoredPeer.getBlocksResponseSize());
+        Assert.assertEquals(entry.getBlacklistingTime(), restoredPeer.getBlacklistingTime());
+        Assert.assertEquals("test blacklisting", restoredPeer.getBlacklistingCause());
+        Assert.assertTrue(restoredPeer.isBlacklisted());
+
+        // an expired blacklisting is not restored
+        restoredPeer = new PeerImpl(InetAddress.getByName("192.0.2.1"), ADDRESS);
+        restoredPeer.restore(entry, entry.getBlacklistingTime() + Peers.blacklistingPeriod);
+        Assert.assertEquals(0, restoredPeer.getBlacklistingTime());
+        Assert.assertNull(restoredPeer.getBlacklistingCause());
+    }
+
+    @Test
+    public void responseStatisticsOnly() {
+        int now = Nxt.getEpochTime();
+        Peers.addPeer(peer);
+        peer.setLastUpdated(now);
+        PeerAddressBook.updatePeerDb(now);
+        Assert.assertEquals(0, getEntry().getResponseTime());
+        // the saved entry differs from the peer only in the response statistics
+        executeUpdate("UPDATE peer SET response_time = 200, response_size = 100000 WHERE address = '" + ADDRESS + "'");
+        PeerAddressBook.setSavedEntries(PeerDb.loadPeers());
+        PeerAddressBook.peerChanged(peer);
+        PeerAddressBook.updatePeerDb(now);
+        PeerDb.Entry entry = getEntry();
+        Assert.assertEquals(200, entry.getResponseTime());
+        Assert.assertEquals(100000, entry.getResponseSize());
+        // a metadata change rewrites the entry along with the current response statistics
+        peer.blacklist("test blacklisting");
+        PeerAddressBook.updatePeerDb(now);
+        entry = getEntry();
+        Assert.assertTrue(entry.getBlacklistingTime() > 0);
+        Assert.assertEquals(0, entry.getResponseTime());
+    }
+
+    private static PeerDb.Entry getEntry() {
+        for (PeerDb.Entry entry : PeerDb.loadPeers()) {
+            if (entry.getAddress().equals(ADDRESS)) {
+                return entry;
+            }
+        }
+        Assert.fail("Peer " + ADDRESS + " not saved");
+        return null;
+    }
+
+    private static void executeUpdate(String sql) {
+        try (Connection con = Db.db.getConnection("PUBLIC");
+             PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+}
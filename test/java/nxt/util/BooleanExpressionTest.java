@@ -20,7 +20,10 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -115,6 +118,46 @@ public class BooleanExpressionTest {
         ).collect(valuesToMap())));
     }
 
+    @Test
+    public void testLazyEvaluation() throws BooleanExpression.BadSyntaxException {
+        BooleanExpression expression = parseExpression("A & B | C & !A | A & D", null);
+        Map<String, BooleanExpression.Value> values = Stream.of(
+                val("A", BooleanExpression.Value.TRUE),
+                val("B", BooleanExpression.Value.TRUE),
+                val("C", BooleanExpression.Value.FALSE),
+                val("D", BooleanExpression.Value.FALSE)
+        ).collect(valuesToMap());
+        List<String> requested = new ArrayList<>();
+        Assert.assertEquals(BooleanExpression.Value.TRUE, expression.evaluate(variable -> {
+            requested.add(variable);
+            return values.get(variable);
+        }));
+        Assert.assertEquals(Arrays.asList("A", "B"), requested);
+
+        values.put("B", BooleanExpression.Value.FALSE);
+        requested.clear();
+        Assert.assertEquals(BooleanExpression.Value.FALSE, expression.evaluate(variable -> {
+            requested.add(variable);
+            return values.get(variable);
+        }));
+        Assert.assertEquals(Arrays.asList("A", "B", "C", "D"), requested);
+
+        requested.clear();
+        Assert.assertEquals(BooleanExpression.Value.UNKNOWN, expression.evaluate(variable -> {
+            requested.add(variable);
+            return null;
+        }));
+        Assert.assertEquals(Arrays.asList("A", "B", "C", "D"), requested);
+    }
+
+    @Test
+    public void testCompile() {
+        BooleanExpression expression = BooleanExpression.compile("A & B | C");
+        Assert.assertSame(expression, BooleanExpression.compile("A & B | C"));
+        Assert.assertNotSame(expression, BooleanExpression.compile("A & B | D"));
+        Assert.assertNotNull(BooleanExpression.compile("A &").getSyntaxException());
+    }
+
     @Test
     public void testComplexExpression() throws BooleanExpression.BadSyntaxException {
         BooleanExpression expression = parseExpression("A & !C | !A & B", null);
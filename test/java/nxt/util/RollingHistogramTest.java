@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+
+package nxt.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RollingHistogramTest {
+
+    @Test
+    public void percentiles() {
+        RollingHistogram histogram = new RollingHistogram(100);
+        for (int i = 100; i > 0; i--) {
+            histogram.add(i);
+        }
+        RollingHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(50, snapshot.getMean());
+        Assert.assertEquals(1, snapshot.getPercentile(0));
+        Assert.assertEquals(50, snapshot.getPercentile(50));
+        Assert.assertEquals(99, snapshot.getPercentile(99));
+        Assert.assertEquals(100, snapshot.getPercentile(100));
+        Assert.assertEquals(100, snapshot.getMax());
+    }
+
+    @Test
+    public void rolling() {
+        RollingHistogram histogram = new RollingHistogram(10);
+        for (int i = 1; i <= 25; i++) {
+            histogram.add(i);
+        }
+        RollingHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(10, snapshot.getCount());
+        Assert.assertEquals(25, snapshot.getTotalCount());
+        Assert.assertEquals(325, snapshot.getTotalValue());
+        Assert.assertEquals(16, snapshot.getPercentile(0));
+        Assert.assertEquals(25, snapshot.getMax());
+        histogram.reset();
+        snapshot = histogram.getSnapshot();
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getTotalCount());
+        Assert.assertEquals(0, snapshot.getMax());
+        Assert.assertEquals(0, snapshot.getPercentile(50));
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class LongBloomFilterTest {
+
+    @Test
+    public void noFalseNegatives() {
+        LongBloomFilter filter = new LongBloomFilter(10000, 0.01);
+        Random random = new Random(1);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong();
+            filter.add(values[i]);
+        }
+        for (long value : values) {
+            Assert.assertTrue(filter.mightContain(value));
+        }
+        Assert.assertEquals(values.length, filter.getCount());
+    }
+
+    @Test
+    public void falsePositiveRate() {
+        LongBloomFilter filter = new LongBloomFilter(10000, 0.01);
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+            filter.add(random.nextLong());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives += 1;
+            }
+        }
+        Assert.assertTrue("False positives " + falsePositives, falsePositives < 2000);
+        Assert.assertTrue(filter.getExpectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    public void serialization() {
+        LongBloomFilter filter = new LongBloomFilter(1000, 0.01);
+        for (long value = 1; value <= 1000; value++) {
+            filter.add(value * 7919);
+        }
+        LongBloomFilter copy = LongBloomFilter.fromBytes(filter.toBytes());
+        Assert.assertEquals(filter.getBitCount(), copy.getBitCount());
+        Assert.assertEquals(filter.getNumHashes(), copy.getNumHashes());
+        Assert.assertEquals(filter.getCapacity(), copy.getCapacity());
+        Assert.assertEquals(filter.getCount(), copy.getCount());
+        for (long value = 1; value <= 1000; value++) {
+            Assert.assertTrue(copy.mightContain(value * 7919));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBytes() {
+        LongBloomFilter.fromBytes(new byte[40]);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LongHashMapTest {
+
+    @Test
+    public void putGetRemove() {
+        LongHashMap<String> map = new LongHashMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.put(1, "one"));
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertNull(map.put(-1, "minus one"));
+        Assert.assertEquals("one", map.put(1, "ONE"));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("ONE", map.get(1));
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertTrue(map.containsKey(-1));
+        Assert.assertFalse(map.containsKey(2));
+        Assert.assertEquals("zero", map.remove(0));
+        Assert.assertNull(map.remove(0));
+        Assert.assertFalse(map.containsKey(0));
+        Assert.assertEquals("computed", map.computeIfAbsent(2, key -> "computed"));
+        Assert.assertEquals("ONE", map.computeIfAbsent(1, key -> "not computed"));
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertNull(map.get(1));
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(1);
+        LongHashMap<Long> map = new LongHashMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // a small key range so that keys are removed and added again
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, (long)i), map.put(key, (long)i));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        expected.forEach((key, value) -> Assert.assertEquals(value, map.get(key)));
+        List<Long> keys = new ArrayList<>();
+        map.forEach((key, value) -> {
+            Assert.assertEquals(expected.get(key), value);
+            keys.add(key);
+        });
+        Assert.assertEquals(expected.keySet(), new HashSet<>(keys));
+        Assert.assertEquals(expected.size(), map.keys().length);
+        Assert.assertEquals(expected.size(), map.values().size());
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2013-2016 The Nxt Core Developers.
+ * Copyright © 2016-2018 Jelurida IP B.V.
+ *
+ * See the LICENSE.txt file at the top-level directory of this distribution
+ * for licensing information.
+ *
+ * Unless otherwise agreed in a custom licensing agreement with Jelurida B.V.,
+ * no part of this software, including this file, may be copied, modified,
+ * propagated, or distributed except according to the terms contained in the
+ * LICENSE.txt file.
+ *
+ * Removal or modification of this copyright notice is prohibited.
+ *
+ */
+package nxt.util.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class LongHashSetTest {
+
+    @Test
+    public void addRemove() {
+        LongHashSet set = new LongHashSet();
+        Assert.assertTrue(set.add(5));
+        Assert.assertTrue(set.add(0));
+        Assert.assertFalse(set.add(5));
+        Assert.assertFalse(set.add(0));
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.contains(0));
+        Assert.assertTrue(set.remove(0));
+        Assert.assertFalse(set.contains(0));
+        Assert.assertFalse(set.remove(6));
+        Assert.assertArrayEquals(new long[] {5}, set.toArray());
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(2);
+        LongHashSet set = new LongHashSet(1);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                Assert.assertEquals(expected.add(key), set.add(key));
+            }
+            Assert.assertEquals(expected.size(), set.size());
+        }
+        for (long key = -1000; key < 1000; key++) {
+            Assert.assertEquals(expected.contains(key), set.contains(key));
+        }
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        Assert.assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), values);
+    }
+
+}